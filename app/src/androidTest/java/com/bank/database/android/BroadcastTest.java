@@ -0,0 +1,91 @@
+package com.bank.database.android;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that a broadcast is left once for every recipient, that their message counts include it,
+ * and that its rows are stamped for the next backup. Runs on a scratch database on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BroadcastTest {
+
+  /**
+   * The name of the scratch database file.
+   */
+  private static final String DATABASE_NAME = "broadcast_test.db";
+
+  private Context context;
+  private DatabaseDriverA driver;
+  private int tellerRole;
+  private int customerRole;
+
+  @Before
+  public void openDatabase() {
+    context = InstrumentationRegistry.getTargetContext();
+    context.deleteDatabase(DATABASE_NAME);
+    driver = new DatabaseDriverA(context, DATABASE_NAME, StorageProfile.STANDARD);
+    tellerRole = (int) driver.insertRole("TELLER");
+    customerRole = (int) driver.insertRole("CUSTOMER");
+  }
+
+  @After
+  public void deleteDatabase() {
+    driver.close();
+    context.deleteDatabase(DATABASE_NAME);
+  }
+
+  private int insertUser(String name, int roleId) {
+    return (int) driver.insertNewUser(name, 30, "1 Main St", roleId, "password");
+  }
+
+  private long broadcastRowsStamped() {
+    return driver.getReadableDatabase().compileStatement("SELECT COUNT(*) "
+            + "FROM USERMESSAGES WHERE BROADCASTID IS NOT NULL "
+            + "AND CHANGESEQ = (SELECT GENERATION FROM BACKUPSTATE WHERE ID = 1)")
+            .simpleQueryForLong();
+  }
+
+  @Test
+  public void broadcastToRoleCountsEveryRecipient() {
+    int teller = insertUser("Teller", tellerRole);
+    int first = insertUser("First", customerRole);
+    int second = insertUser("Second", customerRole);
+    int third = insertUser("Third", customerRole);
+    driver.insertMessage(first, "Welcome");
+
+    assertEquals(3, driver.insertBroadcastToRole("Branch closed Monday", customerRole));
+
+    assertEquals(2, driver.getMessageCount(first));
+    assertEquals(2, driver.getUnreadMessageCount(first));
+    assertEquals(1, driver.getUnreadMessageCount(second));
+    assertEquals(1, driver.getUnreadMessageCount(third));
+    assertEquals(0, driver.getMessageCount(teller));
+    assertEquals(3, broadcastRowsStamped());
+  }
+
+  @Test
+  public void broadcastToUsersSkipsRepeatsAndUnknownUsers() {
+    int teller = insertUser("Teller", tellerRole);
+    int customer = insertUser("Customer", customerRole);
+
+    assertEquals(2, driver.insertBroadcastToUsers("Rates are changing",
+            new int[] {customer, teller, customer, customer + 100}, -1));
+    // only customers, of those given
+    assertEquals(1, driver.insertBroadcastToUsers("New card on its way",
+            new int[] {customer, teller}, customerRole));
+
+    assertEquals(2, driver.getUnreadMessageCount(customer));
+    assertEquals(1, driver.getUnreadMessageCount(teller));
+    assertEquals(3, broadcastRowsStamped());
+  }
+
+}
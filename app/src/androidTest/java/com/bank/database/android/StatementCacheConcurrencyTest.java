@@ -0,0 +1,100 @@
+package com.bank.database.android;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.bank.ledger.LedgerEntryType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a cached read waiting for the connection never holds up a writer that already has
+ * the connection in a transaction. Runs on a scratch database on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatementCacheConcurrencyTest {
+
+  /**
+   * The name of the scratch database file.
+   */
+  private static final String DATABASE_NAME = "statement_cache_test.db";
+
+  /**
+   * How long either thread may take before the test counts it as stuck.
+   */
+  private static final long TIMEOUT_SECONDS = 10;
+
+  private Context context;
+  private DatabaseDriverA driver;
+  private ExecutorService threads;
+
+  @Before
+  public void openDatabase() {
+    context = InstrumentationRegistry.getTargetContext();
+    context.deleteDatabase(DATABASE_NAME);
+    // a rollback journal keeps the pool to one connection, so the reader has to wait for it
+    driver = new DatabaseDriverA(context, DATABASE_NAME, StorageProfile.MAX_DURABILITY);
+    threads = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void deleteDatabase() throws InterruptedException {
+    threads.shutdownNow();
+    assertTrue(threads.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    driver.close();
+    context.deleteDatabase(DATABASE_NAME);
+  }
+
+  @Test(timeout = 30000)
+  public void cachedReadDoesNotBlockWriterInTransaction() throws Exception {
+    final int accountId = (int) driver.insertAccount("Chequing", 100, 1);
+    final CountDownLatch writerInTransaction = new CountDownLatch(1);
+    final CountDownLatch readerStarted = new CountDownLatch(1);
+
+    Future<Boolean> writer = threads.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        driver.beginTransaction();
+        try {
+          writerInTransaction.countDown();
+          readerStarted.await();
+          // let the reader reach the connection pool before writing
+          Thread.sleep(200);
+          boolean deposited = driver.updateAccountBalanceBy(500, accountId,
+                  LedgerEntryType.DEPOSIT);
+          driver.setTransactionSuccessful();
+          return deposited;
+        } finally {
+          driver.endTransaction();
+        }
+      }
+    });
+    Future<Long> reader = threads.submit(new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        writerInTransaction.await();
+        readerStarted.countDown();
+        return driver.getBalance(accountId);
+      }
+    });
+
+    assertTrue(writer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    // the reader waited for the writer's transaction to commit
+    assertEquals(600L, (long) reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+  }
+
+}
@@ -0,0 +1,217 @@
+package com.bank.database.android;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the throughput of each storage profile on a mixed deposit and withdrawal workload.
+ * Every operation reads a balance and writes it back in its own transaction, the same way a
+ * teller does, so the result is dominated by the cost of each commit. The benchmark runs on its
+ * own scratch database and never touches bank.db. Run it on a device as an instrumentation test
+ * and read the results from the log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageBenchmark {
+
+  /**
+   * The tag the results are logged under.
+   */
+  private static final String TAG = "StorageBenchmark";
+
+  /**
+   * The name of the scratch database file.
+   */
+  private static final String DATABASE_NAME = "storage_benchmark.db";
+
+  /**
+   * Seed for the workload, so every profile runs the same operations.
+   */
+  private static final long SEED = 20170717L;
+
+  /**
+   * The throughput of one storage profile.
+   */
+  public static class Result {
+
+    private final StorageProfile profile;
+    private final int operations;
+    private final long elapsedNanos;
+
+    Result(StorageProfile profile, int operations, long elapsedNanos) {
+      this.profile = profile;
+      this.operations = operations;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public StorageProfile getProfile() {
+      return profile;
+    }
+
+    public int getOperations() {
+      return operations;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getOperationsPerSecond() {
+      return elapsedNanos == 0 ? 0.0 : operations * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.CANADA, "%s: %d operations in %.1f ms, %.0f operations/s",
+              profile, operations, elapsedNanos / 1e6, getOperationsPerSecond());
+    }
+  }
+
+  @Test
+  public void everyProfileRunsTheWorkload() throws Exception {
+    Context context = InstrumentationRegistry.getTargetContext();
+    List<Result> results = runAll(context, 100, 2000);
+    assertEquals(StorageProfile.values().length, results.size());
+    for (Result result : results) {
+      Log.i(TAG, result.toString());
+      assertEquals(2000, result.getOperations());
+    }
+  }
+
+  /**
+   * Runs the workload once for every storage profile.
+   *
+   * @param context to create the scratch database
+   * @param accounts the number of accounts to spread the operations over
+   * @param operations the number of deposits and withdrawals to make
+   * @return the result of each profile
+   */
+  public static List<Result> runAll(Context context, int accounts, int operations) {
+    List<Result> results = new ArrayList<>();
+    for (StorageProfile profile : StorageProfile.values()) {
+      results.add(run(context, profile, accounts, operations));
+    }
+    return results;
+  }
+
+  /**
+   * Runs the workload on a fresh scratch database opened with the given storage profile.
+   *
+   * @param context to create the scratch database
+   * @param profile the storage profile to measure
+   * @param accounts the number of accounts to spread the operations over
+   * @param operations the number of deposits and withdrawals to make
+   * @return the throughput of the profile
+   */
+  public static Result run(Context context, StorageProfile profile, int accounts,
+                           int operations) {
+    context.deleteDatabase(DATABASE_NAME);
+    BenchmarkHelper helper = new BenchmarkHelper(context, profile);
+    try {
+      SQLiteDatabase sqLiteDatabase = helper.getWritableDatabase();
+      seed(sqLiteDatabase, accounts);
+      SQLiteStatement selectBalance = sqLiteDatabase.compileStatement(
+              "SELECT BALANCE FROM ACCOUNTS WHERE ID = ?");
+      SQLiteStatement updateBalance = sqLiteDatabase.compileStatement(
+              "UPDATE ACCOUNTS SET BALANCE = ? WHERE ID = ?");
+      Random random = new Random(SEED);
+      long start = System.nanoTime();
+      for (int i = 0; i < operations; i++) {
+        int accountId = 1 + random.nextInt(accounts);
+        long amount = 1 + random.nextInt(10000);
+        boolean deposit = random.nextBoolean();
+        sqLiteDatabase.beginTransaction();
+        try {
+          selectBalance.bindLong(1, accountId);
+          long balance = selectBalance.simpleQueryForLong();
+          if (deposit || balance >= amount) {
+            updateBalance.bindLong(1, deposit ? balance + amount : balance - amount);
+            updateBalance.bindLong(2, accountId);
+            updateBalance.executeUpdateDelete();
+          }
+          sqLiteDatabase.setTransactionSuccessful();
+        } finally {
+          sqLiteDatabase.endTransaction();
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      selectBalance.close();
+      updateBalance.close();
+      return new Result(profile, operations, elapsed);
+    } finally {
+      helper.close();
+      context.deleteDatabase(DATABASE_NAME);
+    }
+  }
+
+  /**
+   * Writes the accounts the workload runs over, in one transaction.
+   *
+   * @param sqLiteDatabase the scratch database
+   * @param accounts the number of accounts to write
+   */
+  private static void seed(SQLiteDatabase sqLiteDatabase, int accounts) {
+    SQLiteStatement insertAccount = sqLiteDatabase.compileStatement(
+            "INSERT INTO ACCOUNTS (ID, NAME, BALANCE, TYPE) VALUES (?, ?, ?, 1)");
+    sqLiteDatabase.beginTransaction();
+    try {
+      for (int accountId = 1; accountId <= accounts; accountId++) {
+        insertAccount.bindLong(1, accountId);
+        insertAccount.bindString(2, "BENCHMARK");
+        insertAccount.bindLong(3, 100000);
+        insertAccount.executeInsert();
+      }
+      sqLiteDatabase.setTransactionSuccessful();
+    } finally {
+      sqLiteDatabase.endTransaction();
+      insertAccount.close();
+    }
+  }
+
+  /**
+   * Opens the scratch database with a storage profile and the bank's Accounts table.
+   */
+  private static class BenchmarkHelper extends SQLiteOpenHelper {
+
+    private final StorageProfile profile;
+
+    BenchmarkHelper(Context context, StorageProfile profile) {
+      super(context, DATABASE_NAME, null, 1);
+      this.profile = profile;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase sqLiteDatabase) {
+      profile.apply(sqLiteDatabase);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase sqLiteDatabase) {
+      sqLiteDatabase.execSQL("CREATE TABLE ACCOUNTS "
+              + "(ID INTEGER PRIMARY KEY NOT NULL,"
+              + "NAME TEXT NOT NULL,"
+              + "BALANCE INTEGER,"
+              + "TYPE INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+      // the scratch database is deleted after every run
+    }
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.bank.database.android;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.bank.ledger.LedgerEntryType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a write-ahead logging profile lets reads run beside an open write transaction.
+ * Runs on a scratch database on a device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageProfileTest {
+
+  /**
+   * The name of the scratch database file.
+   */
+  private static final String DATABASE_NAME = "storage_profile_test.db";
+
+  /**
+   * How long the reader may take before the test counts it as waiting for the writer.
+   */
+  private static final long TIMEOUT_SECONDS = 5;
+
+  private Context context;
+  private DatabaseDriverA driver;
+  private ExecutorService threads;
+
+  @Before
+  public void openDatabase() {
+    context = InstrumentationRegistry.getTargetContext();
+    context.deleteDatabase(DATABASE_NAME);
+    driver = new DatabaseDriverA(context, DATABASE_NAME, StorageProfile.STANDARD);
+    threads = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void deleteDatabase() throws InterruptedException {
+    threads.shutdownNow();
+    assertTrue(threads.awaitTermination(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    driver.close();
+    context.deleteDatabase(DATABASE_NAME);
+  }
+
+  @Test(timeout = 30000)
+  public void readDoesNotWaitForOpenWrite() throws Exception {
+    assertTrue(driver.getWritableDatabase().isWriteAheadLoggingEnabled());
+    final int accountId = (int) driver.insertAccount("Chequing", 100, 1);
+    final CountDownLatch written = new CountDownLatch(1);
+
+    driver.beginTransaction();
+    try {
+      assertTrue(driver.updateAccountBalanceBy(500, accountId, LedgerEntryType.DEPOSIT));
+      Future<Long> reader = threads.submit(new Callable<Long>() {
+        @Override
+        public Long call() throws Exception {
+          written.await();
+          return driver.getBalance(accountId);
+        }
+      });
+      written.countDown();
+      // answered from a read connection while the write is still open, so the old balance
+      assertEquals(100L, (long) reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      driver.setTransactionSuccessful();
+    } finally {
+      driver.endTransaction();
+    }
+    assertEquals(600L, driver.getBalance(accountId));
+  }
+
+}
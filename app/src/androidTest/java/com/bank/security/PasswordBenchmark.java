@@ -0,0 +1,139 @@
+package com.bank.security;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures how long a login spends verifying a password at each PBKDF2 cost, so the cost can be
+ * chosen against the number of logins a device has to serve. Each cost hashes one password and
+ * then verifies it repeatedly, the way a login does, after a few untimed verifications to let
+ * the runtime compile the loop. Run it on a device as an instrumentation test and read the
+ * results from the log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PasswordBenchmark {
+
+  /**
+   * The tag the results are logged under.
+   */
+  private static final String TAG = "PasswordBenchmark";
+
+  /**
+   * The costs measured when none are given.
+   */
+  public static final int[] DEFAULT_ITERATIONS = {1000, 5000, 10000, 20000, 50000, 100000};
+
+  /**
+   * The number of untimed verifications before each cost is measured.
+   */
+  private static final int WARMUP = 5;
+
+  private static final String PASSWORD = "benchmark-password";
+
+  /**
+   * The verification cost of one number of iterations.
+   */
+  public static class Result {
+
+    private final int iterations;
+    private final int verifications;
+    private final long elapsedNanos;
+
+    Result(int iterations, int verifications, long elapsedNanos) {
+      this.iterations = iterations;
+      this.verifications = verifications;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getIterations() {
+      return iterations;
+    }
+
+    public int getVerifications() {
+      return verifications;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getMillisPerVerification() {
+      return verifications == 0 ? 0.0 : elapsedNanos / 1e6 / verifications;
+    }
+
+    public double getVerificationsPerSecond() {
+      return elapsedNanos == 0 ? 0.0 : verifications * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.CANADA, "%d iterations: %.2f ms a verification, %.1f logins/s",
+              iterations, getMillisPerVerification(), getVerificationsPerSecond());
+    }
+  }
+
+  @Test
+  public void everyCostVerifies() {
+    List<Result> results = runAll(10);
+    assertEquals(DEFAULT_ITERATIONS.length, results.size());
+    for (Result result : results) {
+      Log.i(TAG, result.toString());
+      assertEquals(10, result.getVerifications());
+    }
+  }
+
+  /**
+   * Measures every default cost.
+   *
+   * @param verifications the number of verifications to time at each cost
+   * @return the result of each cost
+   */
+  public static List<Result> runAll(int verifications) {
+    List<Result> results = new ArrayList<>();
+    for (int iterations : DEFAULT_ITERATIONS) {
+      results.add(run(iterations, verifications));
+    }
+    return results;
+  }
+
+  /**
+   * Measures the time taken to verify a password hashed with the given number of iterations.
+   *
+   * @param iterations the cost of the hash
+   * @param verifications the number of verifications to time
+   * @return the verification cost
+   */
+  public static Result run(int iterations, int verifications) {
+    PasswordHasher hasher = new Pbkdf2PasswordHasher(iterations);
+    String storedHash = hasher.hash(PASSWORD);
+    for (int i = 0; i < WARMUP; i++) {
+      check(hasher.verify(storedHash, PASSWORD));
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < verifications; i++) {
+      check(hasher.verify(storedHash, PASSWORD));
+    }
+    return new Result(iterations, verifications, System.nanoTime() - start);
+  }
+
+  /**
+   * Uses the result of a verification, so it can not be optimized away.
+   *
+   * @param verified the result of a verification
+   */
+  private static void check(boolean verified) {
+    if (!verified) {
+      throw new IllegalStateException("benchmark password did not verify");
+    }
+  }
+
+}
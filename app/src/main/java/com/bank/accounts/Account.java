@@ -1,8 +1,9 @@
 package com.bank.accounts;
 
 import com.bank.databasehelper.DatabaseSelectHelper;
-import com.bank.databasehelper.DatabaseUpdateHelper;
+import com.bank.databasehelper.DatabaseTransactionHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.exceptions.ConnectionFailedException;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -30,7 +31,7 @@ public abstract class Account implements Serializable {
   /**
    * The total balance amount this account holds.
    */
-  private BigDecimal balance;
+  private Money balance;
 
   /**
    * The interest rate of this chequing account.
@@ -42,6 +43,11 @@ public abstract class Account implements Serializable {
    */
   private int type = DatabaseValidHelper.INVALID_ID;
 
+  /**
+   * The name of this account's type, <code>null</code> if it has not been set.
+   */
+  private String typeName;
+
   /**
    * Returns the ID number of this account.
    * 
@@ -84,18 +90,45 @@ public abstract class Account implements Serializable {
    * @return the account's balance
    */
   public BigDecimal getBalance() {
+    return balance == null ? null : balance.toBigDecimal();
+  }
+
+  /**
+   * Returns the balance this account holds as an amount of money.
+   *
+   * @return the account's balance
+   */
+  public Money getMoneyBalance() {
     return balance;
   }
 
   /**
    * Sets the new balance this account holds.
    * 
-   * @param balance the account's new balance
+   * @param balance the account's new balance, with at most two decimal places
    */
   public void setBalance(BigDecimal balance) {
+    this.balance = balance == null ? null : Money.of(balance);
+  }
+
+  /**
+   * Sets the new balance this account holds.
+   *
+   * @param balance the account's new balance
+   */
+  public void setBalance(Money balance) {
     this.balance = balance;
   }
 
+  /**
+   * Sets the type number of this account, for when it is already known by the caller.
+   *
+   * @param type the account's type number
+   */
+  protected void setType(int type) {
+    this.type = type;
+  }
+
   /**
    * Finds the account type as listed in the Accounts table, and sets the given account type to this
    * account.
@@ -113,6 +146,27 @@ public abstract class Account implements Serializable {
     return type;
   }
 
+  /**
+   * Sets the type name of this account, for when it is already known by the caller.
+   *
+   * @param typeName the name of the account's type
+   */
+  protected void setTypeName(String typeName) {
+    this.typeName = typeName;
+  }
+
+  /**
+   * Returns the name of this account's type, looking it up if it has not been set.
+   *
+   * @return the account's type name
+   */
+  public String getTypeName() {
+    if (typeName == null) {
+      typeName = DatabaseSelectHelper.getAccountTypeName(getType());
+    }
+    return typeName;
+  }
+
   /**
    * Finds the interest rate as listed in the AccountTypes table, and sets the given interest rate
    * to this account.
@@ -121,26 +175,56 @@ public abstract class Account implements Serializable {
     interestRate = DatabaseSelectHelper.getInterestRate(getType());
   }
 
+  /**
+   * Returns the interest rate of this account, <code>null</code> if it has not been set.
+   *
+   * @return the account's interest rate
+   */
+  public BigDecimal getInterestRate() {
+    return interestRate;
+  }
+
+  /**
+   * Sets the interest rate of this account, for when it is already known by the caller.
+   *
+   * @param interestRate the account's interest rate
+   */
+  protected void setInterestRate(BigDecimal interestRate) {
+    this.interestRate = interestRate;
+  }
+
   /**
    * Calculates the interest on the current account balance, and updates the balance of this
-   * chequing account with the added interest.
+   * chequing account with the added interest. The interest on a balance owing account is
+   * negative, and is charged to it the same way.
    * 
-   * @return the interest amount added to the account's balance
-   */
-  public BigDecimal addInterest() {
-    BigDecimal interest = BigDecimal.ZERO;
-    if (interestRate != null) {
-      // calculate the balance with added interest
-      BigDecimal interestMultiplier = interestRate.add(BigDecimal.ONE);
-      BigDecimal newBalance = balance.multiply(interestMultiplier);
-      newBalance = newBalance.setScale(2, RoundingMode.CEILING);
-      interest = newBalance.subtract(balance);
-      // set the balance to the new balance
-      if (DatabaseUpdateHelper.updateAccountBalance(newBalance, getId())) {
-        setBalance(newBalance);
-      }
+   * @return the interest amount added to the account's balance, zero if none was added
+   * @throws ConnectionFailedException if the database failed to add the interest
+   */
+  public Money addInterest() throws ConnectionFailedException {
+    if (interestRate == null) {
+      return Money.ZERO;
     }
+    Money interest = calculateInterest(balance, interestRate);
+    // add the interest to the stored balance, journalled as interest
+    if (interest.signum() == 0 || !DatabaseTransactionHelper.addInterest(getId(), interest)) {
+      return Money.ZERO;
+    }
+    setBalance(balance.plus(interest));
     return interest;
   }
 
+  /**
+   * Calculates the interest on a balance, rounding the new balance up to the cent. The interest
+   * has the sign of the balance, so a balance owing is charged interest.
+   *
+   * @param balance the balance to calculate interest on
+   * @param interestRate the interest rate
+   * @return the interest to add to the balance
+   */
+  public static Money calculateInterest(Money balance, BigDecimal interestRate) {
+    Money newBalance = balance.multiply(interestRate.add(BigDecimal.ONE), RoundingMode.CEILING);
+    return newBalance.minus(balance);
+  }
+
 }
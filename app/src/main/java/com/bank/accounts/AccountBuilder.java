@@ -31,6 +31,30 @@ public interface AccountBuilder {
    */
   public AccountBuilder setBalance(BigDecimal balance);
 
+  /**
+   * Sets the initial balance of the account.
+   *
+   * @param balance the balance of the account
+   * @return the account builder (for method cascading)
+   */
+  public AccountBuilder setBalance(Money balance);
+
+  /**
+   * Sets the account type number of the account, so that it does not have to be looked up.
+   *
+   * @param typeId the account type ID number
+   * @return the account builder (for method cascading)
+   */
+  public AccountBuilder setType(int typeId);
+
+  /**
+   * Sets the interest rate of the account, so that it does not have to be looked up.
+   *
+   * @param interestRate the interest rate of the account type
+   * @return the account builder (for method cascading)
+   */
+  public AccountBuilder setInterestRate(BigDecimal interestRate);
+
   /**
    * Returns the newly created account object.
    * 
@@ -0,0 +1,195 @@
+package com.bank.accounts;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An immutable amount of money, held as a whole number of cents. Adding and subtracting amounts is
+ * exact and never allocates a BigDecimal; only scaling by a rate needs an explicit rounding mode.
+ */
+public final class Money implements Serializable, Comparable<Money> {
+
+  /**
+   * Serial version ID.
+   */
+  private static final long serialVersionUID = 2203374651839012761L;
+
+  /**
+   * Number of decimal places every amount is held at.
+   */
+  public static final int SCALE = 2;
+
+  /**
+   * An amount of zero.
+   */
+  public static final Money ZERO = new Money(0);
+
+  /**
+   * The amount, in cents.
+   */
+  private final long cents;
+
+  /**
+   * Creates an amount of money from a number of cents.
+   *
+   * @param cents the amount in cents
+   */
+  private Money(long cents) {
+    this.cents = cents;
+  }
+
+  /**
+   * Returns the amount of money of the given number of cents.
+   *
+   * @param cents the amount in cents
+   * @return the amount of money
+   */
+  public static Money ofCents(long cents) {
+    return cents == 0 ? ZERO : new Money(cents);
+  }
+
+  /**
+   * Returns the amount of money equal to the given decimal amount.
+   *
+   * @param amount a decimal amount with at most two non-zero decimal places
+   * @return the amount of money
+   * @throws ArithmeticException if the amount has more than two decimal places or is out of range
+   */
+  public static Money of(BigDecimal amount) {
+    return of(amount, RoundingMode.UNNECESSARY);
+  }
+
+  /**
+   * Returns the amount of money nearest to the given decimal amount, rounded to cents.
+   *
+   * @param amount a decimal amount
+   * @param roundingMode how to round away digits past the cents
+   * @return the amount of money
+   * @throws ArithmeticException if rounding is needed but not allowed, or out of range
+   */
+  public static Money of(BigDecimal amount, RoundingMode roundingMode) {
+    return ofCents(amount.setScale(SCALE, roundingMode).unscaledValue().longValueExact());
+  }
+
+  /**
+   * Returns <code>true</code> if the decimal amount can be held exactly as a number of cents.
+   *
+   * @param amount a decimal amount
+   * @return <code>true</code> if the amount has at most two non-zero decimal places
+   */
+  public static boolean isExact(BigDecimal amount) {
+    try {
+      of(amount);
+      return true;
+    } catch (ArithmeticException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the amount in cents.
+   *
+   * @return the amount in cents
+   */
+  public long getCents() {
+    return cents;
+  }
+
+  /**
+   * Returns the sum of this amount and the other amount.
+   *
+   * @param other the amount to add
+   * @return the sum of the amounts
+   * @throws ArithmeticException if the sum is out of range
+   */
+  public Money plus(Money other) {
+    return ofCents(Math.addExact(cents, other.cents));
+  }
+
+  /**
+   * Returns the difference of this amount and the other amount.
+   *
+   * @param other the amount to subtract
+   * @return the difference of the amounts
+   * @throws ArithmeticException if the difference is out of range
+   */
+  public Money minus(Money other) {
+    return ofCents(Math.subtractExact(cents, other.cents));
+  }
+
+  /**
+   * Returns the negation of this amount.
+   *
+   * @return the negated amount
+   */
+  public Money negate() {
+    return ofCents(Math.negateExact(cents));
+  }
+
+  /**
+   * Returns this amount scaled by the given multiplier, rounded to cents.
+   *
+   * @param multiplier the multiplier, such as one plus an interest rate
+   * @param roundingMode how to round away digits past the cents
+   * @return the scaled amount
+   */
+  public Money multiply(BigDecimal multiplier, RoundingMode roundingMode) {
+    return of(toBigDecimal().multiply(multiplier), roundingMode);
+  }
+
+  /**
+   * Returns -1, 0 or 1 as this amount is negative, zero or positive.
+   *
+   * @return the sign of this amount
+   */
+  public int signum() {
+    return Long.signum(cents);
+  }
+
+  /**
+   * Returns this amount as a decimal with two decimal places.
+   *
+   * @return this amount as a BigDecimal
+   */
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(cents, other.cents);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Money && ((Money) other).cents == cents;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(cents);
+  }
+
+  /**
+   * Returns this amount in plain notation with two decimal places, such as "-12.30".
+   *
+   * @return this amount as a string
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(24);
+    if (cents < 0) {
+      builder.append('-');
+    }
+    // Long.MIN_VALUE can not be negated, so work with the magnitude of each part separately
+    long whole = Math.abs(cents / 100);
+    int fraction = (int) Math.abs(cents % 100);
+    builder.append(whole).append('.');
+    if (fraction < 10) {
+      builder.append('0');
+    }
+    return builder.append(fraction).toString();
+  }
+
+}
@@ -1,5 +1,6 @@
 package com.bank.accounts;
 
+import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.generics.AccountTypes;
 import java.math.BigDecimal;
 
@@ -34,6 +35,9 @@ public class SolidAccountBuilder implements AccountBuilder {
     } else {
       // TODO: throws invalid account type exception?
     }
+    if (account != null) {
+      account.setTypeName(typeName);
+    }
   }
 
   @Override
@@ -54,10 +58,33 @@ public class SolidAccountBuilder implements AccountBuilder {
     return this;
   }
 
+  @Override
+  public AccountBuilder setBalance(Money balance) {
+    account.setBalance(balance);
+    return this;
+  }
+
+  @Override
+  public AccountBuilder setType(int typeId) {
+    account.setType(typeId);
+    return this;
+  }
+
+  @Override
+  public AccountBuilder setInterestRate(BigDecimal interestRate) {
+    account.setInterestRate(interestRate);
+    return this;
+  }
+
   @Override
   public Account buildAccount() {
-    account.findAndSetAccountType();
-    account.findAndSetInterestRate();
+    // only look up what the caller did not already provide
+    if (account.getType() == DatabaseValidHelper.INVALID_ID) {
+      account.findAndSetAccountType();
+    }
+    if (account.getInterestRate() == null) {
+      account.findAndSetInterestRate();
+    }
     return account;
   }
 
@@ -16,7 +16,7 @@ public class TaxFreeSavingsAccount extends Account {
   /**
    * Minimum balance for this account to remain a TFSA.
    */
-  public static final BigDecimal MIN_BALANCE = new BigDecimal(5000.00);
+  public static final Money MIN_BALANCE = Money.ofCents(500000);
 
   /**
    * Creates a nullified tax-free savings account for account builder.
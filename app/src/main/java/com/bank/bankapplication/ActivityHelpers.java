@@ -5,7 +5,6 @@ import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
 
 import com.bank.accounts.Account;
-import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.users.User;
 
 import java.math.BigDecimal;
@@ -34,19 +33,26 @@ class ActivityHelpers {
   }
 
   /**
-   * Converts a list of user objects to a list of user info strings.
+   * Converts a user object to a user info string.
    *
-   * @param users a list of user objects
-   * @return a list of user info strings
+   * @param user a user object
+   * @return the user info string
    */
-  static ArrayList<String> userListToStringList(List<User> users) {
-    ArrayList<String> userInfoList = new ArrayList<>();
-    for (User user : users) {
-      String userInfo = String.format(Locale.CANADA, "ID: %d\nName: %s\nAge: %d\nAddress: %s",
-              user.getId(), user.getName(), user.getAge(), user.getAddress());
-      userInfoList.add(userInfo);
-    }
-    return userInfoList;
+  static String userToString(User user) {
+    return String.format(Locale.CANADA, "ID: %d\nName: %s\nAge: %d\nAddress: %s",
+            user.getId(), user.getName(), user.getAge(), user.getAddress());
+  }
+
+  /**
+   * Converts an account object to an account info string.
+   *
+   * @param account an account object
+   * @return the account info string
+   */
+  static String accountToString(Account account) {
+    // the type name was read with the account, so formatting a row looks nothing up
+    return String.format(Locale.CANADA, "%d - %s\n%s\n%s",
+            account.getId(), account.getName(), account.getBalance(), account.getTypeName());
   }
 
   /**
@@ -58,10 +64,7 @@ class ActivityHelpers {
   static ArrayList<String> accountListToStringList(List<Account> accounts) {
     ArrayList<String> accountInfoList = new ArrayList<>();
     for (Account account : accounts) {
-      String typeName = DatabaseSelectHelper.getAccountTypeName(account.getType());
-      String accountInfo = String.format(Locale.CANADA, "%d - %s\n%s\n%s",
-              account.getId(), account.getName(), account.getBalance(), typeName);
-      accountInfoList.add(accountInfo);
+      accountInfoList.add(accountToString(account));
     }
     return accountInfoList;
   }
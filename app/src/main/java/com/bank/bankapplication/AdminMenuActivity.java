@@ -5,23 +5,29 @@ import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
-import com.bank.accounts.Account;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseSerializeHelper;
+import com.bank.databasehelper.RestoreProgressListener;
 import com.bank.exceptions.ConnectionFailedException;
 import com.bank.exceptions.DoesNotOwnException;
 import com.bank.exceptions.IllegalAmountException;
 import com.bank.exceptions.InsufficientFundsException;
+import com.bank.generics.AccountTypes;
+import com.bank.generics.AccountTypesEnumMap;
 import com.bank.generics.Roles;
+import com.bank.generics.RolesEnumMap;
 import com.bank.terminals.AdminTerminal;
+import com.bank.terminals.AsyncTerminal;
 import com.bank.terminals.SolidAdminTerminal;
-import com.bank.users.User;
+import com.bank.terminals.TerminalExecutor;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Admin terminal interface menu.
@@ -34,6 +40,12 @@ public class AdminMenuActivity extends AppCompatActivity {
 
   int userId;
   AdminTerminal terminal;
+  AsyncTerminal<AdminTerminal> asyncTerminal;
+
+  /**
+   * The progress of a restore, <code>null</code> when none is running.
+   */
+  AlertDialog progressDialog;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -42,8 +54,17 @@ public class AdminMenuActivity extends AppCompatActivity {
     setTitle("Admin Terminal");
     Bundle bundle = getIntent().getExtras();
     userId = bundle.getInt("USERID");
-    String password = bundle.getString("PASSWORD");
-    terminal = new SolidAdminTerminal(userId, password);
+    terminal = new SolidAdminTerminal(bundle.getString("SESSION_TOKEN"));
+    asyncTerminal = new AsyncTerminal<>(terminal);
+  }
+
+  @Override
+  protected void onDestroy() {
+    // reads still pending are for a screen that is gone
+    asyncTerminal.cancelReads();
+    // the restore carries on, but its dialog must not outlive the window
+    dismissProgress();
+    super.onDestroy();
   }
 
   @Override
@@ -54,18 +75,49 @@ public class AdminMenuActivity extends AppCompatActivity {
       Bundle bundle = data.getExtras();
       switch (requestCode) {
         case LEAVE_MESSAGE_REQUEST:
-          int recipientId = bundle.getInt("USERID");
-          String msgContent = bundle.getString("MESSAGE");
-          terminal.leaveMessage(recipientId, msgContent);
+          final String msgContent = bundle.getString("MESSAGE");
+          final String broadcastRole = bundle.getString("BROADCAST_ROLE");
+          final String broadcastAccountType = bundle.getString("BROADCAST_ACCOUNT_TYPE");
+          final int recipientId = bundle.getInt("USERID");
+          asyncTerminal.write(new AsyncTerminal.Operation<AdminTerminal, Integer>() {
+            @Override
+            public Integer run(AdminTerminal terminal) {
+              if (broadcastRole != null) {
+                return terminal.broadcastMessage(Roles.valueOf(broadcastRole), msgContent);
+              } else if (broadcastAccountType != null) {
+                return terminal.broadcastMessage(AccountTypes.valueOf(broadcastAccountType),
+                        msgContent);
+              }
+              return terminal.leaveMessage(recipientId, msgContent);
+            }
+          }, new ToastCallback<Integer>(this) {
+            @Override
+            public void onSuccess(Integer result) {
+            }
+          });
           break;
         case PROMOTE_TELLER_REQUEST:
-          int promotingUserId = bundle.getInt("USERID");
-          if (terminal.promoteTeller(promotingUserId)) {
-            terminal.leaveMessage(promotingUserId, "SYSTEM: You have been promoted to an admin.");
-          } else {
-            Toast.makeText(this, "Something went wrong with promoting teller to admin",
-                    Toast.LENGTH_SHORT).show();
-          }
+          final int promotingUserId = bundle.getInt("USERID");
+          asyncTerminal.write(new AsyncTerminal.Operation<AdminTerminal, Boolean>() {
+            @Override
+            public Boolean run(AdminTerminal terminal) {
+              if (terminal.promoteTeller(promotingUserId)) {
+                terminal.leaveMessage(promotingUserId,
+                        "SYSTEM: You have been promoted to an admin.");
+                return true;
+              }
+              return false;
+            }
+          }, new ToastCallback<Boolean>(this) {
+            @Override
+            public void onSuccess(Boolean promoted) {
+              if (!promoted) {
+                Toast.makeText(AdminMenuActivity.this,
+                        "Something went wrong with promoting teller to admin",
+                        Toast.LENGTH_SHORT).show();
+              }
+            }
+          });
           break;
       }
     }
@@ -84,55 +136,59 @@ public class AdminMenuActivity extends AppCompatActivity {
   }
 
   public void listAllAdmins(View view) {
-    Intent intent = new Intent(this, ListViewActivity.class);
-    List<User> admins = terminal.listUsers(Roles.ADMIN);
-    ArrayList<String> adminInfoList = ActivityHelpers.userListToStringList(admins);
-    intent.putExtra("OPTION", IntentOptions.LIST_USERS);
-    intent.putExtra("LIST_USER_INFO", adminInfoList);
-    startActivity(intent);
+    listUsers(Roles.ADMIN);
   }
 
   public void listAllTellers(View view) {
-    Intent intent = new Intent(this, ListViewActivity.class);
-    List<User> tellers = terminal.listUsers(Roles.TELLER);
-    ArrayList<String> tellerInfoList = ActivityHelpers.userListToStringList(tellers);
-    intent.putExtra("OPTION", IntentOptions.LIST_USERS);
-    intent.putExtra("LIST_USER_INFO", tellerInfoList);
-    startActivity(intent);
+    listUsers(Roles.TELLER);
   }
 
   public void listAllCustomers(View view) {
+    listUsers(Roles.CUSTOMER);
+  }
+
+  /**
+   * Lists the users of a role. Only the role is passed on, the list reads its rows as they are
+   * shown.
+   *
+   * @param role the role of the users to list
+   */
+  private void listUsers(Roles role) {
     Intent intent = new Intent(this, ListViewActivity.class);
-    List<User> customers = terminal.listUsers(Roles.CUSTOMER);
-    ArrayList<String> customerInfoList = ActivityHelpers.userListToStringList(customers);
     intent.putExtra("OPTION", IntentOptions.LIST_USERS);
-    intent.putExtra("LIST_USER_INFO", customerInfoList);
+    intent.putExtra("ROLE", role.toString());
     startActivity(intent);
   }
 
   public void viewBankTotal(View view) {
-    String bankTotal = ActivityHelpers.toCurrency(terminal.getBankTotal());
-    String dialogMsg = "SYSTEM: the bank total is: " + bankTotal;
-    AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(this);
-    AlertDialog alertDialog = alertDialogBuilder.setTitle("Bank Total")
-            .setMessage(dialogMsg)
-            .create();
-    alertDialog.show();
+    asyncTerminal.read(new AsyncTerminal.Operation<AdminTerminal, BigDecimal>() {
+      @Override
+      public BigDecimal run(AdminTerminal terminal) {
+        return terminal.getBankTotal();
+      }
+    }, new ToastCallback<BigDecimal>(this) {
+      @Override
+      public void onSuccess(BigDecimal total) {
+        String bankTotal = ActivityHelpers.toCurrency(total);
+        String dialogMsg = "SYSTEM: the bank total is: " + bankTotal;
+        AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(AdminMenuActivity.this);
+        AlertDialog alertDialog = alertDialogBuilder.setTitle("Bank Total")
+                .setMessage(dialogMsg)
+                .create();
+        alertDialog.show();
+      }
+    });
   }
 
   public void promoteTeller(View view) {
+    // the tellers are read by the promote activity itself, to keep the intent small
     Intent intent = new Intent(this, PromoteActivity.class);
-    ArrayList<User> tellers = (ArrayList<User>) terminal.listUsers(Roles.TELLER);
-    intent.putExtra("LIST_USERS", tellers);
     startActivityForResult(intent, PROMOTE_TELLER_REQUEST);
   }
 
   public void viewAllAccounts(View view) {
     Intent intent = new Intent(this, ListViewActivity.class);
-    List<Account> accounts = DatabaseSelectHelper.getAllAccounts();
-    ArrayList<String> accountInfoList = ActivityHelpers.accountListToStringList(accounts);
-    intent.putExtra("OPTION", IntentOptions.LIST_ACCOUNTS);
-    intent.putExtra("LIST_ACCOUNT_INFO", accountInfoList);
+    intent.putExtra("OPTION", IntentOptions.LIST_ALL_ACCOUNTS);
     startActivity(intent);
   }
 
@@ -149,25 +205,36 @@ public class AdminMenuActivity extends AppCompatActivity {
   }
 
   public void leaveMessage(View view) {
-    ArrayList<User> users = (ArrayList<User>) DatabaseSelectHelper.getAllUsers();
-    if (users.isEmpty()) {
-      Toast.makeText(this, "No customers to leave message for.", Toast.LENGTH_SHORT).show();
-      return;
+    ArrayList<String> broadcastRoles = new ArrayList<>();
+    for (Roles role : Roles.values()) {
+      broadcastRoles.add(role.name());
     }
+    // no role is given, so every user is offered; the activity reads them itself
     Intent intent = new Intent(this, CreateMessageActivity.class);
-    intent.putExtra("USER_LIST", users);
+    intent.putExtra("BROADCAST_ROLES", broadcastRoles);
     startActivityForResult(intent, LEAVE_MESSAGE_REQUEST);
   }
 
   public void viewMessages(View view) {
-    if (terminal.listMessageIds().isEmpty()) {
-      Toast.makeText(this, "No messages to display.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
-    intent.putExtra("USERID", userId);
-    startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+    asyncTerminal.read(new AsyncTerminal.Operation<AdminTerminal, Integer>() {
+      @Override
+      public Integer run(AdminTerminal terminal) {
+        return DatabaseSelectHelper.getMessageCount(userId);
+      }
+    }, new ToastCallback<Integer>(this) {
+      @Override
+      public void onSuccess(Integer messageCount) {
+        if (messageCount == 0) {
+          Toast.makeText(AdminMenuActivity.this, "No messages to display.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AdminMenuActivity.this, ListViewActivity.class);
+        intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
+        intent.putExtra("USERID", userId);
+        startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+      }
+    });
   }
 
   public void setInterestRate(View view) {
@@ -176,23 +243,101 @@ public class AdminMenuActivity extends AppCompatActivity {
   }
 
   public void serializeDatabase(View view) {
-    DatabaseSerializeHelper.getDatabaseDriver(this);
-    String dialogMsg;
-    if (DatabaseSerializeHelper.serializeDatabase(this)) {
-      dialogMsg = "Database has been serialized.";
-    } else {
-      dialogMsg = "Database failed to be serialized.";
-    }
-    // display dialog message
-    AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(this);
-    alertDialogBuilder.setMessage(dialogMsg);
-    AlertDialog alertDialog = alertDialogBuilder.create();
-    alertDialog.show();
+    TerminalExecutor.write(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        DatabaseSerializeHelper.getDatabaseDriver(AdminMenuActivity.this);
+        return DatabaseSerializeHelper.serializeDatabase(AdminMenuActivity.this);
+      }
+    }, new ToastCallback<Boolean>(this) {
+      @Override
+      public void onSuccess(Boolean serialized) {
+        String dialogMsg;
+        if (serialized) {
+          dialogMsg = "Database has been serialized.";
+        } else {
+          dialogMsg = "Database failed to be serialized.";
+        }
+        // display dialog message
+        AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(AdminMenuActivity.this);
+        alertDialogBuilder.setMessage(dialogMsg);
+        AlertDialog alertDialog = alertDialogBuilder.create();
+        alertDialog.show();
+      }
+    });
   }
 
   public void deserializeDatabase(View view) {
+    // a dialog holding a progress bar, as ProgressDialog is deprecated
+    View progressView = getLayoutInflater().inflate(R.layout.dialog_restore_progress, null);
+    final TextView tvTable = (TextView) progressView.findViewById(R.id.restore_progress_tv_table);
+    final ProgressBar progressBar =
+            (ProgressBar) progressView.findViewById(R.id.restore_progress_bar);
+    progressDialog = new AlertDialog.Builder(this)
+            .setTitle("Restoring database...")
+            .setView(progressView)
+            .setCancelable(false)
+            .create();
+    progressDialog.show();
+    // a large snapshot takes a while to restore, so keep it off the main thread, and after
+    // any write already sent
+    TerminalExecutor.write(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        boolean restored = DatabaseSerializeHelper.deserializeDatabase(
+                AdminMenuActivity.this, new RestoreProgressListener() {
+              @Override
+              public void onProgress(final String table, long rowsRestored, long totalRows) {
+                final int percent = totalRows == 0 ? 100 : (int) (rowsRestored * 100 / totalRows);
+                runOnUiThread(new Runnable() {
+                  @Override
+                  public void run() {
+                    tvTable.setText(table);
+                    progressBar.setProgress(percent);
+                  }
+                });
+              }
+            });
+        if (restored) {
+          // the restored tables may number roles and account types differently
+          RolesEnumMap.update();
+          AccountTypesEnumMap.update();
+        }
+        return restored;
+      }
+    }, new ToastCallback<Boolean>(this) {
+      @Override
+      public void onSuccess(Boolean restored) {
+        dismissProgress();
+        showRestoreResult(restored);
+      }
+
+      @Override
+      public void onFailure(Exception e) {
+        dismissProgress();
+        showRestoreResult(false);
+      }
+    });
+  }
+
+  /**
+   * Closes the dialog showing the progress of a restore.
+   */
+  private void dismissProgress() {
+    if (progressDialog != null) {
+      progressDialog.dismiss();
+      progressDialog = null;
+    }
+  }
+
+  /**
+   * Tells the user whether the database was restored.
+   *
+   * @param restored <code>true</code> if the database was restored
+   */
+  private void showRestoreResult(boolean restored) {
     String dialogMsg;
-    if (DatabaseSerializeHelper.deserializeDatabase(this)) {
+    if (restored) {
       dialogMsg = "Database has been deserialized.";
     } else {
       dialogMsg = "Database has failed to be deserialized.";
@@ -205,6 +350,7 @@ public class AdminMenuActivity extends AppCompatActivity {
   }
 
   public void logout(View view) {
+    terminal.deAuthenticate();
     Toast.makeText(this, getString(R.string.logout_message), Toast.LENGTH_LONG).show();
     setResult(RESULT_OK);
     finish();
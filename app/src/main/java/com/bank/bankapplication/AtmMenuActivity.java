@@ -4,14 +4,11 @@ import android.content.Intent;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
-import android.widget.ListView;
 import android.widget.Toast;
 
 import com.bank.accounts.Account;
-import com.bank.exceptions.ConnectionFailedException;
-import com.bank.exceptions.DoesNotOwnException;
-import com.bank.exceptions.IllegalAmountException;
-import com.bank.exceptions.InsufficientFundsException;
+import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.terminals.AsyncTerminal;
 import com.bank.terminals.AutoTellerMachine;
 import com.bank.terminals.SolidAutoTellerMachine;
 
@@ -30,6 +27,7 @@ public class AtmMenuActivity extends AppCompatActivity {
 
   int userId;
   AutoTellerMachine terminal;
+  AsyncTerminal<AutoTellerMachine> asyncTerminal;
 
   @Override
   public void onActivityResult(int requestCode, int resultCode, Intent data) {
@@ -37,33 +35,41 @@ public class AtmMenuActivity extends AppCompatActivity {
     // if first admin has been created, disable option after
     if (resultCode == RESULT_OK) {
       Bundle bundle = data.getExtras();
+      // the database is written to off the main thread, any error is shown once it returns
+      ToastCallback<Object> showErrors = new ToastCallback<Object>(this) {
+        @Override
+        public void onSuccess(Object result) {
+        }
+      };
       switch (requestCode) {
         case DEPOSIT_REQUEST:
-          int depositAccountId = bundle.getInt("ACCOUNTID");
-          BigDecimal deposit = new BigDecimal(bundle.getString("AMOUNT"));
-          try {
-            terminal.makeDeposit(depositAccountId, deposit);
-          } catch (IllegalAmountException | DoesNotOwnException | ConnectionFailedException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int depositAccountId = bundle.getInt("ACCOUNTID");
+          final BigDecimal deposit = new BigDecimal(bundle.getString("AMOUNT"));
+          asyncTerminal.write(new AsyncTerminal.Operation<AutoTellerMachine, Object>() {
+            @Override
+            public Object run(AutoTellerMachine terminal) throws Exception {
+              return terminal.makeDeposit(depositAccountId, deposit);
+            }
+          }, showErrors);
           break;
         case WITHDRAW_REQUEST:
-          int withdrawAccountId = bundle.getInt("ACCOUNTID");
-          BigDecimal withdraw = new BigDecimal(bundle.getString("AMOUNT"));
-          try {
-            terminal.makeWithdrawal(withdrawAccountId, withdraw);
-          } catch (IllegalAmountException | DoesNotOwnException | ConnectionFailedException
-                  | InsufficientFundsException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int withdrawAccountId = bundle.getInt("ACCOUNTID");
+          final BigDecimal withdraw = new BigDecimal(bundle.getString("AMOUNT"));
+          asyncTerminal.write(new AsyncTerminal.Operation<AutoTellerMachine, Object>() {
+            @Override
+            public Object run(AutoTellerMachine terminal) throws Exception {
+              return terminal.makeWithdrawal(withdrawAccountId, withdraw);
+            }
+          }, showErrors);
           break;
         case VIEW_MESSAGE_REQUEST:
-          int messageId = bundle.getInt("MESSAGEID");
-          try {
-            terminal.viewMessage(messageId);
-          } catch (DoesNotOwnException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int messageId = bundle.getInt("MESSAGEID");
+          asyncTerminal.write(new AsyncTerminal.Operation<AutoTellerMachine, Object>() {
+            @Override
+            public Object run(AutoTellerMachine terminal) throws Exception {
+              return terminal.viewMessage(messageId);
+            }
+          }, showErrors);
           break;
       }
     }
@@ -76,71 +82,124 @@ public class AtmMenuActivity extends AppCompatActivity {
     setTitle("Automated Teller Machine");
     Bundle bundle = getIntent().getExtras();
     userId = bundle.getInt("USERID");
-    String password = bundle.getString("PASSWORD");
-    terminal = new SolidAutoTellerMachine(userId, password);
+    terminal = new SolidAutoTellerMachine(bundle.getString("SESSION_TOKEN"));
+    asyncTerminal = new AsyncTerminal<>(terminal);
+  }
+
+  @Override
+  protected void onDestroy() {
+    // reads still pending are for a screen that is gone
+    asyncTerminal.cancelReads();
+    super.onDestroy();
+  }
+
+  /**
+   * Reads the customer's accounts in the background.
+   *
+   * @param callback given the accounts on the main thread
+   */
+  private void readAccounts(ToastCallback<List<Account>> callback) {
+    asyncTerminal.read(new AsyncTerminal.Operation<AutoTellerMachine, List<Account>>() {
+      @Override
+      public List<Account> run(AutoTellerMachine terminal) {
+        return terminal.listAccounts();
+      }
+    }, callback);
   }
 
   public void listAccounts(View view) {
-    List<Account> accounts = terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to display.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    ArrayList<String> accountInfoList = ActivityHelpers.accountListToStringList(accounts);
-    intent.putExtra("OPTION", IntentOptions.LIST_ACCOUNTS);
-    intent.putExtra("LIST_ACCOUNT_INFO", accountInfoList);
-    startActivity(intent);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(AtmMenuActivity.this, "No accounts to display.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AtmMenuActivity.this, ListViewActivity.class);
+        ArrayList<String> accountInfoList = ActivityHelpers.accountListToStringList(accounts);
+        intent.putExtra("OPTION", IntentOptions.LIST_ACCOUNTS);
+        intent.putExtra("LIST_ACCOUNT_INFO", accountInfoList);
+        startActivity(intent);
+      }
+    });
   }
 
   public void makeDeposit(View view) {
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to withdraw from.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, UpdateBalanceActivity.class);
-    intent.putExtra("OPTION", IntentOptions.MAKE_DEPOSIT);
-    intent.putExtra("LIST_ACCOUNTS", accounts);
-    startActivityForResult(intent, DEPOSIT_REQUEST);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(AtmMenuActivity.this, "No accounts to deposit to.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AtmMenuActivity.this, UpdateBalanceActivity.class);
+        intent.putExtra("OPTION", IntentOptions.MAKE_DEPOSIT);
+        intent.putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivityForResult(intent, DEPOSIT_REQUEST);
+      }
+    });
   }
 
   public void checkBalance(View view) {
-    if (terminal.listAccounts().isEmpty()) {
-      Toast.makeText(this, "No accounts to check balance.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    intent.putExtra("OPTION", IntentOptions.VIEW_BALANCE);
-    intent.putExtra("LIST_ACCOUNTS", accounts);
-    startActivity(intent);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(AtmMenuActivity.this, "No accounts to check balance.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AtmMenuActivity.this, ListViewActivity.class);
+        intent.putExtra("OPTION", IntentOptions.VIEW_BALANCE);
+        intent.putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivity(intent);
+      }
+    });
   }
 
   public void makeWithdrawal(View view) {
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to withdraw from.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, UpdateBalanceActivity.class);
-    intent.putExtra("OPTION", IntentOptions.MAKE_WITHDRAW);
-    intent.putExtra("LIST_ACCOUNTS", accounts);
-    startActivityForResult(intent, WITHDRAW_REQUEST);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(AtmMenuActivity.this, "No accounts to withdraw from.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AtmMenuActivity.this, UpdateBalanceActivity.class);
+        intent.putExtra("OPTION", IntentOptions.MAKE_WITHDRAW);
+        intent.putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivityForResult(intent, WITHDRAW_REQUEST);
+      }
+    });
   }
 
   public void viewMessages(View view) {
-    if (terminal.listMessageIds().isEmpty()) {
-      Toast.makeText(this, "No messages to display.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
-    intent.putExtra("USERID", userId);
-    startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+    asyncTerminal.read(new AsyncTerminal.Operation<AutoTellerMachine, Integer>() {
+      @Override
+      public Integer run(AutoTellerMachine terminal) {
+        return DatabaseSelectHelper.getMessageCount(userId);
+      }
+    }, new ToastCallback<Integer>(this) {
+      @Override
+      public void onSuccess(Integer messageCount) {
+        if (messageCount == 0) {
+          Toast.makeText(AtmMenuActivity.this, "No messages to display.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(AtmMenuActivity.this, ListViewActivity.class);
+        intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
+        intent.putExtra("USERID", userId);
+        startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+      }
+    });
   }
 
   public void logout(View view) {
+    terminal.deAuthenticate();
     Toast.makeText(this, getString(R.string.logout_message), Toast.LENGTH_LONG).show();
     setResult(RESULT_OK);
     finish();
@@ -3,25 +3,37 @@ package com.bank.bankapplication;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
 
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.terminals.TerminalExecutor;
 import com.bank.users.User;
 
+import java.util.concurrent.Callable;
+
 /**
  * A teller changes the current authenticated customer's information.
  */
 public class ChangeUserInfoActivity extends AppCompatActivity {
 
+  /**
+   * The outcome of an update, handed back to the main thread.
+   */
+  private enum Outcome {
+    UPDATED, FAILED, INCORRECT_PASSWORD
+  }
+
   User user;
   EditText etNewName;
   EditText etNewAge;
   EditText etNewAddress;
   EditText etNewPassword;
   EditText etConfirmPassword;
+  Button btnSubmit;
 
   /**
    * Sets views from layout and attributes from intent.
@@ -30,21 +42,32 @@ public class ChangeUserInfoActivity extends AppCompatActivity {
     setTitle("Change User Information");
     // set attributes from bundle
     Bundle bundle = getIntent().getExtras();
-    int userId = bundle.getInt("USERID");
-    user = DatabaseSelectHelper.getUserDetails(userId);
-    String currName = user.getName();
-    String currAge = "" + user.getAge();
-    String currAddress = user.getAddress();
+    final int userId = bundle.getInt("USERID");
     // set views from layout
     etNewName = (EditText) findViewById(R.id.change_user_info_et_name);
     etNewAge = (EditText) findViewById(R.id.change_user_info_et_age);
     etNewAddress = (EditText) findViewById(R.id.change_user_info_et_address);
     etNewPassword = (EditText) findViewById(R.id.change_user_info_et_password);
     etConfirmPassword = (EditText) findViewById(R.id.change_user_info_et_confirm);
-    // set current user info onto views (except current password)
-    etNewName.setText(currName);
-    etNewAge.setText(currAge);
-    etNewAddress.setText(currAddress);
+    btnSubmit = (Button) findViewById(R.id.change_user_info_btn_submit);
+    // nothing can be submitted until the user's current info has been read
+    btnSubmit.setEnabled(false);
+    TerminalExecutor.read(new Callable<User>() {
+      @Override
+      public User call() {
+        return DatabaseSelectHelper.getUserDetails(userId);
+      }
+    }, new ToastCallback<User>(this) {
+      @Override
+      public void onSuccess(User result) {
+        user = result;
+        // set current user info onto views (except current password)
+        etNewName.setText(user.getName());
+        etNewAge.setText("" + user.getAge());
+        etNewAddress.setText(user.getAddress());
+        btnSubmit.setEnabled(true);
+      }
+    });
   }
 
   @Override
@@ -98,24 +121,57 @@ public class ChangeUserInfoActivity extends AppCompatActivity {
     }
     // check if all user inputs are valid
     if (validUserInfo) {
-      if (user.authenticate(confirmPassword)) {
-        boolean done = true;
-        done = done && DatabaseUpdateHelper.updateUserName(newName, user.getId());
-        done = done && DatabaseUpdateHelper.updateUserAge(newAge, user.getId());
-        done = done && DatabaseUpdateHelper.updateUserAddress(newAddress, user.getId());
-        if (!newPassword.isEmpty()) {
-          done = done && DatabaseUpdateHelper.updateUserPassword(newPassword, user.getId());
+      final String name = newName;
+      final int age = newAge;
+      final String address = newAddress;
+      final String password = newPassword;
+      final String confirm = confirmPassword;
+      // checking and hashing passwords takes a while, so update the user off the main thread;
+      // the button stays off until it returns so the update is only sent once
+      btnSubmit.setEnabled(false);
+      TerminalExecutor.write(new Callable<Outcome>() {
+        @Override
+        public Outcome call() {
+          if (!user.authenticate(confirm)) {
+            return Outcome.INCORRECT_PASSWORD;
+          }
+          boolean done = true;
+          done = done && DatabaseUpdateHelper.updateUserName(name, user.getId());
+          done = done && DatabaseUpdateHelper.updateUserAge(age, user.getId());
+          done = done && DatabaseUpdateHelper.updateUserAddress(address, user.getId());
+          if (!password.isEmpty()) {
+            done = done && DatabaseUpdateHelper.updateUserPassword(password, user.getId());
+          }
+          return done ? Outcome.UPDATED : Outcome.FAILED;
         }
-        if (done) {
-          Toast.makeText(this, "User information successfully updated.", Toast.LENGTH_LONG).show();
-          finish();
-        } else {
-          Toast.makeText(this, "Something went wrong with user update.", Toast.LENGTH_LONG).show();
+      }, new ToastCallback<Outcome>(this) {
+        @Override
+        public void onSuccess(Outcome outcome) {
+          btnSubmit.setEnabled(true);
+          switch (outcome) {
+            case UPDATED:
+              Toast.makeText(ChangeUserInfoActivity.this, "User information successfully updated.",
+                      Toast.LENGTH_LONG).show();
+              finish();
+              break;
+            case FAILED:
+              Toast.makeText(ChangeUserInfoActivity.this, "Something went wrong with user update.",
+                      Toast.LENGTH_LONG).show();
+              break;
+            case INCORRECT_PASSWORD:
+              etConfirmPassword.setError("Password is incorrect.");
+              Toast.makeText(ChangeUserInfoActivity.this, "Incorrect password.",
+                      Toast.LENGTH_SHORT).show();
+              break;
+          }
         }
-      } else {
-        etConfirmPassword.setError("Password is incorrect.");
-        Toast.makeText(this, "Incorrect password.", Toast.LENGTH_SHORT).show();
-      }
+
+        @Override
+        public void onFailure(Exception e) {
+          btnSubmit.setEnabled(true);
+          super.onFailure(e);
+        }
+      });
     }
   }
 
@@ -91,7 +91,7 @@ public class CreateAccountActivity extends AppCompatActivity {
     } else {
       balance = (new BigDecimal(strBalance)).setScale(2, RoundingMode.CEILING);
       if (typeId == AccountTypesEnumMap.getAccountTypeId(AccountTypes.TFSA)) {
-        if (balance.compareTo(TaxFreeSavingsAccount.MIN_BALANCE) == -1) {
+        if (balance.compareTo(TaxFreeSavingsAccount.MIN_BALANCE.toBigDecimal()) == -1) {
           etBalance.setError("TFSA must have a minimum balance of $5000.00.");
           validAccountInfo = false;
         }
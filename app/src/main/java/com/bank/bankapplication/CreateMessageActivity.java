@@ -5,12 +5,17 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.Toast;
 
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.generics.AccountTypes;
+import com.bank.generics.Roles;
+import com.bank.terminals.TaskGroup;
+import com.bank.terminals.TerminalExecutor;
 import com.bank.users.User;
 
 import java.util.ArrayList;
@@ -18,9 +23,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
- * An admin or a teller writes a message to a recipient user.
+ * An admin or a teller writes a message to a recipient user, or to a whole group of users at once.
  */
 public class CreateMessageActivity extends AppCompatActivity {
 
@@ -29,8 +35,24 @@ public class CreateMessageActivity extends AppCompatActivity {
    */
   Map<String, Integer> userInfoMap = new HashMap<>();
 
+  /**
+   * Maps broadcast info strings to the name of the role to send to.
+   */
+  Map<String, String> roleBroadcastMap = new HashMap<>();
+
+  /**
+   * Maps broadcast info strings to the name of the account type whose owners to send to.
+   */
+  Map<String, String> accountTypeBroadcastMap = new HashMap<>();
+
   EditText etContent;
   Spinner spnRecipient;
+  Button btnSubmit;
+
+  /**
+   * The recipients being read, cancelled once the activity is destroyed.
+   */
+  private final TaskGroup reads = new TaskGroup();
 
   /**
    * Converts a list of user objects into an array list of user info strings, and populates the
@@ -53,25 +75,76 @@ public class CreateMessageActivity extends AppCompatActivity {
   }
 
   /**
-   * Sets views from layout and attributes from intent.
+   * Returns the broadcast info strings for every role given and every account type, and populates
+   * the respective broadcast maps to be used for creating the spinner.
+   *
+   * @param roleNames the names of the roles the user may send to all at once, may be
+   *                  <code>null</code>
+   * @return an array of broadcast info strings
+   */
+  private ArrayList<String> broadcastSpinnerArray(List<String> roleNames) {
+    ArrayList<String> broadcastInfoList = new ArrayList<>();
+    if (roleNames != null) {
+      for (String roleName : roleNames) {
+        String info = String.format(Locale.CANADA, "Every %s", roleName);
+        broadcastInfoList.add(info);
+        roleBroadcastMap.put(info, roleName);
+      }
+    }
+    for (AccountTypes accountType : AccountTypes.values()) {
+      String info = String.format(Locale.CANADA, "Every owner of a %s account", accountType);
+      broadcastInfoList.add(info);
+      accountTypeBroadcastMap.put(info, accountType.name());
+    }
+    return broadcastInfoList;
+  }
+
+  /**
+   * Sets views from layout and attributes from intent, then reads the recipients in the
+   * background to populate the spinner. The recipients are read here from the role in the intent
+   * rather than passed in it, so the intent stays small however many users there are.
    */
   private void setViewsAndAttributes() {
     setTitle("Create a Message");
     // set attributes from intent
     Bundle bundle = getIntent().getExtras();
-    ArrayList<User> users = (ArrayList<User>) bundle.getSerializable("USER_LIST");
+    String roleName = bundle.getString("ROLE");
+    final Roles role = roleName == null ? null : Roles.valueOf(roleName);
+    final ArrayList<String> broadcastRoles = bundle.getStringArrayList("BROADCAST_ROLES");
     // set views from layout
     etContent = (EditText) findViewById(R.id.create_message_et_content);
     etContent.setHorizontallyScrolling(false);
     etContent.setMaxLines(Integer.MAX_VALUE);
-    // set and populate spinner
     spnRecipient = (Spinner) findViewById(R.id.create_message_spn_recipient);
-    ArrayList<String> userInfoList = userListToSpinnerArray(users);
-    // create and set array adapter
-    ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item,
-            userInfoList);
-    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-    spnRecipient.setAdapter(adapter);
+    btnSubmit = (Button) findViewById(R.id.create_message_btn_submit);
+    // nothing can be sent until the recipients are read
+    btnSubmit.setEnabled(false);
+    reads.add(TerminalExecutor.read(new Callable<List<User>>() {
+      @Override
+      public List<User> call() {
+        return role == null ? DatabaseSelectHelper.getAllUsers()
+                : DatabaseSelectHelper.getAllUsers(role);
+      }
+    }, new ToastCallback<List<User>>(this) {
+      @Override
+      public void onSuccess(List<User> users) {
+        if (users.isEmpty()) {
+          Toast.makeText(CreateMessageActivity.this, "No users to leave message for.",
+                  Toast.LENGTH_SHORT).show();
+          finish();
+          return;
+        }
+        // sending to a whole group is offered first, then each user
+        ArrayList<String> userInfoList = broadcastSpinnerArray(broadcastRoles);
+        userInfoList.addAll(userListToSpinnerArray(users));
+        // create and set array adapter
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(CreateMessageActivity.this,
+                android.R.layout.simple_spinner_item, userInfoList);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spnRecipient.setAdapter(adapter);
+        btnSubmit.setEnabled(true);
+      }
+    }));
   }
 
   @Override
@@ -81,6 +154,12 @@ public class CreateMessageActivity extends AppCompatActivity {
     setViewsAndAttributes();
   }
 
+  @Override
+  protected void onDestroy() {
+    reads.cancelAll();
+    super.onDestroy();
+  }
+
   /**
    * Writes a new message to the database.
    *
@@ -99,12 +178,17 @@ public class CreateMessageActivity extends AppCompatActivity {
     // check if user input was valid
     if (validMessage) {
       String infoKey = spnRecipient.getSelectedItem().toString();
-      int userId = userInfoMap.get(infoKey);
       Toast.makeText(this, "Message with " + msgContent.length() + " characters has been sent.",
               Toast.LENGTH_LONG).show();
       Intent returnIntent = new Intent();
       returnIntent.putExtra("MESSAGE", msgContent);
-      returnIntent.putExtra("USERID", userId);
+      if (roleBroadcastMap.containsKey(infoKey)) {
+        returnIntent.putExtra("BROADCAST_ROLE", roleBroadcastMap.get(infoKey));
+      } else if (accountTypeBroadcastMap.containsKey(infoKey)) {
+        returnIntent.putExtra("BROADCAST_ACCOUNT_TYPE", accountTypeBroadcastMap.get(infoKey));
+      } else {
+        returnIntent.putExtra("USERID", userInfoMap.get(infoKey));
+      }
       setResult(RESULT_OK, returnIntent);
       finish();
     }
@@ -13,12 +13,30 @@ import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.generics.Roles;
 import com.bank.generics.RolesEnumMap;
+import com.bank.security.SessionManager;
+import com.bank.terminals.TerminalExecutor;
+
+import java.util.concurrent.Callable;
 
 /**
  * An admin or a teller inputs user details and writes a new user to the database.
  */
 public class CreateUserActivity extends AppCompatActivity {
 
+  /**
+   * A user written to the database, handed back to the main thread.
+   */
+  private static class NewUser {
+
+    final int userId;
+    final String sessionToken;
+
+    NewUser(int userId, String sessionToken) {
+      this.userId = userId;
+      this.sessionToken = sessionToken;
+    }
+  }
+
   Bundle bundle;
   Roles userRole;
 
@@ -109,28 +127,68 @@ public class CreateUserActivity extends AppCompatActivity {
     }
     // check if edit text inputs are valid
     if (validUserInfo) {
-      int roleId = RolesEnumMap.getRoleId(userRole);
-      int userId = DatabaseInsertHelper.insertNewUser(name, age, address, roleId, password);
-      // check if user was properly written to database
-      String toastMsg;
-      if (userId != DatabaseValidHelper.INVALID_ID) {
-        toastMsg = "User with ID " + userId + " has been created.";
-        if (bundle.getBoolean("CREATE_FIRST_ADMIN")) {
-          // if first admin was created, send result back to main activity
-          setResult(RESULT_OK, new Intent());
-        } else if (bundle.getBoolean("TELLER_AUTHENTICATION")) {
-          // if teller is creating customer, send result back to authenticate customer
-          Intent intent = new Intent();
-          intent.putExtra("CUSTOMER_ID", userId);
-          intent.putExtra("CUSTOMER_PASSWORD", password);
-          setResult(RESULT_OK, intent);
+      final int roleId = RolesEnumMap.getRoleId(userRole);
+      final String newName = name;
+      final int newAge = age;
+      final String newAddress = address;
+      final String newPassword = password;
+      final boolean loginCustomer = bundle.getBoolean("TELLER_AUTHENTICATION");
+      // hashing the password takes a while, so write the user off the main thread; the button
+      // stays off until it returns so the user is only written once
+      btnSubmit.setEnabled(false);
+      TerminalExecutor.write(new Callable<NewUser>() {
+        @Override
+        public NewUser call() {
+          int userId = DatabaseInsertHelper.insertNewUser(newName, newAge, newAddress, roleId,
+                  newPassword);
+          String sessionToken = null;
+          if (userId != DatabaseValidHelper.INVALID_ID && loginCustomer) {
+            sessionToken = SessionManager.login(userId, newPassword);
+          }
+          return new NewUser(userId, sessionToken);
+        }
+      }, new ToastCallback<NewUser>(this) {
+        @Override
+        public void onSuccess(NewUser newUser) {
+          btnSubmit.setEnabled(true);
+          showResult(newUser);
         }
-        finish();
-      } else {
-        toastMsg = "ERROR: cannot write user!";
+
+        @Override
+        public void onFailure(Exception e) {
+          btnSubmit.setEnabled(true);
+          super.onFailure(e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Tells the user whether the new user was written, and passes it back to the activity that
+   * asked for it.
+   *
+   * @param newUser the user written
+   */
+  private void showResult(NewUser newUser) {
+    // check if user was properly written to database
+    String toastMsg;
+    if (newUser.userId != DatabaseValidHelper.INVALID_ID) {
+      toastMsg = "User with ID " + newUser.userId + " has been created.";
+      if (bundle.getBoolean("CREATE_FIRST_ADMIN")) {
+        // if first admin was created, send result back to main activity
+        setResult(RESULT_OK, new Intent());
+      } else if (bundle.getBoolean("TELLER_AUTHENTICATION")) {
+        // if teller is creating customer, send result back to authenticate customer
+        Intent intent = new Intent();
+        intent.putExtra("CUSTOMER_ID", newUser.userId);
+        intent.putExtra("CUSTOMER_SESSION_TOKEN", newUser.sessionToken);
+        setResult(RESULT_OK, intent);
       }
-      Toast.makeText(this, toastMsg, Toast.LENGTH_LONG).show();
+      finish();
+    } else {
+      toastMsg = "ERROR: cannot write user!";
     }
+    Toast.makeText(this, toastMsg, Toast.LENGTH_LONG).show();
   }
 
 }
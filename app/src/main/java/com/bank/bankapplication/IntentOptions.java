@@ -13,4 +13,5 @@ class IntentOptions {
   static final int VIEW_BALANCE = 7;
   static final int VIEW_CUSTOMER_ACCOUNTS = 8;
   static final int PEEK_MESSAGE = 9;
+  static final int LIST_ALL_ACCOUNTS = 10;
 }
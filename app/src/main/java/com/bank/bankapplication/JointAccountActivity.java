@@ -8,8 +8,8 @@ import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 
 import com.bank.databasehelper.DatabaseSelectHelper;
-import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.generics.Roles;
+import com.bank.terminals.TerminalExecutor;
 import com.bank.users.User;
 
 import java.util.ArrayList;
@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * A teller selects the authenticated customer's account and creates a joint account with another
@@ -53,23 +54,6 @@ public class JointAccountActivity extends AppCompatActivity {
     return userInfoList;
   }
 
-  /**
-   * Returns a list of customers that do not own the account with ID accountId.
-   *
-   * @param accountId the ID number of the account
-   * @return a list of customer that do not own the account, and thus are able to form the joint
-   *         account with
-   */
-  private static List<User> getValidCustomersForJoining(int accountId) {
-    List<User> validCustomers = new ArrayList<>();
-    for (User user : DatabaseSelectHelper.getAllUsers(Roles.CUSTOMER)) {
-      if (!DatabaseValidHelper.userOwnsAccount(user.getId(), accountId)) {
-        validCustomers.add(user);
-      }
-    }
-    return validCustomers;
-  }
-
   /**
    * Sets views from layout and attributes from intent.
    */
@@ -77,15 +61,26 @@ public class JointAccountActivity extends AppCompatActivity {
     setTitle("Create Joint Account");
     // set attributes from intent
     Bundle bundle = getIntent().getExtras();
-    int accountId = bundle.getInt("ACCOUNTID");
-    List<User> validCustomers = getValidCustomersForJoining(accountId);
-    ArrayList<String> userInfoList = userListToSpinnerArray(validCustomers, userInfoIdMap);
-    // set and populate spinner
+    final int accountId = bundle.getInt("ACCOUNTID");
     spnUsers = (Spinner) findViewById(R.id.joint_account_spn_user_selection);
-    ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item,
-            userInfoList);
-    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-    spnUsers.setAdapter(adapter);
+    // customers that do not own the account yet, and so are able to join it
+    TerminalExecutor.read(new Callable<ArrayList<String>>() {
+      @Override
+      public ArrayList<String> call() {
+        List<User> validCustomers = DatabaseSelectHelper.getUsersNotOwning(Roles.CUSTOMER,
+                accountId);
+        return userListToSpinnerArray(validCustomers, userInfoIdMap);
+      }
+    }, new ToastCallback<ArrayList<String>>(this) {
+      @Override
+      public void onSuccess(ArrayList<String> userInfoList) {
+        // populate spinner
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(JointAccountActivity.this,
+                android.R.layout.simple_spinner_item, userInfoList);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spnUsers.setAdapter(adapter);
+      }
+    });
   }
 
   @Override
@@ -101,6 +96,10 @@ public class JointAccountActivity extends AppCompatActivity {
    * @param view a button that calls this method.
    */
   public void createJointAccount(View view) {
+    if (spnUsers.getSelectedItem() == null) {
+      // the customers have not been read yet, or none can join the account
+      return;
+    }
     String infoKey = spnUsers.getSelectedItem().toString();
     int userId = userInfoIdMap.get(infoKey);
     // pass information back to parent activity
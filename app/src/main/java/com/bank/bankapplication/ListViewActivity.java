@@ -4,15 +4,18 @@ import android.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
-import android.widget.ListAdapter;
 import android.widget.ListView;
 
 import com.bank.accounts.Account;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
+import com.bank.generics.Roles;
 import com.bank.messages.Message;
+import com.bank.terminals.TaskGroup;
+import com.bank.terminals.TerminalExecutor;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -20,12 +23,23 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * A user views a list of items. The list may be clickable.
  */
 public class ListViewActivity extends AppCompatActivity {
 
+  /**
+   * Number of messages read from the inbox at a time.
+   */
+  private static final int MESSAGE_PAGE_SIZE = 50;
+
+  /**
+   * The next page of messages is read once the user scrolls within this many rows of the end.
+   */
+  private static final int MESSAGE_PAGE_PRELOAD = 10;
+
   /**
    * Maps from message info strings to message IDs.
    */
@@ -36,9 +50,35 @@ public class ListViewActivity extends AppCompatActivity {
    */
   Map<String, BigDecimal> accountInfoBalanceMap = new HashMap<>();
 
+  /**
+   * ID of the user whose inbox is listed.
+   */
+  int messageUserId;
+
+  /**
+   * ID of the last message listed, the next page starts below it.
+   */
+  int lastMessageId = DatabaseSelectHelper.FIRST_MESSAGE_PAGE;
+
+  /**
+   * Whether every message in the inbox has been listed.
+   */
+  boolean allMessagesListed = false;
+
+  /**
+   * Whether a page of messages is being read in the background.
+   */
+  boolean loadingMessages = false;
+
+  /**
+   * The pages of messages being read, cancelled when the list is closed.
+   */
+  final TaskGroup reads = new TaskGroup();
+
   Bundle bundle;
   ListView lvInformation;
-  ListAdapter adapter;
+  ArrayAdapter<String> adapter;
+  PagedListAdapter<?> pagedAdapter;
 
   /**
    * Sets views from layout and attributes from intent.
@@ -79,6 +119,43 @@ public class ListViewActivity extends AppCompatActivity {
     return accountInfoList;
   }
 
+  /**
+   * Reads the next page of the inbox in the background and adds its messages to the list. Does
+   * nothing once every message has been listed, or while a page is already being read.
+   */
+  private void loadNextMessagePage() {
+    if (allMessagesListed || loadingMessages) {
+      return;
+    }
+    loadingMessages = true;
+    final int userId = messageUserId;
+    final int afterId = lastMessageId;
+    reads.add(TerminalExecutor.read(new Callable<List<Message>>() {
+      @Override
+      public List<Message> call() {
+        return DatabaseSelectHelper.getMessagesPage(userId, afterId, MESSAGE_PAGE_SIZE);
+      }
+    }, new ToastCallback<List<Message>>(this) {
+      @Override
+      public void onSuccess(List<Message> messages) {
+        loadingMessages = false;
+        if (messages.size() < MESSAGE_PAGE_SIZE) {
+          allMessagesListed = true;
+        }
+        if (!messages.isEmpty()) {
+          lastMessageId = messages.get(messages.size() - 1).getId();
+        }
+        adapter.addAll(messagesListToStringArray(messages));
+      }
+
+      @Override
+      public void onFailure(Exception e) {
+        loadingMessages = false;
+        super.onFailure(e);
+      }
+    }));
+  }
+
   /**
    * Converts a list of message objects into an array list of message info strings.
    *
@@ -113,13 +190,14 @@ public class ListViewActivity extends AppCompatActivity {
         infoList = bundle.getStringArrayList("LIST_ACCOUNT_INFO");
         break;
       case IntentOptions.LIST_USERS:
-        infoList = bundle.getStringArrayList("LIST_USER_INFO");
+        Roles role = Roles.valueOf(bundle.getString("ROLE"));
+        pagedAdapter = new PagedListAdapter<>(this, PagedSource.users(role));
+        break;
+      case IntentOptions.LIST_ALL_ACCOUNTS:
+        pagedAdapter = new PagedListAdapter<>(this, PagedSource.accounts());
         break;
       case IntentOptions.LIST_MESSAGES:
-        int userId = bundle.getInt("USERID");
-        List<Message> messages = DatabaseSelectHelper.getAllMessages(userId);
-        // create message info list and populate hash map
-        infoList = messagesListToStringArray(messages);
+        messageUserId = bundle.getInt("USERID");
         break;
       case IntentOptions.VIEW_BALANCE:
         List<Account> accounts = (ArrayList<Account>) bundle.getSerializable("LIST_ACCOUNTS");
@@ -127,26 +205,46 @@ public class ListViewActivity extends AppCompatActivity {
         infoList = accountListToStringArray(accounts, accountInfoBalanceMap);
         break;
     }
-    // populate list with information
-    populateListView(infoList);
+    if (pagedAdapter != null) {
+      // the whole list may be large, so its rows are read as they are shown
+      lvInformation.setAdapter(pagedAdapter);
+      pagedAdapter.load();
+    } else {
+      // populate list with information
+      populateListView(infoList);
+    }
+
+    if (intentOption == IntentOptions.LIST_MESSAGES) {
+      // only the first page is read now, the rest as the user scrolls
+      loadNextMessagePage();
+      // read the next page of messages before the user reaches the end of the list
+      lvInformation.setOnScrollListener(new AbsListView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(AbsListView absListView, int scrollState) {
+        }
+
+        @Override
+        public void onScroll(AbsListView absListView, int firstVisibleItem, int visibleItemCount,
+                             int totalItemCount) {
+          if (!allMessagesListed
+              && firstVisibleItem + visibleItemCount >= totalItemCount - MESSAGE_PAGE_PRELOAD) {
+            loadNextMessagePage();
+          }
+        }
+      });
+    }
 
     // when user clicks on an item, display dialog box
     lvInformation.setOnItemClickListener(new AdapterView.OnItemClickListener() {
       @Override
       public void onItemClick(AdapterView<?> adapterView, View view, int i, long l) {
-        AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(view.getContext());
         String previewKey = String.valueOf(adapterView.getItemAtPosition(i));
         if (intentOption == IntentOptions.LIST_MESSAGES) {
-          int messageId = messageInfoMap.get(previewKey);
-          String content = DatabaseSelectHelper.getSpecificMessage(messageId);
-          // update message to viewed (if not peeking)
-          if (!bundle.getBoolean("PEEKING")) {
-            DatabaseUpdateHelper.updateUserMessageState(messageId);
-          }
-          // display message contents in dialog box
-          alertDialogBuilder.setTitle("Message Content")
-                  .setMessage(content);
-        } else if (intentOption == IntentOptions.VIEW_BALANCE) {
+          showMessage(messageInfoMap.get(previewKey));
+          return;
+        }
+        AlertDialog.Builder alertDialogBuilder = new AlertDialog.Builder(view.getContext());
+        if (intentOption == IntentOptions.VIEW_BALANCE) {
           BigDecimal balance = accountInfoBalanceMap.get(previewKey);
           alertDialogBuilder.setTitle("Current Balance")
                   .setMessage("Current Balance: " + balance);
@@ -159,4 +257,54 @@ public class ListViewActivity extends AppCompatActivity {
     });
   }
 
+  @Override
+  protected void onRestart() {
+    super.onRestart();
+    if (pagedAdapter != null) {
+      // rows may have changed while another activity was shown
+      pagedAdapter.load();
+    }
+  }
+
+  @Override
+  protected void onDestroy() {
+    // reads still pending are for a list that is gone
+    reads.cancelAll();
+    if (pagedAdapter != null) {
+      pagedAdapter.cancel();
+    }
+    super.onDestroy();
+  }
+
+  /**
+   * Reads a message in the background, marking it as viewed unless the inbox is being peeked
+   * at, then displays its contents in a dialog box.
+   *
+   * @param messageId the ID of the message
+   */
+  private void showMessage(final int messageId) {
+    final boolean peeking = bundle.getBoolean("PEEKING");
+    TerminalExecutor.write(new Callable<String>() {
+      @Override
+      public String call() {
+        String content = DatabaseSelectHelper.getSpecificMessage(messageId);
+        // update message to viewed (if not peeking)
+        if (!peeking) {
+          DatabaseUpdateHelper.updateUserMessageState(messageId);
+        }
+        return content;
+      }
+    }, new ToastCallback<String>(this) {
+      @Override
+      public void onSuccess(String content) {
+        // display message contents in dialog box
+        AlertDialog alertDialog = new AlertDialog.Builder(ListViewActivity.this)
+                .setTitle("Message Content")
+                .setMessage(content)
+                .create();
+        alertDialog.show();
+      }
+    });
+  }
+
 }
@@ -5,6 +5,7 @@ import android.graphics.Color;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
+import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -13,11 +14,15 @@ import com.bank.databasehelper.DatabaseDriverHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.generics.Roles;
+import com.bank.security.SessionManager;
+import com.bank.terminals.TerminalExecutor;
 import com.bank.users.Admin;
 import com.bank.users.Customer;
 import com.bank.users.Teller;
 import com.bank.users.User;
 
+import java.util.concurrent.Callable;
+
 /**
  * User inputs their credentials and logs into to their respective terminal.
  */
@@ -25,11 +30,28 @@ public class LoginActivity extends AppCompatActivity {
 
   private static final int LOGOUT_REQUEST = 1;
 
+  /**
+   * The outcome of a login, handed back to the main thread.
+   */
+  private static class LoginResult {
+
+    final String toastMsg;
+    final boolean correctRole;
+    final String sessionToken;
+
+    LoginResult(String toastMsg, boolean correctRole, String sessionToken) {
+      this.toastMsg = toastMsg;
+      this.correctRole = correctRole;
+      this.sessionToken = sessionToken;
+    }
+  }
+
   Bundle bundle;
   Roles userRole;
   TextView tvTitle;
   EditText etId;
   EditText etPassword;
+  Button btnSubmit;
 
   /**
    * Sets views from layout and attributes from intent.
@@ -40,13 +62,14 @@ public class LoginActivity extends AppCompatActivity {
     tvTitle.setText(roleName.substring(0, 1) + roleName.substring(1).toLowerCase() + " Login");
     etId = (EditText) findViewById(R.id.login_et_id);
     etPassword = (EditText) findViewById(R.id.login_et_password);
+    btnSubmit = (Button) findViewById(R.id.login_btn_submit);
   }
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_login);
-    DatabaseDriverHelper.getDatabaseDriver(this).close();
+    DatabaseDriverHelper.getDatabaseDriver(this);
     bundle = getIntent().getExtras();
     userRole = Roles.valueOf(bundle.getString("ROLE"));
     setViewsAndAttributes();
@@ -86,70 +109,117 @@ public class LoginActivity extends AppCompatActivity {
       } catch (NumberFormatException e) {
         userId = DatabaseValidHelper.INVALID_ID;
       }
-      String toastMsg = "";
-      // check if user ID is of correct userRole
-      boolean correctRole = false;
-      User selectUser = DatabaseSelectHelper.getUserDetails(userId);
-      switch (userRole) {
-        case ADMIN: // check if user is of admin
-          if (!(correctRole = selectUser instanceof Admin)) {
-            toastMsg = "User ID is not of an admin.";
-          }
-          break;
-        case TELLER: // check if user is of teller
-          if (!(correctRole = selectUser instanceof Teller)) {
-            toastMsg = "User ID if not of a teller.";
+      final int loginUserId = userId;
+      final String loginPassword = password;
+      // hashing the password takes a while, so log in off the main thread, beside other reads;
+      // the button stays off until the login returns so it is only sent once
+      btnSubmit.setEnabled(false);
+      TerminalExecutor.read(new Callable<LoginResult>() {
+        @Override
+        public LoginResult call() {
+          return login(loginUserId, loginPassword);
+        }
+      }, new ToastCallback<LoginResult>(this) {
+        @Override
+        public void onSuccess(LoginResult result) {
+          btnSubmit.setEnabled(true);
+          if (result.sessionToken != null) {
+            startTerminal(loginUserId, result.sessionToken);
           }
-          break;
-        case CUSTOMER: // check if user is of customer
-          if (!(correctRole = selectUser instanceof Customer)) {
-            toastMsg = "User ID is not of a customer.";
+          if (result.correctRole) {
+            finish();
           }
-          break;
-      }
+          // display toast on the screen
+          Toast.makeText(LoginActivity.this, result.toastMsg, Toast.LENGTH_SHORT).show();
+        }
 
-      // check if user inputted correct password
-      if (correctRole) {
-        if (selectUser.authenticate(password)) {
-          toastMsg = "User login successful!";
-          Intent intent;
-          switch (userRole) {
-            case ADMIN:
-              intent = new Intent(this, AdminMenuActivity.class);
-              intent.putExtra("USERID", userId);
-              intent.putExtra("PASSWORD", password);
-              startActivityForResult(intent, LOGOUT_REQUEST);
-              break;
-            case TELLER:
-              intent = new Intent(this, TellerMenuActivity.class);
-              intent.putExtra("USERID", userId);
-              intent.putExtra("PASSWORD", password);
-              startActivityForResult(intent, LOGOUT_REQUEST);
-              break;
-            case CUSTOMER:
-              if (bundle.getBoolean("TELLER_AUTHENTICATION")) {
-                intent = new Intent();
-                intent.putExtra("CUSTOMER_ID", userId);
-                intent.putExtra("CUSTOMER_PASSWORD", password);
-                setResult(RESULT_OK, intent);
-                finish();
-              } else {
-                intent = new Intent(this, AtmMenuActivity.class);
-                intent.putExtra("USERID", userId);
-                intent.putExtra("PASSWORD", password);
-                startActivityForResult(intent, LOGOUT_REQUEST);
-              }
-              break;
-          }
-        } else {
-          toastMsg = "Incorrect password.";
+        @Override
+        public void onFailure(Exception e) {
+          btnSubmit.setEnabled(true);
+          Toast.makeText(LoginActivity.this, "Could not log in, try again.",
+                  Toast.LENGTH_SHORT).show();
         }
-        finish();
-      }
-      // display toast on the screen
-      Toast.makeText(this, toastMsg, Toast.LENGTH_SHORT).show();
+      });
     }
 
   }
 
+  /**
+   * Checks the user is of the login's role and logs them in. Runs off the main thread. Only
+   * reads, except for the rare login that replaces a hash made with an older scheme.
+   *
+   * @param userId the user's ID number
+   * @param password the user's password
+   * @return the outcome of the login
+   */
+  private LoginResult login(int userId, String password) {
+    String toastMsg = "";
+    // check if user ID is of correct userRole
+    boolean correctRole = false;
+    // only the role is needed to check the login, not the user's accounts or messages
+    User selectUser = DatabaseSelectHelper.getUserProjection(userId);
+    switch (userRole) {
+      case ADMIN: // check if user is of admin
+        if (!(correctRole = selectUser instanceof Admin)) {
+          toastMsg = "User ID is not of an admin.";
+        }
+        break;
+      case TELLER: // check if user is of teller
+        if (!(correctRole = selectUser instanceof Teller)) {
+          toastMsg = "User ID if not of a teller.";
+        }
+        break;
+      case CUSTOMER: // check if user is of customer
+        if (!(correctRole = selectUser instanceof Customer)) {
+          toastMsg = "User ID is not of a customer.";
+        }
+        break;
+    }
+    String sessionToken = null;
+    // check if user inputted correct password
+    if (correctRole) {
+      // the password is checked here only, the terminals are given the session's token
+      sessionToken = SessionManager.login(selectUser, password);
+      toastMsg = sessionToken != null ? "User login successful!" : "Incorrect password.";
+    }
+    return new LoginResult(toastMsg, correctRole, sessionToken);
+  }
+
+  /**
+   * Opens the terminal of the login's role for a user who has logged in.
+   *
+   * @param userId the user's ID number
+   * @param sessionToken the token of the user's session
+   */
+  private void startTerminal(int userId, String sessionToken) {
+    Intent intent;
+    switch (userRole) {
+      case ADMIN:
+        intent = new Intent(this, AdminMenuActivity.class);
+        intent.putExtra("USERID", userId);
+        intent.putExtra("SESSION_TOKEN", sessionToken);
+        startActivityForResult(intent, LOGOUT_REQUEST);
+        break;
+      case TELLER:
+        intent = new Intent(this, TellerMenuActivity.class);
+        intent.putExtra("USERID", userId);
+        intent.putExtra("SESSION_TOKEN", sessionToken);
+        startActivityForResult(intent, LOGOUT_REQUEST);
+        break;
+      case CUSTOMER:
+        if (bundle.getBoolean("TELLER_AUTHENTICATION")) {
+          intent = new Intent();
+          intent.putExtra("CUSTOMER_ID", userId);
+          intent.putExtra("CUSTOMER_SESSION_TOKEN", sessionToken);
+          setResult(RESULT_OK, intent);
+        } else {
+          intent = new Intent(this, AtmMenuActivity.class);
+          intent.putExtra("USERID", userId);
+          intent.putExtra("SESSION_TOKEN", sessionToken);
+          startActivityForResult(intent, LOGOUT_REQUEST);
+        }
+        break;
+    }
+  }
+
 }
@@ -0,0 +1,240 @@
+package com.bank.bankapplication;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.bank.terminals.TaskGroup;
+import com.bank.terminals.TerminalCallback;
+import com.bank.terminals.TerminalExecutor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Lists the rows of a {@link PagedSource} without holding them all. Only the pages around the
+ * rows on screen are read, in the background, and only a few are kept; each row is formatted as
+ * it is shown, into a recycled view. Rows not read yet are shown as loading until their page
+ * arrives.
+ *
+ * <p>A page is read after the last row of the page before when that is known, so scrolling reads
+ * along the ID index; a page jumped to is read by position instead. The rows are counted again
+ * whenever {@link #load()} is called, and when a page read shows the count has gone stale.
+ *
+ * @param <T> the type of a row
+ */
+class PagedListAdapter<T> extends BaseAdapter {
+
+  /**
+   * Number of rows read at a time.
+   */
+  static final int PAGE_SIZE = 50;
+
+  /**
+   * Number of pages kept, the least recently shown is dropped first.
+   */
+  private static final int MAX_PAGES = 8;
+
+  /**
+   * The next page is read once a row within this many rows of its end is shown.
+   */
+  private static final int PAGE_PRELOAD = 10;
+
+  /**
+   * Marks a page whose last row is not known.
+   */
+  private static final int UNKNOWN_ID = Integer.MIN_VALUE;
+
+  private final Activity context;
+  private final PagedSource<T> source;
+
+  /**
+   * The counts and pages being read, cancelled by {@link #cancel()}.
+   */
+  private final TaskGroup reads = new TaskGroup();
+
+  /**
+   * The pages read, by page number, in the order they were last shown. Only touched on the main
+   * thread.
+   */
+  private final Map<Integer, List<T>> pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f,
+          true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+      return size() > MAX_PAGES;
+    }
+  };
+
+  /**
+   * The pages being read.
+   */
+  private final Set<Integer> loading = new HashSet<>();
+
+  /**
+   * The ID of the last row of each page, kept after the page is dropped so it can be read again
+   * along the index.
+   */
+  private int[] lastIds = new int[0];
+
+  private int count = 0;
+
+  /**
+   * Counts up each time the rows are counted, so pages read for an older count are dropped.
+   */
+  private int generation = 0;
+
+  /**
+   * Holds the views of a row, so a recycled row is not looked up again.
+   */
+  private static class ViewHolder {
+
+    final TextView text;
+
+    ViewHolder(TextView text) {
+      this.text = text;
+    }
+  }
+
+  /**
+   * Creates an adapter over the source. Nothing is read until {@link #load()} is called.
+   *
+   * @param context the activity the list is shown in
+   * @param source the rows to list
+   */
+  PagedListAdapter(Activity context, PagedSource<T> source) {
+    this.context = context;
+    this.source = source;
+  }
+
+  /**
+   * Counts the rows in the background, then lists them from the top. Called again to refresh the
+   * list, the rows already shown are kept until the new count arrives.
+   */
+  void load() {
+    final int loadGeneration = ++generation;
+    reads.add(TerminalExecutor.read(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return source.count();
+      }
+    }, new ToastCallback<Integer>(context) {
+      @Override
+      public void onSuccess(Integer rows) {
+        if (loadGeneration != generation) {
+          // counted again since, the later count is used
+          return;
+        }
+        count = rows;
+        lastIds = new int[(rows + PAGE_SIZE - 1) / PAGE_SIZE];
+        Arrays.fill(lastIds, UNKNOWN_ID);
+        pages.clear();
+        loading.clear();
+        notifyDataSetChanged();
+      }
+    }));
+  }
+
+  /**
+   * Cancels the counts and pages still being read, once the list is no longer shown.
+   */
+  void cancel() {
+    reads.cancelAll();
+  }
+
+  @Override
+  public int getCount() {
+    return count;
+  }
+
+  @Override
+  public T getItem(int position) {
+    int page = position / PAGE_SIZE;
+    int index = position % PAGE_SIZE;
+    if (index >= PAGE_SIZE - PAGE_PRELOAD) {
+      requestPage(page + 1);
+    }
+    List<T> rows = pages.get(page);
+    if (rows == null) {
+      requestPage(page);
+      return null;
+    }
+    return index < rows.size() ? rows.get(index) : null;
+  }
+
+  @Override
+  public long getItemId(int position) {
+    return position;
+  }
+
+  @Override
+  public View getView(int position, View convertView, ViewGroup parent) {
+    ViewHolder holder;
+    if (convertView == null) {
+      convertView = LayoutInflater.from(context).inflate(android.R.layout.simple_list_item_1,
+              parent, false);
+      holder = new ViewHolder((TextView) convertView.findViewById(android.R.id.text1));
+      convertView.setTag(holder);
+    } else {
+      holder = (ViewHolder) convertView.getTag();
+    }
+    T row = getItem(position);
+    holder.text.setText(row == null ? "Loading..." : source.format(row));
+    return convertView;
+  }
+
+  /**
+   * Reads a page in the background if it is not kept or being read already.
+   *
+   * @param page the page number
+   */
+  private void requestPage(final int page) {
+    if (page >= lastIds.length || pages.containsKey(page) || !loading.add(page)) {
+      return;
+    }
+    final int afterId = page == 0 ? PagedSource.FIRST_PAGE : lastIds[page - 1];
+    final int pageGeneration = generation;
+    reads.add(TerminalExecutor.read(new Callable<List<T>>() {
+      @Override
+      public List<T> call() {
+        if (afterId == UNKNOWN_ID) {
+          return source.readAt(page * PAGE_SIZE, PAGE_SIZE);
+        }
+        return source.readAfter(afterId, PAGE_SIZE);
+      }
+    }, new TerminalCallback<List<T>>() {
+      @Override
+      public void onResult(List<T> rows) {
+        if (pageGeneration != generation || !loading.remove(page)) {
+          // the list was counted again while the page was read
+          return;
+        }
+        pages.put(page, rows);
+        if (!rows.isEmpty()) {
+          lastIds[page] = source.idOf(rows.get(rows.size() - 1));
+        }
+        notifyDataSetChanged();
+        if (rows.size() != Math.min(PAGE_SIZE, count - page * PAGE_SIZE)) {
+          // rows were added or removed since the count, so count them again
+          load();
+        }
+      }
+
+      @Override
+      public void onError(Exception e) {
+        // the page is asked for again when its rows are next shown
+        if (pageGeneration == generation) {
+          loading.remove(page);
+        }
+      }
+    }));
+  }
+
+}
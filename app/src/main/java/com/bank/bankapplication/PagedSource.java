@@ -0,0 +1,134 @@
+package com.bank.bankapplication;
+
+import com.bank.accounts.Account;
+import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.generics.Roles;
+import com.bank.users.User;
+
+import java.util.List;
+
+/**
+ * Rows of a list read from the database a page at a time, in ID order. Reads are run in the
+ * background by the {@link PagedListAdapter}, and rows are formatted only once shown.
+ *
+ * @param <T> the type of a row
+ */
+abstract class PagedSource<T> {
+
+  /**
+   * The ID to read the first page after.
+   */
+  static final int FIRST_PAGE = DatabaseValidHelper.MIN_ID - 1;
+
+  /**
+   * Returns the number of rows in the list.
+   *
+   * @return the number of rows
+   */
+  abstract int count();
+
+  /**
+   * Reads the rows following the row of the given ID.
+   *
+   * @param afterId the ID of the last row of the page before, FIRST_PAGE for the first page
+   * @param limit the most rows to read
+   * @return up to limit rows, fewer only on the last page
+   */
+  abstract List<T> readAfter(int afterId, int limit);
+
+  /**
+   * Reads the rows starting at the given position, for when the page before is not known.
+   *
+   * @param offset the position of the first row to read
+   * @param limit the most rows to read
+   * @return up to limit rows, fewer only on the last page
+   */
+  abstract List<T> readAt(int offset, int limit);
+
+  /**
+   * Returns the ID of a row, the next page is read after it.
+   *
+   * @param row a row of the list
+   * @return the ID of the row
+   */
+  abstract int idOf(T row);
+
+  /**
+   * Formats a row to be shown.
+   *
+   * @param row a row of the list
+   * @return the row's info string
+   */
+  abstract String format(T row);
+
+  /**
+   * Returns the users of the given role.
+   *
+   * @param role the role of the users to list
+   * @return a source of the users of the role
+   */
+  static PagedSource<User> users(final Roles role) {
+    return new PagedSource<User>() {
+      @Override
+      int count() {
+        return DatabaseSelectHelper.getUserCount(role);
+      }
+
+      @Override
+      List<User> readAfter(int afterId, int limit) {
+        return DatabaseSelectHelper.getUsersPage(role, afterId, limit);
+      }
+
+      @Override
+      List<User> readAt(int offset, int limit) {
+        return DatabaseSelectHelper.getUsersPageAt(role, offset, limit);
+      }
+
+      @Override
+      int idOf(User user) {
+        return user.getId();
+      }
+
+      @Override
+      String format(User user) {
+        return ActivityHelpers.userToString(user);
+      }
+    };
+  }
+
+  /**
+   * Returns every account in the bank.
+   *
+   * @return a source of all accounts
+   */
+  static PagedSource<Account> accounts() {
+    return new PagedSource<Account>() {
+      @Override
+      int count() {
+        return DatabaseSelectHelper.getAccountCount();
+      }
+
+      @Override
+      List<Account> readAfter(int afterId, int limit) {
+        return DatabaseSelectHelper.getAccountsPage(afterId, limit);
+      }
+
+      @Override
+      List<Account> readAt(int offset, int limit) {
+        return DatabaseSelectHelper.getAccountsPageAt(offset, limit);
+      }
+
+      @Override
+      int idOf(Account account) {
+        return account.getId();
+      }
+
+      @Override
+      String format(Account account) {
+        return ActivityHelpers.accountToString(account);
+      }
+    };
+  }
+
+}
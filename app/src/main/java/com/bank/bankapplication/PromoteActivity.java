@@ -5,11 +5,14 @@ import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.ArrayAdapter;
+import android.widget.Button;
 import android.widget.Spinner;
 import android.widget.Toast;
 
-import com.bank.accounts.Account;
 import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.generics.Roles;
+import com.bank.terminals.TaskGroup;
+import com.bank.terminals.TerminalExecutor;
 import com.bank.users.User;
 
 import java.util.ArrayList;
@@ -17,6 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * An admin selects and promotes a teller to an admin.
@@ -25,6 +29,12 @@ public class PromoteActivity extends AppCompatActivity {
 
   Map<String, Integer> userInfoIdMap = new HashMap<>();
   Spinner spnUsers;
+  Button btnPromote;
+
+  /**
+   * The tellers being read, cancelled once the activity is destroyed.
+   */
+  private final TaskGroup reads = new TaskGroup();
 
   /**
    * Converts a list of user objects into an array list of user info strings, and populates the
@@ -49,20 +59,38 @@ public class PromoteActivity extends AppCompatActivity {
   }
 
   /**
-   * Sets views from layout and attributes from intent.
+   * Sets views from layout, then reads the tellers in the background to populate the spinner.
+   * The tellers are read here rather than passed in the intent, so the intent stays small however
+   * many tellers there are.
    */
   private void setViewsAndAttributes() {
     setTitle("Promote Teller");
-    // set attributes from intent
-    Bundle bundle = getIntent().getExtras();
-    ArrayList<User> users = (ArrayList<User>) bundle.getSerializable("LIST_USERS");
-    ArrayList<String> userInfoList = userListToSpinnerArray(users, userInfoIdMap);
-    // set and populate spinner
     spnUsers = (Spinner) findViewById(R.id.promote_spn_user_selection);
-    ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item,
-            userInfoList);
-    adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-    spnUsers.setAdapter(adapter);
+    btnPromote = (Button) findViewById(R.id.promote_btn_promote);
+    // nothing can be promoted until the tellers are read
+    btnPromote.setEnabled(false);
+    reads.add(TerminalExecutor.read(new Callable<List<User>>() {
+      @Override
+      public List<User> call() {
+        return DatabaseSelectHelper.getAllUsers(Roles.TELLER);
+      }
+    }, new ToastCallback<List<User>>(this) {
+      @Override
+      public void onSuccess(List<User> tellers) {
+        if (tellers.isEmpty()) {
+          Toast.makeText(PromoteActivity.this, "No tellers to promote.",
+                  Toast.LENGTH_SHORT).show();
+          finish();
+          return;
+        }
+        ArrayList<String> userInfoList = userListToSpinnerArray(tellers, userInfoIdMap);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(PromoteActivity.this,
+                android.R.layout.simple_spinner_item, userInfoList);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spnUsers.setAdapter(adapter);
+        btnPromote.setEnabled(true);
+      }
+    }));
   }
 
   @Override
@@ -72,6 +100,12 @@ public class PromoteActivity extends AppCompatActivity {
     setViewsAndAttributes();
   }
 
+  @Override
+  protected void onDestroy() {
+    reads.cancelAll();
+    super.onDestroy();
+  }
+
   /**
    * Promotes the selected teller on the spinner to an admin.
    *
@@ -16,6 +16,7 @@ import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.databasehelper.ReferenceData;
 import com.bank.generics.AccountTypes;
 import com.bank.generics.AccountTypesEnumMap;
 import com.bank.generics.Roles;
@@ -134,6 +135,7 @@ public class StartActivity extends AppCompatActivity {
       // if first admin was already created, disable option
       btnFirstAdmin.setEnabled(false);
     }
+    ReferenceData.reload();
     RolesEnumMap.update();
     AccountTypesEnumMap.update();
     return driver;
@@ -144,8 +146,8 @@ public class StartActivity extends AppCompatActivity {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_start_menu);
     setViewsAndAttributes();
-    DatabaseDriverHelper driver = enableButtonsAndDatabaseDriver();
-    driver.close();
+    // the connection stays open for the other activities to share
+    enableButtonsAndDatabaseDriver();
   }
 
   public void createFirstAdmin(View view) {
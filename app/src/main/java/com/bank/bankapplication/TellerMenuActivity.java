@@ -10,16 +10,12 @@ import android.widget.Toast;
 import com.bank.accounts.Account;
 import com.bank.accounts.BalanceOwingAccount;
 import com.bank.accounts.RestrictedSavingsAccount;
-import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
-import com.bank.exceptions.ConnectionFailedException;
-import com.bank.exceptions.DoesNotOwnException;
-import com.bank.exceptions.IllegalAmountException;
-import com.bank.exceptions.InsufficientFundsException;
+import com.bank.generics.AccountTypes;
 import com.bank.generics.Roles;
+import com.bank.terminals.AsyncTerminal;
 import com.bank.terminals.SolidTellerTerminal;
 import com.bank.terminals.TellerTerminal;
-import com.bank.users.User;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -41,6 +37,7 @@ public class TellerMenuActivity extends AppCompatActivity {
 
   int tellerId;
   TellerTerminal terminal;
+  AsyncTerminal<TellerTerminal> asyncTerminal;
 
   Button btnAuthenticateCustomer;
   Button btnCreateUser;
@@ -102,13 +99,50 @@ public class TellerMenuActivity extends AppCompatActivity {
     btnCloseCustomerSession.setEnabled(false);
   }
 
+  private void enableCustomerOptions() {
+    btnAuthenticateCustomer.setEnabled(false);
+    btnCreateUser.setEnabled(false);
+    btnCreateAccount.setEnabled(true);
+    btnCreateJointAccount.setEnabled(true);
+    btnGiveInterest.setEnabled(true);
+    btnDeposit.setEnabled(true);
+    btnWithdraw.setEnabled(true);
+    btnAddLoans.setEnabled(true);
+    btnCheckBalance.setEnabled(true);
+    btnListAccounts.setEnabled(true);
+    btnViewCustomerMessages.setEnabled(true);
+    btnChangeCustomerInfo.setEnabled(true);
+    btnCloseCustomerSession.setEnabled(true);
+  }
+
   @Override
   protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_teller_menu);
     setViewsAndAttributes();
-    String password = getIntent().getStringExtra("PASSWORD");
-    terminal = new SolidTellerTerminal(tellerId, password);
+    terminal = new SolidTellerTerminal(getIntent().getStringExtra("SESSION_TOKEN"));
+    asyncTerminal = new AsyncTerminal<>(terminal);
+  }
+
+  @Override
+  protected void onDestroy() {
+    // reads still pending are for a screen that is gone
+    asyncTerminal.cancelReads();
+    super.onDestroy();
+  }
+
+  /**
+   * Reads the authenticated customer's accounts in the background.
+   *
+   * @param callback given the accounts on the main thread
+   */
+  private void readAccounts(ToastCallback<List<Account>> callback) {
+    asyncTerminal.read(new AsyncTerminal.Operation<TellerTerminal, List<Account>>() {
+      @Override
+      public List<Account> run(TellerTerminal terminal) {
+        return terminal.listAccounts();
+      }
+    }, callback);
   }
 
   @Override
@@ -117,86 +151,123 @@ public class TellerMenuActivity extends AppCompatActivity {
     // if first admin has been created, disable option after
     if (resultCode == RESULT_OK) {
       Bundle bundle = data.getExtras();
+      // the database is written to off the main thread, any error is shown once it returns
+      ToastCallback<Object> showErrors = new ToastCallback<Object>(this) {
+        @Override
+        public void onSuccess(Object result) {
+        }
+      };
       switch (requestCode) {
         case AUTHENTICATE_CUSTOMER_REQUEST:
-          terminal.setCustomer(bundle.getInt("CUSTOMER_ID"));
-          terminal.authenticateCustomer(bundle.getString("CUSTOMER_PASSWORD"));
-          btnAuthenticateCustomer.setEnabled(false);
-          btnCreateUser.setEnabled(false);
-          btnCreateAccount.setEnabled(true);
-          btnCreateJointAccount.setEnabled(true);
-          btnGiveInterest.setEnabled(true);
-          btnDeposit.setEnabled(true);
-          btnWithdraw.setEnabled(true);
-          btnAddLoans.setEnabled(true);
-          btnCheckBalance.setEnabled(true);
-          btnListAccounts.setEnabled(true);
-          btnViewCustomerMessages.setEnabled(true);
-          btnChangeCustomerInfo.setEnabled(true);
-          btnCloseCustomerSession.setEnabled(true);
+          // the customer has already logged in, only their session is looked up; it changes
+          // which customer the terminal serves, so it is ordered with the writes
+          final String customerSessionToken = bundle.getString("CUSTOMER_SESSION_TOKEN");
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Boolean>() {
+            @Override
+            public Boolean run(TellerTerminal terminal) {
+              return terminal.authenticateCustomerSession(customerSessionToken);
+            }
+          }, new ToastCallback<Boolean>(this) {
+            @Override
+            public void onSuccess(Boolean authenticated) {
+              if (!authenticated) {
+                Toast.makeText(TellerMenuActivity.this, "Customer could not be authenticated.",
+                        Toast.LENGTH_LONG).show();
+                return;
+              }
+              enableCustomerOptions();
+            }
+          });
           break;
 
         case DEPOSIT_REQUEST:
-          int depositAccountId = bundle.getInt("ACCOUNTID");
-          BigDecimal deposit = new BigDecimal(bundle.getString("AMOUNT"));
-          try {
-            terminal.makeDeposit(depositAccountId, deposit);
-          } catch (IllegalAmountException | DoesNotOwnException | ConnectionFailedException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int depositAccountId = bundle.getInt("ACCOUNTID");
+          final BigDecimal deposit = new BigDecimal(bundle.getString("AMOUNT"));
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Object>() {
+            @Override
+            public Object run(TellerTerminal terminal) throws Exception {
+              return terminal.makeDeposit(depositAccountId, deposit);
+            }
+          }, showErrors);
           break;
 
         case WITHDRAW_REQUEST:
-          int withdrawAccountId = bundle.getInt("ACCOUNTID");
-          BigDecimal withdraw = new BigDecimal(bundle.getString("AMOUNT"));
-          try {
-            terminal.makeWithdrawal(withdrawAccountId, withdraw);
-          } catch (IllegalAmountException | DoesNotOwnException | ConnectionFailedException
-                  | InsufficientFundsException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int withdrawAccountId = bundle.getInt("ACCOUNTID");
+          final BigDecimal withdraw = new BigDecimal(bundle.getString("AMOUNT"));
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Object>() {
+            @Override
+            public Object run(TellerTerminal terminal) throws Exception {
+              return terminal.makeWithdrawal(withdrawAccountId, withdraw);
+            }
+          }, showErrors);
           break;
 
         case ADD_LOANS_REQUEST:
-          int owingAccountId = bundle.getInt("ACCOUNTID");
-          BigDecimal loan = new BigDecimal(bundle.getString("AMOUNT"));
-          try {
-            terminal.addLoans(owingAccountId, loan);
-          } catch (IllegalAmountException | DoesNotOwnException | ConnectionFailedException e) {
-            Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
-          }
+          final int owingAccountId = bundle.getInt("ACCOUNTID");
+          final BigDecimal loan = new BigDecimal(bundle.getString("AMOUNT"));
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Object>() {
+            @Override
+            public Object run(TellerTerminal terminal) throws Exception {
+              return terminal.addLoans(owingAccountId, loan);
+            }
+          }, showErrors);
           break;
 
         case LEAVE_MESSAGE_REQUEST:
-          int recipientId = bundle.getInt("USERID");
-          String msgContent = bundle.getString("MESSAGE");
-          terminal.leaveMessage(recipientId, msgContent);
+          final String msgContent = bundle.getString("MESSAGE");
+          // tellers are only offered every customer
+          final boolean broadcastCustomers = bundle.containsKey("BROADCAST_ROLE");
+          final String broadcastAccountType = bundle.getString("BROADCAST_ACCOUNT_TYPE");
+          final int recipientId = bundle.getInt("USERID");
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Object>() {
+            @Override
+            public Object run(TellerTerminal terminal) {
+              if (broadcastCustomers) {
+                return terminal.broadcastMessage(msgContent);
+              } else if (broadcastAccountType != null) {
+                return terminal.broadcastMessage(AccountTypes.valueOf(broadcastAccountType),
+                        msgContent);
+              }
+              return terminal.leaveMessage(recipientId, msgContent);
+            }
+          }, showErrors);
           break;
 
         case GIVE_INTEREST_REQUEST:
-          int interestOption = bundle.getInt("INTEREST_OPTION");
-          // give interest to all accounts if option is 0, or a specific account
-          if (interestOption == 0) {
-            terminal.giveInterest();
-          } else {
-            try {
-              terminal.giveInterest(interestOption);
-            } catch (DoesNotOwnException e) {
-              Toast.makeText(this, e.getMessage(), Toast.LENGTH_LONG).show();
+          final int interestOption = bundle.getInt("INTEREST_OPTION");
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Object>() {
+            @Override
+            public Object run(TellerTerminal terminal) throws Exception {
+              // give interest to all accounts if option is 0, or a specific account
+              if (interestOption == 0) {
+                return terminal.giveInterest();
+              }
+              return terminal.giveInterest(interestOption);
             }
-          }
+          }, showErrors);
           break;
 
         case CREATE_JOINT_ACCOUNT_REQUEST:
-          int jointAccountUserId = bundle.getInt("USERID");
-          int jointAccountId = bundle.getInt("ACCOUNTID");
-          if (terminal.createJointAccount(jointAccountId, jointAccountUserId)) {
-            Toast.makeText(this, "Joint account has been created with user ID" + jointAccountId
-                    + ".", Toast.LENGTH_LONG).show();
-          } else {
-            Toast.makeText(this, "Something went wrong with creating joint account.",
-                    Toast.LENGTH_LONG).show();
-          }
+          final int jointAccountUserId = bundle.getInt("USERID");
+          final int jointAccountId = bundle.getInt("ACCOUNTID");
+          asyncTerminal.write(new AsyncTerminal.Operation<TellerTerminal, Boolean>() {
+            @Override
+            public Boolean run(TellerTerminal terminal) {
+              return terminal.createJointAccount(jointAccountId, jointAccountUserId);
+            }
+          }, new ToastCallback<Boolean>(this) {
+            @Override
+            public void onSuccess(Boolean created) {
+              if (created) {
+                Toast.makeText(TellerMenuActivity.this, "Joint account has been created with "
+                        + "user ID" + jointAccountId + ".", Toast.LENGTH_LONG).show();
+              } else {
+                Toast.makeText(TellerMenuActivity.this,
+                        "Something went wrong with creating joint account.",
+                        Toast.LENGTH_LONG).show();
+              }
+            }
+          });
           break;
       }
     }
@@ -223,108 +294,144 @@ public class TellerMenuActivity extends AppCompatActivity {
   }
 
   public void giveInterest(View view) {
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to give interest to.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, GiveInterestActivity.class);
-    intent.putExtra("LIST_ACCOUNTS", accounts);
-    startActivityForResult(intent, GIVE_INTEREST_REQUEST);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No accounts to give interest to.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(TellerMenuActivity.this, GiveInterestActivity.class);
+        intent.putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivityForResult(intent, GIVE_INTEREST_REQUEST);
+      }
+    });
   }
 
   public void makeDeposit(View view) {
-    // get list of accounts that are not restricted savings
-    ArrayList<Account> validAccounts = new ArrayList<>();
-    for (Account account : terminal.listAccounts()) {
-      if (!(account instanceof RestrictedSavingsAccount)) {
-        validAccounts.add(account);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        // get list of accounts that are not restricted savings
+        ArrayList<Account> validAccounts = new ArrayList<>();
+        for (Account account : accounts) {
+          if (!(account instanceof RestrictedSavingsAccount)) {
+            validAccounts.add(account);
+          }
+        }
+        // if there are no accounts to deposit to, cancel action
+        if (validAccounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No accounts to deposit to.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        // start update balance activity
+        Intent intent = new Intent(TellerMenuActivity.this, UpdateBalanceActivity.class);
+        intent.putExtra("OPTION", IntentOptions.MAKE_DEPOSIT);
+        intent.putExtra("LIST_ACCOUNTS", validAccounts);
+        startActivityForResult(intent, DEPOSIT_REQUEST);
       }
-    }
-    // if there are no accounts to deposit to, cancel action
-    if (validAccounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to deposit to.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    // start update balance activity
-    Intent intent = new Intent(this, UpdateBalanceActivity.class);
-    intent.putExtra("OPTION", IntentOptions.MAKE_DEPOSIT);
-    intent.putExtra("LIST_ACCOUNTS", validAccounts);
-    startActivityForResult(intent, DEPOSIT_REQUEST);
+    });
   }
 
   public void makeWithdrawal(View view) {
-    // get list of accounts that are not balance owing or restricted savings
-    ArrayList<Account> validAccounts = new ArrayList<>();
-    for (Account account : terminal.listAccounts()) {
-      boolean isOwing = account instanceof BalanceOwingAccount;
-      boolean isRestricted = account instanceof RestrictedSavingsAccount;
-      if (!(isOwing || isRestricted)) {
-        validAccounts.add(account);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        // get list of accounts that are not balance owing or restricted savings
+        ArrayList<Account> validAccounts = new ArrayList<>();
+        for (Account account : accounts) {
+          boolean isOwing = account instanceof BalanceOwingAccount;
+          boolean isRestricted = account instanceof RestrictedSavingsAccount;
+          if (!(isOwing || isRestricted)) {
+            validAccounts.add(account);
+          }
+        }
+        // if there are no accounts to withdraw from, cancel action
+        if (validAccounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No accounts to withdraw from.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        // start update balance activity
+        Intent intent = new Intent(TellerMenuActivity.this, UpdateBalanceActivity.class);
+        intent.putExtra("OPTION", IntentOptions.MAKE_WITHDRAW)
+                .putExtra("LIST_ACCOUNTS", validAccounts);
+        startActivityForResult(intent, WITHDRAW_REQUEST);
       }
-    }
-    // if there are no accounts to withdraw from, cancel action
-    if (validAccounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to withdraw from.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    // start update balance activity
-    Intent intent = new Intent(this, UpdateBalanceActivity.class);
-    intent.putExtra("OPTION", IntentOptions.MAKE_WITHDRAW)
-            .putExtra("LIST_ACCOUNTS", validAccounts);
-    startActivityForResult(intent, WITHDRAW_REQUEST);
+    });
   }
 
   public void addLoans(View view) {
-    List<Account> accounts = terminal.listAccounts();
-    // get list of accounts that are balance owing
-    ArrayList<Account> owingAccounts = new ArrayList<>();
-    for (Account account : accounts) {
-      if (account instanceof BalanceOwingAccount) {
-        owingAccounts.add(account);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        // get list of accounts that are balance owing
+        ArrayList<Account> owingAccounts = new ArrayList<>();
+        for (Account account : accounts) {
+          if (account instanceof BalanceOwingAccount) {
+            owingAccounts.add(account);
+          }
+        }
+        // if there are no accounts to add loans to, cancel accounts
+        if (owingAccounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No balance owing accounts to add loans to.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(TellerMenuActivity.this, UpdateBalanceActivity.class);
+        intent.putExtra("OPTION", IntentOptions.ADD_LOANS)
+                .putExtra("LIST_ACCOUNTS", owingAccounts);
+        startActivityForResult(intent, ADD_LOANS_REQUEST);
       }
-    }
-    // if there are no accounts to add loans to, cancel accounts
-    if (owingAccounts.isEmpty()) {
-      Toast.makeText(this, "No balance owing accounts to add loans to.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, UpdateBalanceActivity.class);
-    intent.putExtra("OPTION", IntentOptions.ADD_LOANS)
-            .putExtra("LIST_ACCOUNTS", owingAccounts);
-    startActivityForResult(intent, ADD_LOANS_REQUEST);
+    });
   }
 
   public void checkBalance(View view) {
-    Intent intent = new Intent(this, ListViewActivity.class);
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    intent.putExtra("OPTION", IntentOptions.VIEW_BALANCE)
-            .putExtra("LIST_ACCOUNTS", accounts);
-    startActivity(intent);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        Intent intent = new Intent(TellerMenuActivity.this, ListViewActivity.class);
+        intent.putExtra("OPTION", IntentOptions.VIEW_BALANCE)
+                .putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivity(intent);
+      }
+    });
   }
 
   public void listAccounts(View view) {
-    List<Account> accounts = terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to view.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    ArrayList<String> accountInfoList = ActivityHelpers.accountListToStringList(accounts);
-    intent.putExtra("OPTION", IntentOptions.LIST_ACCOUNTS)
-            .putExtra("LIST_ACCOUNT_INFO", accountInfoList);
-    startActivity(intent);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No accounts to view.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(TellerMenuActivity.this, ListViewActivity.class);
+        ArrayList<String> accountInfoList = ActivityHelpers.accountListToStringList(accounts);
+        intent.putExtra("OPTION", IntentOptions.LIST_ACCOUNTS)
+                .putExtra("LIST_ACCOUNT_INFO", accountInfoList);
+        startActivity(intent);
+      }
+    });
   }
 
   public void createJointAccount(View view) {
-    ArrayList<Account> accounts = (ArrayList<Account>) terminal.listAccounts();
-    if (accounts.isEmpty()) {
-      Toast.makeText(this, "No accounts to create joint account with.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, AccountSelectionActivity.class);
-    intent.putExtra("LIST_ACCOUNTS", accounts);
-    startActivityForResult(intent, CREATE_JOINT_ACCOUNT_REQUEST);
+    readAccounts(new ToastCallback<List<Account>>(this) {
+      @Override
+      public void onSuccess(List<Account> accounts) {
+        if (accounts.isEmpty()) {
+          Toast.makeText(TellerMenuActivity.this, "No accounts to create joint account with.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(TellerMenuActivity.this, AccountSelectionActivity.class);
+        intent.putExtra("LIST_ACCOUNTS", (ArrayList<Account>) accounts);
+        startActivityForResult(intent, CREATE_JOINT_ACCOUNT_REQUEST);
+      }
+    });
   }
 
   public void viewCustomerMessages(View view) {
@@ -347,28 +454,39 @@ public class TellerMenuActivity extends AppCompatActivity {
   }
 
   public void leaveMessage(View view) {
-    ArrayList<User> customers = (ArrayList<User>) DatabaseSelectHelper.getAllUsers(Roles.CUSTOMER);
-    if (customers.isEmpty()) {
-      Toast.makeText(this, "No customers to leave message for.", Toast.LENGTH_SHORT).show();
-      return;
-    }
+    ArrayList<String> broadcastRoles = new ArrayList<>();
+    broadcastRoles.add(Roles.CUSTOMER.name());
+    // tellers only leave messages for customers, which the activity reads itself
     Intent intent = new Intent(this, CreateMessageActivity.class);
-    intent.putExtra("USER_LIST", customers);
+    intent.putExtra("ROLE", Roles.CUSTOMER.name());
+    intent.putExtra("BROADCAST_ROLES", broadcastRoles);
     startActivityForResult(intent, LEAVE_MESSAGE_REQUEST);
   }
 
   public void viewMessages(View view) {
-    if (terminal.listMessageIds().isEmpty()) {
-      Toast.makeText(this, "No messages to display.", Toast.LENGTH_SHORT).show();
-      return;
-    }
-    Intent intent = new Intent(this, ListViewActivity.class);
-    intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
-    intent.putExtra("USERID", tellerId);
-    startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+    asyncTerminal.read(new AsyncTerminal.Operation<TellerTerminal, Integer>() {
+      @Override
+      public Integer run(TellerTerminal terminal) {
+        return DatabaseSelectHelper.getMessageCount(tellerId);
+      }
+    }, new ToastCallback<Integer>(this) {
+      @Override
+      public void onSuccess(Integer messageCount) {
+        if (messageCount == 0) {
+          Toast.makeText(TellerMenuActivity.this, "No messages to display.",
+                  Toast.LENGTH_SHORT).show();
+          return;
+        }
+        Intent intent = new Intent(TellerMenuActivity.this, ListViewActivity.class);
+        intent.putExtra("OPTION", IntentOptions.LIST_MESSAGES);
+        intent.putExtra("USERID", tellerId);
+        startActivityForResult(intent, VIEW_MESSAGE_REQUEST);
+      }
+    });
   }
 
   public void logout(View view) {
+    terminal.deAuthenticate();
     Toast.makeText(this, getString(R.string.logout_message), Toast.LENGTH_LONG).show();
     setResult(RESULT_OK);
     finish();
@@ -0,0 +1,68 @@
+package com.bank.bankapplication;
+
+import android.app.Activity;
+import android.widget.Toast;
+
+import com.bank.terminals.TerminalCallback;
+
+/**
+ * A callback for terminal work that shows the message of any exception thrown as a toast. The
+ * outcome is dropped if the activity the work was started from is finishing or destroyed by the
+ * time it arrives, so the views of a closed screen are never touched.
+ *
+ * @param <R> the type of the result
+ */
+abstract class ToastCallback<R> implements TerminalCallback<R> {
+
+  private final Activity activity;
+
+  /**
+   * Creates a callback that shows its errors in the given activity.
+   *
+   * @param activity the activity the work was started from
+   */
+  ToastCallback(Activity activity) {
+    this.activity = activity;
+  }
+
+  @Override
+  public final void onResult(R result) {
+    if (isShowing()) {
+      onSuccess(result);
+    }
+  }
+
+  @Override
+  public final void onError(Exception e) {
+    if (isShowing()) {
+      onFailure(e);
+    }
+  }
+
+  /**
+   * Called with the result of the work, while the activity is still showing.
+   *
+   * @param result the result of the work
+   */
+  public abstract void onSuccess(R result);
+
+  /**
+   * Called if the work failed, while the activity is still showing. Shows the exception's
+   * message by default.
+   *
+   * @param e the exception thrown
+   */
+  public void onFailure(Exception e) {
+    Toast.makeText(activity, e.getMessage(), Toast.LENGTH_LONG).show();
+  }
+
+  /**
+   * Returns whether the activity the work was started from is still showing.
+   *
+   * @return <code>true</code> if the activity is not finishing or destroyed
+   */
+  boolean isShowing() {
+    return !activity.isFinishing() && !activity.isDestroyed();
+  }
+
+}
@@ -100,7 +100,7 @@ public class UserSelectionActivity extends AppCompatActivity {
 
         switch (intentOption) {
           case IntentOptions.PEEK_MESSAGE:
-            if (DatabaseSelectHelper.getAllMessageIds(userId).isEmpty()) {
+            if (DatabaseSelectHelper.getMessageCount(userId) == 0) {
               Toast.makeText(view.getContext(), "User has no messages.", Toast.LENGTH_SHORT).show();
             } else {
               Intent intent = new Intent(view.getContext(), ListViewActivity.class);
@@ -5,26 +5,136 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import com.bank.ledger.LedgerEntryType;
 import com.bank.security.PasswordHelpers;
 
 import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by Joe on 2017-07-17.
  */
 
 public class DatabaseDriverA extends SQLiteOpenHelper {
-  private static final int DATABASE_VERSION = 1;
+  private static final int DATABASE_VERSION = Migrations.LATEST_VERSION;
   private static final String DATABASE_NAME = "bank.db";
 
+  /**
+   * Compiled statements on the open database, one cache for each thread, created when first
+   * needed. A statement is only bound and run by the thread that compiled it, so no lock is held
+   * while a statement waits for a connection that another thread's transaction has.
+   */
+  private final ThreadLocal<StatementCache> statementCaches = new ThreadLocal<>();
+
+  /**
+   * Bumped whenever the schema is dropped, so every thread compiles its statements again.
+   */
+  private final AtomicInteger schemaGeneration = new AtomicInteger();
+
+  /**
+   * The storage settings the database is opened with.
+   */
+  private final StorageProfile storageProfile;
+
+  /**
+   * Keeps the write-ahead log from growing, <code>null</code> if not in write-ahead logging mode.
+   */
+  private WalCheckpointScheduler checkpointScheduler = null;
+
+  /**
+   * Number of ledger entries written on an account between snapshots of its balance, which bounds
+   * how many entries are replayed to find a past balance.
+   */
+  private static final int LEDGER_SNAPSHOT_INTERVAL = 100;
+
+  /**
+   * The columns a message is read with: either its template and parameters, or its shared body.
+   */
+  private static final String MESSAGE_COLUMNS =
+          "M.ID AS ID, M.USERID AS USERID, M.VIEWED AS VIEWED, M.TEMPLATEID AS TEMPLATEID, "
+          + "M.PARAMS AS PARAMS, B.BODY AS BODY";
+
   public DatabaseDriverA(Context context) {
-    super(context, DATABASE_NAME, null, 1);
+    this(context, StorageProfile.STANDARD);
+  }
+
+  public DatabaseDriverA(Context context, StorageProfile storageProfile) {
+    this(context, DATABASE_NAME, storageProfile);
+  }
+
+  /**
+   * Opens the bank schema in a database file of the given name, so tests can run on a scratch
+   * database and never touch bank.db.
+   *
+   * @param context to open the database
+   * @param databaseName the name of the database file
+   * @param storageProfile the storage settings to open the database with
+   */
+  DatabaseDriverA(Context context, String databaseName, StorageProfile storageProfile) {
+    super(context, databaseName, null, DATABASE_VERSION);
+    this.storageProfile = storageProfile;
+  }
 
+  public StorageProfile getStorageProfile() {
+    return storageProfile;
+  }
+
+  @Override
+  public void onConfigure(SQLiteDatabase sqLiteDatabase) {
+    storageProfile.apply(sqLiteDatabase);
+  }
+
+  @Override
+  public synchronized void onOpen(SQLiteDatabase sqLiteDatabase) {
+    if (storageProfile.isWriteAheadLogging() && checkpointScheduler == null) {
+      checkpointScheduler = new WalCheckpointScheduler(sqLiteDatabase,
+              storageProfile.getJournalSizeLimit());
+      checkpointScheduler.start(WalCheckpointScheduler.DEFAULT_INTERVAL_SECONDS);
+    }
+  }
+
+  /**
+   * Returns the calling thread's cache of compiled statements on the open database, opening it
+   * if needed.
+   *
+   * @return the statement cache
+   */
+  public StatementCache getStatementCache() {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    int generation = schemaGeneration.get();
+    StatementCache statementCache = statementCaches.get();
+    if (statementCache == null || !statementCache.isFor(sqLiteDatabase, generation)) {
+      // the database was opened again or its tables dropped, the old statements are unusable
+      if (statementCache != null) {
+        statementCache.clear();
+      }
+      statementCache = new StatementCache(sqLiteDatabase, generation,
+              StatementCache.DEFAULT_CAPACITY);
+      statementCaches.set(statementCache);
+    }
+    return statementCache;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (checkpointScheduler != null) {
+      checkpointScheduler.stop();
+      checkpointScheduler = null;
+    }
+    // other threads find their statements are for a closed database the next time they use them
+    StatementCache statementCache = statementCaches.get();
+    if (statementCache != null) {
+      statementCache.clear();
+      statementCaches.remove();
+    }
+    super.close();
   }
 
   @Override
   public void onCreate(SQLiteDatabase sqLiteDatabase) {
+    // create the base schema, then bring it up to date the same way as an existing database
     sqLiteDatabase.execSQL("CREATE TABLE ROLES "
             + "(ID INTEGER PRIMARY KEY NOT NULL,"
             + "NAME TEXT NOT NULL)");
@@ -61,11 +171,33 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
             + "MESSAGE CHAR(512) NOT NULL,"
             + "VIEWED CHAR(1) NOT NULL,"
             + "FOREIGN KEY(USERID) REFERENCES USER(ID))");
+    Migrations.recordBaseVersion(sqLiteDatabase);
+    Migrations.migrate(sqLiteDatabase, Migrations.BASE_VERSION, DATABASE_VERSION);
   }
 
   @Override
   public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+    Migrations.migrate(sqLiteDatabase, oldVersion, newVersion);
+  }
+
+  /**
+   * Drops every table and creates the schema again from scratch.
+   *
+   * @param sqLiteDatabase the database to reset
+   */
+  public void resetDatabase(SQLiteDatabase sqLiteDatabase) {
+    schemaGeneration.incrementAndGet();
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS SCHEMAVERSION");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS DELETEDROWS");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS BACKUPMARKS");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS BACKUPSTATE");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERMESSAGECOUNTS");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS LEDGERSNAPSHOTS");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS LEDGER");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS INTERESTRUNS");
     sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERMESSAGES");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS BROADCASTS");
+    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS MESSAGEBODIES");
     sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERPW");
     sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERACCOUNT");
     sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERS");
@@ -76,6 +208,23 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
     onCreate(sqLiteDatabase);
   }
 
+  //TRANSACTIONS
+  protected void beginTransaction() {
+    this.getWritableDatabase().beginTransaction();
+  }
+
+  protected void setTransactionSuccessful() {
+    this.getWritableDatabase().setTransactionSuccessful();
+  }
+
+  protected void endTransaction() {
+    this.getWritableDatabase().endTransaction();
+  }
+
+  protected boolean inTransaction() {
+    return this.getWritableDatabase().inTransaction();
+  }
+
   //INSERTS
   protected long insertRole(String role) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
@@ -98,13 +247,25 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
     return sqLiteDatabase.insert("ACCOUNTTYPES", null, contentValues);
   }
 
-  protected long insertAccount(String name, BigDecimal balance, int typeId) {
+  protected long insertAccount(String name, long balanceCents, int typeId) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
-    ContentValues contentValues = new ContentValues();
-    contentValues.put("NAME", name);
-    contentValues.put("BALANCE", balance.toPlainString());
-    contentValues.put("TYPE", typeId);
-    return sqLiteDatabase.insert("ACCOUNTS", null, contentValues);
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      ContentValues contentValues = new ContentValues();
+      contentValues.put("NAME", name);
+      contentValues.put("BALANCE", balanceCents);
+      contentValues.put("TYPE", typeId);
+      long id = sqLiteDatabase.insert("ACCOUNTS", null, contentValues);
+      if (id != -1) {
+        // the opening balance is the first entry of the account's history
+        appendLedgerEntry(statements, (int) id, LedgerEntryType.OPENING, balanceCents, 0);
+        sqLiteDatabase.setTransactionSuccessful();
+      }
+      return id;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
   }
 
   protected long insertUserAccount(int userId, int accountId) {
@@ -116,12 +277,184 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
   }
 
   protected long insertMessage(int userId, String message) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      long bodyId = internMessageBody(statements, message);
+      SQLiteStatement statement = statements.acquire(
+              "INSERT INTO USERMESSAGES (USERID, BODYID, VIEWED) VALUES (?, ?, 0)");
+      statement.bindLong(1, userId);
+      statement.bindLong(2, bodyId);
+      long id = statement.executeInsert();
+      sqLiteDatabase.setTransactionSuccessful();
+      return id;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  protected long insertTemplateMessage(int userId, int templateId, String parameters) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("INSERT INTO USERMESSAGES "
+            + "(USERID, TEMPLATEID, PARAMS, VIEWED) VALUES (?, ?, ?, 0)");
+    statement.bindLong(1, userId);
+    statement.bindLong(2, templateId);
+    statement.bindString(3, parameters);
+    return statement.executeInsert();
+  }
+
+  protected int insertBroadcastToRole(String message, int roleId) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      createBroadcastRecipients(sqLiteDatabase);
+      SQLiteStatement statement = statements.acquire("INSERT INTO temp.BROADCASTRECIPIENTS "
+              + "(USERID) SELECT ID FROM USERS WHERE ROLEID = ?");
+      statement.bindLong(1, roleId);
+      statement.executeInsert();
+      int recipients = fanOutBroadcast(statements, message, "ROLE " + roleId);
+      sqLiteDatabase.setTransactionSuccessful();
+      return recipients;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  protected int insertBroadcastToAccountType(String message, int typeId, int roleId) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      createBroadcastRecipients(sqLiteDatabase);
+      // owners of joint accounts, or of several accounts of the type, are sent it once, and
+      // only owners of the role if one is given
+      SQLiteStatement statement = statements.acquire("INSERT OR IGNORE INTO "
+              + "temp.BROADCASTRECIPIENTS (USERID) SELECT UA.USERID FROM ACCOUNTS A "
+              + "JOIN USERACCOUNT UA ON UA.ACCOUNTID = A.ID "
+              + "JOIN USERS U ON U.ID = UA.USERID "
+              + "WHERE A.TYPE = ?1 AND (?2 < 0 OR U.ROLEID = ?2)");
+      statement.bindLong(1, typeId);
+      statement.bindLong(2, roleId);
+      statement.executeInsert();
+      int recipients = fanOutBroadcast(statements, message, "ACCOUNTTYPE " + typeId);
+      sqLiteDatabase.setTransactionSuccessful();
+      return recipients;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  protected int insertBroadcastToUsers(String message, int[] userIds, int roleId) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      createBroadcastRecipients(sqLiteDatabase);
+      // only users that exist, and are of the role if one is given
+      SQLiteStatement statement = statements.acquire("INSERT OR IGNORE INTO "
+              + "temp.BROADCASTRECIPIENTS (USERID) SELECT ID FROM USERS "
+              + "WHERE ID = ?1 AND (?2 < 0 OR ROLEID = ?2)");
+      for (int userId : userIds) {
+        statement.bindLong(1, userId);
+        statement.bindLong(2, roleId);
+        statement.executeInsert();
+      }
+      int recipients = fanOutBroadcast(statements, message, "USERS " + userIds.length);
+      sqLiteDatabase.setTransactionSuccessful();
+      return recipients;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  /**
+   * Creates the connection's table of broadcast recipients if it does not exist yet. The table is
+   * temporary, so filling it is never written to the database file.
+   *
+   * @param sqLiteDatabase the writable database, inside a transaction
+   */
+  private static void createBroadcastRecipients(SQLiteDatabase sqLiteDatabase) {
+    sqLiteDatabase.execSQL("CREATE TEMP TABLE IF NOT EXISTS BROADCASTRECIPIENTS "
+            + "(USERID INTEGER PRIMARY KEY NOT NULL)");
+  }
+
+  /**
+   * Leaves the message for every user in the table of broadcast recipients, then empties it. The
+   * text is stored once and each recipient is given one narrow row, all with set statements.
+   * No trigger runs for each recipient. Must be called inside a transaction.
+   *
+   * @param statements the calling thread's statement cache
+   * @param message the text of the message
+   * @param target a description of who the message was sent to
+   * @return the number of users the message was left for
+   */
+  private static int fanOutBroadcast(StatementCache statements, String message, String target) {
+    int recipients = (int) statements.acquire("SELECT COUNT(*) FROM temp.BROADCASTRECIPIENTS")
+            .simpleQueryForLong();
+    if (recipients == 0) {
+      return 0;
+    }
+    long bodyId = internMessageBody(statements, message);
+    SQLiteStatement insertBroadcast = statements.acquire("INSERT INTO BROADCASTS "
+            + "(BODYID, TARGET, RECIPIENTS, CREATED) VALUES (?, ?, ?, ?)");
+    insertBroadcast.bindLong(1, bodyId);
+    insertBroadcast.bindString(2, target);
+    insertBroadcast.bindLong(3, recipients);
+    insertBroadcast.bindLong(4, System.currentTimeMillis());
+    long broadcastId = insertBroadcast.executeInsert();
+    // every recipient gets its own unread row, marked viewed when they view the message, and
+    // stamped for the next backup here since the triggers skip broadcast rows
+    SQLiteStatement insertMessages = statements.acquire("INSERT INTO USERMESSAGES "
+            + "(USERID, BODYID, BROADCASTID, VIEWED, CHANGESEQ) "
+            + "SELECT USERID, ?, ?, 0, (SELECT GENERATION FROM BACKUPSTATE WHERE ID = 1) "
+            + "FROM temp.BROADCASTRECIPIENTS ORDER BY USERID");
+    insertMessages.bindLong(1, bodyId);
+    insertMessages.bindLong(2, broadcastId);
+    insertMessages.executeInsert();
+    statements.acquire("INSERT OR IGNORE INTO USERMESSAGECOUNTS (USERID, TOTAL, UNREAD) "
+            + "SELECT USERID, 0, 0 FROM temp.BROADCASTRECIPIENTS").executeInsert();
+    statements.acquire("UPDATE USERMESSAGECOUNTS SET TOTAL = TOTAL + 1, UNREAD = UNREAD + 1 "
+            + "WHERE USERID IN (SELECT USERID FROM temp.BROADCASTRECIPIENTS)")
+            .executeUpdateDelete();
+    statements.acquire("DELETE FROM temp.BROADCASTRECIPIENTS").executeUpdateDelete();
+    return recipients;
+  }
+
+  /**
+   * Returns the ID of the stored message body with the given text, storing it first if no message
+   * has had the same text before. Must be called while holding the statement cache's lock.
+   *
+   * @param statements the calling thread's statement cache
+   * @param body the text of a message
+   * @return the ID of the message body
+   */
+  private static long internMessageBody(StatementCache statements, String body) {
+    SQLiteStatement selectBody = statements.acquire("SELECT IFNULL((SELECT ID FROM MESSAGEBODIES "
+            + "WHERE HASH = ? AND BODY = ? LIMIT 1), -1)");
+    selectBody.bindLong(1, body.hashCode());
+    selectBody.bindString(2, body);
+    long bodyId = selectBody.simpleQueryForLong();
+    if (bodyId == -1) {
+      SQLiteStatement insertBody = statements.acquire(
+              "INSERT INTO MESSAGEBODIES (HASH, BODY) VALUES (?, ?)");
+      insertBody.bindLong(1, body.hashCode());
+      insertBody.bindString(2, body);
+      bodyId = insertBody.executeInsert();
+    }
+    return bodyId;
+  }
+
+  protected long insertInterestRun(int period) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
     ContentValues contentValues = new ContentValues();
-    contentValues.put("USERID", userId);
-    contentValues.put("MESSAGE", message);
-    contentValues.put("VIEWED", 0);
-    return sqLiteDatabase.insert("USERMESSAGES", null, contentValues);
+    contentValues.put("PERIOD", period);
+    contentValues.put("LASTACCOUNTID", 0);
+    contentValues.put("ACCOUNTS", 0);
+    contentValues.put("TOTALINTEREST", 0);
+    contentValues.put("COMPLETE", 0);
+    return sqLiteDatabase.insert("INTERESTRUNS", null, contentValues);
   }
 
   private long insertUser(String name, int age, String address, int roleId) {
@@ -164,13 +497,10 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
   }
 
   protected int getUserRole(int userId) {
-    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    Cursor cursor = sqLiteDatabase.rawQuery("SELECT ROLEID FROM USERS WHERE ID = ?",
-            new String[]{String.valueOf(userId)});
-    cursor.moveToFirst();
-    int result = cursor.getInt(cursor.getColumnIndex("ROLEID"));
-    cursor.close();
-    return result;
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("SELECT ROLEID FROM USERS WHERE ID = ?");
+    statement.bindLong(1, userId);
+    return (int) statement.simpleQueryForLong();
   }
 
   protected Cursor getUsersDetails() {
@@ -178,6 +508,44 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
     return sqLiteDatabase.rawQuery("SELECT * FROM USERS", null);
   }
 
+  protected Cursor getUsersDetails(int roleId) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT * FROM USERS WHERE ROLEID = ? ORDER BY ID",
+            new String[] {String.valueOf(roleId)});
+  }
+
+  protected Cursor getUsersDetails(int roleId, int afterUserId, int limit) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    // continues from the last user of the previous page along USERS_ROLEID_ID
+    return sqLiteDatabase.rawQuery("SELECT * FROM USERS WHERE ROLEID = ? AND ID > ? "
+            + "ORDER BY ID LIMIT ?", new String[] {String.valueOf(roleId),
+                String.valueOf(afterUserId), String.valueOf(limit)});
+  }
+
+  protected Cursor getUsersDetailsAt(int roleId, int offset, int limit) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT * FROM USERS WHERE ROLEID = ? "
+            + "ORDER BY ID LIMIT ? OFFSET ?", new String[] {String.valueOf(roleId),
+                String.valueOf(limit), String.valueOf(offset)});
+  }
+
+  protected Cursor getUsersNotOwning(int roleId, int accountId) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    // one pass over the role's users, each checked against the USERACCOUNT primary key
+    return sqLiteDatabase.rawQuery("SELECT * FROM USERS WHERE ROLEID = ? AND NOT EXISTS "
+            + "(SELECT 1 FROM USERACCOUNT WHERE USERACCOUNT.USERID = USERS.ID "
+            + "AND USERACCOUNT.ACCOUNTID = ?) ORDER BY ID", new String[] {String.valueOf(roleId),
+                String.valueOf(accountId)});
+  }
+
+  protected int getUserCount(int roleId) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire(
+            "SELECT COUNT(*) FROM USERS WHERE ROLEID = ?");
+    statement.bindLong(1, roleId);
+    return (int) statement.simpleQueryForLong();
+  }
+
   protected Cursor getUserDetails(int userId) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
     return sqLiteDatabase.rawQuery("SELECT * FROM USERS WHERE ID = ?",
@@ -185,13 +553,11 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
   }
 
   protected String getPassword(int userId) {
-    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    Cursor cursor = sqLiteDatabase.rawQuery("SELECT PASSWORD FROM USERPW WHERE USERID = ?",
-            new String[] {String.valueOf(userId)});
-    cursor.moveToFirst();
-    String result = cursor.getString(cursor.getColumnIndex("PASSWORD"));
-    cursor.close();
-    return result;
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire(
+            "SELECT PASSWORD FROM USERPW WHERE USERID = ?");
+    statement.bindLong(1, userId);
+    return statement.simpleQueryForString();
   }
 
   protected Cursor getAccountIds(int userId) {
@@ -201,30 +567,98 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
 
   }
 
+  protected boolean userOwnsAccount(int userId, int accountId, int roleId) {
+    StatementCache statements = getStatementCache();
+    // a single primary key probe on USERACCOUNT and USERS
+    SQLiteStatement statement = statements.acquire("SELECT EXISTS (SELECT 1 FROM USERACCOUNT "
+            + "INNER JOIN USERS ON USERS.ID = USERACCOUNT.USERID "
+            + "WHERE USERACCOUNT.USERID = ? AND USERACCOUNT.ACCOUNTID = ? AND USERS.ROLEID = ?)");
+    statement.bindLong(1, userId);
+    statement.bindLong(2, accountId);
+    statement.bindLong(3, roleId);
+    return statement.simpleQueryForLong() != 0;
+  }
+
   protected Cursor getAccountDetails(int accountId) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
     return sqLiteDatabase.rawQuery("SELECT * FROM ACCOUNTS WHERE ID = ?",
             new String[] {String.valueOf(accountId)});
   }
 
-  protected BigDecimal getBalance(int accountId) {
+  protected Cursor getAccountsDetails(int afterAccountId, int limit) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    Cursor cursor = sqLiteDatabase.rawQuery("SELECT BALANCE FROM ACCOUNTS WHERE ID = ?",
-            new String[] {String.valueOf(accountId)});
-    cursor.moveToFirst();
-    BigDecimal result = new BigDecimal(cursor.getString(cursor.getColumnIndex("BALANCE")));
-    cursor.close();
-    return result;
+    return sqLiteDatabase.rawQuery("SELECT ACCOUNTS.ID, ACCOUNTS.NAME, ACCOUNTS.BALANCE, "
+            + "ACCOUNTS.TYPE, ACCOUNTTYPES.NAME AS TYPENAME, ACCOUNTTYPES.INTERESTRATE "
+            + "FROM ACCOUNTS INNER JOIN ACCOUNTTYPES ON ACCOUNTS.TYPE = ACCOUNTTYPES.ID "
+            + "WHERE ACCOUNTS.ID > ? ORDER BY ACCOUNTS.ID LIMIT ?",
+            new String[] {String.valueOf(afterAccountId), String.valueOf(limit)});
   }
 
-  protected int getAccountType(int accountId) {
+  protected Cursor getAccountsDetails(int afterAccountId, int typeId, int limit) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    Cursor cursor = sqLiteDatabase.rawQuery("SELECT TYPE FROM ACCOUNTS WHERE ID = ?",
-            new String[] {String.valueOf(accountId)});
-    cursor.moveToFirst();
-    int result = cursor.getInt(cursor.getColumnIndex("TYPE"));
-    cursor.close();
-    return result;
+    return sqLiteDatabase.rawQuery("SELECT ACCOUNTS.ID, ACCOUNTS.NAME, ACCOUNTS.BALANCE, "
+            + "ACCOUNTS.TYPE, ACCOUNTTYPES.NAME AS TYPENAME, ACCOUNTTYPES.INTERESTRATE "
+            + "FROM ACCOUNTS INNER JOIN ACCOUNTTYPES ON ACCOUNTS.TYPE = ACCOUNTTYPES.ID "
+            + "WHERE ACCOUNTS.ID > ? AND ACCOUNTS.TYPE = ? ORDER BY ACCOUNTS.ID LIMIT ?",
+            new String[] {String.valueOf(afterAccountId), String.valueOf(typeId),
+                String.valueOf(limit)});
+  }
+
+  protected Cursor getAccountsDetailsAt(int offset, int limit) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT ACCOUNTS.ID, ACCOUNTS.NAME, ACCOUNTS.BALANCE, "
+            + "ACCOUNTS.TYPE, ACCOUNTTYPES.NAME AS TYPENAME, ACCOUNTTYPES.INTERESTRATE "
+            + "FROM ACCOUNTS INNER JOIN ACCOUNTTYPES ON ACCOUNTS.TYPE = ACCOUNTTYPES.ID "
+            + "ORDER BY ACCOUNTS.ID LIMIT ? OFFSET ?",
+            new String[] {String.valueOf(limit), String.valueOf(offset)});
+  }
+
+  protected int getAccountCount() {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("SELECT COUNT(*) FROM ACCOUNTS");
+    return (int) statement.simpleQueryForLong();
+  }
+
+  protected Cursor getBalanceTotalsByType() {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT TYPE, SUM(BALANCE) AS BALANCE FROM ACCOUNTS "
+            + "GROUP BY TYPE", null);
+  }
+
+  protected Cursor getBalanceTotalsByOwnerRole() {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    // joint accounts are counted once per role, not once per owner
+    return sqLiteDatabase.rawQuery("SELECT OWNERS.ROLEID, SUM(ACCOUNTS.BALANCE) AS BALANCE "
+            + "FROM ACCOUNTS INNER JOIN (SELECT DISTINCT USERACCOUNT.ACCOUNTID, USERS.ROLEID "
+            + "FROM USERACCOUNT INNER JOIN USERS ON USERACCOUNT.USERID = USERS.ID) AS OWNERS "
+            + "ON OWNERS.ACCOUNTID = ACCOUNTS.ID GROUP BY OWNERS.ROLEID", null);
+  }
+
+  protected Cursor getAccountOwners(int afterAccountId, int lastAccountId) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT ACCOUNTID, USERID FROM USERACCOUNT "
+            + "WHERE ACCOUNTID > ? AND ACCOUNTID <= ? ORDER BY ACCOUNTID",
+            new String[] {String.valueOf(afterAccountId), String.valueOf(lastAccountId)});
+  }
+
+  protected Cursor getOpenInterestRun() {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT * FROM INTERESTRUNS WHERE COMPLETE = 0 "
+            + "ORDER BY ID DESC LIMIT 1", null);
+  }
+
+  protected long getBalance(int accountId) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("SELECT BALANCE FROM ACCOUNTS WHERE ID = ?");
+    statement.bindLong(1, accountId);
+    return statement.simpleQueryForLong();
+  }
+
+  protected int getAccountType(int accountId) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("SELECT TYPE FROM ACCOUNTS WHERE ID = ?");
+    statement.bindLong(1, accountId);
+    return (int) statement.simpleQueryForLong();
   }
 
   protected String getAccountTypeName(int accountTypeId) {
@@ -237,6 +671,11 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
     return result;
   }
 
+  protected Cursor getAccountTypes() {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT ID, NAME, INTERESTRATE FROM ACCOUNTTYPES", null);
+  }
+
   protected Cursor getAccountTypesId() {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
     return sqLiteDatabase.rawQuery("SELECT ID FROM ACCOUNTTYPES", null);
@@ -246,26 +685,64 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
     Cursor cursor = sqLiteDatabase.rawQuery("SELECT INTERESTRATE FROM ACCOUNTTYPES WHERE ID = ?",
             new String[] {String.valueOf(accountType)});
-    cursor.moveToFirst();
-    BigDecimal result = new BigDecimal(cursor.getString(cursor.getColumnIndex("INTERESTRATE")));
+    BigDecimal result = null;
+    if (cursor.moveToFirst()) {
+      // a rate that was never set earns no interest
+      String rate = cursor.getString(cursor.getColumnIndex("INTERESTRATE"));
+      result = rate == null ? BigDecimal.ZERO : new BigDecimal(rate);
+    }
     cursor.close();
     return result;
   }
 
   protected Cursor getAllMessages(int userId) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    return sqLiteDatabase.rawQuery("SELECT * FROM USERMESSAGES WHERE USERID = ?",
+    return sqLiteDatabase.rawQuery("SELECT " + MESSAGE_COLUMNS + " FROM USERMESSAGES M "
+            + "LEFT JOIN MESSAGEBODIES B ON B.ID = M.BODYID WHERE M.USERID = ? ORDER BY M.ID",
             new String[] {String.valueOf(userId)});
   }
 
-  protected String getSpecificMessage(int messageId){
+  protected Cursor getMessagesBefore(int userId, int beforeMessageId, int limit) {
     SQLiteDatabase sqLiteDatabase = getReadableDatabase();
-    Cursor cursor = sqLiteDatabase.rawQuery("SELECT MESSAGE FROM USERMESSAGES WHERE ID = ?",
+    // newest first, continuing below the last message of the previous page
+    return sqLiteDatabase.rawQuery("SELECT " + MESSAGE_COLUMNS + " FROM USERMESSAGES M "
+            + "LEFT JOIN MESSAGEBODIES B ON B.ID = M.BODYID "
+            + "WHERE M.USERID = ? AND M.ID < ? ORDER BY M.ID DESC LIMIT ?",
+            new String[] {String.valueOf(userId), String.valueOf(beforeMessageId),
+                String.valueOf(limit)});
+  }
+
+  protected int getMessageCount(int userId) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire(
+            "SELECT IFNULL((SELECT TOTAL FROM USERMESSAGECOUNTS WHERE USERID = ?), 0)");
+    statement.bindLong(1, userId);
+    return (int) statement.simpleQueryForLong();
+  }
+
+  protected int getUnreadMessageCount(int userId) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire(
+            "SELECT IFNULL((SELECT UNREAD FROM USERMESSAGECOUNTS WHERE USERID = ?), 0)");
+    statement.bindLong(1, userId);
+    return (int) statement.simpleQueryForLong();
+  }
+
+  protected boolean userOwnsMessage(int userId, int messageId) {
+    StatementCache statements = getStatementCache();
+    // a primary key lookup, whatever the size of the inbox
+    SQLiteStatement statement = statements.acquire(
+            "SELECT EXISTS (SELECT 1 FROM USERMESSAGES WHERE ID = ? AND USERID = ?)");
+    statement.bindLong(1, messageId);
+    statement.bindLong(2, userId);
+    return statement.simpleQueryForLong() != 0;
+  }
+
+  protected Cursor getSpecificMessage(int messageId){
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT " + MESSAGE_COLUMNS + " FROM USERMESSAGES M "
+            + "LEFT JOIN MESSAGEBODIES B ON B.ID = M.BODYID WHERE M.ID = ?",
             new String[] {String.valueOf(messageId)});
-    cursor.moveToFirst();
-    String result = cursor.getString(cursor.getColumnIndex("MESSAGE"));
-    cursor.close();
-    return result;
   }
 
   //UPDATE Methods
@@ -317,20 +794,126 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
             new String[] {String.valueOf(id)}) > 0;
   }
 
-  protected boolean updateAccountBalance(BigDecimal balance, int id) {
+  protected boolean updateAccountBalance(long balanceCents, int id) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
-    ContentValues contentValues = new ContentValues();
-    contentValues.put("BALANCE", balance.toPlainString());
-    return sqLiteDatabase.update("ACCOUNTS",contentValues,"ID = ?",
-            new String[] {String.valueOf(id)}) > 0;
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      SQLiteStatement selectBalance = statements.acquire(
+              "SELECT BALANCE FROM ACCOUNTS WHERE ID = ?");
+      selectBalance.bindLong(1, id);
+      long oldBalanceCents = selectBalance.simpleQueryForLong();
+      SQLiteStatement statement = statements.acquire(
+              "UPDATE ACCOUNTS SET BALANCE = ? WHERE ID = ?");
+      statement.bindLong(1, balanceCents);
+      statement.bindLong(2, id);
+      if (statement.executeUpdateDelete() == 0) {
+        return false;
+      }
+      // a balance set outright is journalled as the difference it made
+      if (balanceCents != oldBalanceCents) {
+        appendLedgerEntry(statements, id, LedgerEntryType.ADJUSTMENT,
+                Math.subtractExact(balanceCents, oldBalanceCents), 0);
+      }
+      sqLiteDatabase.setTransactionSuccessful();
+      return true;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
   }
 
-  protected boolean updateAccountType(int typeId, int id) {
+  protected boolean updateAccountBalanceBy(long amountCents, int id, LedgerEntryType type) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
-    ContentValues contentValues = new ContentValues();
-    contentValues.put("TYPE", typeId);
-    return sqLiteDatabase.update("ACCOUNTS",contentValues,"ID = ?",
-            new String[] {String.valueOf(id)}) > 0;
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      if (!creditAccount(statements, amountCents, id)) {
+        return false;
+      }
+      appendLedgerEntry(statements, id, type, amountCents, 0);
+      sqLiteDatabase.setTransactionSuccessful();
+      return true;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  protected boolean updateAccountBalanceDebit(long amountCents, int id) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      if (!debitAccount(statements, amountCents, id)) {
+        return false;
+      }
+      appendLedgerEntry(statements, id, LedgerEntryType.WITHDRAWAL, -amountCents, 0);
+      sqLiteDatabase.setTransactionSuccessful();
+      return true;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  protected boolean updateAccountBalanceTransfer(long amountCents, int fromId, int toId) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    sqLiteDatabase.beginTransaction();
+    try {
+      // both sides and both entries commit together or not at all
+      if (!debitAccount(statements, amountCents, fromId)
+          || !creditAccount(statements, amountCents, toId)) {
+        return false;
+      }
+      appendLedgerEntry(statements, fromId, LedgerEntryType.TRANSFER_OUT, -amountCents, toId);
+      appendLedgerEntry(statements, toId, LedgerEntryType.TRANSFER_IN, amountCents, fromId);
+      sqLiteDatabase.setTransactionSuccessful();
+      return true;
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+  }
+
+  private static boolean creditAccount(StatementCache statements, long amountCents, int id) {
+    // SQLite turns an integer sum that overflows into an inexact real, so the balance must stay
+    // in the range where adding the amount still fits in a long
+    SQLiteStatement statement = statements.acquire(
+            "UPDATE ACCOUNTS SET BALANCE = BALANCE + ? WHERE ID = ? AND BALANCE BETWEEN ? AND ?");
+    statement.bindLong(1, amountCents);
+    statement.bindLong(2, id);
+    statement.bindLong(3, amountCents < 0 ? Long.MIN_VALUE - amountCents : Long.MIN_VALUE);
+    statement.bindLong(4, amountCents > 0 ? Long.MAX_VALUE - amountCents : Long.MAX_VALUE);
+    return statement.executeUpdateDelete() > 0;
+  }
+
+  private static boolean debitAccount(StatementCache statements, long amountCents, int id) {
+    // the balance check and the debit are one statement, so no other write can come between
+    SQLiteStatement statement = statements.acquire(
+            "UPDATE ACCOUNTS SET BALANCE = BALANCE - ? WHERE ID = ? AND BALANCE >= ?");
+    statement.bindLong(1, amountCents);
+    statement.bindLong(2, id);
+    statement.bindLong(3, amountCents);
+    return statement.executeUpdateDelete() > 0;
+  }
+
+  protected boolean updateAccountType(int typeId, int id) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire("UPDATE ACCOUNTS SET TYPE = ? WHERE ID = ?");
+    statement.bindLong(1, typeId);
+    statement.bindLong(2, id);
+    return statement.executeUpdateDelete() > 0;
+  }
+
+  protected boolean updateAccountTypeIfBelow(int fromTypeId, int toTypeId, long belowCents,
+                                             int id) {
+    StatementCache statements = getStatementCache();
+    // the type and balance are checked by the statement that changes the type
+    SQLiteStatement statement = statements.acquire("UPDATE ACCOUNTS SET TYPE = ? "
+            + "WHERE ID = ? AND TYPE = ? AND BALANCE < ?");
+    statement.bindLong(1, toTypeId);
+    statement.bindLong(2, id);
+    statement.bindLong(3, fromTypeId);
+    statement.bindLong(4, belowCents);
+    return statement.executeUpdateDelete() > 0;
   }
 
   protected boolean updateAccountTypeName(String name, int id) {
@@ -357,11 +940,161 @@ public class DatabaseDriverA extends SQLiteOpenHelper {
             new String[] {String.valueOf(id)}) > 0;
   }
 
+  protected boolean replaceUserPassword(String oldPassword, String newPassword, int id) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    ContentValues contentValues = new ContentValues();
+    contentValues.put("PASSWORD", newPassword);
+    // only if the stored password is still the one that was replaced
+    return sqLiteDatabase.update("USERPW", contentValues, "USERID = ? AND PASSWORD = ?",
+            new String[] {String.valueOf(id), oldPassword}) > 0;
+  }
+
   protected boolean updateUserMessageState(int id) {
+    StatementCache statements = getStatementCache();
+    SQLiteStatement statement = statements.acquire(
+            "UPDATE USERMESSAGES SET VIEWED = 1 WHERE ID = ?");
+    statement.bindLong(1, id);
+    return statement.executeUpdateDelete() > 0;
+  }
+
+  /**
+   * Credits each account with its interest and journals it, leaves the messages about the
+   * accounts credited, and moves the run's checkpoint, all in one transaction. An account whose
+   * credit is refused, because it is gone or its balance would overflow, gets no ledger entry and
+   * no message, and is not counted in the run's totals.
+   *
+   * @param runId the ID of the interest run
+   * @param lastAccountId the ID of the last account read, the new checkpoint
+   * @param accountIds the accounts to credit
+   * @param interests the interest for each account, in cents
+   * @param messageAccounts for each message, the index of the account it is about
+   * @param messageUserIds for each message, the user to leave it for
+   * @param messageTemplateId the template of every message
+   * @param messageParameters for each message, its stored parameters
+   * @return whether each account was credited
+   */
+  protected boolean[] updateInterestRun(int runId, int lastAccountId, int[] accountIds,
+                                        long[] interests, int[] messageAccounts,
+                                        int[] messageUserIds, int messageTemplateId,
+                                        String[] messageParameters) {
+    SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
+    StatementCache statements = getStatementCache();
+    // one statement per kind of write, bound again for every row
+    SQLiteStatement insertMessage = statements.acquire("INSERT INTO USERMESSAGES "
+            + "(USERID, TEMPLATEID, PARAMS, VIEWED) VALUES (?, ?, ?, 0)");
+    SQLiteStatement updateRun = statements.acquire(
+            "UPDATE INTERESTRUNS SET LASTACCOUNTID = ?, ACCOUNTS = ACCOUNTS + ?, "
+            + "TOTALINTEREST = TOTALINTEREST + ? WHERE ID = ?");
+    boolean[] credited = new boolean[accountIds.length];
+    int accounts = 0;
+    long interestCents = 0;
+    sqLiteDatabase.beginTransaction();
+    try {
+      for (int i = 0; i < accountIds.length; i++) {
+        if (!creditAccount(statements, interests[i], accountIds[i])) {
+          continue;
+        }
+        credited[i] = true;
+        accounts++;
+        interestCents = Math.addExact(interestCents, interests[i]);
+        appendLedgerEntry(statements, accountIds[i], LedgerEntryType.forInterest(interests[i]),
+                interests[i], runId);
+      }
+      for (int i = 0; i < messageParameters.length; i++) {
+        if (!credited[messageAccounts[i]]) {
+          continue;
+        }
+        insertMessage.bindLong(1, messageUserIds[i]);
+        insertMessage.bindLong(2, messageTemplateId);
+        insertMessage.bindString(3, messageParameters[i]);
+        insertMessage.executeInsert();
+      }
+      // the checkpoint commits together with the balances it covers
+      updateRun.bindLong(1, lastAccountId);
+      updateRun.bindLong(2, accounts);
+      updateRun.bindLong(3, interestCents);
+      updateRun.bindLong(4, runId);
+      updateRun.executeUpdateDelete();
+      sqLiteDatabase.setTransactionSuccessful();
+    } finally {
+      sqLiteDatabase.endTransaction();
+    }
+    return credited;
+  }
+
+  protected boolean updateInterestRunComplete(int runId) {
     SQLiteDatabase sqLiteDatabase = this.getWritableDatabase();
     ContentValues contentValues = new ContentValues();
-    contentValues.put("VIEWED", 1);
-    return sqLiteDatabase.update("USERMESSAGES",contentValues,"ID = ?",
-            new String[] {String.valueOf(id)}) > 0;
+    contentValues.put("COMPLETE", 1);
+    return sqLiteDatabase.update("INTERESTRUNS",contentValues,"ID = ?",
+            new String[] {String.valueOf(runId)}) > 0;
+  }
+
+  //LEDGER
+  /**
+   * Appends an entry to the ledger, and snapshots the account's balance once enough entries have
+   * been written since its last snapshot. Must be called inside the transaction that changed the
+   * balance.
+   *
+   * @param statements the calling thread's statement cache
+   * @param accountId the ID of the account whose balance changed
+   * @param type the kind of change
+   * @param amountCents the signed change to the balance, in cents
+   * @param reference the other account of a transfer or the interest run, 0 if none
+   */
+  private void appendLedgerEntry(StatementCache statements, int accountId, LedgerEntryType type,
+                                 long amountCents, long reference) {
+    long created = System.currentTimeMillis();
+    SQLiteStatement insertEntry = statements.acquire("INSERT INTO LEDGER "
+            + "(ACCOUNTID, TYPE, AMOUNT, REFERENCE, CREATED) VALUES (?, ?, ?, ?, ?)");
+    insertEntry.bindLong(1, accountId);
+    insertEntry.bindLong(2, type.getCode());
+    insertEntry.bindLong(3, amountCents);
+    insertEntry.bindLong(4, reference);
+    insertEntry.bindLong(5, created);
+    long sequence = insertEntry.executeInsert();
+    SQLiteStatement countEntries = statements.acquire("SELECT COUNT(*) FROM LEDGER "
+            + "WHERE ACCOUNTID = ?1 AND SEQ > "
+            + "IFNULL((SELECT MAX(SEQ) FROM LEDGERSNAPSHOTS WHERE ACCOUNTID = ?1), 0)");
+    countEntries.bindLong(1, accountId);
+    if (countEntries.simpleQueryForLong() >= LEDGER_SNAPSHOT_INTERVAL) {
+      // the balance has just been written in this transaction, so it includes the new entry
+      SQLiteStatement insertSnapshot = statements.acquire("INSERT INTO LEDGERSNAPSHOTS "
+              + "(ACCOUNTID, SEQ, BALANCE, CREATED) SELECT ID, ?, BALANCE, ? FROM ACCOUNTS "
+              + "WHERE ID = ?");
+      insertSnapshot.bindLong(1, sequence);
+      insertSnapshot.bindLong(2, created);
+      insertSnapshot.bindLong(3, accountId);
+      insertSnapshot.executeInsert();
+    }
+  }
+
+  protected long getBalanceAt(int accountId, long time) {
+    StatementCache statements = getStatementCache();
+    // start from the last snapshot taken by then, and add every entry after it up to then
+    SQLiteStatement statement = statements.acquire("SELECT "
+            + "IFNULL((SELECT BALANCE FROM LEDGERSNAPSHOTS WHERE ACCOUNTID = ?1 "
+            + "AND CREATED <= ?2 ORDER BY SEQ DESC LIMIT 1), 0) + "
+            + "IFNULL((SELECT SUM(AMOUNT) FROM LEDGER WHERE ACCOUNTID = ?1 AND CREATED <= ?2 "
+            + "AND SEQ > IFNULL((SELECT SEQ FROM LEDGERSNAPSHOTS WHERE ACCOUNTID = ?1 "
+            + "AND CREATED <= ?2 ORDER BY SEQ DESC LIMIT 1), 0)), 0)");
+    statement.bindLong(1, accountId);
+    statement.bindLong(2, time);
+    return statement.simpleQueryForLong();
+  }
+
+  protected Cursor getLedgerEntries(int accountId, long fromTime, long toTime) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT * FROM LEDGER WHERE ACCOUNTID = ? "
+            + "AND CREATED >= ? AND CREATED < ? ORDER BY CREATED, SEQ",
+            new String[] {String.valueOf(accountId), String.valueOf(fromTime),
+                String.valueOf(toTime)});
+  }
+
+  protected Cursor getLedgerEntries(long fromTime, long toTime) {
+    SQLiteDatabase sqLiteDatabase = getReadableDatabase();
+    return sqLiteDatabase.rawQuery("SELECT * FROM LEDGER WHERE CREATED >= ? AND CREATED < ? "
+            + "ORDER BY CREATED, SEQ",
+            new String[] {String.valueOf(fromTime), String.valueOf(toTime)});
   }
 }
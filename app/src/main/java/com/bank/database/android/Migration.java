@@ -0,0 +1,48 @@
+package com.bank.database.android;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One step in the evolution of the bank database schema. Each step moves the schema from the
+ * version before it to its own version, keeping the data already stored.
+ */
+public abstract class Migration {
+
+  /**
+   * The schema version this step migrates to.
+   */
+  private final int version;
+
+  /**
+   * A short description of the change, recorded in the SchemaVersion table.
+   */
+  private final String description;
+
+  /**
+   * Creates a migration step.
+   *
+   * @param version the schema version this step migrates to
+   * @param description a short description of the change
+   */
+  protected Migration(int version, String description) {
+    this.version = version;
+    this.description = description;
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Changes the schema from the previous version to this version. Called inside the upgrade
+   * transaction, so a failure leaves the database at the previous version.
+   *
+   * @param sqLiteDatabase the database to migrate
+   */
+  public abstract void migrate(SQLiteDatabase sqLiteDatabase);
+
+}
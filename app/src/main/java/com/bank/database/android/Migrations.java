@@ -0,0 +1,457 @@
+package com.bank.database.android;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ordered migration steps of the bank database schema. A new database is created at version
+ * 1 and brought up to date by the same steps as an existing one, so there is only one definition
+ * of every table and index. Every step applied is recorded in the SchemaVersion table.
+ */
+public final class Migrations {
+
+  /**
+   * The version of the schema as first created, before any migration.
+   */
+  public static final int BASE_VERSION = 1;
+
+  /**
+   * The description recorded for the base version.
+   */
+  private static final String BASE_DESCRIPTION = "create schema";
+
+  /**
+   * The time recorded for versions applied before versions were recorded, when it is not known.
+   */
+  private static final long UNKNOWN_APPLIED = 0;
+
+  /**
+   * Every migration step, in version order.
+   */
+  private static final List<Migration> STEPS = Collections.unmodifiableList(Arrays.asList(
+      new Migration(2, "store balances as whole cents") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          sqLiteDatabase.execSQL("CREATE TABLE ACCOUNTS_V2 "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "NAME TEXT NOT NULL,"
+                  + "BALANCE INTEGER,"
+                  + "TYPE INTEGER NOT NULL,"
+                  + "FOREIGN KEY(TYPE) REFERENCES ACCOUNTTYPES(ID))");
+          sqLiteDatabase.execSQL("INSERT INTO ACCOUNTS_V2 (ID, NAME, BALANCE, TYPE) "
+                  + "SELECT ID, NAME, NULL, TYPE FROM ACCOUNTS");
+          convertBalancesToCents(sqLiteDatabase);
+          sqLiteDatabase.execSQL("DROP TABLE ACCOUNTS");
+          sqLiteDatabase.execSQL("ALTER TABLE ACCOUNTS_V2 RENAME TO ACCOUNTS");
+        }
+      },
+      new Migration(3, "add interest run checkpoints") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          sqLiteDatabase.execSQL("CREATE TABLE INTERESTRUNS "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "LASTACCOUNTID INTEGER NOT NULL,"
+                  + "ACCOUNTS INTEGER NOT NULL,"
+                  + "TOTALINTEREST INTEGER NOT NULL,"
+                  + "COMPLETE CHAR(1) NOT NULL)");
+        }
+      },
+      new Migration(4, "index owners, messages, roles and passwords") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          // owners of an account, answered from the index alone; earlier builds created a
+          // narrower index in the interest run step, which this one replaces
+          sqLiteDatabase.execSQL("DROP INDEX IF EXISTS USERACCOUNT_ACCOUNTID");
+          sqLiteDatabase.execSQL("CREATE INDEX USERACCOUNT_ACCOUNTID_USERID "
+                  + "ON USERACCOUNT(ACCOUNTID, USERID)");
+          // a user's messages in ID order
+          sqLiteDatabase.execSQL("CREATE INDEX USERMESSAGES_USERID_ID "
+                  + "ON USERMESSAGES(USERID, ID)");
+          // users of a role in ID order
+          sqLiteDatabase.execSQL("CREATE INDEX USERS_ROLEID_ID ON USERS(ROLEID, ID)");
+          // USERPW has no primary key, so every login scanned it
+          sqLiteDatabase.execSQL("CREATE INDEX USERPW_USERID ON USERPW(USERID)");
+        }
+      },
+      new Migration(5, "add the transaction ledger and balance snapshots") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          // sequence numbers are never reused, even after a rollback
+          sqLiteDatabase.execSQL("CREATE TABLE LEDGER "
+                  + "(SEQ INTEGER PRIMARY KEY AUTOINCREMENT,"
+                  + "ACCOUNTID INTEGER NOT NULL,"
+                  + "TYPE INTEGER NOT NULL,"
+                  + "AMOUNT INTEGER NOT NULL,"
+                  + "REFERENCE INTEGER NOT NULL,"
+                  + "CREATED INTEGER NOT NULL,"
+                  + "FOREIGN KEY(ACCOUNTID) REFERENCES ACCOUNTS(ID))");
+          sqLiteDatabase.execSQL("CREATE TRIGGER LEDGER_NO_UPDATE BEFORE UPDATE ON LEDGER "
+                  + "BEGIN SELECT RAISE(ABORT, 'ledger entries can not be changed'); END");
+          sqLiteDatabase.execSQL("CREATE TRIGGER LEDGER_NO_DELETE BEFORE DELETE ON LEDGER "
+                  + "BEGIN SELECT RAISE(ABORT, 'ledger entries can not be removed'); END");
+          // replaying an account, its statements, and the audit trail of the whole bank
+          sqLiteDatabase.execSQL("CREATE INDEX LEDGER_ACCOUNTID_SEQ ON LEDGER(ACCOUNTID, SEQ)");
+          sqLiteDatabase.execSQL("CREATE INDEX LEDGER_ACCOUNTID_CREATED "
+                  + "ON LEDGER(ACCOUNTID, CREATED)");
+          sqLiteDatabase.execSQL("CREATE INDEX LEDGER_CREATED ON LEDGER(CREATED)");
+          sqLiteDatabase.execSQL("CREATE TABLE LEDGERSNAPSHOTS "
+                  + "(ACCOUNTID INTEGER NOT NULL,"
+                  + "SEQ INTEGER NOT NULL,"
+                  + "BALANCE INTEGER NOT NULL,"
+                  + "CREATED INTEGER NOT NULL,"
+                  + "FOREIGN KEY(ACCOUNTID) REFERENCES ACCOUNTS(ID),"
+                  + "PRIMARY KEY(ACCOUNTID, SEQ))");
+          // balances from before the ledger are the starting point of every account's history
+          SQLiteStatement statement = sqLiteDatabase.compileStatement(
+                  "INSERT INTO LEDGERSNAPSHOTS (ACCOUNTID, SEQ, BALANCE, CREATED) "
+                  + "SELECT ID, 0, IFNULL(BALANCE, 0), ? FROM ACCOUNTS");
+          statement.bindLong(1, System.currentTimeMillis());
+          statement.executeInsert();
+          statement.close();
+        }
+      },
+      new Migration(6, "count each user's messages and unread messages") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          sqLiteDatabase.execSQL("CREATE TABLE USERMESSAGECOUNTS "
+                  + "(USERID INTEGER PRIMARY KEY NOT NULL,"
+                  + "TOTAL INTEGER NOT NULL,"
+                  + "UNREAD INTEGER NOT NULL,"
+                  + "FOREIGN KEY(USERID) REFERENCES USERS(ID))");
+          // VIEWED has text affinity, so compare it as a number
+          sqLiteDatabase.execSQL("INSERT INTO USERMESSAGECOUNTS (USERID, TOTAL, UNREAD) "
+                  + "SELECT USERID, COUNT(*), SUM(CAST(VIEWED AS INTEGER) = 0) "
+                  + "FROM USERMESSAGES GROUP BY USERID");
+          createMessageCountTriggers(sqLiteDatabase);
+        }
+      },
+      new Migration(7, "store messages as templates or shared bodies") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          sqLiteDatabase.execSQL("CREATE TABLE MESSAGEBODIES "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "HASH INTEGER NOT NULL,"
+                  + "BODY TEXT NOT NULL)");
+          // bodies are found by hash, so the text itself is not stored a second time in an index
+          sqLiteDatabase.execSQL("CREATE INDEX MESSAGEBODIES_HASH ON MESSAGEBODIES(HASH)");
+          sqLiteDatabase.execSQL("CREATE TABLE USERMESSAGES_V7 "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "USERID INTEGER NOT NULL,"
+                  + "BODYID INTEGER,"
+                  + "TEMPLATEID INTEGER,"
+                  + "PARAMS TEXT,"
+                  + "VIEWED CHAR(1) NOT NULL,"
+                  + "FOREIGN KEY(USERID) REFERENCES USERS(ID),"
+                  + "FOREIGN KEY(BODYID) REFERENCES MESSAGEBODIES(ID))");
+          internMessageBodies(sqLiteDatabase);
+          // dropping the old table drops its index and triggers too
+          sqLiteDatabase.execSQL("DROP TABLE USERMESSAGES");
+          sqLiteDatabase.execSQL("ALTER TABLE USERMESSAGES_V7 RENAME TO USERMESSAGES");
+          sqLiteDatabase.execSQL("CREATE INDEX USERMESSAGES_USERID_ID "
+                  + "ON USERMESSAGES(USERID, ID)");
+          createMessageCountTriggers(sqLiteDatabase);
+        }
+      },
+      new Migration(8, "add broadcast messages") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          sqLiteDatabase.execSQL("CREATE TABLE BROADCASTS "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "BODYID INTEGER NOT NULL,"
+                  + "TARGET TEXT NOT NULL,"
+                  + "RECIPIENTS INTEGER NOT NULL,"
+                  + "CREATED INTEGER NOT NULL,"
+                  + "FOREIGN KEY(BODYID) REFERENCES MESSAGEBODIES(ID))");
+          sqLiteDatabase.execSQL("ALTER TABLE USERMESSAGES "
+                  + "ADD COLUMN BROADCASTID INTEGER REFERENCES BROADCASTS(ID)");
+          // a broadcast updates the counts of all its recipients in one statement instead
+          sqLiteDatabase.execSQL("DROP TRIGGER USERMESSAGES_COUNT_INSERT");
+          sqLiteDatabase.execSQL("CREATE TRIGGER USERMESSAGES_COUNT_INSERT "
+                  + "AFTER INSERT ON USERMESSAGES WHEN NEW.BROADCASTID IS NULL BEGIN "
+                  + "INSERT OR IGNORE INTO USERMESSAGECOUNTS (USERID, TOTAL, UNREAD) "
+                  + "VALUES (NEW.USERID, 0, 0); "
+                  + "UPDATE USERMESSAGECOUNTS SET TOTAL = TOTAL + 1, "
+                  + "UNREAD = UNREAD + (CAST(NEW.VIEWED AS INTEGER) = 0) "
+                  + "WHERE USERID = NEW.USERID; END");
+        }
+      },
+      new Migration(9, "track changed rows for incremental backups") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          // rows are stamped with the backup generation they last changed in
+          sqLiteDatabase.execSQL("CREATE TABLE BACKUPSTATE "
+                  + "(ID INTEGER PRIMARY KEY NOT NULL,"
+                  + "GENERATION INTEGER NOT NULL,"
+                  + "FULLGENERATION INTEGER NOT NULL,"
+                  + "BASECREATED INTEGER NOT NULL,"
+                  + "DIFFS INTEGER NOT NULL)");
+          sqLiteDatabase.execSQL("INSERT INTO BACKUPSTATE "
+                  + "(ID, GENERATION, FULLGENERATION, BASECREATED, DIFFS) VALUES (1, 1, 0, 0, 0)");
+          sqLiteDatabase.execSQL("CREATE TABLE BACKUPMARKS "
+                  + "(TBL TEXT PRIMARY KEY NOT NULL,"
+                  + "FULLMARK INTEGER NOT NULL,"
+                  + "LASTMARK INTEGER NOT NULL)");
+          sqLiteDatabase.execSQL("CREATE TABLE DELETEDROWS "
+                  + "(TBL TEXT NOT NULL,"
+                  + "KEY1 INTEGER NOT NULL,"
+                  + "KEY2 INTEGER,"
+                  + "CHANGESEQ INTEGER NOT NULL)");
+          sqLiteDatabase.execSQL("CREATE INDEX DELETEDROWS_TBL_CHANGESEQ "
+                  + "ON DELETEDROWS(TBL, CHANGESEQ)");
+          createChangeTriggers(sqLiteDatabase, "ACCOUNTS", "ID", null);
+          createChangeTriggers(sqLiteDatabase, "USERS", "ID", null);
+          createChangeTriggers(sqLiteDatabase, "USERPW", "USERID", null);
+          createChangeTriggers(sqLiteDatabase, "USERACCOUNT", "USERID", "ACCOUNTID");
+          createChangeTriggers(sqLiteDatabase, "USERMESSAGES", "ID", null);
+        }
+      },
+      new Migration(10, "record the month of each interest run") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          // the month of an earlier run is not known, so it is never resumed
+          sqLiteDatabase.execSQL("ALTER TABLE INTERESTRUNS "
+                  + "ADD COLUMN PERIOD INTEGER NOT NULL DEFAULT 0");
+        }
+      },
+      new Migration(11, "stamp broadcast messages once per statement") {
+        @Override
+        public void migrate(SQLiteDatabase sqLiteDatabase) {
+          // a broadcast stamps all its recipients' rows as it inserts them instead, like the
+          // counts, so a fan-out does not run an update for every row
+          sqLiteDatabase.execSQL("DROP TRIGGER USERMESSAGES_CHANGESEQ_INSERT");
+          sqLiteDatabase.execSQL("CREATE TRIGGER USERMESSAGES_CHANGESEQ_INSERT "
+                  + "AFTER INSERT ON USERMESSAGES WHEN NEW.BROADCASTID IS NULL BEGIN "
+                  + "UPDATE USERMESSAGES SET CHANGESEQ = "
+                  + "(SELECT GENERATION FROM BACKUPSTATE WHERE ID = 1) "
+                  + "WHERE ROWID = NEW.ROWID; END");
+        }
+      }
+  ));
+
+  /**
+   * The version of the schema after every migration step.
+   */
+  public static final int LATEST_VERSION = BASE_VERSION + STEPS.size();
+
+  private Migrations() {
+  }
+
+  /**
+   * Returns every migration step, in version order.
+   *
+   * @return the migration steps
+   */
+  public static List<Migration> getSteps() {
+    return STEPS;
+  }
+
+  /**
+   * Records the base version of a newly created schema.
+   *
+   * @param sqLiteDatabase the newly created database
+   */
+  static void recordBaseVersion(SQLiteDatabase sqLiteDatabase) {
+    createSchemaVersionTable(sqLiteDatabase);
+    recordVersion(sqLiteDatabase, BASE_VERSION, BASE_DESCRIPTION);
+  }
+
+  /**
+   * Applies every migration step after oldVersion up to and including newVersion, in order.
+   *
+   * @param sqLiteDatabase the database to migrate
+   * @param oldVersion the current version of the schema
+   * @param newVersion the version to migrate to
+   */
+  static void migrate(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+    // databases from before migrations were recorded do not have the table yet
+    createSchemaVersionTable(sqLiteDatabase);
+    backfillVersions(sqLiteDatabase, oldVersion);
+    for (Migration step : STEPS) {
+      if (step.getVersion() > oldVersion && step.getVersion() <= newVersion) {
+        step.migrate(sqLiteDatabase);
+        recordVersion(sqLiteDatabase, step.getVersion(), step.getDescription());
+      }
+    }
+  }
+
+  /**
+   * Creates the triggers that keep the UserMessageCounts table up to date, so the counts change
+   * in the same transaction as the messages.
+   *
+   * @param sqLiteDatabase the database to create the triggers in
+   */
+  private static void createMessageCountTriggers(SQLiteDatabase sqLiteDatabase) {
+    sqLiteDatabase.execSQL("CREATE TRIGGER USERMESSAGES_COUNT_INSERT "
+            + "AFTER INSERT ON USERMESSAGES BEGIN "
+            + "INSERT OR IGNORE INTO USERMESSAGECOUNTS (USERID, TOTAL, UNREAD) "
+            + "VALUES (NEW.USERID, 0, 0); "
+            + "UPDATE USERMESSAGECOUNTS SET TOTAL = TOTAL + 1, "
+            + "UNREAD = UNREAD + (CAST(NEW.VIEWED AS INTEGER) = 0) "
+            + "WHERE USERID = NEW.USERID; END");
+    sqLiteDatabase.execSQL("CREATE TRIGGER USERMESSAGES_COUNT_VIEWED "
+            + "AFTER UPDATE OF VIEWED ON USERMESSAGES "
+            + "WHEN (CAST(OLD.VIEWED AS INTEGER) = 0) != (CAST(NEW.VIEWED AS INTEGER) = 0) "
+            + "BEGIN UPDATE USERMESSAGECOUNTS "
+            + "SET UNREAD = UNREAD + (CAST(NEW.VIEWED AS INTEGER) = 0) * 2 - 1 "
+            + "WHERE USERID = NEW.USERID; END");
+    sqLiteDatabase.execSQL("CREATE TRIGGER USERMESSAGES_COUNT_DELETE "
+            + "AFTER DELETE ON USERMESSAGES BEGIN "
+            + "UPDATE USERMESSAGECOUNTS SET TOTAL = TOTAL - 1, "
+            + "UNREAD = UNREAD - (CAST(OLD.VIEWED AS INTEGER) = 0) "
+            + "WHERE USERID = OLD.USERID; END");
+  }
+
+  /**
+   * Adds a change sequence to a table, and the triggers that stamp each inserted or updated row
+   * with the current backup generation and record the key of each deleted row. A row updated
+   * many times between backups is only stamped by the first update.
+   *
+   * @param sqLiteDatabase the database being migrated
+   * @param table the table to track
+   * @param key the first column of the key of the table
+   * @param secondKey the second column of the key of the table, <code>null</code> if none
+   */
+  private static void createChangeTriggers(SQLiteDatabase sqLiteDatabase, String table,
+                                           String key, String secondKey) {
+    String generation = "(SELECT GENERATION FROM BACKUPSTATE WHERE ID = 1)";
+    sqLiteDatabase.execSQL("ALTER TABLE " + table
+            + " ADD COLUMN CHANGESEQ INTEGER NOT NULL DEFAULT 0");
+    sqLiteDatabase.execSQL("CREATE INDEX " + table + "_CHANGESEQ ON " + table + "(CHANGESEQ)");
+    sqLiteDatabase.execSQL("CREATE TRIGGER " + table + "_CHANGESEQ_INSERT "
+            + "AFTER INSERT ON " + table + " BEGIN "
+            + "UPDATE " + table + " SET CHANGESEQ = " + generation + " "
+            + "WHERE ROWID = NEW.ROWID; END");
+    sqLiteDatabase.execSQL("CREATE TRIGGER " + table + "_CHANGESEQ_UPDATE "
+            + "AFTER UPDATE ON " + table + " "
+            + "WHEN NEW.CHANGESEQ = OLD.CHANGESEQ AND NEW.CHANGESEQ < " + generation + " BEGIN "
+            + "UPDATE " + table + " SET CHANGESEQ = " + generation + " "
+            + "WHERE ROWID = NEW.ROWID; END");
+    sqLiteDatabase.execSQL("CREATE TRIGGER " + table + "_CHANGESEQ_DELETE "
+            + "AFTER DELETE ON " + table + " BEGIN "
+            + "INSERT INTO DELETEDROWS (TBL, KEY1, KEY2, CHANGESEQ) "
+            + "VALUES ('" + table + "', OLD." + key + ", "
+            + (secondKey == null ? "NULL" : "OLD." + secondKey) + ", " + generation + "); END");
+  }
+
+  /**
+   * Copies every balance into the new accounts table as whole cents, rounding half away from
+   * zero. Balances are read as text and converted exactly, since a REAL only holds 53 bits and
+   * would change balances past about 90 trillion dollars; a balance that is not a number is
+   * converted the way SQLite converts it to a REAL, as before.
+   *
+   * @param sqLiteDatabase the database being migrated
+   */
+  private static void convertBalancesToCents(SQLiteDatabase sqLiteDatabase) {
+    SQLiteStatement update = sqLiteDatabase.compileStatement(
+            "UPDATE ACCOUNTS_V2 SET BALANCE = ? WHERE ID = ?");
+    Cursor cursor = sqLiteDatabase.rawQuery("SELECT ID, CAST(BALANCE AS TEXT), "
+            + "CAST(ROUND(CAST(BALANCE AS REAL) * 100) AS INTEGER) FROM ACCOUNTS "
+            + "WHERE BALANCE IS NOT NULL", null);
+    try {
+      while (cursor.moveToNext()) {
+        long cents;
+        try {
+          cents = new BigDecimal(cursor.getString(1).trim()).setScale(2, RoundingMode.HALF_UP)
+                  .unscaledValue().longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+          cents = cursor.getLong(2);
+        }
+        update.bindLong(1, cents);
+        update.bindLong(2, cursor.getLong(0));
+        update.executeUpdateDelete();
+      }
+    } finally {
+      cursor.close();
+      update.close();
+    }
+  }
+
+  /**
+   * Copies every message into the new messages table, storing each distinct text once.
+   *
+   * @param sqLiteDatabase the database being migrated
+   */
+  private static void internMessageBodies(SQLiteDatabase sqLiteDatabase) {
+    SQLiteStatement insertBody = sqLiteDatabase.compileStatement(
+            "INSERT INTO MESSAGEBODIES (HASH, BODY) VALUES (?, ?)");
+    SQLiteStatement insertMessage = sqLiteDatabase.compileStatement(
+            "INSERT INTO USERMESSAGES_V7 (ID, USERID, BODYID, VIEWED) VALUES (?, ?, ?, ?)");
+    Map<String, Long> bodyIds = new HashMap<>();
+    Cursor cursor = sqLiteDatabase.rawQuery(
+            "SELECT ID, USERID, MESSAGE, VIEWED FROM USERMESSAGES ORDER BY ID", null);
+    try {
+      while (cursor.moveToNext()) {
+        String body = cursor.getString(2);
+        Long bodyId = bodyIds.get(body);
+        if (bodyId == null) {
+          insertBody.bindLong(1, body.hashCode());
+          insertBody.bindString(2, body);
+          bodyId = insertBody.executeInsert();
+          bodyIds.put(body, bodyId);
+        }
+        insertMessage.bindLong(1, cursor.getLong(0));
+        insertMessage.bindLong(2, cursor.getLong(1));
+        insertMessage.bindLong(3, bodyId);
+        insertMessage.bindString(4, cursor.getString(3));
+        insertMessage.executeInsert();
+      }
+    } finally {
+      cursor.close();
+      insertBody.close();
+      insertMessage.close();
+    }
+  }
+
+  private static void createSchemaVersionTable(SQLiteDatabase sqLiteDatabase) {
+    sqLiteDatabase.execSQL("CREATE TABLE IF NOT EXISTS SCHEMAVERSION "
+            + "(VERSION INTEGER PRIMARY KEY NOT NULL,"
+            + "DESCRIPTION TEXT NOT NULL,"
+            + "APPLIED INTEGER NOT NULL)");
+  }
+
+  /**
+   * Records the base version and every step up to oldVersion that is not recorded yet, so a
+   * database that reached oldVersion before versions were recorded has its whole history. The
+   * time these were applied is not known, and is recorded as 0.
+   *
+   * @param sqLiteDatabase the database being migrated
+   * @param oldVersion the current version of the schema
+   */
+  private static void backfillVersions(SQLiteDatabase sqLiteDatabase, int oldVersion) {
+    insertVersion(sqLiteDatabase, BASE_VERSION, BASE_DESCRIPTION, UNKNOWN_APPLIED,
+            SQLiteDatabase.CONFLICT_IGNORE);
+    for (Migration step : STEPS) {
+      if (step.getVersion() <= oldVersion) {
+        insertVersion(sqLiteDatabase, step.getVersion(), step.getDescription(),
+                UNKNOWN_APPLIED, SQLiteDatabase.CONFLICT_IGNORE);
+      }
+    }
+  }
+
+  private static void recordVersion(SQLiteDatabase sqLiteDatabase, int version,
+                                    String description) {
+    insertVersion(sqLiteDatabase, version, description, System.currentTimeMillis(),
+            SQLiteDatabase.CONFLICT_REPLACE);
+  }
+
+  private static void insertVersion(SQLiteDatabase sqLiteDatabase, int version,
+                                    String description, long applied, int conflictAlgorithm) {
+    ContentValues contentValues = new ContentValues();
+    contentValues.put("VERSION", version);
+    contentValues.put("DESCRIPTION", description);
+    contentValues.put("APPLIED", applied);
+    sqLiteDatabase.insertWithOnConflict("SCHEMAVERSION", null, contentValues,
+            conflictAlgorithm);
+  }
+
+}
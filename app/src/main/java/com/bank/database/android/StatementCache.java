@@ -0,0 +1,137 @@
+package com.bank.database.android;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A cache of compiled statements on one open database, keyed by their SQL. The least recently
+ * used statement is closed once the cache is full. A cache belongs to one thread, which binds and
+ * runs its statements without any lock, so a statement waiting for a connection never holds up
+ * another thread. Only the counters may be read from other threads.
+ */
+public class StatementCache {
+
+  /**
+   * Default number of statements kept compiled.
+   */
+  public static final int DEFAULT_CAPACITY = 32;
+
+  /**
+   * The database the statements are compiled against.
+   */
+  private final SQLiteDatabase sqLiteDatabase;
+
+  /**
+   * The generation of the schema the statements are compiled against.
+   */
+  private final int schemaGeneration;
+
+  /**
+   * The compiled statements, in least recently used order.
+   */
+  private final LinkedHashMap<String, SQLiteStatement> statements;
+
+  private volatile long hits = 0;
+  private volatile long misses = 0;
+  private volatile long evictions = 0;
+
+  /**
+   * Creates a cache of compiled statements on the given database.
+   *
+   * @param sqLiteDatabase an open database
+   * @param schemaGeneration the generation of the database's schema
+   * @param capacity the number of statements to keep compiled
+   */
+  public StatementCache(SQLiteDatabase sqLiteDatabase, int schemaGeneration,
+                        final int capacity) {
+    this.sqLiteDatabase = sqLiteDatabase;
+    this.schemaGeneration = schemaGeneration;
+    this.statements = new LinkedHashMap<String, SQLiteStatement>(capacity + 1, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+        if (size() > capacity) {
+          eldest.getValue().close();
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the compiled statement for the given SQL with no arguments bound, compiling it if it
+   * is not in the cache.
+   *
+   * @param sql the SQL of the statement
+   * @return the compiled statement
+   */
+  public SQLiteStatement acquire(String sql) {
+    SQLiteStatement statement = statements.get(sql);
+    if (statement == null) {
+      misses++;
+      statement = sqLiteDatabase.compileStatement(sql);
+      statements.put(sql, statement);
+    } else {
+      hits++;
+      statement.clearBindings();
+    }
+    return statement;
+  }
+
+  /**
+   * Returns <code>true</code> if the statements were compiled against the given database and
+   * generation of its schema.
+   *
+   * @param sqLiteDatabase an open database
+   * @param schemaGeneration the current generation of the database's schema
+   * @return <code>true</code> if this cache belongs to the database
+   */
+  public boolean isFor(SQLiteDatabase sqLiteDatabase, int schemaGeneration) {
+    return this.sqLiteDatabase == sqLiteDatabase && this.schemaGeneration == schemaGeneration;
+  }
+
+  /**
+   * Closes every compiled statement and empties the cache. The counters are kept.
+   */
+  public void clear() {
+    for (SQLiteStatement statement : statements.values()) {
+      statement.close();
+    }
+    statements.clear();
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Returns the fraction of statements acquired that were already compiled.
+   *
+   * @return the hit rate, between 0.0 and 1.0
+   */
+  public double getHitRate() {
+    long total = hits + misses;
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.CANADA,
+            "StatementCache[size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+            statements.size(), hits, misses, evictions, getHitRate());
+  }
+
+}
@@ -0,0 +1,150 @@
+package com.bank.database.android;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Named sets of storage settings for the bank database: the journal mode, how often SQLite
+ * syncs to disk, and how much of the database is cached in memory.
+ */
+public enum StorageProfile {
+
+  /**
+   * Write-ahead logging with a full sync on every commit. Commits only append to the log, and no
+   * committed transaction is lost, even on power failure.
+   */
+  STANDARD(true, "FULL", 4096, 0, 2048, 1000, 4 * 1024 * 1024),
+
+  /**
+   * Write-ahead logging that only syncs at checkpoints, with a larger cache and memory mapped
+   * reads. Commits survive the app crashing, but the last few may be lost on power failure.
+   */
+  TELLER_THROUGHPUT(true, "NORMAL", 4096, 64L * 1024 * 1024, 8192, 2000, 16 * 1024 * 1024),
+
+  /**
+   * A rollback journal synced on every commit, including the journal's directory, and no memory
+   * mapping. The slowest profile, for when no committed transaction may ever be lost.
+   */
+  MAX_DURABILITY(false, "EXTRA", 4096, 0, 2048, 0, 0);
+
+  /**
+   * Whether or not to use write-ahead logging instead of a rollback journal.
+   */
+  private final boolean writeAheadLogging;
+
+  /**
+   * The synchronous level: OFF, NORMAL, FULL or EXTRA.
+   */
+  private final String synchronous;
+
+  /**
+   * The page size in bytes, only applied when the database is first created.
+   */
+  private final int pageSize;
+
+  /**
+   * The number of bytes of the database file to memory map, 0 to turn memory mapping off.
+   */
+  private final long mmapSize;
+
+  /**
+   * The size of the page cache in KiB.
+   */
+  private final int cacheSizeKib;
+
+  /**
+   * The number of pages in the write-ahead log that trigger an automatic checkpoint.
+   */
+  private final int walAutoCheckpointPages;
+
+  /**
+   * The number of bytes the write-ahead log is truncated to after a checkpoint.
+   */
+  private final long journalSizeLimit;
+
+  StorageProfile(boolean writeAheadLogging, String synchronous, int pageSize, long mmapSize,
+                 int cacheSizeKib, int walAutoCheckpointPages, long journalSizeLimit) {
+    this.writeAheadLogging = writeAheadLogging;
+    this.synchronous = synchronous;
+    this.pageSize = pageSize;
+    this.mmapSize = mmapSize;
+    this.cacheSizeKib = cacheSizeKib;
+    this.walAutoCheckpointPages = walAutoCheckpointPages;
+    this.journalSizeLimit = journalSizeLimit;
+  }
+
+  public boolean isWriteAheadLogging() {
+    return writeAheadLogging;
+  }
+
+  public String getSynchronous() {
+    return synchronous;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public long getMmapSize() {
+    return mmapSize;
+  }
+
+  public int getCacheSizeKib() {
+    return cacheSizeKib;
+  }
+
+  public int getWalAutoCheckpointPages() {
+    return walAutoCheckpointPages;
+  }
+
+  public long getJournalSizeLimit() {
+    return journalSizeLimit;
+  }
+
+  /**
+   * Applies this profile to an open database. Must be called before any transaction is started
+   * on the connection, such as from SQLiteOpenHelper.onConfigure.
+   *
+   * <p>Write-ahead logging is turned on through the framework, so the pool opens read connections
+   * and reads no longer wait behind a write. The pragmas below run on the primary connection,
+   * which makes every write, so the synchronous level and checkpoint settings govern every
+   * commit. The read connections are opened by the framework with its own synchronous level and
+   * default cache, since SDK 26 has no way to run statements on them; only the primary
+   * connection gets this profile's cache and memory map sizes.
+   *
+   * @param sqLiteDatabase the database to configure
+   */
+  public void apply(SQLiteDatabase sqLiteDatabase) {
+    // the page size can only change before the first table is written
+    pragma(sqLiteDatabase, "page_size = " + pageSize);
+    if (writeAheadLogging) {
+      // reconfigures the primary connection, so it must come before the pragmas
+      sqLiteDatabase.enableWriteAheadLogging();
+      pragma(sqLiteDatabase, "wal_autocheckpoint = " + walAutoCheckpointPages);
+      pragma(sqLiteDatabase, "journal_size_limit = " + journalSizeLimit);
+    } else {
+      sqLiteDatabase.disableWriteAheadLogging();
+      pragma(sqLiteDatabase, "journal_mode = DELETE");
+    }
+    pragma(sqLiteDatabase, "synchronous = " + synchronous);
+    pragma(sqLiteDatabase, "mmap_size = " + mmapSize);
+    // a negative cache size is in KiB rather than pages
+    pragma(sqLiteDatabase, "cache_size = -" + cacheSizeKib);
+  }
+
+  /**
+   * Runs a pragma. Some pragmas return the new value as a row, which execSQL does not allow, so
+   * every pragma is run as a query and its result discarded.
+   *
+   * @param sqLiteDatabase the database to run the pragma on
+   * @param pragma the pragma and its value
+   */
+  static void pragma(SQLiteDatabase sqLiteDatabase, String pragma) {
+    Cursor cursor = sqLiteDatabase.rawQuery("PRAGMA " + pragma, null);
+    if (cursor != null) {
+      cursor.moveToFirst();
+      cursor.close();
+    }
+  }
+
+}
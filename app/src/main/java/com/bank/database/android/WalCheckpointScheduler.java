@@ -0,0 +1,134 @@
+package com.bank.database.android;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints the write-ahead log of a database in the background. SQLite only checkpoints
+ * automatically when a commit pushes the log past a number of pages, and a checkpoint can not
+ * finish while a reader is still using old pages, so under steady traffic the log can keep
+ * growing. A passive checkpoint is run on every tick, and once the log is over its size limit a
+ * truncating checkpoint is run to shrink the file back down.
+ */
+public class WalCheckpointScheduler {
+
+  /**
+   * Default number of seconds between checkpoints.
+   */
+  public static final long DEFAULT_INTERVAL_SECONDS = 30;
+
+  /**
+   * The database to checkpoint.
+   */
+  private final SQLiteDatabase sqLiteDatabase;
+
+  /**
+   * The write-ahead log file of the database.
+   */
+  private final File walFile;
+
+  /**
+   * The size in bytes past which the log is truncated.
+   */
+  private final long walSizeLimit;
+
+  /**
+   * The thread checkpoints are run on, <code>null</code> when stopped.
+   */
+  private ScheduledExecutorService executor = null;
+
+  private long checkpoints = 0;
+  private long truncations = 0;
+
+  /**
+   * Creates a scheduler for the given database.
+   *
+   * @param sqLiteDatabase an open database in write-ahead logging mode
+   * @param walSizeLimit the size in bytes past which the log is truncated
+   */
+  public WalCheckpointScheduler(SQLiteDatabase sqLiteDatabase, long walSizeLimit) {
+    this.sqLiteDatabase = sqLiteDatabase;
+    this.walFile = new File(sqLiteDatabase.getPath() + "-wal");
+    this.walSizeLimit = walSizeLimit;
+  }
+
+  /**
+   * Starts checkpointing every given number of seconds. Does nothing if already started.
+   *
+   * @param intervalSeconds seconds between checkpoints
+   */
+  public synchronized void start(long intervalSeconds) {
+    if (executor != null) {
+      return;
+    }
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "wal-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        checkpoint();
+      }
+    }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stops checkpointing. A checkpoint already running is allowed to finish.
+   */
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Runs a checkpoint now, truncating the log if it has grown past its limit.
+   */
+  public void checkpoint() {
+    if (!sqLiteDatabase.isOpen()) {
+      return;
+    }
+    boolean truncate = walFile.length() > walSizeLimit;
+    try {
+      // a passive checkpoint never blocks readers or writers
+      Cursor cursor = sqLiteDatabase.rawQuery(
+              truncate ? "PRAGMA wal_checkpoint(TRUNCATE)" : "PRAGMA wal_checkpoint(PASSIVE)",
+              null);
+      if (cursor != null) {
+        cursor.moveToFirst();
+        cursor.close();
+      }
+    } catch (SQLiteException e) {
+      // the database is busy or closing, try again on the next tick
+      return;
+    }
+    synchronized (this) {
+      checkpoints++;
+      if (truncate) {
+        truncations++;
+      }
+    }
+  }
+
+  public synchronized long getCheckpoints() {
+    return checkpoints;
+  }
+
+  public synchronized long getTruncations() {
+    return truncations;
+  }
+
+}
@@ -0,0 +1,202 @@
+package com.bank.databasehelper;
+
+import com.bank.accounts.Money;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The most recently used rows of the Accounts table, by account ID. Reads of an account are
+ * answered from memory once it has been read, and every write to an account through the driver
+ * helper drops it, so the next read sees the new balance. The least recently used account is
+ * dropped once the cache is full.
+ *
+ * <p>Rows are held as immutable entries and a new Account is built for every read, so a caller
+ * changing its Account never changes what the next caller reads.
+ */
+public class AccountCache {
+
+  /**
+   * The most accounts held at once.
+   */
+  public static final int MAX_ENTRIES = 512;
+
+  /**
+   * One row of the Accounts table, with the name of its type.
+   */
+  static final class Entry {
+
+    final String name;
+    final Money balance;
+    final int type;
+    final String typeName;
+
+    Entry(String name, Money balance, int type, String typeName) {
+      this.name = name;
+      this.balance = balance;
+      this.type = type;
+      this.typeName = typeName;
+    }
+  }
+
+  /**
+   * The held accounts, in order of use with the least recently used first.
+   */
+  private static final LinkedHashMap<Integer, Entry> entries =
+          new LinkedHashMap<Integer, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+              if (size() > MAX_ENTRIES) {
+                evictions++;
+                return true;
+              }
+              return false;
+            }
+          };
+
+  /**
+   * Bumped by every invalidation, so a row read before a write is never put in after it.
+   */
+  private static long version = 0;
+
+  private static long hits = 0;
+  private static long misses = 0;
+  private static long evictions = 0;
+
+  private AccountCache() {
+  }
+
+  /**
+   * Returns the held row of the account, counting a hit or a miss.
+   *
+   * @param accountId an account ID number
+   * @return the row, <code>null</code> if it is not held
+   */
+  static synchronized Entry get(int accountId) {
+    Entry entry = entries.get(accountId);
+    if (entry != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return entry;
+  }
+
+  /**
+   * Returns the version to read a missing row at. Read it before the row is read from the
+   * database.
+   *
+   * @return the current version
+   */
+  static synchronized long version() {
+    return version;
+  }
+
+  /**
+   * Holds a row read from the database, unless an account was written since it was read.
+   *
+   * @param accountId an account ID number
+   * @param entry the row read
+   * @param readVersion the version from before the row was read
+   */
+  static synchronized void put(int accountId, Entry entry, long readVersion) {
+    if (readVersion == version) {
+      entries.put(accountId, entry);
+    }
+  }
+
+  /**
+   * Drops the account, after it has been written.
+   *
+   * @param accountId an account ID number
+   */
+  static synchronized void invalidate(int accountId) {
+    version++;
+    entries.remove(accountId);
+  }
+
+  /**
+   * Drops every account, after a write that may have changed any of them.
+   */
+  static synchronized void invalidateAll() {
+    version++;
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of reads answered from memory.
+   *
+   * @return the hit count
+   */
+  public static synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of reads that went to the database.
+   *
+   * @return the miss count
+   */
+  public static synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Returns the number of accounts dropped to make room for others.
+   *
+   * @return the eviction count
+   */
+  public static synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Returns the share of reads answered from memory.
+   *
+   * @return the hit rate, from 0 to 1
+   */
+  public static synchronized double getHitRate() {
+    long reads = hits + misses;
+    return reads == 0 ? 0.0 : (double) hits / reads;
+  }
+
+  /**
+   * Returns the share of reads that dropped an account to make room.
+   *
+   * @return the eviction rate, from 0 to 1
+   */
+  public static synchronized double getEvictionRate() {
+    long reads = hits + misses;
+    return reads == 0 ? 0.0 : (double) evictions / reads;
+  }
+
+  /**
+   * Returns the number of accounts held.
+   *
+   * @return the number of accounts held
+   */
+  public static synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Sets the hit, miss and eviction counts back to zero.
+   */
+  public static synchronized void resetStatistics() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  /**
+   * Returns the counts as one line, for logging.
+   *
+   * @return the cache statistics
+   */
+  public static synchronized String describe() {
+    return String.format(Locale.CANADA, "%d accounts, %d hits, %d misses, %d evictions, "
+            + "%.1f%% hit rate", entries.size(), hits, misses, evictions, getHitRate() * 100);
+  }
+
+}
@@ -0,0 +1,138 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.accounts.Account;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the accounts in the database in ID order. Accounts are read a page at a time from
+ * a single query joining the Accounts and AccountTypes tables, so each account is built from one
+ * cursor row, and gaps in the account IDs are skipped over.
+ */
+public class AccountIterator implements Iterator<Account> {
+
+  /**
+   * Number of accounts read from the database per query.
+   */
+  public static final int PAGE_SIZE = 256;
+
+  /**
+   * The account type ID to filter by, or INVALID_ID for all account types.
+   */
+  private final int typeId;
+
+  /**
+   * The ID of the last account read, pages continue after this ID.
+   */
+  private int lastId = DatabaseValidHelper.MIN_ID - 1;
+
+  /**
+   * The cursor over the current page, <code>null</code> before the first page.
+   */
+  private Cursor cursor = null;
+
+  /**
+   * The next account to return, <code>null</code> if it has not been read yet.
+   */
+  private Account next = null;
+
+  /**
+   * Whether or not the last page has been read.
+   */
+  private boolean exhausted = false;
+
+  /**
+   * Builds the accounts of the current page's rows.
+   */
+  private AccountRows rows;
+
+  /**
+   * Creates an iterator over every account in the database.
+   */
+  AccountIterator() {
+    this(DatabaseValidHelper.INVALID_ID);
+  }
+
+  /**
+   * Creates an iterator over the accounts of the given account type.
+   *
+   * @param typeId an account type ID number, INVALID_ID for all account types
+   */
+  AccountIterator(int typeId) {
+    this.typeId = typeId;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !exhausted) {
+      next = readNext();
+    }
+    return next != null;
+  }
+
+  @Override
+  public Account next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Account account = next;
+    next = null;
+    return account;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Closes the cursor of the current page. Only needed if iteration is stopped early.
+   */
+  public void close() {
+    if (cursor != null) {
+      cursor.close();
+      cursor = null;
+    }
+    exhausted = true;
+  }
+
+  /**
+   * Reads the next account from the current page, fetching the next page when needed.
+   *
+   * @return the next account, <code>null</code> if there are no more accounts
+   */
+  private Account readNext() {
+    if (cursor == null || !cursor.moveToNext()) {
+      // a short page means there is nothing after it
+      boolean lastPage = cursor != null && cursor.getCount() < PAGE_SIZE;
+      close();
+      if (lastPage) {
+        return null;
+      }
+      exhausted = false;
+      openPage();
+      if (!cursor.moveToNext()) {
+        close();
+        return null;
+      }
+    }
+    // build the account from the joined row, without any further lookups
+    Account account = rows.read(cursor);
+    lastId = account.getId();
+    return account;
+  }
+
+  /**
+   * Queries the page of accounts following the last account read.
+   */
+  private void openPage() {
+    if (typeId == DatabaseValidHelper.INVALID_ID) {
+      cursor = DatabaseDriverHelper.driverGetAccountsDetails(lastId, PAGE_SIZE);
+    } else {
+      cursor = DatabaseDriverHelper.driverGetAccountsDetails(lastId, typeId, PAGE_SIZE);
+    }
+    rows = new AccountRows(cursor);
+  }
+
+}
@@ -0,0 +1,53 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.accounts.Account;
+import com.bank.accounts.AccountBuilder;
+import com.bank.accounts.Money;
+import com.bank.accounts.SolidAccountBuilder;
+
+/**
+ * Builds accounts from the rows of a cursor over the Accounts table joined with the AccountTypes
+ * table, so each account is built from its own row without any further lookups. The columns are
+ * found once, when the builder is created for a cursor.
+ */
+class AccountRows {
+
+  private final int idColumn;
+  private final int nameColumn;
+  private final int balanceColumn;
+  private final int typeColumn;
+  private final int typeNameColumn;
+  private final int interestRateColumn;
+
+  /**
+   * Finds the columns of the joined account rows of the cursor.
+   *
+   * @param cursor a cursor over joined account rows
+   */
+  AccountRows(Cursor cursor) {
+    idColumn = cursor.getColumnIndex("ID");
+    nameColumn = cursor.getColumnIndex("NAME");
+    balanceColumn = cursor.getColumnIndex("BALANCE");
+    typeColumn = cursor.getColumnIndex("TYPE");
+    typeNameColumn = cursor.getColumnIndex("TYPENAME");
+    interestRateColumn = cursor.getColumnIndex("INTERESTRATE");
+  }
+
+  /**
+   * Builds the account of the cursor's current row.
+   *
+   * @param cursor the cursor the columns were found in, moved to a row
+   * @return the account of the row
+   */
+  Account read(Cursor cursor) {
+    AccountBuilder builder = new SolidAccountBuilder(cursor.getString(typeNameColumn));
+    return builder.setId(cursor.getInt(idColumn))
+            .setName(cursor.getString(nameColumn))
+            .setBalance(Money.ofCents(cursor.getLong(balanceColumn)))
+            .setType(cursor.getInt(typeColumn))
+            .setInterestRate(ReferenceData.readInterestRate(cursor, interestRateColumn))
+            .buildAccount();
+  }
+
+}
@@ -0,0 +1,84 @@
+package com.bank.databasehelper;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of a backup as it is written, so its progress and throughput can be read
+ * from any thread while it runs.
+ */
+public class BackupThroughput {
+
+  private final AtomicLong rawBytes = new AtomicLong();
+  private final AtomicLong compressedBytes = new AtomicLong();
+  private final long startNanos = System.nanoTime();
+  private volatile long endNanos = 0;
+
+  BackupThroughput() {
+  }
+
+  void addBlock(int raw, int compressed) {
+    rawBytes.addAndGet(raw);
+    compressedBytes.addAndGet(compressed);
+  }
+
+  void finish() {
+    if (endNanos == 0) {
+      endNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * Returns the number of bytes of tables written so far, before compression.
+   *
+   * @return the number of bytes read from the tables
+   */
+  public long getRawBytes() {
+    return rawBytes.get();
+  }
+
+  /**
+   * Returns the number of bytes written to the backup file so far.
+   *
+   * @return the number of compressed bytes written
+   */
+  public long getCompressedBytes() {
+    return compressedBytes.get();
+  }
+
+  /**
+   * Returns <code>true</code> if the backup has stopped, whether it completed or not.
+   *
+   * @return <code>true</code> if the backup has stopped
+   */
+  public boolean isFinished() {
+    return endNanos != 0;
+  }
+
+  /**
+   * Returns the time the backup has taken so far, or took if it is finished.
+   *
+   * @return the elapsed time in nanoseconds
+   */
+  public long getElapsedNanos() {
+    long end = endNanos;
+    return (end == 0 ? System.nanoTime() : end) - startNanos;
+  }
+
+  /**
+   * Returns the number of bytes of tables backed up per second, before compression.
+   *
+   * @return the throughput in bytes per second
+   */
+  public double getBytesPerSecond() {
+    long elapsedNanos = getElapsedNanos();
+    return elapsedNanos == 0 ? 0.0 : getRawBytes() * 1e9 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.CANADA, "%d bytes compressed to %d in %.1f ms, %.0f bytes/s",
+            getRawBytes(), getCompressedBytes(), getElapsedNanos() / 1e6, getBytesPerSecond());
+  }
+
+}
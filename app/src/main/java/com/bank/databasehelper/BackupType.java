@@ -0,0 +1,14 @@
+package com.bank.databasehelper;
+
+/**
+ * Enumerator for the kinds of backups of the database. A full backup is a snapshot of every
+ * table; the others are diffs replayed onto the last full backup when it is restored.
+ */
+public enum BackupType {
+  /** Every row of every table, starting a new chain of diffs. */
+  FULL,
+  /** The rows changed since the last backup of any kind, added to the end of the chain. */
+  INCREMENTAL,
+  /** The rows changed since the last full backup, replacing the chain. */
+  DIFFERENTIAL
+}
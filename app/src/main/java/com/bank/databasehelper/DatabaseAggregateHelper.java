@@ -0,0 +1,106 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.generics.AccountTypes;
+import com.bank.generics.AccountTypesEnumMap;
+import com.bank.generics.Roles;
+import com.bank.generics.RolesEnumMap;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Helper methods for totalling balances across the Accounts table. Balances are stored as whole
+ * cents, so the database sums them exactly and only one row per group is read back.
+ */
+public class DatabaseAggregateHelper {
+
+  /**
+   * Returns the total amount of money stored in all accounts in the bank.
+   *
+   * @return the bank total
+   */
+  public static BigDecimal getBankTotal() {
+    long totalCents = 0;
+    Cursor cursor = DatabaseDriverHelper.driverGetBalanceTotalsByType();
+    if (cursor != null) {
+      int balanceColumn = cursor.getColumnIndex("BALANCE");
+      while (cursor.moveToNext()) {
+        totalCents = Math.addExact(totalCents, cursor.getLong(balanceColumn));
+      }
+      cursor.close();
+    }
+    return BigDecimal.valueOf(totalCents, 2);
+  }
+
+  /**
+   * Returns the total amount of money stored in the bank, broken down by account type.
+   *
+   * @return the total of each account type
+   */
+  public static Map<AccountTypes, BigDecimal> getBankTotalByAccountType() {
+    long[] totalCents = new long[0];
+    Cursor cursor = DatabaseDriverHelper.driverGetBalanceTotalsByType();
+    if (cursor != null) {
+      totalCents = totalsByKey(cursor, "TYPE");
+      cursor.close();
+    }
+    // convert the totals by type ID into totals by account type
+    Map<AccountTypes, BigDecimal> totals = new EnumMap<>(AccountTypes.class);
+    for (AccountTypes type : AccountTypes.values()) {
+      int typeId = AccountTypesEnumMap.getAccountTypeId(type);
+      long cents = typeId >= 0 && typeId < totalCents.length ? totalCents[typeId] : 0;
+      totals.put(type, BigDecimal.valueOf(cents, 2));
+    }
+    return totals;
+  }
+
+  /**
+   * Returns the total amount of money stored in the bank, broken down by the role of the account
+   * owners. A joint account is counted once for each distinct role among its owners.
+   *
+   * @return the total of each role
+   */
+  public static Map<Roles, BigDecimal> getBankTotalByRole() {
+    long[] totalCents = new long[0];
+    Cursor cursor = DatabaseDriverHelper.driverGetBalanceTotalsByOwnerRole();
+    if (cursor != null) {
+      totalCents = totalsByKey(cursor, "ROLEID");
+      cursor.close();
+    }
+    // convert the totals by role ID into totals by role
+    Map<Roles, BigDecimal> totals = new EnumMap<>(Roles.class);
+    for (Roles role : Roles.values()) {
+      int roleId = RolesEnumMap.getRoleId(role);
+      long cents = roleId >= 0 && roleId < totalCents.length ? totalCents[roleId] : 0;
+      totals.put(role, BigDecimal.valueOf(cents, 2));
+    }
+    return totals;
+  }
+
+  /**
+   * Reads the grouped totals of the cursor into an array indexed by the key column.
+   *
+   * @param cursor a cursor with a BALANCE column and an integer key column
+   * @param keyColumnName the name of the key column
+   * @return the total cents of each key
+   */
+  private static long[] totalsByKey(Cursor cursor, String keyColumnName) {
+    long[] totalCents = new long[AccountTypes.values().length + 1];
+    int keyColumn = cursor.getColumnIndex(keyColumnName);
+    int balanceColumn = cursor.getColumnIndex("BALANCE");
+    while (cursor.moveToNext()) {
+      int key = cursor.getInt(keyColumn);
+      if (key < 0) {
+        continue;
+      }
+      if (key >= totalCents.length) {
+        totalCents = Arrays.copyOf(totalCents, key + 1);
+      }
+      totalCents[key] = cursor.getLong(balanceColumn);
+    }
+    return totalCents;
+  }
+
+}
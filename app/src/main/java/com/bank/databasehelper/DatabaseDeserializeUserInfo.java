@@ -3,7 +3,6 @@ package com.bank.databasehelper;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
 
 import com.bank.database.android.DatabaseDriverA;
 import com.bank.databasehelper.DatabaseDriverHelper;
@@ -14,67 +13,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 
-public class DatabaseDeserializeUserInfo extends SQLiteOpenHelper {
-
-  private static final int DATABASE_VERSION = 1;
-  private static final String DATABASE_NAME = "bank.db";
+public class DatabaseDeserializeUserInfo extends DatabaseDriverA {
 
   public DatabaseDeserializeUserInfo(Context context) {
-    super(context, DATABASE_NAME, null, 1);
-
-  }
-
-  @Override
-  public void onCreate(SQLiteDatabase sqLiteDatabase) {
-    sqLiteDatabase.execSQL("CREATE TABLE ROLES "
-            + "(ID INTEGER PRIMARY KEY NOT NULL,"
-            + "NAME TEXT NOT NULL)");
-    sqLiteDatabase.execSQL("CREATE TABLE ACCOUNTTYPES "
-            + "(ID INTEGER PRIMARY KEY NOT NULL,"
-            + "NAME TEXT NOT NULL,"
-            + "INTERESTRATE TEXT)");
-    sqLiteDatabase.execSQL("CREATE TABLE ACCOUNTS "
-            + "(ID INTEGER PRIMARY KEY NOT NULL,"
-            + "NAME TEXT NOT NULL,"
-            + "BALANCE TEXT,"
-            + "TYPE INTEGER NOT NULL,"
-            + "FOREIGN KEY(TYPE) REFERENCES ACCOUNTTYPES(ID))");
-    sqLiteDatabase.execSQL("CREATE TABLE USERS "
-            + "(ID INTEGER PRIMARY KEY NOT NULL,"
-            + "NAME TEXT NOT NULL,"
-            + "AGE INTEGER NOT NULL,"
-            + "ADDRESS CHAR(100),"
-            + "ROLEID INTEGER,"
-            + "FOREIGN KEY(ROLEID) REFERENCES ROLE(ID))");
-    sqLiteDatabase.execSQL("CREATE TABLE USERACCOUNT "
-            + "(USERID INTEGER NOT NULL,"
-            + "ACCOUNTID INTEGER NOT NULL,"
-            + "FOREIGN KEY(USERID) REFERENCES USER(ID),"
-            + "FOREIGN KEY(ACCOUNTID) REFERENCES ACOUNT(ID),"
-            + "PRIMARY KEY(USERID, ACCOUNTID))");
-    sqLiteDatabase.execSQL("CREATE TABLE USERPW "
-            + "(USERID INTEGER NOT NULL,"
-            + "PASSWORD CHAR(64),"
-            + "FOREIGN KEY(USERID) REFERENCES USER(ID))");
-    sqLiteDatabase.execSQL("CREATE TABLE USERMESSAGES "
-            + "(ID INTEGER PRIMARY KEY NOT NULL,"
-            + "USERID INTEGER NOT NULL,"
-            + "MESSAGE CHAR(512) NOT NULL,"
-            + "VIEWED CHAR(1) NOT NULL,"
-            + "FOREIGN KEY(USERID) REFERENCES USER(ID))");
-  }
-
-  @Override
-  public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERMESSAGES");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERPW");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERACCOUNT");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS USERS");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS ACCOUNTS");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS ACCOUNTTYPES");
-    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS ROLES");
+    super(context);
 
-    onCreate(sqLiteDatabase);
   }
 
   /**
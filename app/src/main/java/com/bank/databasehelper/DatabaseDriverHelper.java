@@ -2,10 +2,13 @@ package com.bank.databasehelper;
 
 import android.content.Context;
 import android.database.Cursor;
-import android.database.CursorIndexOutOfBoundsException;
-import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
 
+import com.bank.accounts.Money;
 import com.bank.database.android.DatabaseDriverA;
+import com.bank.database.android.StatementCache;
+import com.bank.database.android.StorageProfile;
+import com.bank.ledger.LedgerEntryType;
 import java.math.BigDecimal;
 
 public class DatabaseDriverHelper extends DatabaseDriverA {
@@ -15,22 +18,62 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
    */
   private static DatabaseDriverHelper driver = null;
 
+  /**
+   * The storage settings the next connection is opened with.
+   */
+  private static StorageProfile storageProfile = StorageProfile.STANDARD;
+
+  /**
+   * Whether a role or account type was written inside a transaction that has not ended yet, so
+   * the reference data must be read again once it does.
+   */
+  private static volatile boolean referenceDataStale = false;
+
+  /**
+   * The application context the database was opened with, to reopen it with.
+   */
+  private final Context context;
+
   /**
    * Creates a driver helper to open, read, or update a database.
    *
    * @param context to open or create the database
+   * @param storageProfile the storage settings to open the database with
    */
-  private DatabaseDriverHelper(Context context) {
-    super(context);
+  private DatabaseDriverHelper(Context context, StorageProfile storageProfile) {
+    super(context, storageProfile);
+    this.context = context;
   }
 
   /**
-   * Connects to database.
+   * Sets the storage settings the database is opened with. If the database is already connected,
+   * it is reopened with the new settings, so the shared driver is never left unset for the helpers
+   * that use it.
+   *
+   * @param profile the storage settings to use
+   */
+  public static synchronized void setStorageProfile(StorageProfile profile) {
+    if (profile != storageProfile) {
+      storageProfile = profile;
+      if (driver != null) {
+        DatabaseDriverHelper old = driver;
+        driver = new DatabaseDriverHelper(old.context, profile);
+        old.close();
+      }
+    }
+  }
+
+  /**
+   * Connects to database. The connection is opened once and shared by every activity for the
+   * life of the application, along with its compiled statements.
    *
    * @return the database connection
    */
-  public static DatabaseDriverHelper getDatabaseDriver(Context context) {
-    driver = new DatabaseDriverHelper(context);
+  public static synchronized DatabaseDriverHelper getDatabaseDriver(Context context) {
+    if (driver == null) {
+      // hold the application context, not the activity that happened to connect first
+      driver = new DatabaseDriverHelper(context.getApplicationContext(), storageProfile);
+    }
     return driver;
   }
 
@@ -39,11 +82,31 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
    *
    * @return the database connection
    */
-  public static DatabaseDriverHelper createNewDatabase(Context context) {
-    driver = new DatabaseDriverHelper(context);
-    SQLiteDatabase db = driver.getReadableDatabase();
-    db.close();
-    return driver;
+  public static synchronized DatabaseDriverHelper createNewDatabase(Context context) {
+    DatabaseDriverHelper helper = getDatabaseDriver(context);
+    // opening the database creates the tables if they do not exist yet
+    helper.getWritableDatabase();
+    return helper;
+  }
+
+  /**
+   * Closes the shared database connection. The next call to getDatabaseDriver opens it again.
+   */
+  public static synchronized void closeDatabaseDriver() {
+    if (driver != null) {
+      driver.close();
+      driver = null;
+    }
+  }
+
+  /**
+   * Returns the calling thread's cache of compiled statements on the shared database, for
+   * reporting how often statements are reused.
+   *
+   * @return the statement cache, <code>null</code> if the database is not connected
+   */
+  public static synchronized StatementCache getDriverStatementCache() {
+    return driver == null ? null : driver.getStatementCache();
   }
 
   /* <!------------------------------ DRIVER INSERT METHODS ------------------------------> */
@@ -55,7 +118,11 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
    * @return the ID number of the role in the Roles table
    */
   static int driverInsertRole(String role) {
-    return (int) driver.insertRole(role);
+    try {
+      return (int) driver.insertRole(role);
+    } finally {
+      reloadReferenceData();
+    }
   }
 
   /**
@@ -81,7 +148,11 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
    * @return the account type ID number in the AccountTypes table
    */
   static int driverInsertAccountType(String name, BigDecimal interestRate) {
-    return (int) driver.insertAccountType(name, interestRate);
+    try {
+      return (int) driver.insertAccountType(name, interestRate);
+    } finally {
+      reloadReferenceData();
+    }
   }
 
   /**
@@ -92,8 +163,8 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
    * @param type the account type
    * @return the account ID number in the Accounts table
    */
-  static int driverInsertAccount(String name, BigDecimal balance, int type) {
-    return (int) driver.insertAccount(name, balance, type);
+  static int driverInsertAccount(String name, Money balance, int type) {
+    return (int) driver.insertAccount(name, balance.getCents(), type);
   }
 
   /**
@@ -118,6 +189,26 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
     return (int) driver.insertMessage(userId, message);
   }
 
+  static int driverInsertTemplateMessage(int userId, int templateId, String parameters) {
+    return (int) driver.insertTemplateMessage(userId, templateId, parameters);
+  }
+
+  static int driverInsertBroadcastToRole(String message, int roleId) {
+    return driver.insertBroadcastToRole(message, roleId);
+  }
+
+  static int driverInsertBroadcastToAccountType(String message, int typeId, int roleId) {
+    return driver.insertBroadcastToAccountType(message, typeId, roleId);
+  }
+
+  static int driverInsertBroadcastToUsers(String message, int[] userIds, int roleId) {
+    return driver.insertBroadcastToUsers(message, userIds, roleId);
+  }
+
+  static int driverInsertInterestRun(int period) {
+    return (int) driver.insertInterestRun(period);
+  }
+
   /* <!------------------------------ DRIVER SELECT METHODS ------------------------------> */
 
   static Cursor driverGetRoles() {
@@ -131,7 +222,7 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
   static int driverGetUserRole(int userId) {
     try {
       return driver.getUserRole(userId);
-    } catch (CursorIndexOutOfBoundsException e) {
+    } catch (SQLiteDoneException e) {
       return DatabaseValidHelper.INVALID_ID;
     }
   }
@@ -140,30 +231,102 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
     return driver.getUsersDetails();
   }
 
+  static Cursor driverGetUsersDetails(int roleId) {
+    return driver.getUsersDetails(roleId);
+  }
+
+  static Cursor driverGetUsersDetails(int roleId, int afterUserId, int limit) {
+    return driver.getUsersDetails(roleId, afterUserId, limit);
+  }
+
+  static Cursor driverGetUsersDetailsAt(int roleId, int offset, int limit) {
+    return driver.getUsersDetailsAt(roleId, offset, limit);
+  }
+
+  static Cursor driverGetUsersNotOwning(int roleId, int accountId) {
+    return driver.getUsersNotOwning(roleId, accountId);
+  }
+
+  static int driverGetUserCount(int roleId) {
+    return driver.getUserCount(roleId);
+  }
+
   static Cursor driverGetUserDetails(int userId) {
     return driver.getUserDetails(userId);
   }
 
   static String driverGetPassword(int userId) {
-    return driver.getPassword(userId);
+    try {
+      return driver.getPassword(userId);
+    } catch (SQLiteDoneException e) {
+      return null;
+    }
   }
 
   static Cursor driverGetAccountIds(int userId) {
     return driver.getAccountIds(userId);
   }
 
+  static boolean driverUserOwnsAccount(int userId, int accountId, int roleId) {
+    return driver.userOwnsAccount(userId, accountId, roleId);
+  }
+
   static Cursor driverGetAccountDetails(int accountId) {
     return driver.getAccountDetails(accountId);
   }
 
-  static BigDecimal driverGetBalance(int accountId) {
-    return driver.getBalance(accountId);
+  static Cursor driverGetAccountsDetails(int afterAccountId, int limit) {
+    return driver.getAccountsDetails(afterAccountId, limit);
+  }
+
+  static Cursor driverGetAccountsDetails(int afterAccountId, int typeId, int limit) {
+    return driver.getAccountsDetails(afterAccountId, typeId, limit);
+  }
+
+  static Cursor driverGetAccountsDetailsAt(int offset, int limit) {
+    return driver.getAccountsDetailsAt(offset, limit);
+  }
+
+  static int driverGetAccountCount() {
+    return driver.getAccountCount();
+  }
+
+  static Cursor driverGetBalanceTotalsByType() {
+    return driver.getBalanceTotalsByType();
+  }
+
+  static Cursor driverGetBalanceTotalsByOwnerRole() {
+    return driver.getBalanceTotalsByOwnerRole();
+  }
+
+  static Cursor driverGetAccountOwners(int afterAccountId, int lastAccountId) {
+    return driver.getAccountOwners(afterAccountId, lastAccountId);
+  }
+
+  static Cursor driverGetOpenInterestRun() {
+    return driver.getOpenInterestRun();
+  }
+
+  static Money driverGetBalance(int accountId) {
+    return Money.ofCents(driver.getBalance(accountId));
+  }
+
+  static Money driverGetBalanceAt(int accountId, long time) {
+    return Money.ofCents(driver.getBalanceAt(accountId, time));
+  }
+
+  static Cursor driverGetLedgerEntries(int accountId, long fromTime, long toTime) {
+    return driver.getLedgerEntries(accountId, fromTime, toTime);
+  }
+
+  static Cursor driverGetLedgerEntries(long fromTime, long toTime) {
+    return driver.getLedgerEntries(fromTime, toTime);
   }
 
   static int driverGetAccountType(int accountId) {
     try {
       return driver.getAccountType(accountId);
-    } catch (CursorIndexOutOfBoundsException e) {
+    } catch (SQLiteDoneException e) {
       return DatabaseValidHelper.INVALID_ID;
     }
   }
@@ -172,6 +335,10 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
     return driver.getAccountTypeName(accountTypeId);
   }
 
+  static Cursor driverGetAccountTypes() {
+    return driver.getAccountTypes();
+  }
+
   static Cursor driverGetAccountTypesId() {
     return driver.getAccountTypesId();
   }
@@ -184,14 +351,34 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
     return driver.getAllMessages(userId);
   }
 
-  static String driverGetSpecificMessage(int messageId) {
+  static Cursor driverGetMessagesBefore(int userId, int beforeMessageId, int limit) {
+    return driver.getMessagesBefore(userId, beforeMessageId, limit);
+  }
+
+  static int driverGetMessageCount(int userId) {
+    return driver.getMessageCount(userId);
+  }
+
+  static int driverGetUnreadMessageCount(int userId) {
+    return driver.getUnreadMessageCount(userId);
+  }
+
+  static boolean driverUserOwnsMessage(int userId, int messageId) {
+    return driver.userOwnsMessage(userId, messageId);
+  }
+
+  static Cursor driverGetSpecificMessage(int messageId) {
     return driver.getSpecificMessage(messageId);
   }
 
   /* <!------------------------------ DRIVER UPDATE METHODS ------------------------------> */
 
   static boolean driverUpdateRoleName(String name, int id) {
-    return driver.updateRoleName(name, id);
+    try {
+      return driver.updateRoleName(name, id);
+    } finally {
+      reloadReferenceData();
+    }
   }
 
   static boolean driverUpdateUserName(String name, int id) {
@@ -211,31 +398,146 @@ public class DatabaseDriverHelper extends DatabaseDriverA {
   }
 
   static boolean driverUpdateAccountName(String name, int id) {
-    return driver.updateAccountName(name, id);
+    try {
+      return driver.updateAccountName(name, id);
+    } finally {
+      AccountCache.invalidate(id);
+    }
+  }
+
+  static boolean driverUpdateAccountBalance(Money balance, int id) {
+    try {
+      return driver.updateAccountBalance(balance.getCents(), id);
+    } finally {
+      AccountCache.invalidate(id);
+    }
+  }
+
+  static boolean driverUpdateAccountBalanceBy(Money amount, int id, LedgerEntryType type) {
+    try {
+      return driver.updateAccountBalanceBy(amount.getCents(), id, type);
+    } finally {
+      AccountCache.invalidate(id);
+    }
+  }
+
+  static boolean driverUpdateAccountBalanceDebit(Money amount, int id) {
+    try {
+      return driver.updateAccountBalanceDebit(amount.getCents(), id);
+    } finally {
+      AccountCache.invalidate(id);
+    }
   }
 
-  static boolean driverUpdateAccountBalance(BigDecimal balance, int id) {
-    return driver.updateAccountBalance(balance, id);
+  static boolean driverUpdateAccountBalanceTransfer(Money amount, int fromId, int toId) {
+    try {
+      return driver.updateAccountBalanceTransfer(amount.getCents(), fromId, toId);
+    } finally {
+      AccountCache.invalidate(fromId);
+      AccountCache.invalidate(toId);
+    }
+  }
+
+  static boolean driverUpdateAccountTypeIfBelow(int fromTypeId, int toTypeId, Money below,
+                                                int id) {
+    try {
+      return driver.updateAccountTypeIfBelow(fromTypeId, toTypeId, below.getCents(), id);
+    } finally {
+      AccountCache.invalidate(id);
+    }
   }
 
   static boolean driverUpdateAccountType(int typeId, int id) {
-    return driver.updateAccountType(typeId, id);
+    try {
+      return driver.updateAccountType(typeId, id);
+    } finally {
+      AccountCache.invalidate(id);
+    }
   }
 
   static boolean driverUpdateAccountTypeName(String name, int id) {
-    return driver.updateAccountTypeName(name, id);
+    try {
+      return driver.updateAccountTypeName(name, id);
+    } finally {
+      reloadReferenceData();
+      // held accounts carry the name of their type
+      AccountCache.invalidateAll();
+    }
   }
 
   static boolean driverUpdateAccountTypeInterestRate(BigDecimal interestRate, int id) {
-    return driver.updateAccountTypeInterestRate(interestRate, id);
+    try {
+      return driver.updateAccountTypeInterestRate(interestRate, id);
+    } finally {
+      reloadReferenceData();
+    }
   }
 
   static boolean driverUpdateUserPassword(String password, int userId) {
     return driver.updateUserPassword(password, userId);
   }
 
+  static boolean driverReplaceUserPassword(String oldPassword, String newPassword, int userId) {
+    return driver.replaceUserPassword(oldPassword, newPassword, userId);
+  }
+
   static boolean driverUpdateUserMessageState(int messageId) {
     return driver.updateUserMessageState(messageId);
   }
 
+  static boolean[] driverUpdateInterestRun(int runId, int lastAccountId, int[] accountIds,
+                                           long[] interests, int[] messageAccounts,
+                                           int[] messageUserIds, int messageTemplateId,
+                                           String[] messageParameters) {
+    try {
+      return driver.updateInterestRun(runId, lastAccountId, accountIds, interests,
+              messageAccounts, messageUserIds, messageTemplateId, messageParameters);
+    } finally {
+      for (int accountId : accountIds) {
+        AccountCache.invalidate(accountId);
+      }
+    }
+  }
+
+  static boolean driverUpdateInterestRunComplete(int runId) {
+    return driver.updateInterestRunComplete(runId);
+  }
+
+  /* <!--------------------------- DRIVER TRANSACTION METHODS ----------------------------> */
+
+  static void driverBeginTransaction() {
+    driver.beginTransaction();
+  }
+
+  static void driverSetTransactionSuccessful() {
+    driver.setTransactionSuccessful();
+  }
+
+  static void driverEndTransaction() {
+    try {
+      driver.endTransaction();
+    } finally {
+      // accounts read inside the transaction may have been rolled back, or read before it
+      // committed
+      AccountCache.invalidateAll();
+      if (referenceDataStale && !driver.inTransaction()) {
+        referenceDataStale = false;
+        ReferenceData.reload();
+      }
+    }
+  }
+
+  /**
+   * Reads the reference data again after a role or account type was written. Inside a
+   * transaction the write may still be rolled back, so the committed copy is kept until the
+   * outermost transaction ends.
+   */
+  private static void reloadReferenceData() {
+    if (driver.inTransaction()) {
+      referenceDataStale = true;
+    } else {
+      ReferenceData.reload();
+    }
+  }
+
 }
@@ -1,6 +1,13 @@
 package com.bank.databasehelper;
 
+import com.bank.accounts.Money;
+import com.bank.generics.AccountTypes;
+import com.bank.generics.AccountTypesEnumMap;
+import com.bank.generics.Roles;
+import com.bank.generics.RolesEnumMap;
+import com.bank.messages.MessageTemplate;
 import java.math.BigDecimal;
+import java.util.Collection;
 
 /**
  * Helper methods for inserting new data into the database tables. Starter code by Joe Bettridge.
@@ -15,7 +22,7 @@ public class DatabaseInsertHelper {
    * @param typeId the account type ID number of the account
    * @return <code>true</code> if all arguments are valid
    */
-  private static boolean validAccountInfo(String name, BigDecimal balance, int typeId) {
+  private static boolean validAccountInfo(String name, Money balance, int typeId) {
     boolean validBalance = DatabaseValidHelper.validBalance(balance, typeId);
     boolean validTypeId = DatabaseValidHelper.validAccountTypeId(typeId);
     return !name.isEmpty() && validBalance && validTypeId;
@@ -30,6 +37,22 @@ public class DatabaseInsertHelper {
    * @return the account ID number, -1 otherwise
    */
   public static int insertAccount(String name, BigDecimal balance, int typeId) {
+    // amounts past two decimal places can not be held in cents
+    if (balance != null && Money.isExact(balance)) {
+      return insertAccount(name, Money.of(balance), typeId);
+    }
+    return DatabaseValidHelper.INVALID_ID;
+  }
+
+  /**
+   * Connects and inserts a new entry into the Accounts table, and returns the account ID number.
+   * 
+   * @param name the name of the account
+   * @param balance the balance that this account holds
+   * @param typeId the type ID number of the account
+   * @return the account ID number, -1 otherwise
+   */
+  public static int insertAccount(String name, Money balance, int typeId) {
     // check if inputs are valid
     if (validAccountInfo(name, balance, typeId)) {
       // establish connection to database and insert to table
@@ -124,7 +147,10 @@ public class DatabaseInsertHelper {
       // check for uniqueness
       if (!DatabaseSelectHelper.getAccountIds(userId).contains(accountId)) {
         // establish connection to database and insert to table
-        return DatabaseDriverHelper.driverInsertUserAccount(userId, accountId);
+        int result = DatabaseDriverHelper.driverInsertUserAccount(userId, accountId);
+        // ownership held in memory by any session is now out of date
+        OwnershipCache.invalidateAll();
+        return result;
       }
     }
     return DatabaseValidHelper.INVALID_ID;
@@ -147,4 +173,114 @@ public class DatabaseInsertHelper {
     return DatabaseValidHelper.INVALID_ID;
   }
 
+  /**
+   * Connects and leaves the message for every user of the given role, in one transaction. The
+   * text is stored once however many users it is left for. Returns the number of users the
+   * message was left for.
+   *
+   * @param role the role of the users to leave the message for
+   * @param message the message to leave
+   * @return the number of recipients, 0 if the message is invalid
+   */
+  public static int insertBroadcast(Roles role, String message) {
+    int roleId = role == null ? DatabaseValidHelper.INVALID_ID : RolesEnumMap.getRoleId(role);
+    if (roleId >= DatabaseValidHelper.MIN_ID && DatabaseValidHelper.validMessage(message)) {
+      return DatabaseDriverHelper.driverInsertBroadcastToRole(message, roleId);
+    }
+    return 0;
+  }
+
+  /**
+   * Connects and leaves the message for every owner of an account of the given type, in one
+   * transaction. Owners of more than one such account are sent it once. Returns the number of
+   * users the message was left for.
+   *
+   * @param accountType the type of the accounts whose owners to leave the message for
+   * @param message the message to leave
+   * @return the number of recipients, 0 if the message is invalid
+   */
+  public static int insertBroadcast(AccountTypes accountType, String message) {
+    return insertBroadcast(accountType, null, message);
+  }
+
+  /**
+   * Connects and leaves the message for every owner of an account of the given type who has the
+   * given role, in one transaction. Owners of more than one such account are sent it once.
+   * Returns the number of users the message was left for.
+   *
+   * @param accountType the type of the accounts whose owners to leave the message for
+   * @param role the role the owners must have, <code>null</code> for any role
+   * @param message the message to leave
+   * @return the number of recipients, 0 if the message is invalid
+   */
+  public static int insertBroadcast(AccountTypes accountType, Roles role, String message) {
+    int typeId = accountType == null ? DatabaseValidHelper.INVALID_ID
+            : AccountTypesEnumMap.getAccountTypeId(accountType);
+    int roleId = role == null ? DatabaseValidHelper.INVALID_ID : RolesEnumMap.getRoleId(role);
+    if (role != null && roleId < DatabaseValidHelper.MIN_ID) {
+      return 0;
+    }
+    if (typeId >= DatabaseValidHelper.MIN_ID && DatabaseValidHelper.validMessage(message)) {
+      return DatabaseDriverHelper.driverInsertBroadcastToAccountType(message, typeId, roleId);
+    }
+    return 0;
+  }
+
+  /**
+   * Connects and leaves the message for every user with an ID in userIds, in one transaction.
+   * IDs of users that do not exist are skipped. Returns the number of users the message was left
+   * for.
+   *
+   * @param userIds the IDs of the users to leave the message for
+   * @param message the message to leave
+   * @return the number of recipients, 0 if the message is invalid
+   */
+  public static int insertBroadcast(Collection<Integer> userIds, String message) {
+    return insertBroadcast(userIds, null, message);
+  }
+
+  /**
+   * Connects and leaves the message for every user with an ID in userIds who has the given role,
+   * in one transaction. Returns the number of users the message was left for.
+   *
+   * @param userIds the IDs of the users to leave the message for
+   * @param role the role the users must have, <code>null</code> for any role
+   * @param message the message to leave
+   * @return the number of recipients, 0 if the message is invalid
+   */
+  public static int insertBroadcast(Collection<Integer> userIds, Roles role, String message) {
+    if (userIds == null || userIds.isEmpty() || !DatabaseValidHelper.validMessage(message)) {
+      return 0;
+    }
+    int roleId = role == null ? DatabaseValidHelper.INVALID_ID : RolesEnumMap.getRoleId(role);
+    if (role != null && roleId < DatabaseValidHelper.MIN_ID) {
+      return 0;
+    }
+    int[] ids = new int[userIds.size()];
+    int i = 0;
+    for (int userId : userIds) {
+      ids[i++] = userId;
+    }
+    return DatabaseDriverHelper.driverInsertBroadcastToUsers(message, ids, roleId);
+  }
+
+  /**
+   * Connects and inserts a message for the user of userId, stored as the template and its
+   * parameters rather than as text. Returns the message ID if the insertion was successful,
+   * otherwise returns -1.
+   *
+   * @param userId a user ID number
+   * @param template the template of the message
+   * @param parameters the parameters of the template, ID numbers and amounts in cents
+   * @return the message ID of the inserted message
+   */
+  public static int insertMessage(int userId, MessageTemplate template, long... parameters) {
+    // check if user exists
+    if (DatabaseValidHelper.userExists(userId) && template != null) {
+      return DatabaseDriverHelper.driverInsertTemplateMessage(userId, template.getCode(),
+              template.encode(parameters));
+    }
+    return DatabaseValidHelper.INVALID_ID;
+  }
+
 }
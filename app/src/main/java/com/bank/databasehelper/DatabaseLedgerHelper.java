@@ -0,0 +1,93 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.accounts.Money;
+import com.bank.ledger.LedgerEntry;
+import com.bank.ledger.LedgerEntryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods for reading the ledger, the append-only journal of every change made to an
+ * account balance. Past balances are rebuilt from the nearest balance snapshot rather than from
+ * the whole history, and statements and audits are read as ranges of an index.
+ */
+public class DatabaseLedgerHelper {
+
+  /**
+   * Returns the balance of the account with ID number accountId as it was at the given time.
+   * Balances from before the ledger was created are only known from then on.
+   *
+   * @param accountId an account ID number
+   * @param time a time in milliseconds since the epoch
+   * @return the balance at that time, <code>null</code> if the account does not exist
+   */
+  public static Money getBalanceAt(int accountId, long time) {
+    Money balance = null;
+    if (DatabaseValidHelper.accountExists(accountId)) {
+      balance = DatabaseDriverHelper.driverGetBalanceAt(accountId, time);
+    }
+    return balance;
+  }
+
+  /**
+   * Returns the statement of the account with ID number accountId: every ledger entry written on
+   * it from fromTime up to but not including toTime, oldest first.
+   *
+   * @param accountId an account ID number
+   * @param fromTime the start of the statement in milliseconds since the epoch, inclusive
+   * @param toTime the end of the statement in milliseconds since the epoch, exclusive
+   * @return the ledger entries, empty if the account does not exist
+   */
+  public static List<LedgerEntry> getStatement(int accountId, long fromTime, long toTime) {
+    List<LedgerEntry> entries = new ArrayList<>();
+    if (DatabaseValidHelper.accountExists(accountId) && fromTime < toTime) {
+      Cursor cursor = DatabaseDriverHelper.driverGetLedgerEntries(accountId, fromTime, toTime);
+      readEntries(cursor, entries);
+    }
+    return entries;
+  }
+
+  /**
+   * Returns the audit trail of the bank: every ledger entry written on any account from fromTime
+   * up to but not including toTime, oldest first.
+   *
+   * @param fromTime the start of the range in milliseconds since the epoch, inclusive
+   * @param toTime the end of the range in milliseconds since the epoch, exclusive
+   * @return the ledger entries
+   */
+  public static List<LedgerEntry> getAuditTrail(long fromTime, long toTime) {
+    List<LedgerEntry> entries = new ArrayList<>();
+    if (fromTime < toTime) {
+      Cursor cursor = DatabaseDriverHelper.driverGetLedgerEntries(fromTime, toTime);
+      readEntries(cursor, entries);
+    }
+    return entries;
+  }
+
+  /**
+   * Reads every ledger entry of the cursor into the list, and closes the cursor.
+   *
+   * @param cursor a cursor over rows of the Ledger table, may be <code>null</code>
+   * @param entries the list to add the entries to
+   */
+  private static void readEntries(Cursor cursor, List<LedgerEntry> entries) {
+    if (cursor == null) {
+      return;
+    }
+    int sequenceColumn = cursor.getColumnIndex("SEQ");
+    int accountIdColumn = cursor.getColumnIndex("ACCOUNTID");
+    int typeColumn = cursor.getColumnIndex("TYPE");
+    int amountColumn = cursor.getColumnIndex("AMOUNT");
+    int referenceColumn = cursor.getColumnIndex("REFERENCE");
+    int createdColumn = cursor.getColumnIndex("CREATED");
+    while (cursor.moveToNext()) {
+      entries.add(new LedgerEntry(cursor.getLong(sequenceColumn), cursor.getInt(accountIdColumn),
+              LedgerEntryType.fromCode(cursor.getInt(typeColumn)),
+              Money.ofCents(cursor.getLong(amountColumn)), cursor.getLong(referenceColumn),
+              cursor.getLong(createdColumn)));
+    }
+    cursor.close();
+  }
+
+}
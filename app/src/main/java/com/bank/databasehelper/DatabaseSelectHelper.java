@@ -3,17 +3,20 @@ package com.bank.databasehelper;
 import android.database.Cursor;
 import com.bank.accounts.Account;
 import com.bank.accounts.AccountBuilder;
+import com.bank.accounts.Money;
 import com.bank.accounts.SolidAccountBuilder;
 import com.bank.generics.AccountTypes;
 import com.bank.generics.AccountTypesEnumMap;
 import com.bank.generics.Roles;
 import com.bank.generics.RolesEnumMap;
 import com.bank.messages.Message;
+import com.bank.messages.MessageTemplate;
 import com.bank.users.SolidUserBuilder;
 import com.bank.users.User;
 import com.bank.users.UserBuilder;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -22,21 +25,19 @@ import java.util.List;
 public class DatabaseSelectHelper {
 
   /**
-   * Connects to database and returns the role name with the ID number id.
+   * The message ID to read the first page of an inbox with.
+   */
+  public static final int FIRST_MESSAGE_PAGE = Integer.MAX_VALUE;
+
+  /**
+   * Returns the role name with the ID number id, from the reference data held in memory.
    * 
    * @param roleId the role's ID number
-   * @return the role name
+   * @return the role name, an empty string if there is no such role
    */
   public static String getRole(int roleId) {
-    // declare role to return
-    String role = "";
-    // check if id is valid
-    if (DatabaseValidHelper.validId(roleId)) {
-      // get info from database
-      role = DatabaseDriverHelper.driverGetRole(roleId);
-    }
-    // return role of user with ID id
-    return role;
+    String role = ReferenceData.get().getRoleName(roleId);
+    return role != null ? role : "";
   }
 
   /**
@@ -85,12 +86,12 @@ public class DatabaseSelectHelper {
         } while (cursor.moveToNext());
         cursor.close();
         // create user object based on roleId
-        String role = getRole(roleId);
-        UserBuilder builder = new SolidUserBuilder(role);
+        UserBuilder builder = new SolidUserBuilder(getRoleName(roleId));
         user = builder.setId(userId)
                 .setName(name)
                 .setAge(age)
                 .setAddress(address)
+                .setRoleId(roleId)
                 .buildUser();
       }
     }
@@ -98,6 +99,37 @@ public class DatabaseSelectHelper {
     return user;
   }
 
+  /**
+   * Connects to database and returns a user with only its ID and role set, for checking who a
+   * user is without reading the rest of their details. Returns <code>null</code> if userId is
+   * invalid.
+   * 
+   * @param userId a user ID number
+   * @return the user with ID number userId, <code>null</code> if invalid userId
+   */
+  public static User getUserProjection(int userId) {
+    User user = null;
+    int roleId = getUserRole(userId);
+    if (roleId != DatabaseValidHelper.INVALID_ID) {
+      String role = getRoleName(roleId);
+      if (role != null) {
+        user = new SolidUserBuilder(role).setId(userId).setRoleId(roleId).buildUser();
+      }
+    }
+    return user;
+  }
+
+  /**
+   * Returns the name of the role with the role ID, from the roles already loaded if possible.
+   *
+   * @param roleId a role ID number
+   * @return the name of the role
+   */
+  private static String getRoleName(int roleId) {
+    String role = RolesEnumMap.getRoleName(roleId);
+    return role != null ? role : getRole(roleId);
+  }
+
   /**
    * Connects to database and returns a list of account ID numbers held by user with the user ID
    * number userId. Returns <code>null</code> if userId is invalid.
@@ -133,29 +165,15 @@ public class DatabaseSelectHelper {
   public static Account getAccountDetails(int accountId) {
     // declare account to return
     Account account = null;
-    // check if account ID is valid
-    if (DatabaseValidHelper.accountExists(accountId)) {
-      // declare variables to hold account data
-      String name = "";
-      BigDecimal balance = null;
-      int accountType = DatabaseValidHelper.INVALID_ID;
-      // get data from database
-      Cursor cursor = DatabaseDriverHelper.driverGetAccountDetails(accountId);
-      if (cursor != null && cursor.moveToFirst() && cursor.getCount() > 0) {
-        do {
-          name = cursor.getString(cursor.getColumnIndex("NAME"));
-          balance = new BigDecimal(cursor.getString(cursor.getColumnIndex("BALANCE")));
-          accountType = cursor.getInt(cursor.getColumnIndex("TYPE"));
-        } while (cursor.moveToNext());
-        cursor.close();
-        // create account object based on accountTypeId
-        String typeName = getAccountTypeName(accountType);
-        AccountBuilder builder = new SolidAccountBuilder(typeName);
-        account = builder.setId(accountId)
-                .setName(name)
-                .setBalance(balance)
-                .buildAccount();
-      }
+    AccountCache.Entry entry = findAccount(accountId);
+    if (entry != null) {
+      // create account object based on accountTypeId
+      AccountBuilder builder = new SolidAccountBuilder(entry.typeName);
+      account = builder.setId(accountId)
+              .setName(entry.name)
+              .setBalance(entry.balance)
+              .setType(entry.type)
+              .buildAccount();
     }
     // return account object
     return account;
@@ -168,34 +186,50 @@ public class DatabaseSelectHelper {
    * @param accountId an account ID number
    * @return the balance of account with ID accountId, <code>null</code> if invalid accountId
    */
-  public static BigDecimal getBalance(int accountId) {
-    // declare balance to return
-    BigDecimal balance = null;
-    // check if account ID is valid
-    if (DatabaseValidHelper.accountExists(accountId)) {
-      // get data from database
-      balance = DatabaseDriverHelper.driverGetBalance(accountId);
+  public static Money getBalance(int accountId) {
+    AccountCache.Entry entry = findAccount(accountId);
+    return entry == null ? null : entry.balance;
+  }
+
+  /**
+   * Returns the row of the account from the account cache, reading it from the database if it is
+   * not held.
+   *
+   * @param accountId an account ID number
+   * @return the account's row, <code>null</code> if there is no such account
+   */
+  private static AccountCache.Entry findAccount(int accountId) {
+    if (!DatabaseValidHelper.validId(accountId)) {
+      return null;
+    }
+    AccountCache.Entry entry = AccountCache.get(accountId);
+    if (entry != null) {
+      return entry;
+    }
+    long version = AccountCache.version();
+    Cursor cursor = DatabaseDriverHelper.driverGetAccountDetails(accountId);
+    if (cursor != null) {
+      if (cursor.moveToFirst()) {
+        String name = cursor.getString(cursor.getColumnIndex("NAME"));
+        Money balance = Money.ofCents(cursor.getLong(cursor.getColumnIndex("BALANCE")));
+        int accountType = cursor.getInt(cursor.getColumnIndex("TYPE"));
+        entry = new AccountCache.Entry(name, balance, accountType,
+                getAccountTypeName(accountType));
+        AccountCache.put(accountId, entry, version);
+      }
+      cursor.close();
     }
-    // return balance
-    return balance;
+    return entry;
   }
 
   /**
-   * Connects to database and returns the interest rate of the given account type.
+   * Returns the interest rate of the given account type, from the reference data held in memory.
    * 
    * @param accountType an account type number
-   * @return the interest rate of the account type
+   * @return the interest rate of the account type, <code>null</code> if there is no such type
    */
   public static BigDecimal getInterestRate(int accountType) {
-    // declare interest rate to return
-    BigDecimal interestRate = null;
-    // check if account type ID is valid
-    if (DatabaseValidHelper.validAccountTypeId(accountType)) {
-      // get data from database
-      interestRate = DatabaseDriverHelper.driverGetInterestRate(accountType);
-    }
-    // return interest rate
-    return interestRate;
+    return ReferenceData.get().getInterestRate(accountType);
   }
 
   /**
@@ -204,36 +238,19 @@ public class DatabaseSelectHelper {
    * @return a list of all account type IDs
    */
   public static List<Integer> getAccountTypesIds() {
-    // declare list to return
-    List<Integer> ids = new ArrayList<>();
-    // build list of account type IDs
-    Cursor cursor = DatabaseDriverHelper.driverGetAccountTypesId();
-    if (cursor != null && cursor.moveToFirst() && cursor.getCount() > 0) {
-      do {
-        ids.add(cursor.getInt(cursor.getColumnIndex("ID")));
-      } while (cursor.moveToNext());
-      cursor.close();
-    }
-    // return a list of account type IDs
-    return ids;
+    return toList(ReferenceData.get().getAccountTypeIds());
   }
 
   /**
-   * Connects to database and returns the account type name from the given account type ID number.
+   * Returns the account type name from the given account type ID number, from the reference data
+   * held in memory.
    * 
    * @param accountTypeId an account type ID number
-   * @return the name of the account type
+   * @return the name of the account type, an empty string if there is no such type
    */
   public static String getAccountTypeName(int accountTypeId) {
-    // declare name to return
-    String accountTypeName = "";
-    // check if input is valid
-    if (DatabaseValidHelper.validAccountTypeId(accountTypeId)) {
-      // get data from database
-      accountTypeName = DatabaseDriverHelper.driverGetAccountTypeName(accountTypeId);
-    }
-    // return account type name
-    return accountTypeName;
+    String accountTypeName = ReferenceData.get().getAccountTypeName(accountTypeId);
+    return accountTypeName != null ? accountTypeName : "";
   }
 
   /**
@@ -242,18 +259,21 @@ public class DatabaseSelectHelper {
    * @return a list of role ID numbers
    */
   public static List<Integer> getRoles() {
-    // declare list to return
-    List<Integer> ids = new ArrayList<>();
-    // build list of role IDs
-    Cursor cursor = DatabaseDriverHelper.driverGetRoles();
-    if (cursor != null && cursor.moveToFirst() && cursor.getCount() > 0) {
-      do {
-        ids.add(cursor.getInt(cursor.getColumnIndex("ID")));
-      } while (cursor.moveToNext());
-      cursor.close();
+    return toList(ReferenceData.get().getRoleIds());
+  }
+
+  /**
+   * Returns the ID numbers as a new list.
+   *
+   * @param ids the ID numbers
+   * @return a list the caller may change
+   */
+  private static List<Integer> toList(int[] ids) {
+    List<Integer> list = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      list.add(id);
     }
-    // return a list of role IDs
-    return ids;
+    return list;
   }
 
   /**
@@ -263,7 +283,8 @@ public class DatabaseSelectHelper {
    * @return the account type number of the account with ID accountId
    */
   public static int getAccountType(int accountId) {
-    return DatabaseDriverHelper.driverGetAccountType(accountId);
+    AccountCache.Entry entry = findAccount(accountId);
+    return entry == null ? DatabaseValidHelper.INVALID_ID : entry.type;
   }
 
   /**
@@ -308,20 +329,90 @@ public class DatabaseSelectHelper {
     List<Message> messages = new ArrayList<>();
     // build list of account type IDs
     Cursor cursor = DatabaseDriverHelper.driverGetAllMessages(userId);
-    if (cursor != null && cursor.moveToFirst() && cursor.getCount() > 0) {
-      do {
-        int msgId = cursor.getInt(cursor.getColumnIndex("ID"));
-        String msg = cursor.getString(cursor.getColumnIndex("MESSAGE"));
-        boolean viewed = cursor.getInt(cursor.getColumnIndex("VIEWED")) == 1;
-        Message msgObject = new Message(msgId, userId, msg, viewed);
-        messages.add(msgObject);
-      } while (cursor.moveToNext());
-      cursor.close();
-    }
+    readMessages(cursor, userId, messages);
     // return list of message objects
     return messages;
   }
 
+  /**
+   * Connects to database and returns one page of the inbox of the user of userId, newest message
+   * first. The first page is read with {@link #FIRST_MESSAGE_PAGE}, and each page after it with
+   * the ID of the last message of the page before.
+   *
+   * @param userId a user ID number
+   * @param beforeMessageId only messages with a lower ID than this are returned
+   * @param limit the most messages to return
+   * @return up to limit message objects for the user, fewer only on the last page
+   */
+  public static List<Message> getMessagesPage(int userId, int beforeMessageId, int limit) {
+    List<Message> messages = new ArrayList<>();
+    if (limit <= 0) {
+      return messages;
+    }
+    Cursor cursor = DatabaseDriverHelper.driverGetMessagesBefore(userId, beforeMessageId, limit);
+    readMessages(cursor, userId, messages);
+    return messages;
+  }
+
+  /**
+   * Reads every message of the cursor into the list, and closes the cursor.
+   *
+   * @param cursor a cursor over messages of the user, may be <code>null</code>
+   * @param userId the ID of the user the messages were left for
+   * @param messages the list to add the messages to
+   */
+  private static void readMessages(Cursor cursor, int userId, List<Message> messages) {
+    if (cursor == null) {
+      return;
+    }
+    int idColumn = cursor.getColumnIndex("ID");
+    int viewedColumn = cursor.getColumnIndex("VIEWED");
+    while (cursor.moveToNext()) {
+      messages.add(new Message(cursor.getInt(idColumn), userId, readMessageText(cursor),
+              cursor.getInt(viewedColumn) == 1));
+    }
+    cursor.close();
+  }
+
+  /**
+   * Returns the text of the message at the cursor's current row, filling in its template if it
+   * has one.
+   *
+   * @param cursor a cursor positioned on a message
+   * @return the message text, <code>null</code> if its template is unknown
+   */
+  private static String readMessageText(Cursor cursor) {
+    int templateColumn = cursor.getColumnIndex("TEMPLATEID");
+    if (cursor.isNull(templateColumn)) {
+      return cursor.getString(cursor.getColumnIndex("BODY"));
+    }
+    MessageTemplate template = MessageTemplate.fromCode(cursor.getInt(templateColumn));
+    if (template == null) {
+      return null;
+    }
+    return template.render(cursor.getString(cursor.getColumnIndex("PARAMS")));
+  }
+
+  /**
+   * Connects to database and returns the number of messages left for the user of userId.
+   *
+   * @param userId a user ID number
+   * @return the number of messages
+   */
+  public static int getMessageCount(int userId) {
+    return DatabaseDriverHelper.driverGetMessageCount(userId);
+  }
+
+  /**
+   * Connects to database and returns the number of messages the user of userId has not viewed.
+   *
+   * @param userId a user ID number
+   * @return the number of unread messages
+   */
+  public static int getUnreadMessageCount(int userId) {
+    return DatabaseDriverHelper.driverGetUnreadMessageCount(userId);
+  }
+
   /**
    * Connects to database and returns the message with the respective message ID. Returns
    * <code>null</code> if message ID is invalid.
@@ -330,7 +421,15 @@ public class DatabaseSelectHelper {
    * @return the message denoted by messageId
    */
   public static String getSpecificMessage(int messageId) {
-    return DatabaseDriverHelper.driverGetSpecificMessage(messageId);
+    String message = null;
+    Cursor cursor = DatabaseDriverHelper.driverGetSpecificMessage(messageId);
+    if (cursor != null) {
+      if (cursor.moveToFirst()) {
+        message = readMessageText(cursor);
+      }
+      cursor.close();
+    }
+    return message;
   }
 
   /**
@@ -359,10 +458,18 @@ public class DatabaseSelectHelper {
    * @return a list of all users
    */
   public static List<User> getAllUsers() {
+    return readUsers(DatabaseDriverHelper.driverGetUsersDetails());
+  }
+
+  /**
+   * Builds a user from every row of the cursor, then closes it.
+   *
+   * @param cursor a cursor over rows of the Users table
+   * @return a list of the users
+   */
+  private static List<User> readUsers(Cursor cursor) {
     // clear list of users to return
     List<User> allUsers = new ArrayList<>();
-    // get cursor from database
-    Cursor cursor = DatabaseDriverHelper.driverGetUsersDetails();
     if (cursor != null && cursor.moveToFirst() && cursor.getCount() > 0) {
       do {
         // get user details
@@ -371,17 +478,20 @@ public class DatabaseSelectHelper {
         int age = cursor.getInt(cursor.getColumnIndex("AGE"));
         String address = cursor.getString(cursor.getColumnIndex("ADDRESS"));
         int roleId = cursor.getInt(cursor.getColumnIndex("ROLEID"));
-        String role = DatabaseSelectHelper.getRole(roleId);
         // build the user and add to list
-        UserBuilder builder = new SolidUserBuilder(role);
+        UserBuilder builder = new SolidUserBuilder(getRoleName(roleId));
         User user = builder.setId(userId)
                             .setName(name)
                             .setAge(age)
                             .setAddress(address)
+                            .setRoleId(roleId)
                             .buildUser();
         allUsers.add(user);
       } while (cursor.moveToNext());
     }
+    if (cursor != null) {
+      cursor.close();
+    }
     return allUsers;
   }
 
@@ -392,18 +502,59 @@ public class DatabaseSelectHelper {
    * @return a list of users of the inputed role
    */
   public static List<User> getAllUsers(Roles role) {
-    List<User> allUsers = new ArrayList<>();
     int roleId = RolesEnumMap.getRoleId(role);
-    int userId = DatabaseValidHelper.MIN_ID;
-    // continue looping as long as there's a user with id existing in the database
-    while (DatabaseValidHelper.userExists(userId)) {
-      // check that the role matches the given and add to array list
-      if (getUserRole(userId) == roleId) {
-        allUsers.add(getUserDetails(userId));
-      }
-      userId++;
-    }
-    return allUsers;
+    return readUsers(DatabaseDriverHelper.driverGetUsersDetails(roleId));
+  }
+
+  /**
+   * Returns the users of the given role that do not own the given account, in one query.
+   *
+   * @param role the role of the users to return
+   * @param accountId the ID number of the account
+   * @return a list of users of the role that do not own the account
+   */
+  public static List<User> getUsersNotOwning(Roles role, int accountId) {
+    int roleId = RolesEnumMap.getRoleId(role);
+    return readUsers(DatabaseDriverHelper.driverGetUsersNotOwning(roleId, accountId));
+  }
+
+  /**
+   * Returns the number of users of the given role.
+   *
+   * @param role the role of the users to count
+   * @return the number of users of the role
+   */
+  public static int getUserCount(Roles role) {
+    return DatabaseDriverHelper.driverGetUserCount(RolesEnumMap.getRoleId(role));
+  }
+
+  /**
+   * Returns a page of the users of the given role in ID order, starting after the given user.
+   * To read the next page, pass the ID of the last user of the page before.
+   *
+   * @param role the role of the users to return
+   * @param afterUserId only users with a higher ID than this are returned
+   * @param limit the most users to return
+   * @return up to limit users of the role, fewer only on the last page
+   */
+  public static List<User> getUsersPage(Roles role, int afterUserId, int limit) {
+    int roleId = RolesEnumMap.getRoleId(role);
+    return readUsers(DatabaseDriverHelper.driverGetUsersDetails(roleId, afterUserId, limit));
+  }
+
+  /**
+   * Returns a page of the users of the given role in ID order, starting at the given position.
+   * Skipping to a position costs a scan of the users before it, so {@link #getUsersPage} is
+   * preferred when the last user of the page before is known.
+   *
+   * @param role the role of the users to return
+   * @param offset the position of the first user to return
+   * @param limit the most users to return
+   * @return up to limit users of the role, fewer only on the last page
+   */
+  public static List<User> getUsersPageAt(Roles role, int offset, int limit) {
+    int roleId = RolesEnumMap.getRoleId(role);
+    return readUsers(DatabaseDriverHelper.driverGetUsersDetailsAt(roleId, offset, limit));
   }
 
   /**
@@ -413,12 +564,9 @@ public class DatabaseSelectHelper {
    */
   public static List<Account> getAllAccounts() {
     List<Account> allAccounts = new ArrayList<>();
-    int accountId = DatabaseValidHelper.MIN_ID;
-    // all ids are incremental, so continue by steps of 1 until
-    // there are no such accounts in the database
-    while (DatabaseValidHelper.accountExists(accountId)) {
-      // check if the account type matches the account
-      allAccounts.add(getAccountDetails(accountId++));
+    Iterator<Account> accounts = iterateAllAccounts();
+    while (accounts.hasNext()) {
+      allAccounts.add(accounts.next());
     }
     return allAccounts;
   }
@@ -431,18 +579,82 @@ public class DatabaseSelectHelper {
    */
   public static List<Account> getAllAccounts(AccountTypes accountType) {
     List<Account> allAccounts = new ArrayList<>();
-    int typeId = AccountTypesEnumMap.getAccountTypeId(accountType);
-    int accountId = DatabaseValidHelper.MIN_ID;
-    // all ids are incremental, so continue by steps of 1 until
-    // there are no such accounts in the database
-    while (DatabaseValidHelper.accountExists(accountId)) {
-      // check if the account type matches the account
-      if (getAccountType(accountId) == typeId) {
-        allAccounts.add(getAccountDetails(accountId));
-      }
-      accountId++;
+    Iterator<Account> accounts = iterateAllAccounts(accountType);
+    while (accounts.hasNext()) {
+      allAccounts.add(accounts.next());
     }
     return allAccounts;
   }
 
+  /**
+   * Returns an iterator over all accounts in the database, in account ID order. Accounts are
+   * loaded a page at a time, so the whole bank is never held in memory at once.
+   *
+   * @return an iterator over all accounts
+   */
+  public static AccountIterator iterateAllAccounts() {
+    return new AccountIterator();
+  }
+
+  /**
+   * Returns an iterator over all accounts of the specified type, in account ID order.
+   *
+   * @param accountType the Account type
+   * @return an iterator over all accounts of that type
+   */
+  public static AccountIterator iterateAllAccounts(AccountTypes accountType) {
+    return new AccountIterator(AccountTypesEnumMap.getAccountTypeId(accountType));
+  }
+
+  /**
+   * Returns the number of accounts in the database.
+   *
+   * @return the number of accounts
+   */
+  public static int getAccountCount() {
+    return DatabaseDriverHelper.driverGetAccountCount();
+  }
+
+  /**
+   * Returns a page of the accounts in the database in ID order, starting after the given
+   * account. To read the next page, pass the ID of the last account of the page before.
+   *
+   * @param afterAccountId only accounts with a higher ID than this are returned
+   * @param limit the most accounts to return
+   * @return up to limit accounts, fewer only on the last page
+   */
+  public static List<Account> getAccountsPage(int afterAccountId, int limit) {
+    return readAccounts(DatabaseDriverHelper.driverGetAccountsDetails(afterAccountId, limit));
+  }
+
+  /**
+   * Returns a page of the accounts in the database in ID order, starting at the given position.
+   * Skipping to a position costs a scan of the accounts before it, so {@link #getAccountsPage}
+   * is preferred when the last account of the page before is known.
+   *
+   * @param offset the position of the first account to return
+   * @param limit the most accounts to return
+   * @return up to limit accounts, fewer only on the last page
+   */
+  public static List<Account> getAccountsPageAt(int offset, int limit) {
+    return readAccounts(DatabaseDriverHelper.driverGetAccountsDetailsAt(offset, limit));
+  }
+
+  /**
+   * Builds an account from every row of a cursor over accounts joined with their types, then
+   * closes it.
+   *
+   * @param cursor a cursor over joined account rows
+   * @return a list of the accounts
+   */
+  private static List<Account> readAccounts(Cursor cursor) {
+    List<Account> accounts = new ArrayList<>();
+    AccountRows rows = new AccountRows(cursor);
+    while (cursor.moveToNext()) {
+      accounts.add(rows.read(cursor));
+    }
+    cursor.close();
+    return accounts;
+  }
+
 }
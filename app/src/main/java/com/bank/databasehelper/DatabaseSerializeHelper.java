@@ -1,23 +1,23 @@
 package com.bank.databasehelper;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 
-import com.bank.accounts.Account;
 import com.bank.databasehelper.DatabaseDeserializeUserInfo;
 import com.bank.databasehelper.DatabaseDriver;
-import com.bank.generics.AccountTypes;
-import com.bank.generics.Roles;
-import com.bank.messages.Message;
-import com.bank.users.User;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class DatabaseSerializeHelper extends DatabaseDeserializeUserInfo {
 
@@ -26,6 +26,21 @@ public class DatabaseSerializeHelper extends DatabaseDeserializeUserInfo {
    */
   private static DatabaseSerializeHelper driver = null;
 
+  /**
+   * The file the snapshot of the database is kept in.
+   */
+  private static final String SNAPSHOT_FILE = "database_copy.snapshot";
+
+  /**
+   * The start of the name of each file of the chain of diffs, followed by its place in it.
+   */
+  private static final String DIFF_FILE_PREFIX = "database_copy.diff.";
+
+  /**
+   * Counts the bytes of the backup being written, or of the last one written.
+   */
+  private static volatile BackupThroughput backupThroughput = null;
+
   /**
    * Creates a driver helper to open, read, or update a database.
    *
@@ -53,134 +68,290 @@ public class DatabaseSerializeHelper extends DatabaseDeserializeUserInfo {
   public static DatabaseSerializeHelper updateNewDatabase(Context context) {
     driver = new DatabaseSerializeHelper(context);
     SQLiteDatabase db = driver.getReadableDatabase();
-    driver.onUpgrade(db, 1, 2);
+    driver.resetDatabase(db);
     db.close();
+    AccountCache.invalidateAll();
+    ReferenceData.reload();
     return driver;
   }
 
   /**
-   * Serializes the database data into a new file called "database_copy.ser".
+   * Writes a full backup of the database into a file called "database_copy.snapshot".
    *
    * @return boolean true if it has completed, false otherwise
    */
   public static boolean serializeDatabase(Context context) {
-    try {
-      FileOutputStream file = context.openFileOutput("database_copy.ser", Context.MODE_PRIVATE);
-      ObjectOutputStream output = new ObjectOutputStream(file);
-
-      // Writes the roleId and role Names in the file
-      for (Integer roleId : DatabaseSelectHelper.getRoles()) {
-        output.writeObject(DatabaseSelectHelper.getRole(roleId));
-      }
-
-      // Writes the accountTypeIds and accountTypeNames in the file
-      for (Integer accountTypeId : DatabaseSelectHelper.getAccountTypesIds()) {
-        output.writeObject(DatabaseSelectHelper.getAccountTypeName(accountTypeId));
-        output.writeObject(DatabaseSelectHelper.getInterestRate(accountTypeId));
-      }
-
-      // Writes each User into the file with all of their unique information and accounts
-      for (User user : DatabaseSelectHelper.getAllUsers()) {
-        output.writeObject(user);
-        output.writeObject(DatabaseSelectHelper.getPassword(user.getId()));
+    return serializeDatabase(context, BackupType.FULL);
+  }
 
-        // Writes each Message correlated to the specified User
-        for (Message message : DatabaseSelectHelper.getAllMessages(user.getId())) {
-          output.writeObject(message);
+  /**
+   * Backs up the database. A full backup writes a snapshot of every table into
+   * "database_copy.snapshot" and starts a new chain of diffs. An incremental backup adds a diff
+   * of the rows changed since the last backup to the chain, and a differential backup replaces
+   * the chain with a diff of the rows changed since the last full backup. If there is no full
+   * backup yet, a full backup is written whatever type is asked for.
+   *
+   * <p>The tables are read in one transaction with the record of what has been backed up, and
+   * written to a temporary file first, so a backup is only ever replaced by a complete one.
+   *
+   * @param type the type of backup to write
+   * @return boolean true if it has completed, false otherwise
+   */
+  public static boolean serializeDatabase(Context context, BackupType type) {
+    SQLiteDatabase db = DatabaseDriverHelper.getDatabaseDriver(context).getWritableDatabase();
+    String temporary = SNAPSHOT_FILE + ".tmp";
+    FileOutputStream file = null;
+    boolean full;
+    int index = 0;
+    BackupThroughput throughput = new BackupThroughput();
+    backupThroughput = throughput;
+    try {
+      db.beginTransactionNonExclusive();
+      try {
+        long generation;
+        long fullGeneration;
+        long baseCreated;
+        int diffs;
+        Cursor cursor = db.rawQuery("SELECT GENERATION, FULLGENERATION, BASECREATED, DIFFS "
+                + "FROM BACKUPSTATE WHERE ID = 1", null);
+        try {
+          cursor.moveToFirst();
+          generation = cursor.getLong(0);
+          fullGeneration = cursor.getLong(1);
+          baseCreated = cursor.getLong(2);
+          diffs = cursor.getInt(3);
+        } finally {
+          cursor.close();
         }
-
-        // Writes each Account correlated to the specified User
-        for (Integer accountId : DatabaseSelectHelper.getAccountIds(user.getId())) {
-          Account account = DatabaseSelectHelper.getAccountDetails(accountId);
-          output.writeObject(account);
+        full = type == BackupType.FULL || fullGeneration == 0
+                || !context.getFileStreamPath(SNAPSHOT_FILE).exists()
+                // an incremental backup only adds to a chain that can be restored
+                || (type == BackupType.INCREMENTAL && !isChainIntact(context, db, diffs));
+        file = context.openFileOutput(temporary, Context.MODE_PRIVATE);
+        if (full) {
+          long created = DatabaseSnapshot.write(db, file.getChannel(), throughput);
+          db.execSQL("UPDATE BACKUPSTATE SET FULLGENERATION = ?, BASECREATED = ?, DIFFS = 0 "
+                  + "WHERE ID = 1", new Object[] {generation, created});
+          // the snapshot has no deleted rows to replay
+          db.execSQL("DELETE FROM DELETEDROWS");
+        } else {
+          boolean differential = type == BackupType.DIFFERENTIAL;
+          index = differential ? 1 : diffs + 1;
+          long sinceGeneration = differential ? fullGeneration + 1 : generation;
+          DatabaseSnapshot.writeChanges(db, file.getChannel(), baseCreated, index,
+                  sinceGeneration, readBackupMarks(db, differential ? "FULLMARK" : "LASTMARK"),
+                  throughput);
+          db.execSQL("UPDATE BACKUPSTATE SET DIFFS = ? WHERE ID = 1", new Object[] {index});
         }
-
-        // Used to stop loop in deserializing
-        output.writeObject(null);
+        // rows changed from now on belong to the next backup
+        db.execSQL("UPDATE BACKUPSTATE SET GENERATION = GENERATION + 1 WHERE ID = 1");
+        updateBackupMarks(db, full);
+        file.getFD().sync();
+        file.close();
+        file = null;
+        File backup = context.getFileStreamPath(full ? SNAPSHOT_FILE : DIFF_FILE_PREFIX + index);
+        if (!context.getFileStreamPath(temporary).renameTo(backup)) {
+          return false;
+        }
+        db.setTransactionSuccessful();
+      } finally {
+        db.endTransaction();
       }
-      output.close();
-      file.close();
+      // only once the backup is in place and recorded are the files it replaces dropped; if
+      // that is cut short, the leftovers fail the chain check rather than being restored
+      deleteDiffs(context, full ? 1 : index + 1);
       return true;
-    } catch (Exception e) {
-      // Throw an exception message
+    } catch (IOException | SQLException e) {
+      e.printStackTrace();
+    } finally {
+      closeQuietly(file);
+      throughput.finish();
     }
     return false;
   }
 
   /**
-   * Deserialize the data from "database_copy.ser" and places the data into the new database.
+   * Returns the byte counts of the backup being written, or of the last one written since the
+   * application started. They can be read while the backup runs.
+   *
+   * @return the throughput of the backup, <code>null</code> if none has been written
+   */
+  public static BackupThroughput getBackupThroughput() {
+    return backupThroughput;
+  }
+
+  /**
+   * Restores the database from the snapshot in "database_copy.snapshot". The snapshot is checked
+   * against its checksum before anything is changed, and restored in one transaction, so a
+   * snapshot that can not be read leaves the database as it was.
    *
    * @return boolean true if succeeds, otherwise false
    */
   public static boolean deserializeDatabase(Context context) {
-    boolean result = deserializeDatabaseHelper(context);
-    return result;
+    return deserializeDatabase(context, null);
   }
 
   /**
-   * Helper that performs the deserialization of the data form the specified path. Returns true if
-   * succeeds, otherwise false.
+   * Restores the database from the snapshot in "database_copy.snapshot" and the chain of diffs
+   * after it, telling the listener how many rows have been restored as it goes. Rows are loaded
+   * in bulk with their ID numbers and checked as a whole once loaded, rather than going through
+   * the insert helpers one at a time. The next backup after a restore is a full one.
    *
+   * @param listener told as rows are restored, may be <code>null</code>
    * @return boolean true if succeeds, otherwise false
    */
-  private static boolean deserializeDatabaseHelper(Context context) {
-    context.deleteDatabase("bank.db");
-    driver = updateNewDatabase(context);
-
+  public static boolean deserializeDatabase(Context context, RestoreProgressListener listener) {
+    DatabaseDriverHelper shared = DatabaseDriverHelper.getDatabaseDriver(context);
+    List<FileInputStream> files = new ArrayList<>();
     try {
-      FileInputStream file = context.openFileInput("database_copy.ser");
-      ObjectInputStream input = new ObjectInputStream(file);
-      Object temp;
-
-      // Runs loop and grabs all the info from the serialized file, checks each instance and adds
-      // the object into the newly created database file
-      int userId = -1;
-      temp = input.readObject();
-      while (temp != null) {
-        if (temp instanceof Roles) {
-          Roles rolesTemp = (Roles) temp;
-          if (!containsRole(rolesTemp)) {
-            System.out.println("Roles do not match those in the Enum Class");
-            return false;
-          } else {
-            DatabaseInsertHelper.insertRole(rolesTemp.toString());
-          }
-        } else if (temp instanceof AccountTypes) {
-          AccountTypes accountTypTemp = (AccountTypes) temp;
-          if (!containsAccountType(accountTypTemp)) {
-            System.out.println("AccountTypes do not match those in the Enum Class");
-            return false;
-          } else {
-            DatabaseInsertHelper.insertAccountType(accountTypTemp.toString(),
-                new BigDecimal((String) input.readObject()));
-          }
-        } else if (temp instanceof User) {
-          User userTemp = (User) temp;
-          String password = (String) input.readObject();
-          userId = (int) driver.insertUserHashed(userTemp.getName(), userTemp.getAge(), userTemp.getAddress(),
-              userTemp.getRoleId(), password);
-        } else if (temp instanceof Account) {
-          int accountId = DatabaseInsertHelper.insertAccount(((Account) temp).getName(),
-              ((Account) temp).getBalance(), ((Account) temp).getType());
-          // Insert the account corresponding to the user
-          DatabaseInsertHelper.insertUserAccount(userId, accountId);
-        } else if (temp instanceof Message) {
-          DatabaseInsertHelper.insertMessage(userId, ((Message) temp).getMessage());
+      files.add(context.openFileInput(SNAPSHOT_FILE));
+      for (int i = 1; context.getFileStreamPath(DIFF_FILE_PREFIX + i).exists(); i++) {
+        files.add(context.openFileInput(DIFF_FILE_PREFIX + i));
+      }
+      // check every file before anything in the database is changed
+      List<FileChannel> channels = new ArrayList<>();
+      for (FileInputStream file : files) {
+        if (!DatabaseSnapshot.verify(file.getChannel())) {
+          return false;
         }
-
-        temp = input.readObject();
+        channels.add(file.getChannel());
       }
-      input.close();
-      file.close();
-      driver.close();
+      SQLiteDatabase db = shared.getWritableDatabase();
+      db.beginTransaction();
+      try {
+        shared.resetDatabase(db);
+        DatabaseSnapshot.read(db, channels.get(0), channels.subList(1, channels.size()),
+                listener);
+        // stamp new changes after every restored one
+        StringBuilder lastChange = new StringBuilder();
+        for (String table : DatabaseSnapshot.TRACKED_TABLES) {
+          lastChange.append(", (SELECT IFNULL(MAX(CHANGESEQ), 0) FROM ").append(table)
+                  .append(')');
+        }
+        db.execSQL("UPDATE BACKUPSTATE SET GENERATION = MAX(GENERATION" + lastChange
+                + ") + 1 WHERE ID = 1");
+        db.setTransactionSuccessful();
+      } finally {
+        db.endTransaction();
+      }
+      // ownership and accounts held in memory are now out of date
+      OwnershipCache.invalidateAll();
+      AccountCache.invalidateAll();
+      ReferenceData.reload();
       return true;
-    } catch (IOException | ClassNotFoundException e) {
-      // Throw an exception
+    } catch (IOException | SQLException e) {
       e.printStackTrace();
+    } finally {
+      for (FileInputStream file : files) {
+        closeQuietly(file);
+      }
     }
     return false;
   }
 
+  /**
+   * Returns the ID of the last row backed up of each appended table.
+   *
+   * @param db the database
+   * @param column FULLMARK for the last full backup, LASTMARK for the last backup of any kind
+   * @return the last row ID backed up by table name
+   */
+  private static Map<String, Long> readBackupMarks(SQLiteDatabase db, String column) {
+    Map<String, Long> marks = new HashMap<>();
+    Cursor cursor = db.rawQuery("SELECT TBL, " + column + " FROM BACKUPMARKS", null);
+    try {
+      while (cursor.moveToNext()) {
+        marks.put(cursor.getString(0), cursor.getLong(1));
+      }
+    } finally {
+      cursor.close();
+    }
+    return marks;
+  }
+
+  /**
+   * Records the last row of each appended table as backed up.
+   *
+   * @param db the database
+   * @param full <code>true</code> if the backup is a full one
+   */
+  private static void updateBackupMarks(SQLiteDatabase db, boolean full) {
+    for (String table : DatabaseSnapshot.APPENDED_TABLES) {
+      long lastRowId = DatabaseSnapshot.lastRowId(db, table);
+      if (full) {
+        db.execSQL("INSERT OR REPLACE INTO BACKUPMARKS (TBL, FULLMARK, LASTMARK) "
+                + "VALUES (?, ?, ?)", new Object[] {table, lastRowId, lastRowId});
+      } else {
+        db.execSQL("UPDATE BACKUPMARKS SET LASTMARK = ? WHERE TBL = ?",
+                new Object[] {lastRowId, table});
+      }
+    }
+  }
+
+  /**
+   * Checks that the snapshot and the recorded number of diffs after it are all on disk, with
+   * nothing after them, and form one chain.
+   *
+   * @param db the database
+   * @param diffs the number of diffs recorded after the snapshot
+   * @return <code>true</code> if the chain can be restored
+   */
+  private static boolean isChainIntact(Context context, SQLiteDatabase db, int diffs) {
+    if (context.getFileStreamPath(DIFF_FILE_PREFIX + (diffs + 1)).exists()) {
+      return false;
+    }
+    List<FileInputStream> files = new ArrayList<>();
+    try {
+      files.add(context.openFileInput(SNAPSHOT_FILE));
+      List<FileChannel> channels = new ArrayList<>();
+      for (int i = 1; i <= diffs; i++) {
+        FileInputStream diff = context.openFileInput(DIFF_FILE_PREFIX + i);
+        files.add(diff);
+        channels.add(diff.getChannel());
+      }
+      return DatabaseSnapshot.isChain(db, files.get(0).getChannel(), channels);
+    } catch (IOException e) {
+      // a missing file breaks the chain
+      return false;
+    } finally {
+      for (FileInputStream file : files) {
+        closeQuietly(file);
+      }
+    }
+  }
+
+  /**
+   * Deletes the diffs of the chain from the given place to the end, last first, so the chain
+   * never has a gap that later diffs are replayed across. Diffs past the recorded end, left by a
+   * backup that was cut short, are deleted too.
+   *
+   * @param from the place of the first diff to delete
+   */
+  private static void deleteDiffs(Context context, int from) {
+    int last = from - 1;
+    while (context.getFileStreamPath(DIFF_FILE_PREFIX + (last + 1)).exists()) {
+      last++;
+    }
+    for (int i = last; i >= from; i--) {
+      context.deleteFile(DIFF_FILE_PREFIX + i);
+    }
+  }
+
+  /**
+   * Closes the file if it is open, ignoring any error.
+   *
+   * @param file the file to close, may be <code>null</code>
+   */
+  private static void closeQuietly(Closeable file) {
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        // nothing more can be done with the file
+      }
+    }
+  }
+
 //  /**
 //   * Inserts a User into the database with a hashed password.
 //   *
@@ -197,34 +368,4 @@ public class DatabaseSerializeHelper extends DatabaseDeserializeUserInfo {
 //        hashedPassword);
 //  }
 
-  /**
-   * Checks if the specified Role is in the Enum.
-   *
-   * @param role is a Role
-   * @return boolean true if the role is in the Enum, otherwise false
-   */
-  private static boolean containsRole(Roles role) {
-    for (Roles currRole : Roles.values()) {
-      if (currRole.equals(role)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  /**
-   * Checks if the specified AccountType is in the Enum.
-   *
-   * @param accountType is an AccountType
-   * @return boolean true if the accountType is in the Enum, otherwise false
-   */
-  private static boolean containsAccountType(AccountTypes accountType) {
-    for (AccountTypes currAccountType : AccountTypes.values()) {
-      if (currAccountType.equals(accountType)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
 }
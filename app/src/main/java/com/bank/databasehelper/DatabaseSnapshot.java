@@ -0,0 +1,1365 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes snapshots of the database, a compact binary copy of its tables written table
+ * by table straight from cursors. A snapshot is laid out as
+ * <ul>
+ * <li>a header: the magic number, the format version, the schema version, the time the snapshot
+ * was taken, and for each table its name, its column names and its number of rows,</li>
+ * <li>the rows of each table in header order, each value a type tag followed by the value, with
+ * whole numbers and lengths as variable length integers and text as UTF-8,</li>
+ * <li>a CRC-32 of everything before it, kept in the last frame of a compressed file.</li>
+ * </ul>
+ * Values are read back by their tag, so restoring a snapshot needs no class metadata, and rows
+ * keep their ID numbers, so joint accounts and shared message bodies are stored once.
+ *
+ * <p>A diff holds only the rows changed since an earlier backup, and is replayed onto the
+ * snapshot it follows. It is laid out the same way, except that the header also holds the time
+ * its snapshot was taken and its place in the chain of diffs, and each table has a mode saying
+ * how its rows are applied. The rows of a tracked table are preceded by the keys of the rows
+ * deleted from it.
+ *
+ * <p>Snapshots and diffs are written compressed, a block at a time, by a writer thread fed
+ * through a bounded queue. Files written before they were compressed are still read.
+ */
+final class DatabaseSnapshot {
+
+  /**
+   * The first four bytes of every snapshot.
+   */
+  static final int MAGIC = 0x424b5350;
+
+  /**
+   * The first four bytes of every diff.
+   */
+  static final int DIFF_MAGIC = 0x424b4446;
+
+  /**
+   * The first four bytes of every compressed file, which holds a snapshot or diff in blocks.
+   */
+  static final int COMPRESSED_MAGIC = 0x424b5a31;
+
+  /**
+   * The version of the layout described above.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  /**
+   * The tables copied into a snapshot, each after the tables it refers to. The message counts
+   * are left out, they are worked out again from the messages when the snapshot is restored.
+   */
+  private static final String[] TABLES = {"ROLES", "ACCOUNTTYPES", "USERS", "USERPW", "ACCOUNTS",
+      "USERACCOUNT", "MESSAGEBODIES", "BROADCASTS", "USERMESSAGES", "INTERESTRUNS", "LEDGER",
+      "LEDGERSNAPSHOTS"};
+
+  /**
+   * The tables whose rows are stamped with the backup generation they last changed in, and
+   * whose deleted rows are recorded. A diff holds their changed rows and deleted keys.
+   */
+  static final String[] TRACKED_TABLES = {"USERS", "USERPW", "ACCOUNTS", "USERACCOUNT",
+      "USERMESSAGES"};
+
+  /**
+   * The key columns of each tracked table, in the same order.
+   */
+  private static final String[][] TRACKED_KEYS = {{"ID"}, {"USERID"}, {"ID"},
+      {"USERID", "ACCOUNTID"}, {"ID"}};
+
+  /**
+   * The tables rows are only ever added to. A diff holds the rows added after the last row
+   * backed up.
+   */
+  static final String[] APPENDED_TABLES = {"MESSAGEBODIES", "BROADCASTS", "LEDGER",
+      "LEDGERSNAPSHOTS"};
+
+  // how the rows of a table in a diff are applied; the few rows of any other table are all
+  // copied into every diff and replace the rows restored before
+  private static final int MODE_REPLACED = 0;
+  private static final int MODE_TRACKED = 1;
+  private static final int MODE_APPENDED = 2;
+
+  /**
+   * Size of the buffer between the cursors and the file, and of each compressed block.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Number of blocks between the cursors and the writer thread, which bounds the memory a
+   * backup takes whatever the size of the bank.
+   */
+  private static final int BLOCK_COUNT = 4;
+
+  /**
+   * Room for a compressed block, more than a block that does not compress takes.
+   */
+  private static final int MAX_COMPRESSED_SIZE = BUFFER_SIZE + BUFFER_SIZE / 8 + 64;
+
+  /**
+   * The longest text or blob a snapshot can hold. Values are written from a cursor, whose window
+   * holds at most 2 MiB, so a longer length can only come from a damaged file.
+   */
+  static final int MAX_VALUE_LENGTH = 2 * 1024 * 1024;
+
+  /**
+   * How long a cursor waits for a free block before checking the writer is still running.
+   */
+  private static final long WRITER_POLL_MILLIS = 100;
+
+  /**
+   * Number of rows restored between reports of progress.
+   */
+  private static final int PROGRESS_INTERVAL = 1000;
+
+  /**
+   * The checks a restored snapshot must pass, each a description of what fails it and a query
+   * for the rows that fail it.
+   */
+  private static final String[][] INTEGRITY_CHECKS = {
+      {"accounts of unknown types",
+          "SELECT 1 FROM ACCOUNTS WHERE TYPE NOT IN (SELECT ID FROM ACCOUNTTYPES)"},
+      {"negative balances on accounts that are not owing",
+          "SELECT 1 FROM ACCOUNTS A JOIN ACCOUNTTYPES T ON T.ID = A.TYPE "
+          + "WHERE A.BALANCE < 0 AND T.NAME <> 'OWING'"},
+      {"interest rates outside 0 to 1",
+          "SELECT 1 FROM ACCOUNTTYPES WHERE INTERESTRATE IS NOT NULL "
+          + "AND (CAST(INTERESTRATE AS REAL) < 0 OR CAST(INTERESTRATE AS REAL) > 1)"},
+      {"users of unknown roles",
+          "SELECT 1 FROM USERS WHERE ROLEID NOT IN (SELECT ID FROM ROLES)"},
+      {"passwords of unknown users",
+          "SELECT 1 FROM USERPW WHERE USERID NOT IN (SELECT ID FROM USERS)"},
+      {"accounts held by unknown users or unknown accounts held",
+          "SELECT 1 FROM USERACCOUNT WHERE USERID NOT IN (SELECT ID FROM USERS) "
+          + "OR ACCOUNTID NOT IN (SELECT ID FROM ACCOUNTS)"},
+      {"messages for unknown users",
+          "SELECT 1 FROM USERMESSAGES WHERE USERID NOT IN (SELECT ID FROM USERS)"},
+      {"messages with missing bodies",
+          "SELECT 1 FROM USERMESSAGES WHERE BODYID IS NOT NULL "
+          + "AND BODYID NOT IN (SELECT ID FROM MESSAGEBODIES)"},
+      {"ledger entries of unknown accounts",
+          "SELECT 1 FROM LEDGER WHERE ACCOUNTID NOT IN (SELECT ID FROM ACCOUNTS)"}
+  };
+
+  /**
+   * Size of the checksum at the end of a snapshot.
+   */
+  private static final int CHECKSUM_SIZE = 4;
+
+  // the tag written before each value
+  private static final int TAG_NULL = 0;
+  private static final int TAG_INTEGER = 1;
+  private static final int TAG_FLOAT = 2;
+  private static final int TAG_TEXT = 3;
+  private static final int TAG_BLOB = 4;
+
+  private DatabaseSnapshot() {
+  }
+
+  /**
+   * Writes a snapshot of every table of the database to the channel. The caller should hold a
+   * transaction on the database, so the row counts in the header match the rows written.
+   *
+   * @param sqLiteDatabase the database to take the snapshot of
+   * @param channel the channel to write to, from its current position
+   * @param throughput counts the bytes written
+   * @return the time the snapshot was taken, which the diffs that follow it refer to it by
+   * @throws IOException if the snapshot could not be written
+   */
+  static long write(SQLiteDatabase sqLiteDatabase, FileChannel channel,
+      BackupThroughput throughput) throws IOException {
+    String[][] columns = new String[TABLES.length][];
+    long[] rowCounts = new long[TABLES.length];
+    for (int i = 0; i < TABLES.length; i++) {
+      columns[i] = columnsOf(sqLiteDatabase, TABLES[i]);
+      rowCounts[i] = count(sqLiteDatabase, "SELECT * FROM " + TABLES[i]);
+    }
+    long created = System.currentTimeMillis();
+    Output output = new Output(channel, throughput);
+    try {
+      // header
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(sqLiteDatabase.getVersion());
+      output.writeLong(created);
+      output.writeVarLong(TABLES.length);
+      for (int i = 0; i < TABLES.length; i++) {
+        output.writeText(TABLES[i]);
+        writeNames(output, columns[i]);
+        output.writeVarLong(rowCounts[i]);
+      }
+      // rows
+      for (int i = 0; i < TABLES.length; i++) {
+        writeRows(output, sqLiteDatabase, TABLES[i], "SELECT * FROM " + TABLES[i],
+                rowCounts[i]);
+      }
+      output.finish();
+    } finally {
+      output.close();
+    }
+    return created;
+  }
+
+  /**
+   * Writes a diff of the rows changed since an earlier backup to the channel. The caller should
+   * hold a transaction on the database, so the counts in the header match the rows written.
+   *
+   * @param sqLiteDatabase the database to take the diff of
+   * @param channel the channel to write to, from its current position
+   * @param baseCreated the time the snapshot the diff follows was taken
+   * @param index the place of the diff in the chain of diffs after the snapshot, from 1
+   * @param sinceGeneration the first backup generation whose changes are written
+   * @param marks the ID of the last row of each appended table already backed up
+   * @param throughput counts the bytes written
+   * @throws IOException if the diff could not be written
+   */
+  static void writeChanges(SQLiteDatabase sqLiteDatabase, FileChannel channel, long baseCreated,
+      int index, long sinceGeneration, Map<String, Long> marks, BackupThroughput throughput)
+      throws IOException {
+    String since = String.valueOf(sinceGeneration);
+    String[][] columns = new String[TABLES.length][];
+    int[] modes = new int[TABLES.length];
+    String[] rowQueries = new String[TABLES.length];
+    String[] deletedQueries = new String[TABLES.length];
+    long[] rowCounts = new long[TABLES.length];
+    long[] deletedCounts = new long[TABLES.length];
+    for (int i = 0; i < TABLES.length; i++) {
+      String table = TABLES[i];
+      columns[i] = columnsOf(sqLiteDatabase, table);
+      modes[i] = modeOf(table);
+      if (modes[i] == MODE_TRACKED) {
+        String[] keys = keysOf(table);
+        rowQueries[i] = "SELECT * FROM " + table + " WHERE CHANGESEQ >= " + since;
+        deletedQueries[i] = "SELECT KEY1" + (keys.length > 1 ? ", KEY2" : "")
+                + " FROM DELETEDROWS WHERE TBL = '" + table + "' AND CHANGESEQ >= " + since;
+        deletedCounts[i] = count(sqLiteDatabase, deletedQueries[i]);
+      } else if (modes[i] == MODE_APPENDED) {
+        Long mark = marks.get(table);
+        rowQueries[i] = "SELECT * FROM " + table + " WHERE ROWID > " + (mark == null ? 0 : mark);
+      } else {
+        rowQueries[i] = "SELECT * FROM " + table;
+      }
+      rowCounts[i] = count(sqLiteDatabase, rowQueries[i]);
+    }
+    Output output = new Output(channel, throughput);
+    try {
+      // header
+      output.writeInt(DIFF_MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(sqLiteDatabase.getVersion());
+      output.writeLong(System.currentTimeMillis());
+      output.writeLong(baseCreated);
+      output.writeVarLong(index);
+      output.writeVarLong(TABLES.length);
+      for (int i = 0; i < TABLES.length; i++) {
+        output.writeText(TABLES[i]);
+        output.writeByte(modes[i]);
+        writeNames(output, columns[i]);
+        writeNames(output, modes[i] == MODE_TRACKED ? keysOf(TABLES[i]) : new String[0]);
+        output.writeVarLong(deletedCounts[i]);
+        output.writeVarLong(rowCounts[i]);
+      }
+      // deleted keys and rows
+      for (int i = 0; i < TABLES.length; i++) {
+        if (deletedQueries[i] != null) {
+          writeRows(output, sqLiteDatabase, TABLES[i], deletedQueries[i], deletedCounts[i]);
+        }
+        writeRows(output, sqLiteDatabase, TABLES[i], rowQueries[i], rowCounts[i]);
+      }
+      output.finish();
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * Returns the ID of the last row of the table.
+   *
+   * @param sqLiteDatabase the database
+   * @param table the name of the table
+   * @return the largest row ID in the table, 0 if it is empty
+   */
+  static long lastRowId(SQLiteDatabase sqLiteDatabase, String table) {
+    Cursor cursor = sqLiteDatabase.rawQuery("SELECT IFNULL(MAX(ROWID), 0) FROM " + table, null);
+    try {
+      return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the snapshot or diff on the channel is whole: the checksum at
+   * its end matches everything before it. The channel is left at an unspecified position.
+   *
+   * @param channel the channel to check, from its start
+   * @return <code>true</code> if the checksum matches
+   * @throws IOException if the channel could not be read
+   */
+  static boolean verify(FileChannel channel) throws IOException {
+    if (channel.size() < CHECKSUM_SIZE) {
+      return false;
+    }
+    Source source = openSource(channel);
+    if (source instanceof FrameSource) {
+      // the checksum is of the uncompressed bytes, so the whole file has to be inflated
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      do {
+        buffer.clear();
+      } while (source.read(buffer) >= 0);
+      return ((FrameSource) source).isValid();
+    }
+    long length = channel.size() - CHECKSUM_SIZE;
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    CRC32 checksum = new CRC32();
+    long position = 0;
+    channel.position(0);
+    while (position < length) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), length - position));
+      int read = channel.read(buffer);
+      if (read < 0) {
+        return false;
+      }
+      checksum.update(buffer.array(), 0, read);
+      position += read;
+    }
+    buffer.clear();
+    buffer.limit(CHECKSUM_SIZE);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return false;
+      }
+    }
+    buffer.flip();
+    return buffer.getInt() == (int) checksum.getValue();
+  }
+
+  /**
+   * Returns the source of the bytes of the snapshot or diff on the channel: the inflated blocks
+   * of a compressed file, or the bytes before the checksum of a file written before snapshots
+   * were compressed.
+   *
+   * @param channel the channel to read, from its start
+   * @return the source of the bytes
+   * @throws IOException if the channel could not be read
+   */
+  static Source openSource(FileChannel channel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(4);
+    channel.position(0);
+    while (magic.hasRemaining() && channel.read(magic) >= 0) {
+      // keep reading
+    }
+    magic.flip();
+    if (magic.remaining() == 4 && magic.getInt() == COMPRESSED_MAGIC) {
+      return new FrameSource(channel);
+    }
+    channel.position(0);
+    return new ChannelSource(channel, channel.size() - CHECKSUM_SIZE);
+  }
+
+  /**
+   * Reads a snapshot from the channel into the database, then replays the diffs that follow it
+   * in order. The tables of the snapshot must exist and be empty; the caller should hold a
+   * transaction on the database, so a snapshot that can not be read leaves it as it was. A diff
+   * that does not follow the one before it fails the whole restore, rather than restoring only
+   * part of the chain.
+   *
+   * <p>Rows are loaded in bulk: the indexes and triggers on the tables are dropped while the rows
+   * are inserted and created again afterwards, and instead of validating each row, the restored
+   * tables are checked as a whole once they are loaded.
+   *
+   * @param sqLiteDatabase the database to restore into
+   * @param channel the channel of the snapshot, read from its start
+   * @param diffChannels the channels of the diffs after the snapshot, in order
+   * @param listener told as rows are restored, may be <code>null</code>
+   * @throws IOException if the snapshot is not one this version of the schema can read, the
+   *     diffs do not form one chain after it, or its rows fail the integrity checks
+   */
+  static void read(SQLiteDatabase sqLiteDatabase, FileChannel channel,
+      List<FileChannel> diffChannels, RestoreProgressListener listener) throws IOException {
+    Header snapshot = readHeader(sqLiteDatabase, channel, MAGIC);
+    List<Header> diffs = readChain(sqLiteDatabase, snapshot, diffChannels);
+    long totalRows = snapshot.rows;
+    for (Header diff : diffs) {
+      totalRows += diff.rows;
+    }
+    List<String> indexes = new ArrayList<>();
+    List<String> triggers = new ArrayList<>();
+    dropIndexesAndTriggers(sqLiteDatabase, indexes, triggers);
+    long rowsRestored = 0;
+    for (int i = 0; i < snapshot.tables.length; i++) {
+      rowsRestored = readRows(sqLiteDatabase, snapshot, i, rowsRestored, totalRows, listener);
+    }
+    snapshot.checkAtEnd();
+    // building each index once over the loaded rows is cheaper than keeping it up to date, and
+    // the diffs find the rows they replace through them
+    for (String index : indexes) {
+      sqLiteDatabase.execSQL(index);
+    }
+    for (Header diff : diffs) {
+      for (int i = 0; i < diff.tables.length; i++) {
+        rowsRestored = readRows(sqLiteDatabase, diff, i, rowsRestored, totalRows, listener);
+      }
+      diff.checkAtEnd();
+    }
+    checkIntegrity(sqLiteDatabase);
+    // the count triggers were not there while the messages were loaded, so count them all
+    sqLiteDatabase.execSQL("DELETE FROM USERMESSAGECOUNTS");
+    sqLiteDatabase.execSQL("INSERT INTO USERMESSAGECOUNTS (USERID, TOTAL, UNREAD) "
+            + "SELECT USERID, COUNT(*), SUM(CAST(VIEWED AS INTEGER) = 0) "
+            + "FROM USERMESSAGES GROUP BY USERID");
+    for (String trigger : triggers) {
+      sqLiteDatabase.execSQL(trigger);
+    }
+  }
+
+  /**
+   * Checks that the diffs form one chain after the snapshot, reading only their headers.
+   *
+   * @param sqLiteDatabase the database the chain would be restored into
+   * @param channel the channel of the snapshot, read from its start
+   * @param diffChannels the channels of the diffs after the snapshot, in order
+   * @return <code>true</code> if every diff follows the one before it
+   */
+  static boolean isChain(SQLiteDatabase sqLiteDatabase, FileChannel channel,
+      List<FileChannel> diffChannels) {
+    try {
+      readChain(sqLiteDatabase, readHeader(sqLiteDatabase, channel, MAGIC), diffChannels);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reads the headers of the diffs after a snapshot. Each diff must be taken against the same
+   * snapshot, be numbered next, and be written no earlier than the one before it; a diff left
+   * over from a chain a later backup replaced fails the last check.
+   *
+   * @param sqLiteDatabase the database to restore into
+   * @param snapshot the header of the snapshot
+   * @param diffChannels the channels of the diffs after the snapshot, in order
+   * @return the headers of the diffs, in order
+   * @throws IOException if a diff can not be read or does not follow the one before it
+   */
+  private static List<Header> readChain(SQLiteDatabase sqLiteDatabase, Header snapshot,
+      List<FileChannel> diffChannels) throws IOException {
+    List<Header> diffs = new ArrayList<>();
+    long previousCreated = snapshot.created;
+    for (FileChannel diffChannel : diffChannels) {
+      Header diff = readHeader(sqLiteDatabase, diffChannel, DIFF_MAGIC);
+      if (diff.baseCreated != snapshot.created || diff.index != diffs.size() + 1
+          || diff.created < previousCreated) {
+        throw new IOException("diff " + (diffs.size() + 1) + " does not follow the backup chain");
+      }
+      diffs.add(diff);
+      previousCreated = diff.created;
+    }
+    return diffs;
+  }
+
+  /**
+   * Reads the header of a snapshot or diff.
+   *
+   * @param sqLiteDatabase the database to restore into
+   * @param channel the channel to read from, from its start
+   * @param magic the magic number the file must start with
+   * @return the header, with its input at the first row
+   * @throws IOException if the file is not one this version of the schema can read
+   */
+  private static Header readHeader(SQLiteDatabase sqLiteDatabase, FileChannel channel, int magic)
+      throws IOException {
+    Header header = new Header(new Input(openSource(channel)));
+    Input input = header.input;
+    if (input.readInt() != magic) {
+      throw new IOException(magic == MAGIC ? "not a database snapshot" : "not a database diff");
+    }
+    int formatVersion = input.readInt();
+    if (formatVersion != FORMAT_VERSION) {
+      throw new IOException("unknown snapshot format " + formatVersion);
+    }
+    int schemaVersion = input.readInt();
+    if (schemaVersion != sqLiteDatabase.getVersion()) {
+      throw new IOException("snapshot of schema version " + schemaVersion
+              + " can not be restored into version " + sqLiteDatabase.getVersion());
+    }
+    header.created = input.readLong();
+    boolean diff = magic == DIFF_MAGIC;
+    if (diff) {
+      header.baseCreated = input.readLong();
+      header.index = (int) input.readVarLong();
+    }
+    int tableCount = (int) input.readVarLong();
+    header.tables = new String[tableCount];
+    header.modes = new int[tableCount];
+    header.columns = new String[tableCount][];
+    header.keys = new int[tableCount][];
+    header.deletedCounts = new long[tableCount];
+    header.rowCounts = new long[tableCount];
+    for (int i = 0; i < tableCount; i++) {
+      String table = input.readText();
+      // names are put into SQL, so only known tables and plain column names are accepted
+      if (!Arrays.asList(TABLES).contains(table)) {
+        throw new IOException("unknown table " + table);
+      }
+      header.tables[i] = table;
+      header.modes[i] = diff ? input.readByte() : MODE_APPENDED;
+      header.columns[i] = readNames(input, table);
+      String[] keys = diff ? readNames(input, table) : new String[0];
+      if (header.modes[i] == MODE_TRACKED && keys.length == 0) {
+        throw new IOException("no key for " + table);
+      }
+      // the position of each key column among the columns of a row
+      header.keys[i] = new int[keys.length];
+      for (int key = 0; key < keys.length; key++) {
+        header.keys[i][key] = Arrays.asList(header.columns[i]).indexOf(keys[key]);
+        if (header.keys[i][key] < 0) {
+          throw new IOException("key " + keys[key] + " is not a column of " + table);
+        }
+      }
+      header.deletedCounts[i] = diff ? input.readVarLong() : 0;
+      header.rowCounts[i] = input.readVarLong();
+      header.rows += header.deletedCounts[i] + header.rowCounts[i];
+    }
+    return header;
+  }
+
+  /**
+   * Drops every index and trigger on the tables of a snapshot, and adds the statements that
+   * create them again to the given lists. Indexes SQLite creates for keys are kept.
+   *
+   * @param sqLiteDatabase the database to restore into
+   * @param indexes the list to add the statements creating the indexes to
+   * @param triggers the list to add the statements creating the triggers to
+   */
+  private static void dropIndexesAndTriggers(SQLiteDatabase sqLiteDatabase, List<String> indexes,
+      List<String> triggers) {
+    StringBuilder tables = new StringBuilder();
+    for (String table : TABLES) {
+      tables.append(tables.length() == 0 ? "'" : ", '").append(table).append('\'');
+    }
+    List<String> drops = new ArrayList<>();
+    Cursor cursor = sqLiteDatabase.rawQuery("SELECT TYPE, NAME, SQL FROM SQLITE_MASTER "
+            + "WHERE TYPE IN ('index', 'trigger') AND SQL IS NOT NULL "
+            + "AND TBL_NAME IN (" + tables + ")", null);
+    try {
+      while (cursor.moveToNext()) {
+        boolean index = "index".equals(cursor.getString(0));
+        drops.add((index ? "DROP INDEX " : "DROP TRIGGER ") + cursor.getString(1));
+        (index ? indexes : triggers).add(cursor.getString(2));
+      }
+    } finally {
+      cursor.close();
+    }
+    for (String drop : drops) {
+      sqLiteDatabase.execSQL(drop);
+    }
+  }
+
+  /**
+   * Checks the restored tables as a whole, in place of the checks made on each row when it is
+   * inserted through the insert helpers: every row must refer to rows that exist, balances must
+   * not be negative unless owing, and interest rates must be between 0 and 1.
+   *
+   * @param sqLiteDatabase the restored database
+   * @throws IOException naming the first check that any row fails
+   */
+  private static void checkIntegrity(SQLiteDatabase sqLiteDatabase) throws IOException {
+    for (String[] check : INTEGRITY_CHECKS) {
+      Cursor cursor = sqLiteDatabase.rawQuery("SELECT EXISTS (" + check[1] + ")", null);
+      boolean failed;
+      try {
+        failed = cursor.moveToFirst() && cursor.getInt(0) != 0;
+      } finally {
+        cursor.close();
+      }
+      if (failed) {
+        throw new IOException("snapshot has " + check[0]);
+      }
+    }
+  }
+
+  /**
+   * Applies the rows of a table read from a snapshot or diff, keeping every column as it was, ID
+   * numbers included. Rows of a snapshot are inserted; rows of a diff replace the rows they were
+   * restored with before, as the mode of the table says.
+   *
+   * @param sqLiteDatabase the database to restore into
+   * @param header the snapshot or diff, its input at the rows of the table
+   * @param table the position of the table in the header
+   * @param rowsRestored the number of rows of earlier tables restored
+   * @param totalRows the number of rows to restore
+   * @param listener told as rows are restored, may be <code>null</code>
+   * @return the number of rows restored including this table
+   * @throws IOException if the rows could not be read
+   */
+  private static long readRows(SQLiteDatabase sqLiteDatabase, Header header, int table,
+      long rowsRestored, long totalRows, RestoreProgressListener listener) throws IOException {
+    String name = header.tables[table];
+    String[] columns = header.columns[table];
+    int[] keys = header.keys[table];
+    StringBuilder sql = new StringBuilder("INSERT INTO ").append(name).append(" (");
+    StringBuilder parameters = new StringBuilder();
+    for (int column = 0; column < columns.length; column++) {
+      if (column > 0) {
+        sql.append(", ");
+        parameters.append(", ");
+      }
+      sql.append(columns[column]);
+      parameters.append('?');
+    }
+    sql.append(") VALUES (").append(parameters).append(')');
+    StringBuilder where = new StringBuilder();
+    for (int key = 0; key < keys.length; key++) {
+      where.append(key == 0 ? " WHERE " : " AND ").append(columns[keys[key]]).append(" = ?");
+    }
+    if (header.modes[table] == MODE_REPLACED) {
+      sqLiteDatabase.execSQL("DELETE FROM " + name);
+    }
+    SQLiteStatement insert = sqLiteDatabase.compileStatement(sql.toString());
+    SQLiteStatement delete = keys.length == 0 ? null
+            : sqLiteDatabase.compileStatement("DELETE FROM " + name + where);
+    Object[] keyValues = new Object[keys.length];
+    long rows = header.deletedCounts[table] + header.rowCounts[table];
+    try {
+      for (long row = 1; row <= rows; row++) {
+        if (row <= header.deletedCounts[table]) {
+          // the key of a deleted row
+          for (int key = 0; key < keys.length; key++) {
+            readValue(header.input, delete, key + 1);
+          }
+          delete.executeUpdateDelete();
+        } else {
+          for (int column = 0; column < columns.length; column++) {
+            Object value = readValue(header.input, insert, column + 1);
+            for (int key = 0; key < keys.length; key++) {
+              if (keys[key] == column) {
+                keyValues[key] = value;
+              }
+            }
+          }
+          if (delete != null) {
+            // drop the version of the row restored before
+            for (int key = 0; key < keys.length; key++) {
+              bindValue(delete, key + 1, keyValues[key]);
+            }
+            delete.executeUpdateDelete();
+          }
+          insert.executeInsert();
+        }
+        if (listener != null && row % PROGRESS_INTERVAL == 0) {
+          listener.onProgress(name, rowsRestored + row, totalRows);
+        }
+      }
+    } finally {
+      insert.close();
+      if (delete != null) {
+        delete.close();
+      }
+    }
+    if (listener != null) {
+      listener.onProgress(name, rowsRestored + rows, totalRows);
+    }
+    return rowsRestored + rows;
+  }
+
+  /**
+   * Returns how the rows of the table are written into a diff.
+   */
+  private static int modeOf(String table) {
+    if (Arrays.asList(TRACKED_TABLES).contains(table)) {
+      return MODE_TRACKED;
+    } else if (Arrays.asList(APPENDED_TABLES).contains(table)) {
+      return MODE_APPENDED;
+    }
+    return MODE_REPLACED;
+  }
+
+  /**
+   * Returns the key columns of a tracked table.
+   */
+  private static String[] keysOf(String table) {
+    return TRACKED_KEYS[Arrays.asList(TRACKED_TABLES).indexOf(table)];
+  }
+
+  /**
+   * Returns the names of the columns of the table, in order.
+   */
+  private static String[] columnsOf(SQLiteDatabase sqLiteDatabase, String table) {
+    Cursor cursor = sqLiteDatabase.rawQuery("SELECT * FROM " + table + " LIMIT 0", null);
+    try {
+      return cursor.getColumnNames();
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Returns the number of rows the query returns.
+   */
+  private static long count(SQLiteDatabase sqLiteDatabase, String query) {
+    Cursor cursor = sqLiteDatabase.rawQuery("SELECT COUNT(*) FROM (" + query + ")", null);
+    try {
+      return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Writes every row the query returns.
+   *
+   * @throws IOException if the rows could not be written, or there are not as many as the header
+   *     said
+   */
+  private static void writeRows(Output output, SQLiteDatabase sqLiteDatabase, String table,
+      String query, long expectedRows) throws IOException {
+    Cursor cursor = sqLiteDatabase.rawQuery(query, null);
+    long rows = 0;
+    try {
+      int columnCount = cursor.getColumnCount();
+      while (cursor.moveToNext()) {
+        for (int column = 0; column < columnCount; column++) {
+          writeValue(output, cursor, column);
+        }
+        rows++;
+      }
+    } finally {
+      cursor.close();
+    }
+    if (rows != expectedRows) {
+      throw new IOException(table + " changed while the snapshot was written");
+    }
+  }
+
+  private static void writeNames(Output output, String[] names) throws IOException {
+    output.writeVarLong(names.length);
+    for (String name : names) {
+      output.writeText(name);
+    }
+  }
+
+  private static String[] readNames(Input input, String table) throws IOException {
+    String[] names = new String[(int) input.readVarLong()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = input.readText();
+      if (!names[i].matches("[A-Za-z_][A-Za-z0-9_]*")) {
+        throw new IOException("bad column name in " + table);
+      }
+    }
+    return names;
+  }
+
+  /**
+   * Writes the value of a column of the current row of the cursor, with its tag.
+   */
+  private static void writeValue(Output output, Cursor cursor, int column) throws IOException {
+    switch (cursor.getType(column)) {
+      case Cursor.FIELD_TYPE_NULL:
+        output.writeByte(TAG_NULL);
+        break;
+      case Cursor.FIELD_TYPE_INTEGER:
+        output.writeByte(TAG_INTEGER);
+        output.writeSignedVarLong(cursor.getLong(column));
+        break;
+      case Cursor.FIELD_TYPE_FLOAT:
+        output.writeByte(TAG_FLOAT);
+        output.writeLong(Double.doubleToLongBits(cursor.getDouble(column)));
+        break;
+      case Cursor.FIELD_TYPE_BLOB:
+        output.writeByte(TAG_BLOB);
+        output.writeBytes(cursor.getBlob(column));
+        break;
+      default:
+        output.writeByte(TAG_TEXT);
+        output.writeText(cursor.getString(column));
+        break;
+    }
+  }
+
+  /**
+   * Reads a value and its tag, and binds it to the statement.
+   *
+   * @return the value read, <code>null</code> if it is null
+   */
+  private static Object readValue(Input input, SQLiteStatement statement, int index)
+      throws IOException {
+    int tag = input.readByte();
+    switch (tag) {
+      case TAG_NULL:
+        statement.bindNull(index);
+        return null;
+      case TAG_INTEGER:
+        long integer = input.readSignedVarLong();
+        statement.bindLong(index, integer);
+        return integer;
+      case TAG_FLOAT:
+        double real = Double.longBitsToDouble(input.readLong());
+        statement.bindDouble(index, real);
+        return real;
+      case TAG_TEXT:
+        String text = input.readText();
+        statement.bindString(index, text);
+        return text;
+      case TAG_BLOB:
+        byte[] blob = input.readBytes();
+        statement.bindBlob(index, blob);
+        return blob;
+      default:
+        throw new IOException("unknown value tag " + tag);
+    }
+  }
+
+  /**
+   * Binds a value read by readValue to a statement.
+   */
+  private static void bindValue(SQLiteStatement statement, int index, Object value) {
+    if (value == null) {
+      statement.bindNull(index);
+    } else if (value instanceof Long) {
+      statement.bindLong(index, (Long) value);
+    } else if (value instanceof Double) {
+      statement.bindDouble(index, (Double) value);
+    } else if (value instanceof byte[]) {
+      statement.bindBlob(index, (byte[]) value);
+    } else {
+      statement.bindString(index, value.toString());
+    }
+  }
+
+  /**
+   * The header of a snapshot or diff being restored, and the input its rows are read from.
+   */
+  private static final class Header {
+
+    final Input input;
+    long created;
+    long baseCreated;
+    int index;
+    String[] tables;
+    int[] modes;
+    String[][] columns;
+    int[][] keys;
+    long[] deletedCounts;
+    long[] rowCounts;
+    long rows;
+
+    Header(Input input) {
+      this.input = input;
+    }
+
+    void checkAtEnd() throws IOException {
+      if (!input.isAtEnd()) {
+        throw new IOException("snapshot has data after its last table");
+      }
+    }
+  }
+
+  /**
+   * Collects what is written into blocks, and hands each full block to a writer thread that
+   * compresses it into the file. There is only a fixed number of blocks, so a snapshot of any
+   * size is written in the same memory; when the writer falls behind, the cursors wait for it.
+   */
+  static final class Output {
+
+    private final BlockWriter writer;
+    private ByteBuffer buffer;
+
+    Output(FileChannel channel, BackupThroughput throughput) throws IOException {
+      writer = new BlockWriter(channel, throughput);
+      buffer = writer.nextBlock();
+    }
+
+    void writeByte(int value) throws IOException {
+      ensure(1);
+      buffer.put((byte) value);
+    }
+
+    void writeInt(int value) throws IOException {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+      ensure(8);
+      buffer.putLong(value);
+    }
+
+    /**
+     * Writes a value that is not negative in seven bit groups, low group first.
+     */
+    void writeVarLong(long value) throws IOException {
+      ensure(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer.put((byte) ((value & 0x7F) | 0x80));
+        value >>>= 7;
+      }
+      buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a value that may be negative, zigzag encoded so small negative values stay short.
+     */
+    void writeSignedVarLong(long value) throws IOException {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+      writeVarLong(bytes.length);
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        int length = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.put(bytes, offset, length);
+        offset += length;
+      }
+    }
+
+    void writeText(String text) throws IOException {
+      writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hands over the last block, and waits for the writer to write it and the checksum.
+     */
+    void finish() throws IOException {
+      if (buffer.position() > 0) {
+        writer.submit(buffer);
+      }
+      buffer = null;
+      writer.finish();
+    }
+
+    /**
+     * Stops the writer if the snapshot was not finished.
+     */
+    void close() {
+      writer.stop();
+    }
+
+    private void ensure(int length) throws IOException {
+      if (buffer.remaining() < length) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      writer.submit(buffer);
+      buffer = writer.nextBlock();
+    }
+  }
+
+  /**
+   * Compresses blocks into the file on its own thread. A file is laid out as the compressed
+   * magic number, then a frame for each block: its length, the length it was compressed to and
+   * the compressed bytes. It ends with a frame of length 0 holding the checksum of every block.
+   */
+  private static final class BlockWriter implements Runnable {
+
+    /**
+     * Handed over after the last block.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BackupThroughput throughput;
+    private final BlockingQueue<ByteBuffer> freeBlocks = new ArrayBlockingQueue<>(BLOCK_COUNT);
+    // room for every block and the end, so handing over never waits
+    private final BlockingQueue<ByteBuffer> fullBlocks =
+            new ArrayBlockingQueue<>(BLOCK_COUNT + 1);
+    private final Thread thread;
+    private volatile IOException failure = null;
+    private boolean stopped = false;
+
+    BlockWriter(FileChannel channel, BackupThroughput throughput) throws IOException {
+      this.channel = channel;
+      this.throughput = throughput;
+      for (int i = 0; i < BLOCK_COUNT; i++) {
+        freeBlocks.add(ByteBuffer.allocate(BUFFER_SIZE));
+      }
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      magic.putInt(COMPRESSED_MAGIC).flip();
+      writeFully(magic);
+      thread = new Thread(this, "snapshot-writer");
+      thread.start();
+    }
+
+    /**
+     * Returns an empty block, waiting for the writer to finish with one if they are all in use.
+     * The wait ends with the writer's failure if it stops without handing one back.
+     */
+    ByteBuffer nextBlock() throws IOException {
+      try {
+        while (true) {
+          checkFailure();
+          ByteBuffer block = freeBlocks.poll(WRITER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (block != null) {
+            return block;
+          }
+          if (!thread.isAlive()) {
+            checkFailure();
+            throw new IOException("snapshot writer stopped");
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while writing snapshot");
+      }
+    }
+
+    void submit(ByteBuffer block) throws IOException {
+      checkFailure();
+      fullBlocks.add(block);
+    }
+
+    /**
+     * Waits for every block handed over to be written, then the checksum.
+     */
+    void finish() throws IOException {
+      fullBlocks.add(END);
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while writing snapshot");
+      } finally {
+        stopped = true;
+      }
+      checkFailure();
+    }
+
+    void stop() {
+      if (!stopped) {
+        stopped = true;
+        thread.interrupt();
+      }
+    }
+
+    @Override
+    public void run() {
+      // favour speed, a block of rows still compresses well
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+      CRC32 checksum = new CRC32();
+      byte[] compressed = new byte[MAX_COMPRESSED_SIZE];
+      ByteBuffer frame = ByteBuffer.allocate(8);
+      try {
+        while (true) {
+          ByteBuffer block = fullBlocks.take();
+          if (block == END) {
+            frame.clear();
+            frame.putInt(0).putInt((int) checksum.getValue()).flip();
+            writeFully(frame);
+            return;
+          }
+          int length = block.position();
+          deflater.reset();
+          deflater.setInput(block.array(), 0, length);
+          deflater.finish();
+          int compressedLength = 0;
+          while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+              compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength,
+                    compressed.length - compressedLength);
+          }
+          checksum.update(block.array(), 0, length);
+          frame.clear();
+          frame.putInt(length).putInt(compressedLength).flip();
+          writeFully(frame);
+          writeFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+          throughput.addBlock(length, compressedLength + frame.capacity());
+          block.clear();
+          freeBlocks.add(block);
+        }
+      } catch (IOException e) {
+        failure = e;
+      } catch (RuntimeException e) {
+        failure = new IOException("snapshot writer failed", e);
+      } catch (InterruptedException e) {
+        // stopped before the snapshot was finished
+      } finally {
+        deflater.end();
+        throughput.finish();
+      }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    private void checkFailure() throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+  }
+
+  /**
+   * Where the bytes of a snapshot are read from.
+   */
+  interface Source {
+
+    /**
+     * Reads bytes into the buffer, up to its limit.
+     *
+     * @return the number of bytes read, -1 at the end of the snapshot
+     */
+    int read(ByteBuffer buffer) throws IOException;
+  }
+
+  /**
+   * Reads the bytes of a snapshot that is not compressed, up to the checksum at its end.
+   */
+  private static final class ChannelSource implements Source {
+
+    private final FileChannel channel;
+
+    /**
+     * Number of bytes before the checksum not yet read.
+     */
+    private long unread;
+
+    ChannelSource(FileChannel channel, long length) {
+      this.channel = channel;
+      this.unread = length;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException {
+      if (unread <= 0) {
+        return -1;
+      }
+      // never read the checksum as data
+      int limit = buffer.limit();
+      buffer.limit((int) Math.min(limit, buffer.position() + unread));
+      int read = channel.read(buffer);
+      buffer.limit(limit);
+      if (read > 0) {
+        unread -= read;
+      }
+      return read;
+    }
+  }
+
+  /**
+   * Reads the bytes of a compressed snapshot, inflating one block at a time.
+   */
+  private static final class FrameSource implements Source {
+
+    private final FileChannel channel;
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer frame = ByteBuffer.allocate(8);
+    private final byte[] block = new byte[BUFFER_SIZE];
+    private byte[] compressed = new byte[MAX_COMPRESSED_SIZE];
+    private int blockPosition = 0;
+    private int blockLength = 0;
+    private boolean ended = false;
+    private boolean valid = false;
+
+    FrameSource(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException {
+      if (blockPosition == blockLength) {
+        if (ended || !nextBlock()) {
+          return -1;
+        }
+      }
+      int length = Math.min(buffer.remaining(), blockLength - blockPosition);
+      buffer.put(block, blockPosition, length);
+      blockPosition += length;
+      return length;
+    }
+
+    /**
+     * Returns <code>true</code> if the last frame has been read, and its checksum matches the
+     * blocks before it.
+     */
+    boolean isValid() {
+      return valid;
+    }
+
+    /**
+     * Reads and inflates the next block.
+     *
+     * @return <code>false</code> at the end of the snapshot
+     */
+    private boolean nextBlock() throws IOException {
+      frame.clear();
+      readFully(frame);
+      frame.flip();
+      int length = frame.getInt();
+      int compressedLength = frame.getInt();
+      if (length == 0) {
+        ended = true;
+        valid = compressedLength == (int) checksum.getValue();
+        inflater.end();
+        return false;
+      }
+      if (length < 0 || length > block.length || compressedLength < 0
+              || compressedLength > channel.size()) {
+        throw new IOException("malformed snapshot block");
+      }
+      if (compressedLength > compressed.length) {
+        compressed = new byte[compressedLength];
+      }
+      readFully(ByteBuffer.wrap(compressed, 0, compressedLength));
+      inflater.reset();
+      inflater.setInput(compressed, 0, compressedLength);
+      int inflated = 0;
+      try {
+        while (inflated < length && !inflater.finished()) {
+          int count = inflater.inflate(block, inflated, length - inflated);
+          if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          inflated += count;
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("malformed snapshot block", e);
+      }
+      if (inflated != length) {
+        throw new IOException("malformed snapshot block");
+      }
+      checksum.update(block, 0, length);
+      blockPosition = 0;
+      blockLength = length;
+      return true;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          throw new EOFException();
+        }
+      }
+    }
+  }
+
+  /**
+   * Buffers what is read from a source.
+   */
+  static final class Input {
+
+    private final Source source;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean ended = false;
+
+    Input(Source source) {
+      this.source = source;
+      buffer.limit(0);
+    }
+
+    int readByte() throws IOException {
+      require(1);
+      return buffer.get() & 0xFF;
+    }
+
+    int readInt() throws IOException {
+      require(4);
+      return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+      require(8);
+      return buffer.getLong();
+    }
+
+    long readVarLong() throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        int group = readByte();
+        value |= (long) (group & 0x7F) << shift;
+        if ((group & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("malformed number");
+    }
+
+    long readSignedVarLong() throws IOException {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    byte[] readBytes() throws IOException {
+      long length = readVarLong();
+      // checked before the value is allocated, so a damaged length can not exhaust memory
+      if (length > MAX_VALUE_LENGTH) {
+        throw new IOException("malformed length");
+      }
+      byte[] bytes = new byte[(int) length];
+      int offset = 0;
+      while (offset < bytes.length) {
+        if (!buffer.hasRemaining()) {
+          require(1);
+        }
+        int count = Math.min(buffer.remaining(), bytes.length - offset);
+        buffer.get(bytes, offset, count);
+        offset += count;
+      }
+      return bytes;
+    }
+
+    String readText() throws IOException {
+      return new String(readBytes(), StandardCharsets.UTF_8);
+    }
+
+    boolean isAtEnd() throws IOException {
+      if (buffer.hasRemaining()) {
+        return false;
+      }
+      buffer.clear();
+      int read = ended ? -1 : source.read(buffer);
+      buffer.flip();
+      return read < 0;
+    }
+
+    /**
+     * Makes sure the buffer holds at least the given number of bytes.
+     */
+    private void require(int length) throws IOException {
+      if (buffer.remaining() >= length) {
+        return;
+      }
+      buffer.compact();
+      while (buffer.position() < length) {
+        if (ended || source.read(buffer) < 0) {
+          ended = true;
+          throw new EOFException();
+        }
+      }
+      buffer.flip();
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+package com.bank.databasehelper;
+
+import android.database.SQLException;
+
+import com.bank.accounts.Money;
+import com.bank.exceptions.ConnectionFailedException;
+import com.bank.ledger.LedgerEntryType;
+
+/**
+ * Helper methods for moving money in and out of accounts. Every change is applied by the
+ * database relative to the stored balance, so two terminals working on the same account can not
+ * overwrite each other's update, and a debit is refused by the same statement that would apply
+ * it if the balance is too low. No lock is taken in Java, so operations on unrelated accounts
+ * only ever wait for the database's one writer. Every change is journalled in the ledger in the
+ * same transaction.
+ *
+ * <p>A change the database refuses, such as a debit the balance does not cover, returns
+ * <code>false</code>; a change the database fails to make throws a ConnectionFailedException,
+ * so the two are never confused.
+ */
+public class DatabaseTransactionHelper {
+
+  /**
+   * Message for the exception thrown when the database fails.
+   */
+  private static final String CONNECTION_FAILED_MSG = "update to database failed";
+
+  /**
+   * Adds the amount to the balance of the account with ID number accountId.
+   *
+   * @param accountId an account ID number
+   * @param amount a positive amount to add
+   * @return <code>true</code> if the deposit was made, <code>false</code> if the inputs are
+   *         invalid or the balance would overflow
+   * @throws ConnectionFailedException if the database failed to make the deposit
+   */
+  public static boolean deposit(int accountId, Money amount) throws ConnectionFailedException {
+    // the same checks a balance set through DatabaseUpdateHelper goes through
+    if (!validAmount(amount) || !DatabaseValidHelper.accountExists(accountId)) {
+      return false;
+    }
+    int typeId = DatabaseSelectHelper.getAccountType(accountId);
+    if (!DatabaseValidHelper.validAccountTypeId(typeId)) {
+      return false;
+    }
+    try {
+      return DatabaseDriverHelper.driverUpdateAccountBalanceBy(amount, accountId,
+              LedgerEntryType.DEPOSIT);
+    } catch (SQLException e) {
+      throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    }
+  }
+
+  /**
+   * Takes the amount out of the account with ID number accountId, if its balance covers it.
+   *
+   * @param accountId an account ID number
+   * @param amount a positive amount to take out
+   * @return <code>true</code> if the withdrawal was made, <code>false</code> if the balance is
+   *         less than the amount or the inputs are invalid
+   * @throws ConnectionFailedException if the database failed to make the withdrawal
+   */
+  public static boolean withdraw(int accountId, Money amount) throws ConnectionFailedException {
+    if (!validAmount(amount) || !DatabaseValidHelper.accountExists(accountId)) {
+      return false;
+    }
+    try {
+      return DatabaseDriverHelper.driverUpdateAccountBalanceDebit(amount, accountId);
+    } catch (SQLException e) {
+      throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    }
+  }
+
+  /**
+   * Adds a loan to the balance owing account with ID number accountId, making its balance more
+   * negative by the amount.
+   *
+   * @param accountId a balance owing account ID number
+   * @param amount a positive loan amount
+   * @return <code>true</code> if the loan was added, <code>false</code> if the inputs are invalid
+   *         or the balance would overflow
+   * @throws ConnectionFailedException if the database failed to add the loan
+   */
+  public static boolean addLoan(int accountId, Money amount) throws ConnectionFailedException {
+    if (!validAmount(amount) || !DatabaseValidHelper.isAccountType("OWING", accountId)) {
+      return false;
+    }
+    try {
+      return DatabaseDriverHelper.driverUpdateAccountBalanceBy(amount.negate(), accountId,
+              LedgerEntryType.LOAN);
+    } catch (SQLException e) {
+      throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    }
+  }
+
+  /**
+   * Adds interest to the balance of the account with ID number accountId. Interest on a balance
+   * owing account is negative, and is journalled as an interest charge.
+   *
+   * @param accountId an account ID number
+   * @param interest a non-zero amount of interest
+   * @return <code>true</code> if the interest was added, <code>false</code> otherwise
+   * @throws ConnectionFailedException if the database failed to add the interest
+   */
+  public static boolean addInterest(int accountId, Money interest)
+          throws ConnectionFailedException {
+    if (interest == null || interest.signum() == 0
+        || !DatabaseValidHelper.accountExists(accountId)) {
+      return false;
+    }
+    try {
+      return DatabaseDriverHelper.driverUpdateAccountBalanceBy(interest, accountId,
+              LedgerEntryType.forInterest(interest.getCents()));
+    } catch (SQLException e) {
+      throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    }
+  }
+
+  /**
+   * Moves the amount from one account to another in a single database transaction. Either both
+   * balances change or neither does.
+   *
+   * @param fromAccountId the ID number of the account to take the amount out of
+   * @param toAccountId the ID number of the account to add the amount to
+   * @param amount a positive amount to move
+   * @return <code>true</code> if the transfer was made, <code>false</code> if the balance of the
+   *         source account is less than the amount or the inputs are invalid
+   * @throws ConnectionFailedException if the database failed to make the transfer
+   */
+  public static boolean transfer(int fromAccountId, int toAccountId, Money amount)
+          throws ConnectionFailedException {
+    if (!validAmount(amount) || fromAccountId == toAccountId
+        || !DatabaseValidHelper.accountExists(fromAccountId)
+        || !DatabaseValidHelper.accountExists(toAccountId)) {
+      return false;
+    }
+    try {
+      return DatabaseDriverHelper.driverUpdateAccountBalanceTransfer(amount, fromAccountId,
+              toAccountId);
+    } catch (SQLException e) {
+      throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    }
+  }
+
+  /**
+   * Returns <code>true</code> if the amount is positive.
+   *
+   * @param amount an amount of money
+   * @return <code>true</code> if the amount is positive
+   */
+  private static boolean validAmount(Money amount) {
+    return amount != null && amount.signum() > 0;
+  }
+
+}
@@ -1,5 +1,6 @@
 package com.bank.databasehelper;
 
+import com.bank.accounts.Money;
 import com.bank.security.PasswordHelpers;
 import java.math.BigDecimal;
 
@@ -112,6 +113,21 @@ public class DatabaseUpdateHelper {
    * @return <code>true</code> if successful update, <code>false</code> otherwise
    */
   public static boolean updateAccountBalance(BigDecimal balance, int id) {
+    // amounts past two decimal places can not be held in cents
+    if (balance != null && Money.isExact(balance)) {
+      return updateAccountBalance(Money.of(balance), id);
+    }
+    return false;
+  }
+
+  /**
+   * Connects to database and updates the balance of the account with ID number id.
+   * 
+   * @param balance the new balance the account will hold
+   * @param id an account's ID number
+   * @return <code>true</code> if successful update, <code>false</code> otherwise
+   */
+  public static boolean updateAccountBalance(Money balance, int id) {
     int typeId = DatabaseSelectHelper.getAccountType(id);
     // check if inputs are valid
     if (DatabaseValidHelper.validBalance(balance, typeId)
@@ -122,6 +138,26 @@ public class DatabaseUpdateHelper {
     return false;
   }
 
+  /**
+   * Changes the type of the account with ID number id from one type to another, only if it is
+   * still of the first type and its balance is below the given amount. Both are checked by the
+   * statement that changes the type, so a deposit made in between can not be missed.
+   *
+   * @param fromTypeId the account type the account must have
+   * @param toTypeId the account type to change it to
+   * @param below the balance the account must be under
+   * @param id the account's ID number
+   * @return <code>true</code> if the type was changed, <code>false</code> otherwise
+   */
+  public static boolean updateAccountTypeIfBelow(int fromTypeId, int toTypeId, Money below,
+                                                 int id) {
+    if (DatabaseValidHelper.validId(id) && DatabaseValidHelper.validAccountTypeId(toTypeId)
+        && below != null) {
+      return DatabaseDriverHelper.driverUpdateAccountTypeIfBelow(fromTypeId, toTypeId, below, id);
+    }
+    return false;
+  }
+
   /**
    * Connects to database and updates the account type ID number.
    * 
@@ -189,6 +225,25 @@ public class DatabaseUpdateHelper {
     return false;
   }
 
+  /**
+   * Connects to database and replaces a user's stored hash with one made by the current scheme.
+   * The caller must already have verified password against storedHash; it is not checked against
+   * the password rules, which may be newer than the password. The hash is only replaced if it is
+   * still storedHash, so a password changed in the meantime is kept.
+   *
+   * @param password the user's current password, unhashed and already verified
+   * @param storedHash the stored hash the password was verified against
+   * @param userId a user ID number
+   * @return <code>true</code> if the stored hash was replaced
+   */
+  public static boolean rehashUserPassword(String password, String storedHash, int userId) {
+    if (password == null || storedHash == null) {
+      return false;
+    }
+    return DatabaseDriverHelper.driverReplaceUserPassword(storedHash,
+            PasswordHelpers.passwordHash(password), userId);
+  }
+
   /**
    * Connects to database and updates the message to viewed. Returns <code>true</code> if update was
    * successful.
@@ -2,13 +2,12 @@ package com.bank.databasehelper;
 
 import com.bank.accounts.Account;
 import com.bank.accounts.BalanceOwingAccount;
+import com.bank.accounts.Money;
 import com.bank.generics.AccountTypes;
 import com.bank.generics.AccountTypesEnumMap;
 import com.bank.generics.Roles;
-import com.bank.users.Customer;
-import com.bank.users.User;
+import com.bank.generics.RolesEnumMap;
 import java.math.BigDecimal;
-import java.util.List;
 
 /**
  * Helper methods for checking if input to database is valid.
@@ -118,8 +117,7 @@ public class DatabaseValidHelper {
    * @return <code>true</code> if roleId exists in Roles table
    */
   public static boolean validRoleId(int roleId) {
-    List<Integer> roleIds = DatabaseSelectHelper.getRoles();
-    return roleIds.contains(roleId);
+    return ReferenceData.get().getRoleName(roleId) != null;
   }
 
   /**
@@ -129,8 +127,7 @@ public class DatabaseValidHelper {
    * @return <code>true</code> if accountTypeId exists in AccountTypes table
    */
   public static boolean validAccountTypeId(int accountTypeId) {
-    List<Integer> typeIds = DatabaseSelectHelper.getAccountTypesIds();
-    return typeIds.contains(accountTypeId);
+    return ReferenceData.get().getAccountTypeName(accountTypeId) != null;
   }
 
   /**
@@ -140,17 +137,18 @@ public class DatabaseValidHelper {
    * @return <code>true</code> if balance is at two decimal places and is non-negative
    */
   public static boolean validBalance(BigDecimal balance) {
-    boolean valid;
-    try {
-      // check if balance has at most two decimal places, is non-negative
-      boolean twoDecimalPlaces = Math.max(0, balance.stripTrailingZeros().scale()) <= 2;
-      boolean isNonNegative = balance.compareTo(BigDecimal.ZERO) >= 0;
-      valid = twoDecimalPlaces && isNonNegative;
-    } catch (NullPointerException npe) {
-      // return false if null was passed in
-      valid = false;
-    }
-    return valid;
+    // amounts past two decimal places can not be held in cents
+    return balance != null && Money.isExact(balance) && validBalance(Money.of(balance));
+  }
+
+  /**
+   * Returns <code>true</code> if balance is non-negative.
+   * 
+   * @param balance an account balance
+   * @return <code>true</code> if balance is non-negative
+   */
+  public static boolean validBalance(Money balance) {
+    return balance != null && balance.signum() >= 0;
   }
   
   /**
@@ -161,9 +159,21 @@ public class DatabaseValidHelper {
    * @return <code>true</code> if balance is at two decimal places and is non-negative
    */
   public static boolean validBalance(BigDecimal balance, int typeId) {
+    return balance != null && Money.isExact(balance) && validBalance(Money.of(balance), typeId);
+  }
+
+  /**
+   * Valid Balance method: Special case for Balance Owing Accounts.
+   * 
+   * @param balance an account balance
+   * @param typeId the account type ID
+   * @return <code>true</code> if balance is non-negative, or owing on a Balance Owing Account
+   */
+  public static boolean validBalance(Money balance, int typeId) {
     boolean result;
-    if (AccountTypesEnumMap.getAccountTypeName(typeId).equals("OWING") && balance.signum() == -1) {
-      result = validBalance(balance.negate());
+    if (balance != null && balance.signum() == -1
+        && AccountTypesEnumMap.getAccountTypeName(typeId).equals("OWING")) {
+      result = true;
     } else {
       result = validBalance(balance);
     }
@@ -276,18 +286,25 @@ public class DatabaseValidHelper {
     if (userId == INVALID_ID || accountId == INVALID_ID) {
       return false;
     }
-    boolean result = false;
-    // get user from database
-    User user = DatabaseSelectHelper.getUserDetails(userId);
-    // check if user is a customer
-    if (user instanceof Customer) {
-      // check if account ID belongs in user's list of account IDs
-      List<Integer> accountIds = DatabaseSelectHelper.getAccountIds(userId);
-      result = accountIds.contains(accountId);
-    }
-    return result;
+    // only customers own accounts
+    int customerRoleId = RolesEnumMap.getRoleId(Roles.CUSTOMER);
+    return DatabaseDriverHelper.driverUserOwnsAccount(userId, accountId, customerRoleId);
   }
   
+  /**
+   * Returns <code>true</code> if the message with messageId was left for the user with userId.
+   *
+   * @param userId a user ID number
+   * @param messageId a message ID number
+   * @return <code>true</code> if user owns message
+   */
+  public static boolean userOwnsMessage(int userId, int messageId) {
+    if (userId == INVALID_ID || messageId == INVALID_ID) {
+      return false;
+    }
+    return DatabaseDriverHelper.driverUserOwnsMessage(userId, messageId);
+  }
+
   /**
    * Returns <code>true</code> if the account is the type given.
    * 
@@ -0,0 +1,394 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.accounts.Account;
+import com.bank.accounts.Money;
+import com.bank.messages.MessageTemplate;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Adds interest to every interest bearing account in the bank. Accounts are read in ID order a
+ * chunk at a time, and each chunk's interest, the messages to their owners and a checkpoint
+ * are written in one transaction. If a run is interrupted, the next run in the same month resumes
+ * after the last chunk that was written, so no account is given interest twice that month. A run
+ * left unfinished in an earlier month is abandoned, and the new run starts from the first
+ * account.
+ */
+public class InterestBatchJob {
+
+  /**
+   * Default number of accounts read and written per transaction.
+   */
+  public static final int CHUNK_SIZE = 1000;
+
+  /**
+   * Number of accounts read and written per transaction.
+   */
+  private final int chunkSize;
+
+  /**
+   * Where the accounts are read from and the interest written to.
+   */
+  private final Store store;
+
+  /**
+   * Number of accounts given interest by the last run.
+   */
+  private int accountsProcessed = 0;
+
+  /**
+   * Creates a job that writes the default number of accounts per transaction.
+   */
+  public InterestBatchJob() {
+    this(CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a job that writes the given number of accounts per transaction.
+   *
+   * @param chunkSize number of accounts per transaction, must be positive
+   */
+  public InterestBatchJob(int chunkSize) {
+    this(chunkSize, new DatabaseStore());
+  }
+
+  /**
+   * Creates a job that reads and writes through the given store.
+   *
+   * @param chunkSize number of accounts per transaction, must be positive
+   * @param store where the accounts are read from and the interest written to
+   */
+  InterestBatchJob(int chunkSize, Store store) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunk size must be positive");
+    }
+    this.chunkSize = chunkSize;
+    this.store = store;
+  }
+
+  /**
+   * Adds interest to every account in the bank with a balance and a positive interest rate, and
+   * leaves a message for each of their owners. Resumes the last run if it did not finish and
+   * was started this month.
+   *
+   * @return the total interest added by the run
+   */
+  public BigDecimal run() {
+    return run(periodOf(Calendar.getInstance()));
+  }
+
+  /**
+   * Adds interest for the given month, resuming the last run if it did not finish and was
+   * started in the same month.
+   *
+   * @param period the month of the run, as returned by {@link #periodOf}
+   * @return the total interest added by the run
+   */
+  BigDecimal run(int period) {
+    int runId = DatabaseValidHelper.INVALID_ID;
+    int lastId = DatabaseValidHelper.MIN_ID - 1;
+    long totalCents = 0;
+    accountsProcessed = 0;
+    // pick up from the checkpoint of an unfinished run
+    Cursor cursor = store.getOpenRun();
+    if (cursor != null) {
+      if (cursor.moveToFirst()) {
+        int openRunId = cursor.getInt(cursor.getColumnIndex("ID"));
+        if (cursor.getInt(cursor.getColumnIndex("PERIOD")) == period) {
+          runId = openRunId;
+          lastId = Math.max(lastId, cursor.getInt(cursor.getColumnIndex("LASTACCOUNTID")));
+          accountsProcessed = cursor.getInt(cursor.getColumnIndex("ACCOUNTS"));
+          totalCents = cursor.getLong(cursor.getColumnIndex("TOTALINTEREST"));
+        } else {
+          // another month's checkpoint, every account is due this month's interest
+          store.completeRun(openRunId);
+        }
+      }
+      cursor.close();
+    }
+    if (runId == DatabaseValidHelper.INVALID_ID) {
+      runId = store.insertRun(period);
+    }
+    Chunk chunk = new Chunk(chunkSize);
+    do {
+      chunk.clear();
+      // read and write inside one transaction, so no balance changes in between
+      store.beginTransaction();
+      try {
+        readChunk(lastId, chunk);
+        if (chunk.rows > 0) {
+          boolean[] credited = store.updateRun(runId, chunk.lastId,
+                  Arrays.copyOf(chunk.accountIds, chunk.accounts),
+                  Arrays.copyOf(chunk.interestCentsByAccount, chunk.accounts),
+                  Arrays.copyOf(chunk.messageAccounts, chunk.messages),
+                  Arrays.copyOf(chunk.messageUserIds, chunk.messages),
+                  MessageTemplate.ACCOUNT_INTEREST.getCode(),
+                  Arrays.copyOf(chunk.messageParameters, chunk.messages));
+          // an account the database refused, gone or out of range, is not counted
+          for (int i = 0; i < chunk.accounts; i++) {
+            if (credited[i]) {
+              accountsProcessed++;
+              totalCents = Math.addExact(totalCents, chunk.interestCentsByAccount[i]);
+            }
+          }
+        }
+        store.setTransactionSuccessful();
+      } finally {
+        store.endTransaction();
+      }
+      lastId = chunk.lastId;
+    } while (chunk.rows == chunkSize);
+    store.completeRun(runId);
+    return Money.ofCents(totalCents).toBigDecimal();
+  }
+
+  /**
+   * Returns the number of accounts given interest by the last run, including any accounts given
+   * interest before the run was resumed.
+   *
+   * @return the number of accounts given interest
+   */
+  public int getAccountsProcessed() {
+    return accountsProcessed;
+  }
+
+  /**
+   * Returns the month the given time is in, as its year times 100 plus its month, so 202610 is
+   * October 2026.
+   *
+   * @param calendar the time
+   * @return the month of the time
+   */
+  static int periodOf(Calendar calendar) {
+    return calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
+  }
+
+  /**
+   * Reads the chunk of accounts after the given account ID, and works out their interest and
+   * the messages to leave for their owners.
+   *
+   * @param afterAccountId the ID of the last account of the previous chunk
+   * @param chunk the chunk to fill
+   */
+  private void readChunk(int afterAccountId, Chunk chunk) {
+    chunk.lastId = afterAccountId;
+    Cursor cursor = store.getAccountsDetails(afterAccountId, chunkSize);
+    if (cursor == null) {
+      return;
+    }
+    int idColumn = cursor.getColumnIndex("ID");
+    int balanceColumn = cursor.getColumnIndex("BALANCE");
+    int interestRateColumn = cursor.getColumnIndex("INTERESTRATE");
+    while (cursor.moveToNext()) {
+      chunk.rows++;
+      int accountId = cursor.getInt(idColumn);
+      chunk.lastId = accountId;
+      Money balance = Money.ofCents(cursor.getLong(balanceColumn));
+      String rate = cursor.getString(interestRateColumn);
+      if (balance.signum() == 0 || rate == null) {
+        continue;
+      }
+      BigDecimal interestRate = new BigDecimal(rate);
+      if (interestRate.signum() <= 0) {
+        continue;
+      }
+      Money interest = Account.calculateInterest(balance, interestRate);
+      if (interest.signum() != 0) {
+        chunk.addAccount(accountId, interest);
+      }
+    }
+    cursor.close();
+    if (chunk.accounts > 0) {
+      readOwners(afterAccountId, chunk);
+    }
+  }
+
+  /**
+   * Adds a message for every owner of the accounts in the chunk.
+   *
+   * @param afterAccountId the ID of the last account of the previous chunk
+   * @param chunk the chunk of accounts given interest
+   */
+  private void readOwners(int afterAccountId, Chunk chunk) {
+    Cursor cursor = store.getAccountOwners(afterAccountId, chunk.lastId);
+    if (cursor == null) {
+      return;
+    }
+    int accountIdColumn = cursor.getColumnIndex("ACCOUNTID");
+    int userIdColumn = cursor.getColumnIndex("USERID");
+    // both the owners and the chunk are in account ID order, so walk them together
+    int i = 0;
+    while (cursor.moveToNext()) {
+      int accountId = cursor.getInt(accountIdColumn);
+      while (i < chunk.accounts && chunk.accountIds[i] < accountId) {
+        i++;
+      }
+      if (i < chunk.accounts && chunk.accountIds[i] == accountId) {
+        String parameters = MessageTemplate.ACCOUNT_INTEREST.encode(
+                chunk.interestCentsByAccount[i], accountId);
+        chunk.addMessage(i, cursor.getInt(userIdColumn), parameters);
+      }
+    }
+    cursor.close();
+  }
+
+  /**
+   * The reads and writes an interest run makes, so a run can be driven without a database.
+   */
+  interface Store {
+
+    /**
+     * Reads the latest interest run that has not finished.
+     *
+     * @return a cursor over at most one run
+     */
+    Cursor getOpenRun();
+
+    /**
+     * Starts a new interest run for the given month.
+     *
+     * @return the ID of the new run
+     */
+    int insertRun(int period);
+
+    /**
+     * Marks the run as finished.
+     */
+    void completeRun(int runId);
+
+    void beginTransaction();
+
+    void setTransactionSuccessful();
+
+    void endTransaction();
+
+    /**
+     * Reads up to limit accounts after the given account ID, in ID order, with their interest
+     * rates.
+     */
+    Cursor getAccountsDetails(int afterAccountId, int limit);
+
+    /**
+     * Reads the owners of the accounts after afterAccountId up to lastAccountId, in account ID
+     * order.
+     */
+    Cursor getAccountOwners(int afterAccountId, int lastAccountId);
+
+    /**
+     * Credits each account with its interest, journals it, leaves the messages of the accounts
+     * credited, and moves the run's checkpoint to lastAccountId, in one transaction.
+     *
+     * @return whether each account was credited
+     */
+    boolean[] updateRun(int runId, int lastAccountId, int[] accountIds, long[] interests,
+                        int[] messageAccounts, int[] messageUserIds, int messageTemplateId,
+                        String[] messageParameters);
+  }
+
+  /**
+   * The bank database.
+   */
+  private static final class DatabaseStore implements Store {
+
+    @Override
+    public Cursor getOpenRun() {
+      return DatabaseDriverHelper.driverGetOpenInterestRun();
+    }
+
+    @Override
+    public int insertRun(int period) {
+      return DatabaseDriverHelper.driverInsertInterestRun(period);
+    }
+
+    @Override
+    public void completeRun(int runId) {
+      DatabaseDriverHelper.driverUpdateInterestRunComplete(runId);
+    }
+
+    @Override
+    public void beginTransaction() {
+      DatabaseDriverHelper.driverBeginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+      DatabaseDriverHelper.driverSetTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction() {
+      DatabaseDriverHelper.driverEndTransaction();
+    }
+
+    @Override
+    public Cursor getAccountsDetails(int afterAccountId, int limit) {
+      return DatabaseDriverHelper.driverGetAccountsDetails(afterAccountId, limit);
+    }
+
+    @Override
+    public Cursor getAccountOwners(int afterAccountId, int lastAccountId) {
+      return DatabaseDriverHelper.driverGetAccountOwners(afterAccountId, lastAccountId);
+    }
+
+    @Override
+    public boolean[] updateRun(int runId, int lastAccountId, int[] accountIds, long[] interests,
+                               int[] messageAccounts, int[] messageUserIds,
+                               int messageTemplateId, String[] messageParameters) {
+      return DatabaseDriverHelper.driverUpdateInterestRun(runId, lastAccountId, accountIds,
+              interests, messageAccounts, messageUserIds, messageTemplateId, messageParameters);
+    }
+  }
+
+  /**
+   * The accounts and messages to write for one chunk, in reusable arrays.
+   */
+  private static class Chunk {
+
+    int rows;
+    int lastId;
+    int accounts;
+    int[] accountIds;
+    long[] interestCentsByAccount;
+    int messages;
+    int[] messageAccounts;
+    int[] messageUserIds;
+    String[] messageParameters;
+
+    Chunk(int size) {
+      accountIds = new int[size];
+      interestCentsByAccount = new long[size];
+      messageAccounts = new int[size];
+      messageUserIds = new int[size];
+      messageParameters = new String[size];
+    }
+
+    void clear() {
+      rows = 0;
+      accounts = 0;
+      messages = 0;
+      Arrays.fill(messageParameters, null);
+    }
+
+    void addAccount(int accountId, Money interest) {
+      accountIds[accounts] = accountId;
+      interestCentsByAccount[accounts] = interest.getCents();
+      accounts++;
+    }
+
+    void addMessage(int account, int userId, String parameters) {
+      if (messages == messageParameters.length) {
+        // joint accounts have more than one owner
+        messageAccounts = Arrays.copyOf(messageAccounts, messages * 2);
+        messageUserIds = Arrays.copyOf(messageUserIds, messages * 2);
+        messageParameters = Arrays.copyOf(messageParameters, messages * 2);
+      }
+      messageAccounts[messages] = account;
+      messageUserIds[messages] = userId;
+      messageParameters[messages] = parameters;
+      messages++;
+    }
+  }
+
+}
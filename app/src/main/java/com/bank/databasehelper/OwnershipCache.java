@@ -0,0 +1,102 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+import com.bank.generics.Roles;
+import com.bank.generics.RolesEnumMap;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The accounts owned by one user, held as a bitmap of account IDs for the length of a session.
+ * The user's accounts are read with one query the first time ownership is checked, and every
+ * check after that is answered from memory until an account is given a new owner.
+ */
+public class OwnershipCache {
+
+  /**
+   * Bumped whenever any account is given a new owner, so every session reloads.
+   */
+  private static final AtomicLong generation = new AtomicLong();
+
+  /**
+   * The ID of the user whose accounts are held.
+   */
+  private final int userId;
+
+  /**
+   * The IDs of the accounts the user owns, <code>null</code> until first loaded.
+   */
+  private BitSet ownedAccountIds = null;
+
+  /**
+   * The generation the bitmap was loaded at.
+   */
+  private long loadedGeneration = -1;
+
+  /**
+   * Creates an empty ownership cache for the given user.
+   *
+   * @param userId a user ID number
+   */
+  public OwnershipCache(int userId) {
+    this.userId = userId;
+  }
+
+  /**
+   * Returns the ID of the user whose accounts are held.
+   *
+   * @return a user ID number
+   */
+  public int getUserId() {
+    return userId;
+  }
+
+  /**
+   * Returns <code>true</code> if the user owns the account with accountId.
+   *
+   * @param accountId an account ID number
+   * @return <code>true</code> if the user owns the account
+   */
+  public synchronized boolean owns(int accountId) {
+    if (accountId < 0) {
+      return false;
+    }
+    long current = generation.get();
+    if (ownedAccountIds == null || loadedGeneration != current) {
+      ownedAccountIds = loadOwnedAccountIds();
+      loadedGeneration = current;
+    }
+    return ownedAccountIds.get(accountId);
+  }
+
+  /**
+   * Marks the ownership held by every session as out of date. Called whenever an account is
+   * given a new owner.
+   */
+  static void invalidateAll() {
+    generation.incrementAndGet();
+  }
+
+  /**
+   * Reads the IDs of the accounts the user owns. Only customers own accounts.
+   *
+   * @return a bitmap of the account IDs
+   */
+  private BitSet loadOwnedAccountIds() {
+    BitSet accountIds = new BitSet();
+    int customerRoleId = RolesEnumMap.getRoleId(Roles.CUSTOMER);
+    if (DatabaseDriverHelper.driverGetUserRole(userId) != customerRoleId) {
+      return accountIds;
+    }
+    Cursor cursor = DatabaseDriverHelper.driverGetAccountIds(userId);
+    if (cursor != null) {
+      int accountIdColumn = cursor.getColumnIndex("ACCOUNTID");
+      while (cursor.moveToNext()) {
+        accountIds.set(cursor.getInt(accountIdColumn));
+      }
+      cursor.close();
+    }
+    return accountIds;
+  }
+
+}
@@ -0,0 +1,230 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the Roles and AccountTypes tables, indexed by ID. The copy is read once
+ * and replaced as a whole whenever a role or account type is written, so a lookup is an array
+ * read that never queries the database or allocates.
+ */
+public final class ReferenceData {
+
+  /**
+   * Held while a copy is read, so copies are swapped in the order they were read.
+   */
+  private static final Object lock = new Object();
+
+  /**
+   * The current copy, <code>null</code> until first read.
+   */
+  private static volatile ReferenceData current = null;
+
+  /**
+   * The name of each role by ID, <code>null</code> where there is no role.
+   */
+  private final String[] roleNames;
+
+  /**
+   * The name of each account type by ID, <code>null</code> where there is no account type.
+   */
+  private final String[] accountTypeNames;
+
+  /**
+   * The interest rate of each account type by ID.
+   */
+  private final BigDecimal[] interestRates;
+
+  /**
+   * The IDs of the roles and account types, in ID order.
+   */
+  private final int[] roleIds;
+  private final int[] accountTypeIds;
+
+  private ReferenceData(String[] roleNames, String[] accountTypeNames,
+                        BigDecimal[] interestRates) {
+    this.roleNames = roleNames;
+    this.accountTypeNames = accountTypeNames;
+    this.interestRates = interestRates;
+    this.roleIds = presentIds(roleNames);
+    this.accountTypeIds = presentIds(accountTypeNames);
+  }
+
+  /**
+   * Reads the Roles and AccountTypes tables again and replaces the current copy. Called when the
+   * application starts, and after every write to either table.
+   */
+  public static void reload() {
+    synchronized (lock) {
+      current = load();
+    }
+  }
+
+  /**
+   * Returns the current copy, reading it if it has not been read yet.
+   *
+   * @return the current reference data
+   */
+  static ReferenceData get() {
+    ReferenceData data = current;
+    if (data == null) {
+      // read without the lock, so a thread holding the connection in a transaction never waits
+      // on a thread that holds the lock and waits for the connection
+      data = load();
+      synchronized (lock) {
+        if (current == null) {
+          current = data;
+        } else {
+          data = current;
+        }
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Returns the name of the role with the ID.
+   *
+   * @param roleId a role ID number
+   * @return the role's name, <code>null</code> if there is no such role
+   */
+  String getRoleName(int roleId) {
+    return roleId >= 0 && roleId < roleNames.length ? roleNames[roleId] : null;
+  }
+
+  /**
+   * Returns the name of the account type with the ID.
+   *
+   * @param accountTypeId an account type ID number
+   * @return the account type's name, <code>null</code> if there is no such account type
+   */
+  String getAccountTypeName(int accountTypeId) {
+    return accountTypeId >= 0 && accountTypeId < accountTypeNames.length
+            ? accountTypeNames[accountTypeId] : null;
+  }
+
+  /**
+   * Returns the interest rate of the account type with the ID.
+   *
+   * @param accountTypeId an account type ID number
+   * @return the account type's interest rate, <code>null</code> if there is no such account type
+   */
+  BigDecimal getInterestRate(int accountTypeId) {
+    return accountTypeId >= 0 && accountTypeId < interestRates.length
+            ? interestRates[accountTypeId] : null;
+  }
+
+  /**
+   * Returns the IDs of the roles, in ID order. The array must not be changed.
+   *
+   * @return the role ID numbers
+   */
+  int[] getRoleIds() {
+    return roleIds;
+  }
+
+  /**
+   * Returns the IDs of the account types, in ID order. The array must not be changed.
+   *
+   * @return the account type ID numbers
+   */
+  int[] getAccountTypeIds() {
+    return accountTypeIds;
+  }
+
+  /**
+   * Reads both tables into a new copy.
+   *
+   * @return the reference data in the database
+   */
+  private static ReferenceData load() {
+    String[] roleNames = new String[0];
+    Cursor cursor = DatabaseDriverHelper.driverGetRoles();
+    if (cursor != null) {
+      int idColumn = cursor.getColumnIndex("ID");
+      int nameColumn = cursor.getColumnIndex("NAME");
+      while (cursor.moveToNext()) {
+        int id = cursor.getInt(idColumn);
+        if (id < 0) {
+          // not a valid ID, so it can never be looked up
+          continue;
+        }
+        roleNames = ensureLength(roleNames, id);
+        roleNames[id] = cursor.getString(nameColumn);
+      }
+      cursor.close();
+    }
+    String[] accountTypeNames = new String[0];
+    BigDecimal[] interestRates = new BigDecimal[0];
+    cursor = DatabaseDriverHelper.driverGetAccountTypes();
+    if (cursor != null) {
+      int idColumn = cursor.getColumnIndex("ID");
+      int nameColumn = cursor.getColumnIndex("NAME");
+      int interestRateColumn = cursor.getColumnIndex("INTERESTRATE");
+      while (cursor.moveToNext()) {
+        int id = cursor.getInt(idColumn);
+        if (id < 0) {
+          continue;
+        }
+        accountTypeNames = ensureLength(accountTypeNames, id);
+        interestRates = ensureLength(interestRates, id);
+        accountTypeNames[id] = cursor.getString(nameColumn);
+        interestRates[id] = readInterestRate(cursor, interestRateColumn);
+      }
+      cursor.close();
+    }
+    return new ReferenceData(roleNames, accountTypeNames, interestRates);
+  }
+
+  /**
+   * Returns the interest rate in a column of the cursor's current row. A rate that was never set
+   * is read as zero, so its account type earns no interest instead of failing every read.
+   *
+   * @param cursor a cursor moved to a row
+   * @param column the index of the interest rate column
+   * @return the interest rate, zero if the column is NULL
+   */
+  static BigDecimal readInterestRate(Cursor cursor, int column) {
+    return cursor.isNull(column) ? BigDecimal.ZERO : new BigDecimal(cursor.getString(column));
+  }
+
+  /**
+   * Returns the array, or a longer copy of it, with room for the ID.
+   *
+   * @param array the array to grow
+   * @param id the ID that must fit, not negative
+   * @return an array longer than the ID
+   */
+  private static <T> T[] ensureLength(T[] array, int id) {
+    if (id < array.length) {
+      return array;
+    }
+    return Arrays.copyOf(array, Math.max(id + 1, array.length * 2));
+  }
+
+  /**
+   * Returns the indexes of the array that hold a value.
+   *
+   * @param byId values indexed by ID
+   * @return the IDs that have a value, in order
+   */
+  private static int[] presentIds(Object[] byId) {
+    int count = 0;
+    for (Object value : byId) {
+      if (value != null) {
+        count++;
+      }
+    }
+    int[] ids = new int[count];
+    int next = 0;
+    for (int id = 0; id < byId.length; id++) {
+      if (byId[id] != null) {
+        ids[next++] = id;
+      }
+    }
+    return ids;
+  }
+
+}
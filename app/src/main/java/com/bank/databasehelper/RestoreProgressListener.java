@@ -0,0 +1,18 @@
+package com.bank.databasehelper;
+
+/**
+ * Told how far the restore of a database snapshot has come. Called on the thread doing the
+ * restore, so a listener that updates a view has to post to the main thread itself.
+ */
+public interface RestoreProgressListener {
+
+  /**
+   * Called as the rows of a table are restored, and once more when the table is done.
+   *
+   * @param table the name of the table being restored
+   * @param rowsRestored the number of rows restored so far, over every table
+   * @param totalRows the number of rows in the snapshot, over every table
+   */
+  void onProgress(String table, long rowsRestored, long totalRows);
+
+}
@@ -3,12 +3,17 @@ package com.bank.generics;
 import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import java.math.BigDecimal;
-import java.util.EnumMap;
+import java.util.ArrayList;
 import java.util.List;
 
 public class AccountTypesEnumMap {
 
-  private static EnumMap<AccountTypes, Integer> enumMap = new EnumMap<>(AccountTypes.class);
+  /**
+   * The account types and their ID numbers. Replaced as a whole, never changed, so readers on any
+   * thread see a complete mapping without locking.
+   */
+  private static volatile EnumRegistry<AccountTypes> registry =
+          EnumRegistry.empty(AccountTypes.class);
 
   /**
    * Returns the id number correlated to the AccountType.
@@ -17,11 +22,7 @@ public class AccountTypesEnumMap {
    * @return an int representing the AccountType id number
    */
   public static int getAccountTypeId(AccountTypes accountType) {
-    if (enumMap.get(accountType) != null) {
-      return enumMap.get(accountType);
-    } else {
-      return -2;
-    }
+    return registry.getId(accountType);
   }
 
   /**
@@ -31,12 +32,8 @@ public class AccountTypesEnumMap {
    * @return the name of the account type
    */
   public static String getAccountTypeName(int accountTypeId) {
-    for (AccountTypes currAccountType : enumMap.keySet()) {
-      if (enumMap.get(currAccountType) == accountTypeId) {
-        return currAccountType.toString();
-      }
-    }
-    return null;
+    AccountTypes accountType = registry.getConstant(accountTypeId);
+    return accountType == null ? null : accountType.toString();
   }
 
   /**
@@ -46,21 +43,13 @@ public class AccountTypesEnumMap {
    * @param accountType is a String representing the accountType to be inserted
    * @param interestRate is a BigDecimal representing the interest rate on the new accountType
    */
-  public static int insertAccountType(String accountType, BigDecimal interestRate) {
-    AccountTypes accountTypeEnum = null;
+  public static synchronized int insertAccountType(String accountType, BigDecimal interestRate) {
     int accountTypeId = DatabaseInsertHelper.insertAccountType(accountType, interestRate);
-    // Loops through all AccountTypes in the enum and checks if the AccountType to be inserted is
-    // not already part of the enum map
-    forLoop: for (AccountTypes currAccountType : AccountTypes.values()) {
-      if (!enumMap.containsKey(currAccountType)
-          && accountType.equalsIgnoreCase(currAccountType.toString())) {
-        accountTypeEnum = currAccountType;
-        break forLoop;
-      }
-    }
+    // only an AccountType that is not already part of the enum map can be inserted
+    AccountTypes accountTypeEnum = registry.find(accountType);
     // Checks if the accountType was properly inserted
-    if (accountTypeEnum != null && accountTypeId != -1) {
-      enumMap.put(accountTypeEnum, accountTypeId);
+    if (accountTypeEnum != null && !registry.contains(accountTypeEnum) && accountTypeId != -1) {
+      registry = registry.with(accountTypeEnum, accountTypeId);
       return accountTypeId;
     } else {
       return -1;
@@ -68,22 +57,15 @@ public class AccountTypesEnumMap {
   }
 
   /**
-   * Updates the enum map according to the accountTypes found in the database. Runs update to create
-   * an EnumMap according to the data in the database.
+   * Updates the enum map according to the accountTypes found in the database, replacing it with
+   * one built from the account types held in memory by the database helpers.
    */
-  public static void update() {
+  public static synchronized void update() {
     List<Integer> accountTypesIds = DatabaseSelectHelper.getAccountTypesIds();
+    List<String> names = new ArrayList<>(accountTypesIds.size());
     for (int currAccountIds : accountTypesIds) {
-      // Loops through all AccountTypes in the enum and compares to the ones in the database, adds
-      // the
-      // AccountTypes with their id numbers accordingly to the enum map
-      forLoop: for (AccountTypes currAccountType : AccountTypes.values()) {
-        if ((DatabaseSelectHelper.getAccountTypeName(currAccountIds)
-            .equalsIgnoreCase(currAccountType.toString()))) {
-          enumMap.put(currAccountType, currAccountIds);
-          break forLoop;
-        }
-      }
+      names.add(DatabaseSelectHelper.getAccountTypeName(currAccountIds));
     }
+    registry = EnumRegistry.of(AccountTypes.class, accountTypesIds, names);
   }
 }
@@ -0,0 +1,159 @@
+package com.bank.generics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable two way mapping between the constants of an enum and their ID numbers in the
+ * database. Both directions are array reads: constants to IDs by ordinal, and IDs to constants
+ * through a dense array of ordinals, so neither boxes or scans.
+ *
+ * @param <E> the enum mapped
+ */
+final class EnumRegistry<E extends Enum<E>> {
+
+  /**
+   * The ID number of a constant that is not in the database.
+   */
+  static final int NO_ID = -2;
+
+  /**
+   * Marks an ID number with no constant.
+   */
+  private static final int NO_ORDINAL = -1;
+
+  private final E[] constants;
+
+  /**
+   * The ID number of each constant, by ordinal.
+   */
+  private final int[] idByOrdinal;
+
+  /**
+   * The ordinal of the constant with each ID number.
+   */
+  private final int[] ordinalById;
+
+  private EnumRegistry(E[] constants, int[] idByOrdinal, int[] ordinalById) {
+    this.constants = constants;
+    this.idByOrdinal = idByOrdinal;
+    this.ordinalById = ordinalById;
+  }
+
+  /**
+   * Returns a registry with no constants mapped.
+   *
+   * @param type the enum mapped
+   * @return an empty registry
+   */
+  static <E extends Enum<E>> EnumRegistry<E> empty(Class<E> type) {
+    E[] constants = type.getEnumConstants();
+    int[] idByOrdinal = new int[constants.length];
+    Arrays.fill(idByOrdinal, NO_ID);
+    return new EnumRegistry<>(constants, idByOrdinal, new int[0]);
+  }
+
+  /**
+   * Returns a registry mapping each ID number to the constant of the same name, ignoring case.
+   * Names that match no constant are left out.
+   *
+   * @param type the enum mapped
+   * @param ids the ID numbers
+   * @param names the name with each ID number
+   * @return the registry of the names
+   */
+  static <E extends Enum<E>> EnumRegistry<E> of(Class<E> type, List<Integer> ids,
+                                                List<String> names) {
+    EnumRegistry<E> registry = empty(type);
+    for (int i = 0; i < ids.size(); i++) {
+      E constant = registry.find(names.get(i));
+      if (constant != null) {
+        registry = registry.with(constant, ids.get(i));
+      }
+    }
+    return registry;
+  }
+
+  /**
+   * Returns the ID number of the constant.
+   *
+   * @param constant an enum constant, may be <code>null</code>
+   * @return its ID number, {@link #NO_ID} if it is <code>null</code> or not mapped
+   */
+  int getId(E constant) {
+    return constant == null ? NO_ID : idByOrdinal[constant.ordinal()];
+  }
+
+  /**
+   * Returns the constant with the ID number.
+   *
+   * @param id an ID number
+   * @return the constant, <code>null</code> if no constant has the ID number
+   */
+  E getConstant(int id) {
+    if (id < 0 || id >= ordinalById.length) {
+      return null;
+    }
+    int ordinal = ordinalById[id];
+    return ordinal == NO_ORDINAL ? null : constants[ordinal];
+  }
+
+  /**
+   * Returns <code>true</code> if the constant has an ID number.
+   *
+   * @param constant an enum constant
+   * @return <code>true</code> if the constant is mapped
+   */
+  boolean contains(E constant) {
+    return getId(constant) != NO_ID;
+  }
+
+  /**
+   * Returns the constant with the name, ignoring case.
+   *
+   * @param name a name from the database
+   * @return the constant, <code>null</code> if there is none with the name
+   */
+  E find(String name) {
+    if (name != null) {
+      for (E constant : constants) {
+        if (name.equalsIgnoreCase(constant.toString())) {
+          return constant;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a copy of this registry with the constant mapped to the ID number, in place of any
+   * ID number it had before.
+   *
+   * @param constant an enum constant
+   * @param id its ID number
+   * @return the new registry
+   */
+  EnumRegistry<E> with(E constant, int id) {
+    int[] idByOrdinal = this.idByOrdinal.clone();
+    int[] ordinalById = this.ordinalById;
+    if (id >= ordinalById.length) {
+      int length = ordinalById.length;
+      ordinalById = Arrays.copyOf(ordinalById, id + 1);
+      Arrays.fill(ordinalById, length, ordinalById.length, NO_ORDINAL);
+    } else {
+      ordinalById = ordinalById.clone();
+    }
+    int oldId = idByOrdinal[constant.ordinal()];
+    if (oldId != NO_ID) {
+      ordinalById[oldId] = NO_ORDINAL;
+    }
+    int oldOrdinal = ordinalById[id];
+    if (oldOrdinal != NO_ORDINAL) {
+      idByOrdinal[oldOrdinal] = NO_ID;
+    }
+    idByOrdinal[constant.ordinal()] = id;
+    ordinalById[id] = constant.ordinal();
+    return new EnumRegistry<>(constants, idByOrdinal, ordinalById);
+  }
+
+}
@@ -2,12 +2,16 @@ package com.bank.generics;
 
 import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
-import java.util.EnumMap;
+import java.util.ArrayList;
 import java.util.List;
 
 public class RolesEnumMap {
 
-  private static EnumMap<Roles, Integer> enumMap = new EnumMap<>(Roles.class);
+  /**
+   * The roles and their ID numbers. Replaced as a whole, never changed, so readers on any thread
+   * see a complete mapping without locking.
+   */
+  private static volatile EnumRegistry<Roles> registry = EnumRegistry.empty(Roles.class);
 
   /**
    * Returns the id number correlated to the Role.
@@ -16,11 +20,7 @@ public class RolesEnumMap {
    * @return an int representing the Role id number
    */
   public static int getRoleId(Roles role) {
-    if (enumMap.get(role) != null) {
-      return enumMap.get(role);
-    } else {
-      return -2;
-    }
+    return registry.getId(role);
   }
 
   /**
@@ -30,12 +30,8 @@ public class RolesEnumMap {
    * @return the name of the role
    */
   public static String getRoleName(int roleId) {
-    for (Roles currRole : enumMap.keySet()) {
-      if (enumMap.get(currRole) == roleId) {
-        return currRole.toString();
-      }
-    }
-    return null;
+    Roles role = registry.getConstant(roleId);
+    return role == null ? null : role.toString();
   }
 
   /**
@@ -44,20 +40,13 @@ public class RolesEnumMap {
    * 
    * @param role is a String representing the new role to be inserted
    */
-  public static int insertRole(String role) {
+  public static synchronized int insertRole(String role) {
     int roleId = DatabaseInsertHelper.insertRole(role);
-    Roles setRole = null;
-    // Loops through all Roles in the enum and checks if the role to be inserted is not already part
-    // of the enum map
-    forLoop: for (Roles currRole : Roles.values()) {
-      if (!enumMap.containsKey(currRole) && role.equalsIgnoreCase(currRole.toString())) {
-        setRole = currRole;
-        break forLoop;
-      }
-    }
+    // only a role that is not already part of the enum map can be inserted
+    Roles setRole = registry.find(role);
     // Checks if the role was properly inserted
-    if (roleId != -1 && setRole != null) {
-      enumMap.put(setRole, roleId);
+    if (roleId != -1 && setRole != null && !registry.contains(setRole)) {
+      registry = registry.with(setRole, roleId);
       return roleId;
     } else {
       return -1;
@@ -65,19 +54,15 @@ public class RolesEnumMap {
   }
 
   /**
-   * Updates the enum map according to the roles found in the database.
+   * Updates the enum map according to the roles found in the database, replacing it with one
+   * built from the roles held in memory by the database helpers.
    */
-  public static void update() {
+  public static synchronized void update() {
     List<Integer> roleIds = DatabaseSelectHelper.getRoles();
+    List<String> names = new ArrayList<>(roleIds.size());
     for (int currRoleId : roleIds) {
-      // Loops through all roles in the enum and compares to the ones in the database, adds the
-      // roles with their id numbers accordingly to the enum map
-      forLoop: for (Roles currRole : Roles.values()) {
-        if (DatabaseSelectHelper.getRole(currRoleId).equalsIgnoreCase(currRole.toString())) {
-          enumMap.put(currRole, currRoleId);
-          break forLoop;
-        }
-      }
+      names.add(DatabaseSelectHelper.getRole(currRoleId));
     }
+    registry = EnumRegistry.of(Roles.class, roleIds, names);
   }
 }
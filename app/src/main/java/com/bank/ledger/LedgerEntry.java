@@ -0,0 +1,80 @@
+package com.bank.ledger;
+
+import com.bank.accounts.Money;
+
+/**
+ * One entry of the ledger: a single change to the balance of one account. Entries are never
+ * changed or removed once written, and their sequence numbers increase in the order they were
+ * written.
+ */
+public final class LedgerEntry {
+
+  private final long sequence;
+  private final int accountId;
+  private final LedgerEntryType type;
+  private final Money amount;
+  private final long reference;
+  private final long created;
+
+  /**
+   * Creates a ledger entry as read from the database.
+   *
+   * @param sequence the sequence number of the entry
+   * @param accountId the ID of the account whose balance changed
+   * @param type the kind of change
+   * @param amount the signed change to the balance
+   * @param reference the other account of a transfer or the interest run, 0 if none
+   * @param created when the entry was written, in milliseconds since the epoch
+   */
+  public LedgerEntry(long sequence, int accountId, LedgerEntryType type, Money amount,
+                     long reference, long created) {
+    this.sequence = sequence;
+    this.accountId = accountId;
+    this.type = type;
+    this.amount = amount;
+    this.reference = reference;
+    this.created = created;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public int getAccountId() {
+    return accountId;
+  }
+
+  public LedgerEntryType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the signed change to the balance, negative for money taken out.
+   *
+   * @return the change to the balance
+   */
+  public Money getAmount() {
+    return amount;
+  }
+
+  /**
+   * Returns the ID of the other account of a transfer or of the interest run that wrote the
+   * entry, 0 for any other entry.
+   *
+   * @return the referenced ID
+   */
+  public long getReference() {
+    return reference;
+  }
+
+  public long getCreated() {
+    return created;
+  }
+
+  @Override
+  public String toString() {
+    return "#" + sequence + " " + type + " " + amount
+            + " on account " + accountId;
+  }
+
+}
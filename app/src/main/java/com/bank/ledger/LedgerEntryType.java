@@ -0,0 +1,54 @@
+package com.bank.ledger;
+
+/**
+ * Enumerator for the kinds of ledger entries. Each kind is stored by its code, which never
+ * changes, so new kinds can be added in any order.
+ */
+public enum LedgerEntryType {
+  OPENING(1), DEPOSIT(2), WITHDRAWAL(3), LOAN(4), INTEREST(5), TRANSFER_IN(6), TRANSFER_OUT(7),
+  ADJUSTMENT(8), INTEREST_CHARGE(9);
+
+  /**
+   * The code the entry type is stored as.
+   */
+  private final int code;
+
+  LedgerEntryType(int code) {
+    this.code = code;
+  }
+
+  /**
+   * Returns the code the entry type is stored as.
+   *
+   * @return the stored code
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * Returns the entry type of interest of the given amount: interest paid to an account, or
+   * interest charged to a balance owing account.
+   *
+   * @param amountCents the signed amount of interest, in cents
+   * @return INTEREST_CHARGE if the amount is negative, INTEREST otherwise
+   */
+  public static LedgerEntryType forInterest(long amountCents) {
+    return amountCents < 0 ? INTEREST_CHARGE : INTEREST;
+  }
+
+  /**
+   * Returns the entry type stored as the given code.
+   *
+   * @param code a stored code
+   * @return the entry type, <code>null</code> if no type has the code
+   */
+  public static LedgerEntryType fromCode(int code) {
+    for (LedgerEntryType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
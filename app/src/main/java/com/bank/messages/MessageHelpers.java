@@ -1,12 +1,13 @@
 package com.bank.messages;
 
+import com.bank.accounts.Money;
 import com.bank.accounts.TaxFreeSavingsAccount;
 import com.bank.databasehelper.DatabaseInsertHelper;
 import java.math.BigDecimal;
-import java.util.Locale;
 
 /**
- * Helper functions for the bank leaving messages.
+ * Helper functions for the bank leaving messages. Each message is stored as its template and
+ * parameters, see {@link MessageTemplate}.
  */
 public class MessageHelpers {
 
@@ -19,11 +20,8 @@ public class MessageHelpers {
    * @return the message ID number
    */
   public static int notifySavingsAccountChange(int userId, int accountId) {
-    String msgFormat = "SYSTEM: TFSA balance was under $%s. ";
-    msgFormat += "Account with ID %d has now been transformed into a SAVINGS account.";
-    String msg = String.format(Locale.CANADA, msgFormat, TaxFreeSavingsAccount.MIN_BALANCE,
-            accountId);
-    return DatabaseInsertHelper.insertMessage(userId, msg);
+    return DatabaseInsertHelper.insertMessage(userId, MessageTemplate.SAVINGS_ACCOUNT_CHANGE,
+            TaxFreeSavingsAccount.MIN_BALANCE.getCents(), accountId);
   }
 
   /**
@@ -34,9 +32,8 @@ public class MessageHelpers {
    * @return the message ID number
    */
   public static int notifyInterest(int userId, BigDecimal totalInterest) {
-    String msgFormat = "SYSTEM: interest totaling $%s has been added to all accounts.";
-    String msg = String.format(msgFormat, totalInterest);
-    return DatabaseInsertHelper.insertMessage(userId, msg);
+    return DatabaseInsertHelper.insertMessage(userId, MessageTemplate.TOTAL_INTEREST,
+            Money.of(totalInterest).getCents());
   }
 
   /**
@@ -49,9 +46,8 @@ public class MessageHelpers {
    * @return the message ID number
    */
   public static int notifyInterest(int userId, int accountId, BigDecimal interest) {
-    String msgFormat = "SYSTEM: interest of $%s has been added to account with ID %d.";
-    String msg = String.format(Locale.CANADA, msgFormat, interest, accountId);
-    return DatabaseInsertHelper.insertMessage(userId, msg);
+    return DatabaseInsertHelper.insertMessage(userId, MessageTemplate.ACCOUNT_INTEREST,
+            Money.of(interest).getCents(), accountId);
   }
 
   /**
@@ -62,9 +58,7 @@ public class MessageHelpers {
    * @return the message ID number
    */
   public static int notifyJointAccount(int userId, int accountId) {
-    String msgFormat = "SYSTEM: a joint account with ID %d has been created.";
-    String msg = String.format(Locale.CANADA, msgFormat, accountId);
-    return DatabaseInsertHelper.insertMessage(userId, msg);
+    return DatabaseInsertHelper.insertMessage(userId, MessageTemplate.JOINT_ACCOUNT, accountId);
   }
 
 }
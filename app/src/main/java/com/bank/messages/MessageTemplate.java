@@ -0,0 +1,145 @@
+package com.bank.messages;
+
+import com.bank.accounts.Money;
+import java.util.Locale;
+
+/**
+ * Enumerator for the messages the bank leaves itself. A templated message is stored as the code
+ * of its template and its parameters, and only turned into a sentence when it is read. Each
+ * template is stored by its code, which never changes.
+ */
+public enum MessageTemplate {
+  SAVINGS_ACCOUNT_CHANGE(1, "SYSTEM: TFSA balance was under $%s. "
+          + "Account with ID %d has now been transformed into a SAVINGS account.",
+          ParameterType.MONEY, ParameterType.ID),
+  TOTAL_INTEREST(2, "SYSTEM: interest totaling $%s has been added to all accounts.",
+          ParameterType.MONEY),
+  ACCOUNT_INTEREST(3, "SYSTEM: interest of $%s has been added to account with ID %d.",
+          ParameterType.MONEY, ParameterType.ID),
+  JOINT_ACCOUNT(4, "SYSTEM: a joint account with ID %d has been created.",
+          ParameterType.ID);
+
+  /**
+   * The kinds of parameters a template takes. Every parameter is stored as a whole number.
+   */
+  enum ParameterType {
+    /** An ID number. */
+    ID,
+    /** An amount of money, stored in cents. */
+    MONEY
+  }
+
+  /**
+   * Separates the parameters of a stored message.
+   */
+  private static final char SEPARATOR = ',';
+
+  /**
+   * The templates indexed by code, <code>null</code> where no template has the code, so a
+   * message read back finds its template without a scan.
+   */
+  private static final MessageTemplate[] BY_CODE;
+
+  static {
+    int maxCode = 0;
+    for (MessageTemplate template : values()) {
+      maxCode = Math.max(maxCode, template.code);
+    }
+    BY_CODE = new MessageTemplate[maxCode + 1];
+    for (MessageTemplate template : values()) {
+      BY_CODE[template.code] = template;
+    }
+  }
+
+  /**
+   * The code the template is stored as.
+   */
+  private final int code;
+
+  /**
+   * The format of the sentence, with one specifier for each parameter.
+   */
+  private final String format;
+
+  /**
+   * The kind of each parameter, in order.
+   */
+  private final ParameterType[] parameterTypes;
+
+  MessageTemplate(int code, String format, ParameterType... parameterTypes) {
+    this.code = code;
+    this.format = format;
+    this.parameterTypes = parameterTypes;
+  }
+
+  /**
+   * Returns the code the template is stored as.
+   *
+   * @return the stored code
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * Returns the template stored as the given code.
+   *
+   * @param code a stored code
+   * @return the template, <code>null</code> if no template has the code
+   */
+  public static MessageTemplate fromCode(int code) {
+    return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+  }
+
+  /**
+   * Returns the stored form of the given parameters, ID numbers as they are and amounts of money
+   * in cents.
+   *
+   * @param parameters one value for each parameter of the template
+   * @return the parameters to store with the message
+   * @throws IllegalArgumentException if the number of parameters does not match the template
+   */
+  public String encode(long... parameters) {
+    if (parameters.length != parameterTypes.length) {
+      throw new IllegalArgumentException(name() + " takes " + parameterTypes.length
+              + " parameters");
+    }
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < parameters.length; i++) {
+      if (i > 0) {
+        builder.append(SEPARATOR);
+      }
+      builder.append(parameters[i]);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the sentence of a message stored with this template and the given parameters.
+   *
+   * @param encodedParameters the stored parameters of the message
+   * @return the message text
+   */
+  public String render(String encodedParameters) {
+    Object[] arguments = new Object[parameterTypes.length];
+    int start = 0;
+    for (int i = 0; i < parameterTypes.length; i++) {
+      int end = encodedParameters.indexOf(SEPARATOR, start);
+      if (end < 0) {
+        end = encodedParameters.length();
+      }
+      long value = Long.parseLong(encodedParameters.substring(start, end));
+      switch (parameterTypes[i]) {
+        case MONEY:
+          arguments[i] = Money.ofCents(value);
+          break;
+        default:
+          arguments[i] = value;
+          break;
+      }
+      start = end + 1;
+    }
+    return String.format(Locale.CANADA, format, arguments);
+  }
+
+}
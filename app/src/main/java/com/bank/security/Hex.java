@@ -0,0 +1,50 @@
+package com.bank.security;
+
+/**
+ * Encodes bytes as lowercase hexadecimal text and decodes it back, one byte at a time.
+ */
+public class Hex {
+
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+  private Hex() {
+  }
+
+  /**
+   * Returns the bytes as lowercase hexadecimal, two characters a byte.
+   *
+   * @param bytes the bytes to encode
+   * @return the hexadecimal text
+   */
+  public static String encode(byte[] bytes) {
+    char[] text = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      text[2 * i] = DIGITS[(bytes[i] >> 4) & 0xf];
+      text[2 * i + 1] = DIGITS[bytes[i] & 0xf];
+    }
+    return new String(text);
+  }
+
+  /**
+   * Returns the bytes of hexadecimal text, in either case.
+   *
+   * @param text the hexadecimal text
+   * @return the bytes, <code>null</code> if the text is not hexadecimal
+   */
+  public static byte[] decode(String text) {
+    if (text == null || text.length() % 2 != 0) {
+      return null;
+    }
+    byte[] bytes = new byte[text.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(text.charAt(2 * i), 16);
+      int low = Character.digit(text.charAt(2 * i + 1), 16);
+      if (high < 0 || low < 0) {
+        return null;
+      }
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+    return bytes;
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.bank.security;
+
+/**
+ * A scheme for hashing passwords. Every hash a scheme makes starts with its name and a '$', so
+ * the scheme that made a stored hash can always be found from the hash alone.
+ */
+public interface PasswordHasher {
+
+  /**
+   * Returns the name the hashes of this scheme start with.
+   *
+   * @return the name of the scheme
+   */
+  String getScheme();
+
+  /**
+   * Returns a new hash of the password, to be stored in the database.
+   *
+   * @param password the unhashed password
+   * @return the hashed password
+   */
+  String hash(String password);
+
+  /**
+   * Returns <code>true</code> if the password is the one the stored hash was made from. The
+   * time taken must not depend on how much of the hash matches.
+   *
+   * @param storedHash a hash made by this scheme
+   * @param password the unhashed password
+   * @return <code>true</code> if the password matches
+   */
+  boolean verify(String storedHash, String password);
+
+  /**
+   * Returns <code>true</code> if the stored hash was made by this scheme with weaker settings
+   * than it uses now, and should be hashed again the next time its password is known.
+   *
+   * @param storedHash a hash made by this scheme
+   * @return <code>true</code> if the hash should be replaced
+   */
+  boolean needsRehash(String storedHash);
+
+}
@@ -1,25 +1,55 @@
 package com.bank.security;
 
-import java.security.MessageDigest;
-
 public class PasswordHelpers {
+
+  /**
+   * The scheme new passwords are hashed with.
+   */
+  private static volatile PasswordHasher hasher = new Pbkdf2PasswordHasher();
+
+  /**
+   * Verifies PBKDF2 hashes when another scheme has been set; the iterations come from the hash.
+   */
+  private static final PasswordHasher PBKDF2 = new Pbkdf2PasswordHasher();
+
+  /**
+   * Verifies hashes stored before hashes had a scheme.
+   */
+  private static final PasswordHasher LEGACY = new Sha256PasswordHasher();
+
+  /**
+   * Sets the scheme new passwords are hashed with. Hashes already stored keep being verified with
+   * the scheme that made them, and are replaced when their user next logs in.
+   *
+   * @param passwordHasher the scheme to hash new passwords with
+   */
+  public static void setPasswordHasher(PasswordHasher passwordHasher) {
+    if (passwordHasher == null) {
+      throw new IllegalArgumentException("passwordHasher must not be null");
+    }
+    hasher = passwordHasher;
+  }
+
+  /**
+   * Returns the scheme new passwords are hashed with.
+   *
+   * @return the current scheme
+   */
+  public static PasswordHasher getPasswordHasher() {
+    return hasher;
+  }
+
   /**
    * Returns a hashed version of password to be stored in database.
    * 
    * @param password the unhashed password
-   * @return the hashed password
+   * @return the hashed password, <code>null</code> if there is no password
    */
   public static String passwordHash(String password) {
-    MessageDigest md;
-    try {
-      md = MessageDigest.getInstance("SHA-256");
-      md.update(password.getBytes("UTF-8"));
-      byte[] digest = md.digest();
-      return String.format("%064x", new java.math.BigInteger(1, digest));
-
-    } catch (Exception e) {
+    if (password == null) {
       return null;
     }
+    return hasher.hash(password);
   }
 
   /**
@@ -30,7 +60,61 @@ public class PasswordHelpers {
    * @return true if passwords match, false otherwise.
    */
   public static boolean comparePassword(String pw1, String pw2) {
-    return pw1.equals(passwordHash(pw2));
+    if (pw1 == null || pw2 == null) {
+      return false;
+    }
+    PasswordHasher storedHasher = hasherOf(pw1);
+    return storedHasher != null && storedHasher.verify(pw1, pw2);
+  }
+
+  /**
+   * Returns <code>true</code> if a stored hash was not made by the current scheme at its current
+   * cost, so it should be replaced once its password has been verified.
+   *
+   * @param storedHash the password stored in the database
+   * @return <code>true</code> if the hash should be replaced
+   */
+  public static boolean needsRehash(String storedHash) {
+    PasswordHasher current = hasher;
+    return storedHash != null && (!storedHash.startsWith(current.getScheme() + '$')
+            || current.needsRehash(storedHash));
+  }
+
+  /**
+   * Compares two arrays in a time that depends only on their length, so a caller can not learn
+   * how many leading bytes of a hash they have guessed.
+   *
+   * @param a the first array
+   * @param b the second array
+   * @return <code>true</code> if the arrays hold the same bytes
+   */
+  public static boolean constantTimeEquals(byte[] a, byte[] b) {
+    if (a.length != b.length) {
+      return false;
+    }
+    int difference = 0;
+    for (int i = 0; i < a.length; i++) {
+      difference |= a[i] ^ b[i];
+    }
+    return difference == 0;
+  }
+
+  /**
+   * Returns the scheme that made a stored hash.
+   *
+   * @param storedHash the password stored in the database
+   * @return the scheme of the hash, <code>null</code> if it is not a known one
+   */
+  private static PasswordHasher hasherOf(String storedHash) {
+    PasswordHasher current = hasher;
+    if (storedHash.startsWith(current.getScheme() + '$')) {
+      return current;
+    } else if (storedHash.startsWith(Pbkdf2PasswordHasher.SCHEME + '$')) {
+      return PBKDF2;
+    } else if (Sha256PasswordHasher.isHash(storedHash)) {
+      return LEGACY;
+    }
+    return null;
   }
 
 }
@@ -0,0 +1,166 @@
+package com.bank.security;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Hashes passwords with PBKDF2 over HMAC-SHA256 and a random salt. Hashes are stored as
+ * "pbkdf2-sha256$iterations$salt$hash", with the salt and hash in hexadecimal, so a hash keeps
+ * being verified with the number of iterations it was made with after the cost is raised.
+ *
+ * <p>The key derivation is done here over a thread's own Mac rather than through
+ * SecretKeyFactory, which only has PBKDF2WithHmacSHA256 from API level 26.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+  /**
+   * The name hashes of this scheme start with.
+   */
+  public static final String SCHEME = "pbkdf2-sha256";
+
+  /**
+   * The number of iterations used when none is given.
+   */
+  public static final int DEFAULT_ITERATIONS = 10000;
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int SALT_LENGTH = 16;
+  private static final int HASH_LENGTH = 32;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /**
+   * A Mac for each thread, so logins on different threads never wait on each other.
+   */
+  private static final ThreadLocal<Mac> MAC = new ThreadLocal<Mac>() {
+    @Override
+    protected Mac initialValue() {
+      try {
+        return Mac.getInstance(ALGORITHM);
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  private final int iterations;
+
+  /**
+   * Creates a hasher that makes hashes with the default number of iterations.
+   */
+  public Pbkdf2PasswordHasher() {
+    this(DEFAULT_ITERATIONS);
+  }
+
+  /**
+   * Creates a hasher that makes hashes with the given number of iterations.
+   *
+   * @param iterations the cost of each new hash, at least 1
+   */
+  public Pbkdf2PasswordHasher(int iterations) {
+    if (iterations < 1) {
+      throw new IllegalArgumentException("iterations must be at least 1");
+    }
+    this.iterations = iterations;
+  }
+
+  /**
+   * Returns the number of iterations new hashes are made with.
+   *
+   * @return the number of iterations
+   */
+  public int getIterations() {
+    return iterations;
+  }
+
+  @Override
+  public String getScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  public String hash(String password) {
+    byte[] salt = new byte[SALT_LENGTH];
+    RANDOM.nextBytes(salt);
+    byte[] hash = derive(password, salt, iterations);
+    return SCHEME + '$' + iterations + '$' + Hex.encode(salt) + '$' + Hex.encode(hash);
+  }
+
+  @Override
+  public boolean verify(String storedHash, String password) {
+    String[] parts = storedHash.split("\\$");
+    if (parts.length != 4 || !SCHEME.equals(parts[0])) {
+      return false;
+    }
+    int storedIterations = parseIterations(parts[1]);
+    byte[] salt = Hex.decode(parts[2]);
+    byte[] expected = Hex.decode(parts[3]);
+    if (storedIterations < 1 || salt == null || expected == null
+            || expected.length != HASH_LENGTH) {
+      return false;
+    }
+    return PasswordHelpers.constantTimeEquals(expected, derive(password, salt, storedIterations));
+  }
+
+  @Override
+  public boolean needsRehash(String storedHash) {
+    String[] parts = storedHash.split("\\$");
+    return parts.length != 4 || parseIterations(parts[1]) < iterations;
+  }
+
+  /**
+   * Returns the number of iterations of a stored hash.
+   *
+   * @param text the iterations field of the hash
+   * @return the number of iterations, -1 if it is not a number
+   */
+  private static int parseIterations(String text) {
+    try {
+      return Integer.parseInt(text);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Derives the hash of a password, PBKDF2 as in RFC 2898 with HMAC-SHA256 and a single block,
+   * since the hash is no longer than the HMAC.
+   *
+   * @param password the unhashed password
+   * @param salt the salt of the hash
+   * @param iterations the number of iterations
+   * @return the derived hash
+   */
+  static byte[] derive(String password, byte[] salt, int iterations) {
+    byte[] key = password.getBytes(UTF_8);
+    if (key.length == 0) {
+      // HMAC pads the key with zeros, so a lone zero byte is the same key as an empty one
+      key = new byte[1];
+    }
+    Mac mac = MAC.get();
+    try {
+      mac.init(new SecretKeySpec(key, ALGORITHM));
+      mac.update(salt);
+      mac.update(new byte[] {0, 0, 0, 1});
+      byte[] block = mac.doFinal();
+      byte[] result = block.clone();
+      for (int i = 1; i < iterations; i++) {
+        // each round is written over the last, so the loop allocates nothing
+        mac.update(block);
+        mac.doFinal(block, 0);
+        for (int j = 0; j < result.length; j++) {
+          result[j] ^= block[j];
+        }
+      }
+      return result;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
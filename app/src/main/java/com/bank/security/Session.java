@@ -0,0 +1,93 @@
+package com.bank.security;
+
+import com.bank.databasehelper.OwnershipCache;
+import com.bank.generics.Roles;
+
+/**
+ * A logged in user, known by an opaque token. The user's role and the accounts they own are held
+ * for the length of the session, so a terminal can check what the user may do without hashing
+ * their password or reading the database again.
+ */
+public final class Session {
+
+  private final String token;
+  private final int userId;
+  private final Roles role;
+  private final long timeoutNanos;
+
+  /**
+   * The accounts the user owns, loaded on the first ownership check.
+   */
+  private final OwnershipCache ownership;
+
+  /**
+   * When the session was last used, by System.nanoTime.
+   */
+  private volatile long lastUsedNanos;
+
+  Session(String token, int userId, Roles role, long timeoutNanos) {
+    this.token = token;
+    this.userId = userId;
+    this.role = role;
+    this.timeoutNanos = timeoutNanos;
+    this.ownership = new OwnershipCache(userId);
+    this.lastUsedNanos = System.nanoTime();
+  }
+
+  /**
+   * Returns the token the session is known by.
+   *
+   * @return the session token
+   */
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * Returns the ID of the user logged in.
+   *
+   * @return a user ID number
+   */
+  public int getUserId() {
+    return userId;
+  }
+
+  /**
+   * Returns the role of the user logged in.
+   *
+   * @return the user's role
+   */
+  public Roles getRole() {
+    return role;
+  }
+
+  /**
+   * Returns <code>true</code> if the user owns the account with accountId.
+   *
+   * @param accountId an account ID number
+   * @return <code>true</code> if the user owns the account
+   */
+  public boolean ownsAccount(int accountId) {
+    return ownership.owns(accountId);
+  }
+
+  /**
+   * Returns <code>true</code> if the session has not been used for longer than its timeout.
+   *
+   * @param now the current time, by System.nanoTime
+   * @return <code>true</code> if the session has expired
+   */
+  boolean isExpired(long now) {
+    return now - lastUsedNanos > timeoutNanos;
+  }
+
+  /**
+   * Records that the session was used, putting off when it expires.
+   *
+   * @param now the current time, by System.nanoTime
+   */
+  void touch(long now) {
+    lastUsedNanos = now;
+  }
+
+}
@@ -0,0 +1,171 @@
+package com.bank.security;
+
+import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.generics.Roles;
+import com.bank.users.Admin;
+import com.bank.users.Customer;
+import com.bank.users.Teller;
+import com.bank.users.User;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs users in once and hands out session tokens for the terminals to carry instead of
+ * passwords. A token is random and says nothing about its user; it is looked up in memory on
+ * every use and stops working once logged out, or after it has not been used for the timeout.
+ */
+public class SessionManager {
+
+  /**
+   * How long a session lasts without being used.
+   */
+  public static final long SESSION_TIMEOUT_MINUTES = 15;
+
+  /**
+   * The number of random bytes in a token.
+   */
+  private static final int TOKEN_LENGTH = 32;
+
+  private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(SESSION_TIMEOUT_MINUTES);
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /**
+   * The open sessions by token.
+   */
+  private static final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+  /**
+   * Logs in the user with ID number userId, if the password is theirs.
+   *
+   * @param userId a user ID number
+   * @param password the user's password
+   * @return the token of the new session, <code>null</code> if the user could not log in
+   */
+  public static String login(int userId, String password) {
+    return login(DatabaseSelectHelper.getUserProjection(userId), password);
+  }
+
+  /**
+   * Logs in a user read from the database, if the password is theirs. This is the only time the
+   * password is checked for the length of the session.
+   *
+   * @param user a user read from the database
+   * @param password the user's password
+   * @return the token of the new session, <code>null</code> if the user could not log in
+   */
+  public static String login(User user, String password) {
+    Roles role = roleOf(user);
+    if (role == null || !user.authenticate(password)) {
+      return null;
+    }
+    return open(user.getId(), role);
+  }
+
+  /**
+   * Opens a session for a user whose password has been checked.
+   *
+   * @param userId the ID of the user
+   * @param role the user's role
+   * @return the token of the new session
+   */
+  static String open(int userId, Roles role) {
+    removeExpired(System.nanoTime());
+    Session session;
+    do {
+      session = new Session(newToken(), userId, role, TIMEOUT_NANOS);
+    } while (sessions.putIfAbsent(session.getToken(), session) != null);
+    return session.getToken();
+  }
+
+  /**
+   * Returns the open session with the token, if its user has the given role.
+   *
+   * @param token a session token, may be <code>null</code>
+   * @param role the role the user must have
+   * @return the session, <code>null</code> if there is no such session or it has expired
+   */
+  public static Session getSession(String token, Roles role) {
+    return getSession(token, role, System.nanoTime());
+  }
+
+  /**
+   * Returns the open session with the token as of the given time, if its user has the given
+   * role, and marks it as used at that time.
+   *
+   * @param token a session token, may be <code>null</code>
+   * @param role the role the user must have
+   * @param now the current time, by System.nanoTime
+   * @return the session, <code>null</code> if there is no such session or it has expired
+   */
+  static Session getSession(String token, Roles role, long now) {
+    if (token == null) {
+      return null;
+    }
+    Session session = sessions.get(token);
+    if (session == null) {
+      return null;
+    }
+    if (session.isExpired(now)) {
+      sessions.remove(token, session);
+      return null;
+    }
+    if (session.getRole() != role) {
+      return null;
+    }
+    session.touch(now);
+    return session;
+  }
+
+  /**
+   * Ends the session with the token, so it can no longer be used.
+   *
+   * @param token a session token, may be <code>null</code>
+   */
+  public static void logout(String token) {
+    if (token != null) {
+      sessions.remove(token);
+    }
+  }
+
+  /**
+   * Returns the role of a user by their class.
+   *
+   * @param user a user, may be <code>null</code>
+   * @return the user's role, <code>null</code> if there is no user
+   */
+  private static Roles roleOf(User user) {
+    if (user instanceof Admin) {
+      return Roles.ADMIN;
+    } else if (user instanceof Teller) {
+      return Roles.TELLER;
+    } else if (user instanceof Customer) {
+      return Roles.CUSTOMER;
+    }
+    return null;
+  }
+
+  /**
+   * Removes the sessions that have expired without being logged out.
+   *
+   * @param now the current time, by System.nanoTime
+   */
+  private static void removeExpired(long now) {
+    Iterator<Session> iterator = sessions.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().isExpired(now)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static String newToken() {
+    byte[] token = new byte[TOKEN_LENGTH];
+    RANDOM.nextBytes(token);
+    return Hex.encode(token);
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.bank.security;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The original unsalted SHA-256 scheme, stored as 64 hexadecimal digits with no scheme name.
+ * Hashes are only verified with it, so they can be replaced the next time their user logs in.
+ */
+class Sha256PasswordHasher implements PasswordHasher {
+
+  /**
+   * The name the scheme is known by; its hashes do not start with it.
+   */
+  static final String SCHEME = "sha256";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int HASH_LENGTH = 32;
+
+  /**
+   * A digest for each thread, instead of looking one up for every password.
+   */
+  private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+    @Override
+    protected MessageDigest initialValue() {
+      try {
+        return MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  /**
+   * Returns <code>true</code> if the stored hash looks like one made by this scheme.
+   *
+   * @param storedHash a stored hash of any scheme
+   * @return <code>true</code> if the hash is 64 hexadecimal digits
+   */
+  static boolean isHash(String storedHash) {
+    return storedHash.length() == 2 * HASH_LENGTH && Hex.decode(storedHash) != null;
+  }
+
+  @Override
+  public String getScheme() {
+    return SCHEME;
+  }
+
+  @Override
+  public String hash(String password) {
+    return Hex.encode(digest(password));
+  }
+
+  @Override
+  public boolean verify(String storedHash, String password) {
+    byte[] expected = Hex.decode(storedHash);
+    return expected != null && expected.length == HASH_LENGTH
+            && PasswordHelpers.constantTimeEquals(expected, digest(password));
+  }
+
+  @Override
+  public boolean needsRehash(String storedHash) {
+    // unsalted hashes are always replaced
+    return true;
+  }
+
+  private static byte[] digest(String password) {
+    MessageDigest digest = DIGEST.get();
+    digest.reset();
+    return digest.digest(password.getBytes(UTF_8));
+  }
+
+}
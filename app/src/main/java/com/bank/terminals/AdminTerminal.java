@@ -2,10 +2,12 @@ package com.bank.terminals;
 
 import com.bank.exceptions.ConnectionFailedException;
 import com.bank.exceptions.IllegalAmountException;
+import com.bank.generics.AccountTypes;
 import com.bank.generics.Roles;
 import com.bank.users.User;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A terminal console used by a bank administrator. An admin can do anything a teller does, with
@@ -61,6 +63,29 @@ public interface AdminTerminal extends TellerTerminal {
    */
   BigDecimal getBankTotal();
 
+  /**
+   * Returns the total amount of money stored in the bank, broken down by account type.
+   *
+   * @return total amount of money stored in the accounts of each account type
+   */
+  Map<AccountTypes, BigDecimal> getBankTotalByAccountType();
+
+  /**
+   * Returns the total amount of money stored in the bank, broken down by the role of the account
+   * owners.
+   *
+   * @return total amount of money stored in the accounts owned by users of each role
+   */
+  Map<Roles, BigDecimal> getBankTotalByRole();
+
+  /**
+   * Adds interest to every account in the bank with a positive interest rate, leaving a message
+   * for each account owner. Resumes the previous run if it was interrupted.
+   *
+   * @return the total interest added to all accounts
+   */
+  BigDecimal giveInterestToAllAccounts();
+
   /**
    * Serializes the database.
    */
@@ -74,4 +99,14 @@ public interface AdminTerminal extends TellerTerminal {
    */
   String peekMessage(int messageId);
 
+  /**
+   * Leaves a message for every user of the given role and returns the number of users it was
+   * left for.
+   *
+   * @param role    the role of the users to leave the message for
+   * @param message the message to leave
+   * @return the number of users the message was left for
+   */
+  int broadcastMessage(Roles role, String message);
+
 }
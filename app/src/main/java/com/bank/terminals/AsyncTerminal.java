@@ -0,0 +1,97 @@
+package com.bank.terminals;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the operations of a terminal in the background through the {@link TerminalExecutor},
+ * handing the results back on the main thread. Works over any terminal, so an activity keeps a
+ * single facade over its TellerTerminal, AdminTerminal or AutoTellerMachine.
+ *
+ * @param <T> the type of terminal
+ */
+public class AsyncTerminal<T extends Terminal> {
+
+  /**
+   * An operation on a terminal.
+   *
+   * @param <T> the type of terminal
+   * @param <R> the type of the result
+   */
+  public interface Operation<T, R> {
+
+    /**
+     * Runs the operation on a background thread.
+     *
+     * @param terminal the terminal to use
+     * @return the result of the operation
+     * @throws Exception if the operation fails, passed to the callback
+     */
+    R run(T terminal) throws Exception;
+  }
+
+  private final T terminal;
+
+  /**
+   * The reads still pending, cancelled by {@link #cancelReads()}.
+   */
+  private final TaskGroup reads = new TaskGroup();
+
+  /**
+   * Creates a facade over the terminal.
+   *
+   * @param terminal the terminal to run operations on
+   */
+  public AsyncTerminal(T terminal) {
+    this.terminal = terminal;
+  }
+
+  /**
+   * Returns the terminal, for operations cheap enough to run on the main thread.
+   *
+   * @return the terminal
+   */
+  public T getTerminal() {
+    return terminal;
+  }
+
+  /**
+   * Runs an operation that only reads, beside other reads.
+   *
+   * @param operation the operation
+   * @param callback told the outcome on the main thread, may be <code>null</code>
+   * @return the pending result
+   */
+  public <R> Future<R> read(Operation<T, R> operation, TerminalCallback<R> callback) {
+    return reads.add(TerminalExecutor.read(bind(operation), callback));
+  }
+
+  /**
+   * Runs an operation that writes, after every write sent before it.
+   *
+   * @param operation the operation
+   * @param callback told the outcome on the main thread, may be <code>null</code>
+   * @return the pending result
+   */
+  public <R> Future<R> write(Operation<T, R> operation, TerminalCallback<R> callback) {
+    return TerminalExecutor.write(bind(operation), callback);
+  }
+
+  /**
+   * Cancels every read still pending, dropping its callback. Writes are left to finish. Called
+   * when the activity the terminal belongs to is destroyed.
+   */
+  public void cancelReads() {
+    reads.cancelAll();
+  }
+
+  private <R> Callable<R> bind(final Operation<T, R> operation) {
+    return new Callable<R>() {
+      @Override
+      public R call() throws Exception {
+        return operation.run(terminal);
+      }
+    };
+  }
+
+}
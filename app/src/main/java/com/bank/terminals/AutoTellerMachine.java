@@ -49,6 +49,23 @@ public interface AutoTellerMachine extends Terminal {
           throws InsufficientFundsException, IllegalAmountException,
           DoesNotOwnException, ConnectionFailedException;
 
+  /**
+   * Moves the given amount from the account with ID fromAccountId to the account with ID
+   * toAccountId. Either both balances change or neither does.
+   *
+   * @param fromAccountId an account ID number owned under current customer, to take amount from
+   * @param toAccountId   an account ID number owned under current customer, to add amount to
+   * @param amount        the amount to transfer
+   * @return <code>true</code> if transfer was successful
+   * @throws InsufficientFundsException if balance of fromAccountId is less than transfer amount
+   * @throws IllegalAmountException     if amount is not positive
+   * @throws DoesNotOwnException        if customer does not own both accounts
+   * @throws ConnectionFailedException  if connection and update to database failed
+   */
+  boolean makeTransfer(int fromAccountId, int toAccountId, BigDecimal amount)
+          throws InsufficientFundsException, IllegalAmountException,
+          DoesNotOwnException, ConnectionFailedException;
+
   /**
    * Returns a list of bank accounts for the current customer.
    *
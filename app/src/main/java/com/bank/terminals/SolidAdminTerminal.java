@@ -3,24 +3,29 @@ package com.bank.terminals;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import com.bank.databasehelper.DatabaseAggregateHelper;
 import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
+import com.bank.databasehelper.InterestBatchJob;
 import com.bank.exceptions.ConnectionFailedException;
 import com.bank.exceptions.DoesNotOwnException;
 import com.bank.exceptions.IllegalAmountException;
+import com.bank.generics.AccountTypes;
 import com.bank.generics.Roles;
 import com.bank.generics.RolesEnumMap;
 import com.bank.messages.Message;
+import com.bank.security.Session;
+import com.bank.security.SessionManager;
 import com.bank.users.Admin;
 import com.bank.users.Teller;
 import com.bank.users.User;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerminal {
 
@@ -35,36 +40,27 @@ public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerm
   private Admin currentAdmin = null;
 
   /**
-   * Creates an admin given a admin ID number and a password to authenticate.
+   * Creates a terminal for an admin who has logged in.
    *
-   * @param adminId  an admin ID number
-   * @param password the password of the admin to authenticate
+   * @param sessionToken the token of the admin's session
    */
-  public SolidAdminTerminal(int adminId, String password) {
-    super();
-    deAuthenticate();
-    currentAdmin = (Admin) DatabaseSelectHelper.getUserDetails(adminId);
-    // authenticate(adminId, password);
+  public SolidAdminTerminal(String sessionToken) {
+    super(sessionToken, Roles.ADMIN);
+    Session session = SessionManager.getSession(sessionToken, Roles.ADMIN);
+    if (session != null) {
+      currentAdmin = (Admin) DatabaseSelectHelper.getUserDetails(session.getUserId());
+    }
   }
 
   @Override
   public List<User> listUsers(Roles role) {
-    List<User> allUsers = new ArrayList<>();
-    int roleId = RolesEnumMap.getRoleId(role);
-    int userId = DatabaseValidHelper.MIN_ID;
-    // continue looping as long as there's a user with id existing in the database
-    while (DatabaseValidHelper.userExists(userId)) {
-      // check that the role matches the given and add to array list
-      if (DatabaseSelectHelper.getUserRole(userId) == roleId) {
-        allUsers.add(DatabaseSelectHelper.getUserDetails(userId));
-      }
-      userId++;
-    }
-    return allUsers;
+    requireSession();
+    return DatabaseSelectHelper.getAllUsers(role);
   }
 
   @Override
   public int createNewUser(String name, int age, String address, String password, Roles role) {
+    requireSession();
     int roleId = RolesEnumMap.getRoleId(role);
     return DatabaseInsertHelper.insertNewUser(name, age, address, roleId, password);
   }
@@ -72,11 +68,13 @@ public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerm
   @Override
   public boolean updateInterestRate(BigDecimal newRate, int accountType)
           throws IllegalAmountException, ConnectionFailedException {
+    requireSession();
     return DatabaseUpdateHelper.updateAccountTypeInterestRate(newRate, accountType);
   }
 
   @Override
   public boolean promoteTeller(int tellerId) {
+    requireSession();
     boolean success = false;
     User selectTeller = DatabaseSelectHelper.getUserDetails(tellerId);
     if (selectTeller instanceof Teller) {
@@ -88,18 +86,32 @@ public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerm
 
   @Override
   public BigDecimal getBankTotal() {
-    BigDecimal bankTotal = BigDecimal.ZERO;
-    int accountId = DatabaseValidHelper.MIN_ID;
-    // continue looping as long as there's a account with id existing in the database
-    while (DatabaseValidHelper.accountExists(accountId)) {
-      BigDecimal balance = DatabaseSelectHelper.getBalance(accountId++);
-      bankTotal = bankTotal.add(balance);
-    }
-    return bankTotal;
+    requireSession();
+    return DatabaseAggregateHelper.getBankTotal();
+  }
+
+  @Override
+  public Map<AccountTypes, BigDecimal> getBankTotalByAccountType() {
+    requireSession();
+    return DatabaseAggregateHelper.getBankTotalByAccountType();
+  }
+
+  @Override
+  public Map<Roles, BigDecimal> getBankTotalByRole() {
+    requireSession();
+    return DatabaseAggregateHelper.getBankTotalByRole();
+  }
+
+  @Override
+  public BigDecimal giveInterestToAllAccounts() {
+    requireSession();
+    return new InterestBatchJob().run();
   }
 
   @Override
   public void deAuthenticate() {
+    // ends the session and any customer's session, as a teller logging out does
+    super.deAuthenticate();
     currentAdmin = null;
   }
 
@@ -110,20 +122,22 @@ public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerm
 
   @Override
   public List<Message> listMessages() {
+    requireSession();
     int adminId = currentAdmin.getId();
     return DatabaseSelectHelper.getAllMessages(adminId);
   }
 
   @Override
   public List<Integer> listMessageIds() {
+    requireSession();
     currentAdmin.findAndUpdateMessageIds();
     return currentAdmin.getMessageIds();
   }
 
   @Override
   public String viewMessage(int messageId) throws DoesNotOwnException {
-    List<Integer> messageIds = DatabaseSelectHelper.getAllMessageIds(currentAdmin.getId());
-    if (!messageIds.contains(messageId)) {
+    requireSession();
+    if (!DatabaseValidHelper.userOwnsMessage(currentAdmin.getId(), messageId)) {
       throw new DoesNotOwnException(DOES_NOT_OWN_MESSAGE_MSG);
     }
     // get the message and update its view status
@@ -134,11 +148,33 @@ public class SolidAdminTerminal extends SolidTellerTerminal implements AdminTerm
 
   @Override
   public int leaveMessage(int userId, String message) {
+    requireSession();
     return DatabaseInsertHelper.insertMessage(userId, message);
   }
 
+  @Override
+  public int broadcastMessage(Roles role, String message) {
+    requireSession();
+    return DatabaseInsertHelper.insertBroadcast(role, message);
+  }
+
+  @Override
+  public int broadcastMessage(AccountTypes accountType, String message) {
+    requireSession();
+    // admins can leave messages for any owner
+    return DatabaseInsertHelper.insertBroadcast(accountType, message);
+  }
+
+  @Override
+  public int broadcastMessage(List<Integer> userIds, String message) {
+    requireSession();
+    // admins can leave messages for any user
+    return DatabaseInsertHelper.insertBroadcast(userIds, message);
+  }
+
   @Override
   public String peekMessage(int messageId) {
+    requireSession();
     return DatabaseSelectHelper.getSpecificMessage(messageId);
   }
 
@@ -4,9 +4,11 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.bank.accounts.Account;
+import com.bank.accounts.Money;
 import com.bank.accounts.TaxFreeSavingsAccount;
 import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.databasehelper.DatabaseTransactionHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.exceptions.ConnectionFailedException;
@@ -15,8 +17,11 @@ import com.bank.exceptions.IllegalAmountException;
 import com.bank.exceptions.InsufficientFundsException;
 import com.bank.generics.AccountTypes;
 import com.bank.generics.AccountTypesEnumMap;
+import com.bank.generics.Roles;
 import com.bank.messages.Message;
 import com.bank.messages.MessageHelpers;
+import com.bank.security.Session;
+import com.bank.security.SessionManager;
 import com.bank.users.Admin;
 import com.bank.users.Customer;
 import com.bank.users.User;
@@ -39,9 +44,10 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
   private static final String ILLEGAL_AMOUNT_MSG = "amount must be positive";
 
   /**
-   * String message for illegal amount exception instances.
+   * String message for insufficient funds exception instances.
    */
-  private static final String CONNECTION_FAILED_MSG = "update to database failed";
+  private static final String INSUFFICIENT_FUNDS_MSG =
+          "insufficient funds, current balance is less than given amount";
 
   /**
    * The current customer using this ATM.
@@ -49,35 +55,33 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
   private Customer currentCustomer = null;
 
   /**
-   * Creates an ATM without customer authentication. The authenticate method must be later used.
-   *
-   * @param customerId a customer ID number
+   * The token of the current customer's session.
    */
-  public SolidAutoTellerMachine(int customerId) {
-    deAuthenticate();
-    User selectCustomer = DatabaseSelectHelper.getUserDetails(customerId);
-    if (selectCustomer instanceof Customer) {
-      currentCustomer = (Customer) selectCustomer;
-    }
-  }
+  private String sessionToken = null;
 
   /**
-   * Creates an ATM given a customer ID number and a customer password to authenticate.
+   * Creates an ATM for a customer who has logged in. The session is checked in memory on every
+   * use of an account, so the password is never needed again.
    *
-   * @param customerId a customer ID number
-   * @param password   the password of the customer to authenticate
+   * @param sessionToken the token of the customer's session
    */
-  public SolidAutoTellerMachine(int customerId, String password) {
-    this(customerId);
+  public SolidAutoTellerMachine(String sessionToken) {
+    Session session = SessionManager.getSession(sessionToken, Roles.CUSTOMER);
+    if (session != null) {
+      User selectCustomer = DatabaseSelectHelper.getUserDetails(session.getUserId());
+      if (selectCustomer instanceof Customer) {
+        currentCustomer = (Customer) selectCustomer;
+        this.sessionToken = sessionToken;
+      }
+    }
   }
 
   @Override
   public BigDecimal checkBalance(int accountId)
           throws DoesNotOwnException {
     BigDecimal balance;
-    if (DatabaseValidHelper.userOwnsAccount(currentCustomer.getId(), accountId)) {
-      Account account = DatabaseSelectHelper.getAccountDetails(accountId);
-      balance = account.getBalance();
+    if (ownsAccount(accountId)) {
+      balance = DatabaseSelectHelper.getBalance(accountId).toBigDecimal();
     } else {
       // throw exception if user does not own account
       throw new DoesNotOwnException(DOES_NOT_OWN_ACCOUNT_MSG);
@@ -89,19 +93,15 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
   public boolean makeDeposit(int accountId, BigDecimal amount) throws
           IllegalAmountException, DoesNotOwnException, ConnectionFailedException {
     boolean success;
-    if (DatabaseValidHelper.userOwnsAccount(currentCustomer.getId(), accountId)) {
-      // check if amount is positive
-      if (amount.compareTo(BigDecimal.ZERO) > 0) {
-        // get current account balance from database, add deposit
-        BigDecimal balance = DatabaseSelectHelper.getBalance(accountId);
-        BigDecimal newBalance = balance.add(amount);
-        // set and update new balance
-        if (success = DatabaseUpdateHelper.updateAccountBalance(newBalance, accountId)) {
-          currentCustomer.findAndUpdateAccounts();
-
-        } else {
-          // throw exception if connection and update to database failed
-          throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+    if (ownsAccount(accountId)) {
+      // check if amount is positive and in whole cents
+      Money deposit = toPositiveMoney(amount);
+      if (deposit != null) {
+        // add deposit to the stored balance, a database failure is thrown as a connection
+        // failure
+        if (!(success = DatabaseTransactionHelper.deposit(accountId, deposit))) {
+          // throw exception if the deposit was refused, such as one the balance can not hold
+          throw new IllegalAmountException(ILLEGAL_AMOUNT_MSG);
         }
       } else {
         // throw exception if amount is not positive
@@ -119,28 +119,16 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
           throws InsufficientFundsException, IllegalAmountException,
           DoesNotOwnException, ConnectionFailedException {
     boolean success;
-    if (DatabaseValidHelper.userOwnsAccount(currentCustomer.getId(), accountId)) {
-      if (amount.compareTo(BigDecimal.ZERO) > 0) {
-        // get current account balance from database
-        BigDecimal balance = DatabaseSelectHelper.getBalance(accountId);
-        // check if amount is valid
-        if (balance.compareTo(amount) >= 0) {
-
-          // subtract amount from current balance
-          BigDecimal newBalance = balance.subtract(amount);
-          // set and update new balance
-          if (success = DatabaseUpdateHelper.updateAccountBalance(newBalance, accountId)) {
-            checkTfsaToSavings(accountId);
-            currentCustomer.findAndUpdateAccounts();
-
-          } else {
-            // throw exception if connection and update to database failed
-            throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
-          }
+    if (ownsAccount(accountId)) {
+      Money withdrawal = toPositiveMoney(amount);
+      if (withdrawal != null) {
+        // subtract amount, only if the stored balance covers it; a database failure is thrown as
+        // a connection failure, so a refusal here can only be the balance
+        if (success = DatabaseTransactionHelper.withdraw(accountId, withdrawal)) {
+          checkTfsaToSavings(accountId);
         } else {
           // throw exception if balance is less than withdraw amount
-          String msg = "insufficient funds, current balance is less than given amount";
-          throw new InsufficientFundsException(msg);
+          throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MSG);
         }
       } else {
         // throw exception if amount is not positive
@@ -153,8 +141,35 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
     return success;
   }
 
+  @Override
+  public boolean makeTransfer(int fromAccountId, int toAccountId, BigDecimal amount)
+          throws InsufficientFundsException, IllegalAmountException,
+          DoesNotOwnException, ConnectionFailedException {
+    boolean success;
+    if (ownsAccount(fromAccountId) && ownsAccount(toAccountId)) {
+      Money transfer = toPositiveMoney(amount);
+      if (transfer == null || fromAccountId == toAccountId) {
+        // throw exception if amount is not positive, or money would not move
+        throw new IllegalAmountException(ILLEGAL_AMOUNT_MSG);
+      }
+      // move the amount in one transaction, only if the source balance covers it; a database
+      // failure is thrown as a connection failure
+      if (success = DatabaseTransactionHelper.transfer(fromAccountId, toAccountId, transfer)) {
+        checkTfsaToSavings(fromAccountId);
+      } else {
+        // throw exception if balance is less than transfer amount
+        throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MSG);
+      }
+    } else {
+      // throw exception if user does not own both accounts
+      throw new DoesNotOwnException(DOES_NOT_OWN_ACCOUNT_MSG);
+    }
+    return success;
+  }
+
   @Override
   public List<Account> listAccounts() {
+    requireSession();
     // clear and retrieve updated list of accounts
     currentCustomer.findAndUpdateAccounts();
     // return list of accounts the customer owns
@@ -163,20 +178,22 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
 
   @Override
   public List<Message> listMessages() {
+    requireSession();
     int customerId = currentCustomer.getId();
     return DatabaseSelectHelper.getAllMessages(customerId);
   }
 
   @Override
   public List<Integer> listMessageIds() {
+    requireSession();
     currentCustomer.findAndUpdateMessageIds();
     return currentCustomer.getMessageIds();
   }
 
   @Override
   public String viewMessage(int messageId) throws DoesNotOwnException {
-    List<Integer> messageIds = DatabaseSelectHelper.getAllMessageIds(currentCustomer.getId());
-    if (!messageIds.contains(messageId)) {
+    requireSession();
+    if (!DatabaseValidHelper.userOwnsMessage(currentCustomer.getId(), messageId)) {
       throw new DoesNotOwnException(DOES_NOT_OWN_MESSAGE_MSG);
     }
     // get the message and update its view status
@@ -187,8 +204,9 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
 
   @Override
   public void deAuthenticate() {
+    SessionManager.logout(sessionToken);
+    sessionToken = null;
     currentCustomer = null;
-//    authenticated = false;
   }
 
   /**
@@ -200,32 +218,65 @@ public class SolidAutoTellerMachine implements AutoTellerMachine {
    */
   private int checkTfsaToSavings(int accountId) {
     int messageId = DatabaseValidHelper.INVALID_ID;
-    // get TFSA type ID and given account type ID
     int tfsaTypeId = AccountTypesEnumMap.getAccountTypeId(AccountTypes.TFSA);
-    int typeId = DatabaseSelectHelper.getAccountType(accountId);
-    // check if account is a TFSA
-    if (tfsaTypeId == typeId) {
-      // check if balance is less than $5000
-      BigDecimal balance = DatabaseSelectHelper.getBalance(accountId);
-      if (balance.compareTo(TaxFreeSavingsAccount.MIN_BALANCE) == -1) {
-        // if below $5000, change account type to savings
-        int savingsTypeId = AccountTypesEnumMap.getAccountTypeId(AccountTypes.SAVING);
-        if (DatabaseUpdateHelper.updateAccountType(savingsTypeId, accountId)) {
-          // write message to user notifying of account type change
-          int customerId = currentCustomer.getId();
-          messageId = MessageHelpers.notifySavingsAccountChange(customerId, accountId);
-        }
-      }
+    int savingsTypeId = AccountTypesEnumMap.getAccountTypeId(AccountTypes.SAVING);
+    // change a TFSA under $5000 to savings, checked and changed in one statement so a deposit
+    // made since the withdrawal is never missed
+    if (DatabaseUpdateHelper.updateAccountTypeIfBelow(tfsaTypeId, savingsTypeId,
+            TaxFreeSavingsAccount.MIN_BALANCE, accountId)) {
+      // write message to user notifying of account type change
+      int customerId = currentCustomer.getId();
+      messageId = MessageHelpers.notifySavingsAccountChange(customerId, accountId);
     }
     return messageId;
   }
 
+  /**
+   * Returns the session of the current customer, marking it as used so it does not expire while
+   * the ATM is in use.
+   *
+   * @return the open session
+   * @throws IllegalStateException if the session has been logged out or has expired
+   */
+  private Session requireSession() {
+    Session session = SessionManager.getSession(sessionToken, Roles.CUSTOMER);
+    if (session == null) {
+      throw new IllegalStateException(UNAUTHENTICATED_CUSTOMER_MSG);
+    }
+    return session;
+  }
+
+  /**
+   * Returns <code>true</code> if the current customer owns the account with accountId.
+   *
+   * @param accountId an account ID number
+   * @return <code>true</code> if the current customer owns the account
+   */
+  private boolean ownsAccount(int accountId) {
+    Session session = SessionManager.getSession(sessionToken, Roles.CUSTOMER);
+    return session != null && session.ownsAccount(accountId);
+  }
+
+  /**
+   * Returns the given amount as money if it is positive and in whole cents.
+   *
+   * @param amount an amount to deposit or withdraw
+   * @return the amount as money, <code>null</code> if it is not a valid amount
+   */
+  private static Money toPositiveMoney(BigDecimal amount) {
+    if (amount == null || amount.signum() <= 0 || !Money.isExact(amount)) {
+      return null;
+    }
+    return Money.of(amount);
+  }
+
   @Override
   public int checkAccount(int accountId, BigDecimal balance) {
+    requireSession();
     Account account = DatabaseSelectHelper.getAccountDetails(accountId);
     // check if account is a TFSA and balance is less than 5000
     if (account instanceof TaxFreeSavingsAccount
-            && balance.compareTo(TaxFreeSavingsAccount.MIN_BALANCE) == -1) {
+            && balance.compareTo(TaxFreeSavingsAccount.MIN_BALANCE.toBigDecimal()) == -1) {
       // get accountType id of savings account
       int typeId = AccountTypesEnumMap.getAccountTypeId(AccountTypes.SAVING);
       if (DatabaseUpdateHelper.updateAccountType(typeId, accountId)) {
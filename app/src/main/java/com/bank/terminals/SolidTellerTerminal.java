@@ -4,19 +4,24 @@ import android.os.Parcel;
 import android.os.Parcelable;
 
 import com.bank.accounts.Account;
+import com.bank.accounts.Money;
 import com.bank.databasehelper.DatabaseInsertHelper;
 import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.databasehelper.DatabaseTransactionHelper;
 import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.exceptions.ConnectionFailedException;
 import com.bank.exceptions.DoesNotOwnException;
 import com.bank.exceptions.IllegalAmountException;
 import com.bank.exceptions.InsufficientFundsException;
+import com.bank.generics.AccountTypes;
 import com.bank.generics.AccountTypesEnumMap;
 import com.bank.generics.Roles;
 import com.bank.generics.RolesEnumMap;
 import com.bank.messages.Message;
 import com.bank.messages.MessageHelpers;
+import com.bank.security.Session;
+import com.bank.security.SessionManager;
 import com.bank.users.Admin;
 import com.bank.users.Customer;
 import com.bank.users.Teller;
@@ -49,20 +54,67 @@ public class SolidTellerTerminal implements TellerTerminal {
    */
   private AutoTellerMachine currentAtm = null;
 
+  /**
+   * The token of the current user's session.
+   */
+  private String sessionToken = null;
+
+  /**
+   * The role the user of the session must have.
+   */
+  private final Roles sessionRole;
+
   /**
    * This constructor is used for SolidAdminTerminal (DESIGN CHOICE!).
    */
   public SolidTellerTerminal() {
+    this(null, Roles.TELLER);
     /* empty terminal */
   }
 
-  public SolidTellerTerminal(int userId, String password) {
-    // teller is assumed authenticated
-    currentTeller = (Teller) DatabaseSelectHelper.getUserDetails(userId);
+  /**
+   * Creates a terminal for a teller who has logged in.
+   *
+   * @param sessionToken the token of the teller's session
+   */
+  public SolidTellerTerminal(String sessionToken) {
+    this(sessionToken, Roles.TELLER);
+    Session session = SessionManager.getSession(sessionToken, Roles.TELLER);
+    if (session != null) {
+      currentTeller = (Teller) DatabaseSelectHelper.getUserDetails(session.getUserId());
+    }
+  }
+
+  /**
+   * Creates a terminal whose every operation is checked against the session with the token.
+   *
+   * @param sessionToken the token of the user's session
+   * @param sessionRole the role the user of the session must have
+   */
+  protected SolidTellerTerminal(String sessionToken, Roles sessionRole) {
+    this.sessionToken = sessionToken;
+    this.sessionRole = sessionRole;
+  }
+
+  /**
+   * Returns the session of the user of this terminal, marking it as used so it does not expire
+   * while the terminal is in use. Called by every operation before it touches the database.
+   *
+   * @return the open session
+   * @throws IllegalStateException if the session has been logged out or has expired
+   */
+  protected Session requireSession() {
+    Session session = SessionManager.getSession(sessionToken, sessionRole);
+    if (session == null) {
+      throw new IllegalStateException(sessionRole == Roles.ADMIN ? UNAUTHENTICATED_ADMIN_MSG
+              : UNAUTHENTICATED_TELLER_MSG);
+    }
+    return session;
   }
 
   @Override
   public boolean setCustomer(int customerId) {
+    requireSession();
     boolean success;
     User selectCustomer = DatabaseSelectHelper.getUserDetails(customerId);
     if (success = selectCustomer instanceof Customer) {
@@ -73,20 +125,30 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean authenticateCustomer(String password) {
-//    // if there was already an ATM
-//    if (currentAtm != null) {
-//      success = currentAtm.authenticate(customerId, password);
-//    } else {
-//      this.currentAtm = new SolidAutoTellerMachine(customerId, password);
-//      success = currentAtm.isAuthenticated();
-//    }
-    this.currentAtm = new SolidAutoTellerMachine(customerId, password);
-    return currentAtm != null;
+    requireSession();
+    // the password is checked once, the customer's session is used from then on
+    return authenticateCustomerSession(SessionManager.login(customerId, password));
+  }
+
+  @Override
+  public boolean authenticateCustomerSession(String customerSessionToken) {
+    requireSession();
+    Session session = SessionManager.getSession(customerSessionToken, Roles.CUSTOMER);
+    if (session == null) {
+      return false;
+    }
+    if (currentAtm != null) {
+      currentAtm.deAuthenticate();
+    }
+    customerId = session.getUserId();
+    currentAtm = new SolidAutoTellerMachine(customerSessionToken);
+    return true;
   }
 
   @Override
   public BigDecimal checkBalance(int accountId)
           throws DoesNotOwnException {
+    requireSession();
     BigDecimal balance = null;
     if (currentAtm != null) {
       balance = currentAtm.checkBalance(accountId);
@@ -96,18 +158,20 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public BigDecimal checkBalance() {
-    BigDecimal totalBalance = BigDecimal.ZERO;
+    requireSession();
+    Money totalBalance = Money.ZERO;
     if (currentAtm != null) {
       for (Account account : currentAtm.listAccounts()) {
-        totalBalance = totalBalance.add(account.getBalance());
+        totalBalance = totalBalance.plus(account.getMoneyBalance());
       }
     }
-    return totalBalance;
+    return totalBalance.toBigDecimal();
   }
 
   @Override
   public boolean makeDeposit(int accountId, BigDecimal amount) throws
           IllegalAmountException, DoesNotOwnException, ConnectionFailedException {
+    requireSession();
     boolean success = false;
     if (currentAtm != null) {
       success = currentAtm.makeDeposit(accountId, amount);
@@ -119,6 +183,7 @@ public class SolidTellerTerminal implements TellerTerminal {
   public boolean makeWithdrawal(int accountId, BigDecimal amount)
           throws InsufficientFundsException, IllegalAmountException,
           DoesNotOwnException, ConnectionFailedException {
+    requireSession();
 
     boolean success = false;
     if (currentAtm != null) {
@@ -132,8 +197,26 @@ public class SolidTellerTerminal implements TellerTerminal {
     return success;
   }
 
+  @Override
+  public boolean makeTransfer(int fromAccountId, int toAccountId, BigDecimal amount)
+          throws InsufficientFundsException, IllegalAmountException,
+          DoesNotOwnException, ConnectionFailedException {
+    requireSession();
+    boolean success = false;
+    if (currentAtm != null) {
+      if (DatabaseValidHelper.isAccountType("OWING", fromAccountId)) {
+        throw new InsufficientFundsException(
+                "Add loans to an Balance Owing Account using the Add Loans option.");
+      } else {
+        success = currentAtm.makeTransfer(fromAccountId, toAccountId, amount);
+      }
+    }
+    return success;
+  }
+
   @Override
   public List<Account> listAccounts() {
+    requireSession();
     List<Account> accounts = new ArrayList<>();
     if (currentAtm != null) {
       accounts = currentAtm.listAccounts();
@@ -143,6 +226,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public int makeNewUser(String name, int age, String address, String password) {
+    requireSession();
     // get role ID number of customer from database
     int roleId = RolesEnumMap.getRoleId(Roles.CUSTOMER);
     // write new customer into the database
@@ -158,6 +242,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public int makeNewAccount(String name, BigDecimal balance, int type) {
+    requireSession();
     if (AccountTypesEnumMap.getAccountTypeName(type).equals("OWING")) {
       balance = balance.negate();
     }
@@ -169,32 +254,38 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public BigDecimal giveInterest(int accountId) throws
-          DoesNotOwnException {
+          DoesNotOwnException, ConnectionFailedException {
+    requireSession();
     Account account = DatabaseSelectHelper.getAccountDetails(accountId);
     if (!DatabaseValidHelper.userOwnsAccount(customerId, accountId)) {
       throw new DoesNotOwnException(DOES_NOT_OWN_ACCOUNT_MSG);
     }
     // set interest rate and add to account
     account.findAndSetInterestRate();
-    BigDecimal interest = account.addInterest();
-    // send system message to customer
-    MessageHelpers.notifyInterest(customerId, account.getId(), interest);
-    return interest;
+    Money interest = account.addInterest();
+    // send system message to customer, only if the interest was applied
+    if (interest.signum() != 0) {
+      MessageHelpers.notifyInterest(customerId, account.getId(), interest.toBigDecimal());
+    }
+    return interest.toBigDecimal();
   }
 
   @Override
-  public BigDecimal giveInterest() {
-    BigDecimal totalInterest = BigDecimal.ZERO;
+  public BigDecimal giveInterest() throws ConnectionFailedException {
+    requireSession();
+    Money totalInterest = Money.ZERO;
     List<Integer> accountIds = DatabaseSelectHelper.getAccountIds(customerId);
     // set interest rates and add to each account
     for (int accountId : accountIds) {
       Account account = DatabaseSelectHelper.getAccountDetails(accountId);
       account.findAndSetInterestRate();
-      totalInterest = totalInterest.add(account.addInterest());
+      totalInterest = totalInterest.plus(account.addInterest());
+    }
+    // send system message to customer, only if any interest was applied
+    if (totalInterest.signum() != 0) {
+      MessageHelpers.notifyInterest(customerId, totalInterest.toBigDecimal());
     }
-    // send system message to customer
-    MessageHelpers.notifyInterest(customerId, totalInterest);
-    return totalInterest;
+    return totalInterest.toBigDecimal();
   }
 
   @Override
@@ -210,23 +301,29 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public void deAuthenticate() {
+    deAuthenticateCustomer();
+    SessionManager.logout(sessionToken);
+    sessionToken = null;
     currentTeller = null;
   }
 
   @Override
   public List<Message> listMessages() {
+    requireSession();
     int tellerId = currentTeller.getId();
     return DatabaseSelectHelper.getAllMessages(tellerId);
   }
 
   @Override
   public List<Integer> listMessageIds() {
+    requireSession();
     currentTeller.findAndUpdateMessageIds();
     return currentTeller.getMessageIds();
   }
 
   @Override
   public List<Integer> listCustomerMessageIds() {
+    requireSession();
     List<Integer> customerMessageIds = new ArrayList<>();
     if (currentAtm != null) {
       customerMessageIds = currentAtm.listMessageIds();
@@ -236,6 +333,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public int leaveMessage(int userId, String message) {
+    requireSession();
     int messageId = DatabaseValidHelper.INVALID_ID;
     User selectCustomer = DatabaseSelectHelper.getUserDetails(userId);
     if (selectCustomer instanceof Customer) {
@@ -246,16 +344,37 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public int leaveMessage(String message) {
+    requireSession();
     int messageId = DatabaseInsertHelper.insertMessage(customerId, message);
     // if the messageId is invalid, then it means customer was not authenticated
     return messageId;
   }
 
+  @Override
+  public int broadcastMessage(String message) {
+    requireSession();
+    return DatabaseInsertHelper.insertBroadcast(Roles.CUSTOMER, message);
+  }
+
+  @Override
+  public int broadcastMessage(AccountTypes accountType, String message) {
+    requireSession();
+    // tellers only leave messages for customers
+    return DatabaseInsertHelper.insertBroadcast(accountType, Roles.CUSTOMER, message);
+  }
+
+  @Override
+  public int broadcastMessage(List<Integer> userIds, String message) {
+    requireSession();
+    // tellers only leave messages for customers
+    return DatabaseInsertHelper.insertBroadcast(userIds, Roles.CUSTOMER, message);
+  }
+
   @Override
   public String viewMessage(int messageId) throws DoesNotOwnException {
+    requireSession();
     String message = null;
-    List<Integer> allMessageIds = currentTeller.getMessageIds();
-    if (allMessageIds.contains(messageId)) {
+    if (DatabaseValidHelper.userOwnsMessage(currentTeller.getId(), messageId)) {
       message = DatabaseSelectHelper.getSpecificMessage(messageId);
       DatabaseUpdateHelper.updateUserMessageState(messageId);
     } else {
@@ -274,26 +393,24 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public int checkAccount(int accountId, BigDecimal balance) {
+    requireSession();
     return currentAtm.checkAccount(accountId, balance);
   }
 
   @Override
   public boolean addLoans(int accountId, BigDecimal amount) throws
           ConnectionFailedException, IllegalAmountException, DoesNotOwnException {
+    requireSession();
     boolean success;
     if (DatabaseValidHelper.userOwnsOwingAccount(customerId, accountId)) {
-      // check if amount is positive
-      if (amount.compareTo(BigDecimal.ZERO) > 0) {
-        amount = amount.negate();
-        // get current account balance from database, add deposit
-        Account account = DatabaseSelectHelper.getAccountDetails(accountId);
-        BigDecimal newBalance = account.getBalance().add(amount);
-        // set and update new balance
-        if (success = DatabaseUpdateHelper.updateAccountBalance(newBalance, accountId)) {
-          account.setBalance(newBalance);
-        } else {
-          // throw exception if connection and update to database failed
-          throw new ConnectionFailedException(CONNECTION_FAILED_MSG);
+      // check if amount is positive and in whole cents
+      if (amount.compareTo(BigDecimal.ZERO) > 0 && Money.isExact(amount)) {
+        Money loan = Money.of(amount);
+        // take the loan out against the stored balance, a database failure is thrown as a
+        // connection failure
+        if (!(success = DatabaseTransactionHelper.addLoan(accountId, loan))) {
+          // throw exception if the loan was refused, such as one the balance can not hold
+          throw new IllegalAmountException(ILLEGAL_AMOUNT_MSG);
         }
       } else {
         // throw exception if amount is not positive
@@ -308,6 +425,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean updateUserName(String name, int userId, String userPassword) {
+    requireSession();
     // get customer from database
     User selectCustomer = DatabaseSelectHelper.getUserDetails(userId);
     if (selectCustomer instanceof Customer) {
@@ -320,6 +438,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean updateUserAge(int age, int userId, String userPassword) {
+    requireSession();
     // get customer from database
     User selectCustomer = DatabaseSelectHelper.getUserDetails(userId);
     if (selectCustomer instanceof Customer) {
@@ -332,6 +451,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean updateUserAddress(String address, int userId, String userPassword) {
+    requireSession();
     // get customer from database
     User selectCustomer = DatabaseSelectHelper.getUserDetails(userId);
     if (selectCustomer instanceof Customer) {
@@ -344,6 +464,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean updateUserPassword(String password, int userId, String userPassword) {
+    requireSession();
     // get customer from database
     User selectCustomer = DatabaseSelectHelper.getUserDetails(userId);
     if (selectCustomer instanceof Customer) {
@@ -356,6 +477,7 @@ public class SolidTellerTerminal implements TellerTerminal {
 
   @Override
   public boolean createJointAccount(int accountId, int userId) {
+    requireSession();
     User user = DatabaseSelectHelper.getUserDetails(userId);
     if (user instanceof Customer) {
       int userAccountId = DatabaseInsertHelper.insertUserAccount(userId, accountId);
@@ -0,0 +1,61 @@
+package com.bank.terminals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Keeps the background reads an activity has started, so the ones still pending can be
+ * cancelled when the activity is destroyed. Writes are not kept: the user has already asked for
+ * them, so they are left to finish.
+ */
+public final class TaskGroup {
+
+  private final List<Future<?>> pending = new ArrayList<>();
+
+  /**
+   * Keeps a read until it finishes or the group is cancelled.
+   *
+   * @param future the pending read
+   * @return the same pending read
+   */
+  public synchronized <R> Future<R> add(Future<R> future) {
+    // drop the reads that have finished, so the group only holds what is pending
+    Iterator<Future<?>> iterator = pending.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().isDone()) {
+        iterator.remove();
+      }
+    }
+    pending.add(future);
+    return future;
+  }
+
+  /**
+   * Returns the number of reads kept that have not finished.
+   *
+   * @return the number of pending reads
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (Future<?> future : pending) {
+      if (!future.isDone()) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Cancels every pending read. A read already running is let finish, but its callback is
+   * dropped.
+   */
+  public synchronized void cancelAll() {
+    for (Future<?> future : pending) {
+      future.cancel(false);
+    }
+    pending.clear();
+  }
+
+}
@@ -5,6 +5,7 @@ import com.bank.exceptions.ConnectionFailedException;
 import com.bank.exceptions.DoesNotOwnException;
 import com.bank.exceptions.IllegalAmountException;
 import com.bank.exceptions.InsufficientFundsException;
+import com.bank.generics.AccountTypes;
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -38,6 +39,15 @@ public interface TellerTerminal extends Terminal {
    */
   boolean authenticateCustomer(String password);
 
+  /**
+   * Makes the customer of a session the current customer, authenticated by that session. The
+   * customer's password is not checked again.
+   *
+   * @param customerSessionToken the token of a customer's session
+   * @return <code>true</code> if the session is open and belongs to a customer
+   */
+  boolean authenticateCustomerSession(String customerSessionToken);
+
   /**
    * Creates a new customer and writes them into the database, if teller has been authenticated.
    *
@@ -107,20 +117,40 @@ public interface TellerTerminal extends Terminal {
           throws InsufficientFundsException, IllegalAmountException,
           DoesNotOwnException, ConnectionFailedException;
 
+  /**
+   * Moves the given amount from the account with ID fromAccountId to the account with ID
+   * toAccountId. Either both balances change or neither does.
+   *
+   * @param fromAccountId an account ID number owned under current customer, to take amount from
+   * @param toAccountId   an account ID number owned under current customer, to add amount to
+   * @param amount        the amount to transfer
+   * @return <code>true</code> if transfer was successful
+   * @throws InsufficientFundsException if balance of fromAccountId is less than transfer amount
+   * @throws IllegalAmountException     if amount is not positive
+   * @throws DoesNotOwnException        if customer does not own both accounts
+   * @throws ConnectionFailedException  if connection and update to database failed
+   */
+  boolean makeTransfer(int fromAccountId, int toAccountId, BigDecimal amount)
+          throws InsufficientFundsException, IllegalAmountException,
+          DoesNotOwnException, ConnectionFailedException;
+
   /**
    * Adds interest to the account with ID accountId, if customer and teller are both authenticated,
    * and the account belongs to the current customer.
    *
    * @param accountId an account ID number
    * @throws DoesNotOwnException if customer does not own account with ID accountId
+   * @throws ConnectionFailedException if connection and update to database failed
    */
-  BigDecimal giveInterest(int accountId) throws DoesNotOwnException;
+  BigDecimal giveInterest(int accountId) throws DoesNotOwnException, ConnectionFailedException;
 
   /**
    * Adds interest to every account under the current customer, if customer and teller are both
    * authenticated.
+   *
+   * @throws ConnectionFailedException if connection and update to database failed
    */
-  BigDecimal giveInterest();
+  BigDecimal giveInterest() throws ConnectionFailedException;
 
   /**
    * Returns a list of bank accounts for the current customer.
@@ -146,6 +176,35 @@ public interface TellerTerminal extends Terminal {
    */
   int leaveMessage(String message);
 
+  /**
+   * Leaves a message for every customer of the bank and returns the number of customers it was
+   * left for.
+   *
+   * @param message the message to leave
+   * @return the number of customers the message was left for
+   */
+  int broadcastMessage(String message);
+
+  /**
+   * Leaves a message for every customer owning an account of the given type and returns the
+   * number of customers it was left for.
+   *
+   * @param accountType the type of the accounts whose owners to leave the message for
+   * @param message     the message to leave
+   * @return the number of customers the message was left for
+   */
+  int broadcastMessage(AccountTypes accountType, String message);
+
+  /**
+   * Leaves a message for every customer with an ID in userIds and returns the number of
+   * customers it was left for.
+   *
+   * @param userIds a list of user ID numbers
+   * @param message the message to leave
+   * @return the number of customers the message was left for
+   */
+  int broadcastMessage(List<Integer> userIds, String message);
+
   /**
    * Returns a list of message IDs of the customer the teller is operating on.
    *
@@ -0,0 +1,25 @@
+package com.bank.terminals;
+
+/**
+ * Receives the outcome of terminal work run in the background. Both methods are called on the
+ * main thread, so they may update the views.
+ *
+ * @param <R> the type of the result
+ */
+public interface TerminalCallback<R> {
+
+  /**
+   * Called with the result of the work once it has finished.
+   *
+   * @param result the result of the work
+   */
+  void onResult(R result);
+
+  /**
+   * Called if the work threw, or could not be queued because too much work is already waiting.
+   *
+   * @param e the exception thrown
+   */
+  void onError(Exception e);
+
+}
@@ -0,0 +1,164 @@
+package com.bank.terminals;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs database work for the terminals off the main thread. Writes run one at a time on a
+ * single writer thread, in the order they were sent, since the database takes one writer at a
+ * time anyway; reads run on a small pool beside it. Both queues are bounded, so a burst of work
+ * is refused rather than piling up, and results are handed back on the main thread.
+ */
+public final class TerminalExecutor {
+
+  /**
+   * The number of threads reads run on.
+   */
+  public static final int READER_THREADS = 2;
+
+  /**
+   * The most tasks each queue holds before new ones are refused.
+   */
+  public static final int QUEUE_CAPACITY = 64;
+
+  private static final ThreadPoolExecutor writer = newExecutor(1, "terminal-writer");
+  private static final ThreadPoolExecutor readers =
+          newExecutor(READER_THREADS, "terminal-reader");
+
+  /**
+   * Created on first use, so the executor can be loaded off the main thread.
+   */
+  private static volatile Handler mainThread = null;
+
+  private TerminalExecutor() {
+  }
+
+  /**
+   * Runs a read on the reader pool.
+   *
+   * @param task the work to run, which must not write to the database
+   * @param callback told the outcome on the main thread, may be <code>null</code>
+   * @return the pending result, which may be cancelled to drop the callback
+   */
+  public static <R> Future<R> read(Callable<R> task, TerminalCallback<R> callback) {
+    return submit(readers, task, callback);
+  }
+
+  /**
+   * Runs work that writes to the database on the writer thread, after every write sent before
+   * it.
+   *
+   * @param task the work to run
+   * @param callback told the outcome on the main thread, may be <code>null</code>
+   * @return the pending result, which may be cancelled to drop the callback
+   */
+  public static <R> Future<R> write(Callable<R> task, TerminalCallback<R> callback) {
+    return submit(writer, task, callback);
+  }
+
+  private static <R> Future<R> submit(ThreadPoolExecutor executor, Callable<R> task,
+                                      final TerminalCallback<R> callback) {
+    FutureTask<R> future = new FutureTask<R>(task) {
+      @Override
+      protected void done() {
+        if (callback != null && !isCancelled()) {
+          deliver(this, callback);
+        }
+      }
+    };
+    try {
+      executor.execute(future);
+    } catch (RejectedExecutionException e) {
+      future.cancel(false);
+      if (callback != null) {
+        fail(callback, e);
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Posts the outcome of finished work to the main thread.
+   *
+   * @param future the finished work
+   * @param callback told the outcome
+   */
+  private static <R> void deliver(final Future<R> future, final TerminalCallback<R> callback) {
+    mainThread().post(new Runnable() {
+      @Override
+      public void run() {
+        if (future.isCancelled()) {
+          return;
+        }
+        R result;
+        try {
+          result = future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            callback.onError((Exception) cause);
+            return;
+          }
+          // errors are not the caller's to handle
+          throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+          callback.onError(e);
+          return;
+        }
+        callback.onResult(result);
+      }
+    });
+  }
+
+  private static void fail(final TerminalCallback<?> callback, final Exception e) {
+    mainThread().post(new Runnable() {
+      @Override
+      public void run() {
+        callback.onError(e);
+      }
+    });
+  }
+
+  private static Handler mainThread() {
+    Handler handler = mainThread;
+    if (handler == null) {
+      synchronized (TerminalExecutor.class) {
+        handler = mainThread;
+        if (handler == null) {
+          handler = new Handler(Looper.getMainLooper());
+          mainThread = handler;
+        }
+      }
+    }
+    return handler;
+  }
+
+  private static ThreadPoolExecutor newExecutor(int threads, final String name) {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+              private final AtomicInteger count = new AtomicInteger();
+
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    // idle threads are let go, the terminals are used in bursts
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+}
@@ -32,8 +32,6 @@ public class Admin extends User {
     setName(name);
     setAge(age);
     setAddress(address);
-    findAndSetRoleId();
-    findAndUpdateMessageIds();
   }
 
   /**
@@ -16,15 +16,15 @@ public class Customer extends User {
   private static final long serialVersionUID = -4408305051333216206L;
   
   /**
-   * The list of accounts this customer owns.
+   * The list of accounts this customer owns, <code>null</code> until first needed.
    */
-  private List<Account> accounts;
+  private List<Account> accounts = null;
 
   /**
    * Creates a nullified customer for user builder.
    */
   protected Customer() {
-    accounts = new ArrayList<Account>();
+    /* empty constructor for builder */
   }
 
   /**
@@ -40,10 +40,6 @@ public class Customer extends User {
     setName(name);
     setAge(age);
     setAddress(address);
-    findAndSetRoleId();
-    accounts = new ArrayList<Account>();
-    findAndUpdateAccounts();
-    findAndUpdateMessageIds();
   }
 
   /**
@@ -67,20 +63,27 @@ public class Customer extends User {
    * Connects to database and updates the current customer's list of accounts.
    */
   public void findAndUpdateAccounts() {
-    this.accounts.clear();
+    List<Account> accounts = new ArrayList<Account>();
     List<Integer> accountIds = DatabaseSelectHelper.getAccountIds(getId());
-    for (int accountId : accountIds) {
-      Account account = DatabaseSelectHelper.getAccountDetails(accountId);
-      accounts.add(account);
+    if (accountIds != null) {
+      for (int accountId : accountIds) {
+        Account account = DatabaseSelectHelper.getAccountDetails(accountId);
+        accounts.add(account);
+      }
     }
+    this.accounts = accounts;
   }
 
   /**
-   * Returns a list of accounts that this user owns.
+   * Returns a list of accounts that this user owns. The accounts are read from the database the
+   * first time they are needed; use findAndUpdateAccounts to read them again.
    * 
    * @return a list of accounts under this user
    */
   public List<Account> getAccounts() {
+    if (accounts == null) {
+      findAndUpdateAccounts();
+    }
     return accounts;
   }
 
@@ -90,7 +93,7 @@ public class Customer extends User {
    * @param account the account to add
    */
   public void addAccount(Account account) {
-    accounts.add(account);
+    getAccounts().add(account);
   }
 
 }
@@ -3,7 +3,9 @@ package com.bank.users;
 import com.bank.generics.Roles;
 
 /**
- * A factory constructor implementation of UserBuilder.
+ * A factory constructor implementation of UserBuilder. Building a user runs no queries: accounts
+ * and message IDs are read the first time they are asked for, so a user built from only an ID
+ * and role ID is a cheap projection for role and identity checks.
  */
 public class SolidUserBuilder implements UserBuilder {
 
@@ -53,13 +55,14 @@ public class SolidUserBuilder implements UserBuilder {
     return this;
   }
 
+  @Override
+  public UserBuilder setRoleId(int roleId) {
+    user.setRoleId(roleId);
+    return this;
+  }
+
   @Override
   public User buildUser() {
-    user.findAndSetRoleId();
-    if (user instanceof Customer) {
-      ((Customer) user).findAndUpdateAccounts();
-    }
-    user.findAndUpdateMessageIds();
     return user;
   }
 
@@ -1,6 +1,7 @@
 package com.bank.users;
 
 import com.bank.databasehelper.DatabaseSelectHelper;
+import com.bank.databasehelper.DatabaseUpdateHelper;
 import com.bank.databasehelper.DatabaseValidHelper;
 import com.bank.security.PasswordHelpers;
 import java.io.Serializable;
@@ -39,9 +40,9 @@ public abstract class User implements Serializable {
   private String address;
 
   /**
-   * IDs of messages for this user.
+   * IDs of messages for this user, <code>null</code> until first needed.
    */
-  private List<Integer> messageIds;
+  private List<Integer> messageIds = null;
 
   /**
    * The role ID number of this user.
@@ -133,11 +134,15 @@ public abstract class User implements Serializable {
   }
 
   /**
-   * Returns a list of IDs of messages for this user.
+   * Returns a list of IDs of messages for this user. The IDs are read from the database the first
+   * time they are needed; use findAndUpdateMessageIds to read them again.
    * 
    * @return list of message IDs for this user
    */
   public List<Integer> getMessageIds() {
+    if (messageIds == null) {
+      findAndUpdateMessageIds();
+    }
     return messageIds;
   }
 
@@ -149,11 +154,23 @@ public abstract class User implements Serializable {
   }
 
   /**
-   * Returns the role ID number of this user.
+   * Sets the role ID number of this user, as already read from the Users table.
+   *
+   * @param roleId the user's role ID number
+   */
+  protected void setRoleId(int roleId) {
+    this.roleId = roleId;
+  }
+
+  /**
+   * Returns the role ID number of this user, reading it from the database if it was not set.
    * 
    * @return the user's role ID number
    */
   public int getRoleId() {
+    if (roleId == DatabaseValidHelper.INVALID_ID && id != DatabaseValidHelper.INVALID_ID) {
+      findAndSetRoleId();
+    }
     return roleId;
   }
 
@@ -170,6 +187,10 @@ public abstract class User implements Serializable {
       String hashPassword = DatabaseSelectHelper.getPassword(id);
       // compare passwords to authenticate
       authenticated = PasswordHelpers.comparePassword(hashPassword, password);
+      if (authenticated && PasswordHelpers.needsRehash(hashPassword)) {
+        // the password is known now, so replace a hash made with an older scheme or lower cost
+        DatabaseUpdateHelper.rehashUserPassword(password, hashPassword, id);
+      }
     }
     return authenticated;
   }
@@ -37,6 +37,14 @@ public interface UserBuilder {
    */
   public UserBuilder setAddress(String address);
 
+  /**
+   * Sets the role ID number of this user, so it does not have to be looked up again.
+   * 
+   * @param roleId the role ID number of this user
+   * @return the user builder (for method cascading)
+   */
+  public UserBuilder setRoleId(int roleId);
+
   /**
    * Returns the newly created user object.
    * 
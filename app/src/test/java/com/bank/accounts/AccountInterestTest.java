@@ -0,0 +1,47 @@
+package com.bank.accounts;
+
+import com.bank.ledger.LedgerEntryType;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the interest given to accounts, and how it is journalled.
+ */
+public class AccountInterestTest {
+
+  @Test
+  public void interestOnPositiveBalanceIsPaid() {
+    Money interest = Account.calculateInterest(Money.ofCents(10000), new BigDecimal("0.05"));
+    assertEquals(Money.ofCents(500), interest);
+    assertEquals(LedgerEntryType.INTEREST, LedgerEntryType.forInterest(interest.getCents()));
+  }
+
+  @Test
+  public void interestOnOwingBalanceIsCharged() {
+    // an OWING account holds a negative balance, so its interest makes it more negative
+    Money interest = Account.calculateInterest(Money.ofCents(-10000), new BigDecimal("0.05"));
+    assertEquals(Money.ofCents(-500), interest);
+    assertEquals(LedgerEntryType.INTEREST_CHARGE,
+            LedgerEntryType.forInterest(interest.getCents()));
+  }
+
+  @Test
+  public void newBalanceIsRoundedUpToTheCent() {
+    // 0.01 * 1.5 = 0.015, rounded up to 0.02
+    assertEquals(Money.ofCents(1),
+            Account.calculateInterest(Money.ofCents(1), new BigDecimal("0.5")));
+    // -0.01 * 1.5 = -0.015, rounded towards positive to -0.01
+    assertEquals(Money.ZERO, Account.calculateInterest(Money.ofCents(-1), new BigDecimal("0.5")));
+  }
+
+  @Test
+  public void interestChargeRoundTripsThroughItsCode() {
+    assertEquals(LedgerEntryType.INTEREST_CHARGE,
+            LedgerEntryType.fromCode(LedgerEntryType.INTEREST_CHARGE.getCode()));
+  }
+
+}
@@ -0,0 +1,57 @@
+package com.bank.accounts;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that amounts are held exactly as cents, compare and hash by value, and print with two
+ * decimal places.
+ */
+public class MoneyTest {
+
+  @Test
+  public void equalAmountsHashTheSame() {
+    assertEquals(Money.ofCents(1234), Money.of(new BigDecimal("12.34")));
+    assertEquals(Money.ofCents(1234).hashCode(), Money.of(new BigDecimal("12.340")).hashCode());
+    assertEquals(Long.hashCode(-5L), Money.ofCents(-5).hashCode());
+    assertNotEquals(Money.ofCents(1), Money.ofCents(-1));
+  }
+
+  @Test
+  public void decimalsPastCentsMustBeRounded() {
+    assertTrue(Money.isExact(new BigDecimal("0.10")));
+    assertFalse(Money.isExact(new BigDecimal("0.105")));
+    assertEquals(Money.ofCents(11), Money.of(new BigDecimal("0.105"), RoundingMode.HALF_UP));
+    assertEquals(Money.ofCents(-11), Money.of(new BigDecimal("-0.105"), RoundingMode.HALF_UP));
+  }
+
+  @Test
+  public void largeAmountsStayExact() {
+    // past 2^53 cents, where a double can no longer hold every cent
+    Money large = Money.of(new BigDecimal("92233720368547758.07"));
+    assertEquals(Long.MAX_VALUE, large.getCents());
+    assertEquals("92233720368547758.07", large.toString());
+    assertEquals(Money.ofCents(Long.MAX_VALUE - 1), large.minus(Money.ofCents(1)));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void overflowIsAnError() {
+    Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1));
+  }
+
+  @Test
+  public void amountsPrintWithTwoDecimals() {
+    assertEquals("0.00", Money.ZERO.toString());
+    assertEquals("-0.05", Money.ofCents(-5).toString());
+    assertEquals("12.30", Money.ofCents(1230).toString());
+    assertEquals("-92233720368547758.08", Money.ofCents(Long.MIN_VALUE).toString());
+  }
+
+}
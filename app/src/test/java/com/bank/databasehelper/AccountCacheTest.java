@@ -0,0 +1,80 @@
+package com.bank.databasehelper;
+
+import com.bank.accounts.Money;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that account rows are held until written, that a row read before a write is never held,
+ * and that the least recently used row is dropped once the cache is full.
+ */
+public class AccountCacheTest {
+
+  @Before
+  public void emptyCache() {
+    AccountCache.invalidateAll();
+    AccountCache.resetStatistics();
+  }
+
+  private static AccountCache.Entry entry(long cents) {
+    return new AccountCache.Entry("Savings", Money.ofCents(cents), 1, "SAVING");
+  }
+
+  @Test
+  public void heldRowsAreReadUntilWritten() {
+    AccountCache.Entry entry = entry(100);
+    AccountCache.put(3, entry, AccountCache.version());
+    assertSame(entry, AccountCache.get(3));
+    assertNull(AccountCache.get(4));
+
+    AccountCache.invalidate(3);
+    assertNull(AccountCache.get(3));
+    assertEquals(1, AccountCache.getHitCount());
+    assertEquals(2, AccountCache.getMissCount());
+  }
+
+  @Test
+  public void rowReadBeforeAWriteIsNotHeld() {
+    long readVersion = AccountCache.version();
+    // another thread writes an account between the read and the put
+    AccountCache.invalidate(8);
+    AccountCache.put(3, entry(100), readVersion);
+    assertNull(AccountCache.get(3));
+
+    AccountCache.put(3, entry(100), AccountCache.version());
+    assertNotNull(AccountCache.get(3));
+  }
+
+  @Test
+  public void leastRecentlyUsedRowIsDropped() {
+    long readVersion = AccountCache.version();
+    for (int accountId = 1; accountId <= AccountCache.MAX_ENTRIES; accountId++) {
+      AccountCache.put(accountId, entry(accountId), readVersion);
+    }
+    // reading the first row makes the second the least recently used
+    assertNotNull(AccountCache.get(1));
+    AccountCache.put(AccountCache.MAX_ENTRIES + 1, entry(0), readVersion);
+
+    assertEquals(AccountCache.MAX_ENTRIES, AccountCache.size());
+    assertEquals(1, AccountCache.getEvictionCount());
+    assertNotNull(AccountCache.get(1));
+    assertNull(AccountCache.get(2));
+    assertNotNull(AccountCache.get(AccountCache.MAX_ENTRIES + 1));
+  }
+
+  @Test
+  public void invalidateAllDropsEveryRow() {
+    AccountCache.put(1, entry(1), AccountCache.version());
+    AccountCache.put(2, entry(2), AccountCache.version());
+    AccountCache.invalidateAll();
+    assertEquals(0, AccountCache.size());
+    assertEquals(0.0, AccountCache.getHitRate(), 0.0);
+  }
+
+}
@@ -0,0 +1,73 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+
+import com.bank.accounts.Account;
+import com.bank.accounts.ChequingAccount;
+import com.bank.accounts.Money;
+import com.bank.accounts.TaxFreeSavingsAccount;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that accounts are built from joined account rows without any further lookups.
+ */
+public class AccountRowsTest {
+
+  private static final String[] COLUMNS =
+      {"ID", "NAME", "BALANCE", "TYPE", "TYPENAME", "INTERESTRATE"};
+
+  @Test
+  public void everyRowIsBuiltFromItsOwnColumns() {
+    Cursor cursor = FakeCursor.of(COLUMNS,
+            new Object[] {4, "Rent", 12345L, 2, "CHEQUING", "0.05"},
+            new Object[] {9, "Savings", 700000L, 3, "TFSA", "0.2"});
+    AccountRows rows = new AccountRows(cursor);
+
+    assertTrue(cursor.moveToNext());
+    Account first = rows.read(cursor);
+    assertTrue(first instanceof ChequingAccount);
+    assertEquals(4, first.getId());
+    assertEquals("Rent", first.getName());
+    assertEquals(Money.ofCents(12345L), first.getMoneyBalance());
+    assertEquals(2, first.getType());
+    assertEquals("CHEQUING", first.getTypeName());
+    assertEquals(new BigDecimal("0.05"), first.getInterestRate());
+
+    assertTrue(cursor.moveToNext());
+    Account second = rows.read(cursor);
+    assertTrue(second instanceof TaxFreeSavingsAccount);
+    assertEquals(9, second.getId());
+    assertEquals("TFSA", second.getTypeName());
+    assertFalse(cursor.moveToNext());
+  }
+
+  @Test
+  public void unsetInterestRateIsZero() {
+    Cursor cursor = FakeCursor.of(COLUMNS, new Object[] {5, "Loan", -2500L, 5, "OWING", null});
+    AccountRows rows = new AccountRows(cursor);
+    assertTrue(cursor.moveToNext());
+    assertEquals(BigDecimal.ZERO, rows.read(cursor).getInterestRate());
+  }
+
+  @Test
+  public void columnsAreFoundByName() {
+    // the same row with its columns in another order
+    String[] columns = {"TYPENAME", "INTERESTRATE", "BALANCE", "NAME", "TYPE", "ID"};
+    Cursor cursor = FakeCursor.of(columns, new Object[] {"SAVING", "0.1", 50L, "Rainy day", 1, 6});
+    AccountRows rows = new AccountRows(cursor);
+    assertTrue(cursor.moveToNext());
+    Account account = rows.read(cursor);
+    assertEquals(6, account.getId());
+    assertEquals("Rainy day", account.getName());
+    assertEquals(Money.ofCents(50L), account.getMoneyBalance());
+    assertEquals("SAVING", account.getTypeName());
+  }
+
+}
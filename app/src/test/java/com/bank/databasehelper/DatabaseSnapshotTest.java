@@ -0,0 +1,141 @@
+package com.bank.databasehelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that values written to a compressed snapshot read back the same, that the checksum
+ * catches damage, and that damaged lengths and a failed writer end in an IOException.
+ */
+public class DatabaseSnapshotTest {
+
+  private File file;
+  private RandomAccessFile randomAccessFile;
+  private FileChannel channel;
+
+  @Before
+  public void openFile() throws IOException {
+    file = File.createTempFile("snapshot", ".bak");
+    randomAccessFile = new RandomAccessFile(file, "rw");
+    channel = randomAccessFile.getChannel();
+  }
+
+  @After
+  public void deleteFile() throws IOException {
+    randomAccessFile.close();
+    assertTrue(file.delete());
+  }
+
+  @Test
+  public void valuesRoundTripAcrossBlocks() throws IOException {
+    long[] numbers = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE};
+    long[] signedNumbers = {0, -1, 1, -64, 64, Long.MIN_VALUE, Long.MAX_VALUE};
+    byte[] blob = new byte[300 * 1024];
+    new Random(18).nextBytes(blob);
+
+    DatabaseSnapshot.Output output = new DatabaseSnapshot.Output(channel, new BackupThroughput());
+    try {
+      output.writeInt(DatabaseSnapshot.MAGIC);
+      output.writeLong(-5L);
+      for (long number : numbers) {
+        output.writeVarLong(number);
+      }
+      for (long number : signedNumbers) {
+        output.writeSignedVarLong(number);
+      }
+      output.writeText("café ☃");
+      output.writeBytes(blob);
+      output.writeByte(0xFF);
+      output.finish();
+    } finally {
+      output.close();
+    }
+
+    assertTrue(DatabaseSnapshot.verify(channel));
+    DatabaseSnapshot.Input input = new DatabaseSnapshot.Input(DatabaseSnapshot.openSource(channel));
+    assertEquals(DatabaseSnapshot.MAGIC, input.readInt());
+    assertEquals(-5L, input.readLong());
+    for (long number : numbers) {
+      assertEquals(number, input.readVarLong());
+    }
+    for (long number : signedNumbers) {
+      assertEquals(number, input.readSignedVarLong());
+    }
+    assertEquals("café ☃", input.readText());
+    assertArrayEquals(blob, input.readBytes());
+    assertEquals(0xFF, input.readByte());
+    assertTrue(input.isAtEnd());
+  }
+
+  @Test
+  public void damagedChecksumFailsVerification() throws IOException {
+    DatabaseSnapshot.Output output = new DatabaseSnapshot.Output(channel, new BackupThroughput());
+    try {
+      output.writeText("balance");
+      output.finish();
+    } finally {
+      output.close();
+    }
+    assertTrue(DatabaseSnapshot.verify(channel));
+    // the checksum is the last four bytes of the end frame
+    ByteBuffer last = ByteBuffer.allocate(1);
+    channel.read(last, channel.size() - 1);
+    last.put(0, (byte) (last.get(0) ^ 1));
+    last.rewind();
+    channel.write(last, channel.size() - 1);
+    assertFalse(DatabaseSnapshot.verify(channel));
+  }
+
+  @Test
+  public void overlongLengthIsRejectedBeforeAllocating() throws IOException {
+    DatabaseSnapshot.Output output = new DatabaseSnapshot.Output(channel, new BackupThroughput());
+    try {
+      output.writeVarLong(DatabaseSnapshot.MAX_VALUE_LENGTH + 1L);
+      output.finish();
+    } finally {
+      output.close();
+    }
+    DatabaseSnapshot.Input input = new DatabaseSnapshot.Input(DatabaseSnapshot.openSource(channel));
+    try {
+      input.readBytes();
+      fail("a length past the longest value was read");
+    } catch (IOException e) {
+      assertEquals("malformed length", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void failedWriterStopsTheProducer() throws IOException {
+    DatabaseSnapshot.Output output = new DatabaseSnapshot.Output(channel, new BackupThroughput());
+    // every write the writer thread makes from now on fails
+    channel.close();
+    byte[] blob = new byte[1024 * 1024];
+    Arrays.fill(blob, (byte) 7);
+    try {
+      // many more blocks than the writer has, so the producer must wait for free ones
+      output.writeBytes(blob);
+      output.finish();
+      fail("the snapshot was written to a closed channel");
+    } catch (IOException e) {
+      // the writer's failure, rather than waiting forever for a block
+    } finally {
+      output.close();
+    }
+  }
+
+}
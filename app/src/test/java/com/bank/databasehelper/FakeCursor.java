@@ -0,0 +1,85 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A cursor over rows held in memory, for building objects from rows without a database. Only the
+ * methods used to walk and read rows are supported.
+ */
+final class FakeCursor implements InvocationHandler {
+
+  private final List<String> columns;
+  private final Object[][] rows;
+  private int position = -1;
+  private boolean closed = false;
+
+  private FakeCursor(String[] columns, Object[][] rows) {
+    this.columns = Arrays.asList(columns);
+    this.rows = rows;
+  }
+
+  /**
+   * Returns a cursor over the rows, each holding a value for every column in order.
+   *
+   * @param columns the names of the columns
+   * @param rows the rows, <code>null</code> for a NULL value
+   * @return a cursor before the first row
+   */
+  static Cursor of(String[] columns, Object[]... rows) {
+    return (Cursor) Proxy.newProxyInstance(Cursor.class.getClassLoader(),
+            new Class<?>[] {Cursor.class}, new FakeCursor(columns, rows));
+  }
+
+  /**
+   * Returns <code>true</code> if the cursor has been closed.
+   *
+   * @param cursor a cursor returned by {@link #of}
+   * @return <code>true</code> if it was closed
+   */
+  static boolean isClosed(Cursor cursor) {
+    return ((FakeCursor) Proxy.getInvocationHandler(cursor)).closed;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "getCount":
+        return rows.length;
+      case "moveToFirst":
+        position = 0;
+        return rows.length > 0;
+      case "moveToNext":
+        position = Math.min(position + 1, rows.length);
+        return position < rows.length;
+      case "getColumnIndex":
+        return columns.indexOf(args[0]);
+      case "isNull":
+        return value(args) == null;
+      case "getString":
+        Object value = value(args);
+        return value == null ? null : value.toString();
+      case "getInt":
+        return value(args) == null ? 0 : ((Number) value(args)).intValue();
+      case "getLong":
+        return value(args) == null ? 0L : ((Number) value(args)).longValue();
+      case "close":
+        closed = true;
+        return null;
+      case "isClosed":
+        return closed;
+      default:
+        throw new UnsupportedOperationException(method.getName());
+    }
+  }
+
+  private Object value(Object[] args) {
+    return rows[position][(Integer) args[0]];
+  }
+
+}
@@ -0,0 +1,341 @@
+package com.bank.databasehelper;
+
+import android.database.Cursor;
+
+import com.bank.messages.MessageTemplate;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that an interest run reads accounts a chunk at a time, resumes an unfinished run of the
+ * same month from its checkpoint, starts over for a new month, and only counts the accounts the
+ * database credited.
+ */
+public class InterestBatchJobTest {
+
+  private static final int OCTOBER = 202610;
+  private static final int SEPTEMBER = 202609;
+
+  @Test
+  public void timesInOneMonthShareAPeriod() {
+    int period = InterestBatchJob.periodOf(new GregorianCalendar(2026, Calendar.OCTOBER, 1));
+    assertEquals(OCTOBER, period);
+    assertEquals(period, InterestBatchJob.periodOf(
+            new GregorianCalendar(2026, Calendar.OCTOBER, 31, 23, 59, 59)));
+  }
+
+  @Test
+  public void eachMonthIsItsOwnPeriod() {
+    assertEquals(202601, InterestBatchJob.periodOf(
+            new GregorianCalendar(2026, Calendar.JANUARY, 1)));
+    assertNotEquals(InterestBatchJob.periodOf(new GregorianCalendar(2025, Calendar.DECEMBER, 31)),
+            InterestBatchJob.periodOf(new GregorianCalendar(2026, Calendar.JANUARY, 1)));
+    // the same month of another year is not the same period
+    assertNotEquals(InterestBatchJob.periodOf(new GregorianCalendar(2025, Calendar.OCTOBER, 5)),
+            InterestBatchJob.periodOf(new GregorianCalendar(2026, Calendar.OCTOBER, 5)));
+  }
+
+  @Test
+  public void accountsAreWrittenAChunkAtATime() {
+    FakeStore store = new FakeStore();
+    // 1% of $100 is $1 on each account, except the empty one
+    store.addAccount(1, 10000, "0.01", 11);
+    store.addAccount(2, 0, "0.01", 12);
+    store.addAccount(3, 10000, "0.01", 13);
+    store.addAccount(4, 10000, null, 14);
+    store.addAccount(5, 10000, "0.01", 15);
+    InterestBatchJob job = new InterestBatchJob(2, store);
+
+    assertEquals(new BigDecimal("3.00"), job.run(OCTOBER));
+    assertEquals(3, job.getAccountsProcessed());
+    assertEquals(Arrays.asList(0, 2, 4), store.reads);
+    // accounts with no interest still move the checkpoint
+    assertEquals(Arrays.asList(2, 4, 5), store.checkpoints);
+    // only the accounts given interest are written
+    assertEquals(Arrays.asList(1, 1, 1), store.chunkAccounts);
+    assertEquals(10100, store.balances.get(1).longValue());
+    assertEquals(0, store.balances.get(2).longValue());
+    assertEquals(10000, store.balances.get(4).longValue());
+    FakeStore.Run run = store.runs.get(0);
+    assertTrue(run.complete);
+    assertEquals(3, run.accounts);
+    assertEquals(300, run.totalInterest);
+    assertEquals(0, store.depth);
+  }
+
+  @Test
+  public void fullLastChunkReadsOneMoreEmptyChunk() {
+    FakeStore store = new FakeStore();
+    for (int accountId = 1; accountId <= 4; accountId++) {
+      store.addAccount(accountId, 10000, "0.01", 10 + accountId);
+    }
+    InterestBatchJob job = new InterestBatchJob(2, store);
+
+    assertEquals(new BigDecimal("4.00"), job.run(OCTOBER));
+    assertEquals(Arrays.asList(0, 2, 4), store.reads);
+    // the empty chunk writes nothing
+    assertEquals(Arrays.asList(2, 4), store.checkpoints);
+    assertTrue(store.runs.get(0).complete);
+  }
+
+  @Test
+  public void unfinishedRunOfTheSameMonthResumesAtItsCheckpoint() {
+    FakeStore store = new FakeStore();
+    for (int accountId = 1; accountId <= 4; accountId++) {
+      store.addAccount(accountId, 10000, "0.01", 10 + accountId);
+    }
+    store.addRun(OCTOBER, 2, 2, 200);
+    InterestBatchJob job = new InterestBatchJob(2, store);
+
+    assertEquals(new BigDecimal("4.00"), job.run(OCTOBER));
+    assertEquals(4, job.getAccountsProcessed());
+    assertEquals(1, store.runs.size());
+    assertTrue(store.runs.get(0).complete);
+    // the accounts before the checkpoint were given this month's interest already
+    assertEquals(Arrays.asList(2, 4), store.reads);
+    assertEquals(10000, store.balances.get(1).longValue());
+    assertEquals(10100, store.balances.get(3).longValue());
+  }
+
+  @Test
+  public void unfinishedRunOfAnotherMonthIsAbandoned() {
+    FakeStore store = new FakeStore();
+    for (int accountId = 1; accountId <= 4; accountId++) {
+      store.addAccount(accountId, 10000, "0.01", 10 + accountId);
+    }
+    store.addRun(SEPTEMBER, 2, 2, 200);
+    InterestBatchJob job = new InterestBatchJob(2, store);
+
+    assertEquals(new BigDecimal("4.00"), job.run(OCTOBER));
+    assertEquals(4, job.getAccountsProcessed());
+    assertEquals(2, store.runs.size());
+    assertTrue(store.runs.get(0).complete);
+    FakeStore.Run run = store.runs.get(1);
+    assertEquals(OCTOBER, run.period);
+    assertTrue(run.complete);
+    // every account is due October's interest, including those below September's checkpoint
+    assertEquals(Arrays.asList(0, 2, 4), store.reads);
+    assertEquals(10100, store.balances.get(1).longValue());
+  }
+
+  @Test
+  public void interruptedRunGivesEveryAccountInterestOnce() {
+    FakeStore store = new FakeStore();
+    for (int accountId = 1; accountId <= 5; accountId++) {
+      store.addAccount(accountId, 10000, "0.01", 10 + accountId);
+    }
+    store.failingChunk = 2;
+    try {
+      new InterestBatchJob(2, store).run(OCTOBER);
+      fail("the failed chunk was not reported");
+    } catch (IllegalStateException e) {
+      // the second chunk rolled back
+    }
+    assertFalse(store.runs.get(0).complete);
+
+    InterestBatchJob job = new InterestBatchJob(2, store);
+    assertEquals(new BigDecimal("5.00"), job.run(OCTOBER));
+    assertEquals(5, job.getAccountsProcessed());
+    for (int accountId = 1; accountId <= 5; accountId++) {
+      assertEquals(10100, store.balances.get(accountId).longValue());
+    }
+    assertEquals(5, store.messages.size());
+  }
+
+  @Test
+  public void refusedCreditIsNotCounted() {
+    FakeStore store = new FakeStore();
+    store.addAccount(1, 10000, "0.01", 11);
+    store.addAccount(2, 20000, "0.01", 12, 22);
+    store.addAccount(3, 30000, "0.01", 13);
+    store.refused.add(2);
+    InterestBatchJob job = new InterestBatchJob(10, store);
+
+    assertEquals(new BigDecimal("4.00"), job.run(OCTOBER));
+    assertEquals(2, job.getAccountsProcessed());
+    assertEquals(2, store.runs.get(0).accounts);
+    assertEquals(400, store.runs.get(0).totalInterest);
+    assertEquals(Arrays.asList(
+            "11:" + MessageTemplate.ACCOUNT_INTEREST.encode(100, 1),
+            "13:" + MessageTemplate.ACCOUNT_INTEREST.encode(300, 3)), store.messages);
+  }
+
+  @Test
+  public void everyOwnerOfAJointAccountIsMessaged() {
+    FakeStore store = new FakeStore();
+    store.addAccount(1, 10000, "0.01", 11, 12, 13);
+    store.addAccount(2, 10000, "0.01", 14);
+    // one account per chunk, so the three owners outgrow the message arrays
+    InterestBatchJob job = new InterestBatchJob(1, store);
+
+    job.run(OCTOBER);
+    String parameters = MessageTemplate.ACCOUNT_INTEREST.encode(100, 1);
+    assertEquals(Arrays.asList("11:" + parameters, "12:" + parameters, "13:" + parameters,
+            "14:" + MessageTemplate.ACCOUNT_INTEREST.encode(100, 2)), store.messages);
+  }
+
+  /**
+   * Accounts, owners and interest runs held in memory. A chunk is applied only once it is known
+   * to succeed, the way a transaction rolls back.
+   */
+  private static final class FakeStore implements InterestBatchJob.Store {
+
+    static final class Run {
+      final int id;
+      final int period;
+      int lastAccountId;
+      int accounts;
+      long totalInterest;
+      boolean complete;
+
+      Run(int id, int period) {
+        this.id = id;
+        this.period = period;
+      }
+    }
+
+    final Map<Integer, Long> balances = new TreeMap<>();
+    final Map<Integer, String> rates = new TreeMap<>();
+    final Map<Integer, int[]> owners = new TreeMap<>();
+    final Set<Integer> refused = new HashSet<>();
+    final List<Run> runs = new ArrayList<>();
+    final List<String> messages = new ArrayList<>();
+    final List<Integer> reads = new ArrayList<>();
+    final List<Integer> checkpoints = new ArrayList<>();
+    final List<Integer> chunkAccounts = new ArrayList<>();
+    int failingChunk = 0;
+    int chunksWritten = 0;
+    int depth = 0;
+
+    void addAccount(int accountId, long balanceCents, String rate, int... ownerIds) {
+      balances.put(accountId, balanceCents);
+      rates.put(accountId, rate);
+      owners.put(accountId, ownerIds);
+    }
+
+    void addRun(int period, int lastAccountId, int accounts, long totalInterest) {
+      Run run = new Run(runs.size() + 1, period);
+      run.lastAccountId = lastAccountId;
+      run.accounts = accounts;
+      run.totalInterest = totalInterest;
+      runs.add(run);
+    }
+
+    @Override
+    public Cursor getOpenRun() {
+      String[] columns = {"ID", "LASTACCOUNTID", "ACCOUNTS", "TOTALINTEREST", "PERIOD"};
+      for (int i = runs.size() - 1; i >= 0; i--) {
+        Run run = runs.get(i);
+        if (!run.complete) {
+          return FakeCursor.of(columns, new Object[] {run.id, run.lastAccountId, run.accounts,
+              run.totalInterest, run.period});
+        }
+      }
+      return FakeCursor.of(columns);
+    }
+
+    @Override
+    public int insertRun(int period) {
+      addRun(period, 0, 0, 0);
+      return runs.size();
+    }
+
+    @Override
+    public void completeRun(int runId) {
+      runs.get(runId - 1).complete = true;
+    }
+
+    @Override
+    public void beginTransaction() {
+      depth++;
+    }
+
+    @Override
+    public void setTransactionSuccessful() {
+    }
+
+    @Override
+    public void endTransaction() {
+      depth--;
+    }
+
+    @Override
+    public Cursor getAccountsDetails(int afterAccountId, int limit) {
+      reads.add(afterAccountId);
+      List<Object[]> rows = new ArrayList<>();
+      for (Map.Entry<Integer, Long> account : balances.entrySet()) {
+        if (account.getKey() > afterAccountId && rows.size() < limit) {
+          rows.add(new Object[] {account.getKey(), account.getValue(),
+              rates.get(account.getKey())});
+        }
+      }
+      return FakeCursor.of(new String[] {"ID", "BALANCE", "INTERESTRATE"},
+              rows.toArray(new Object[0][]));
+    }
+
+    @Override
+    public Cursor getAccountOwners(int afterAccountId, int lastAccountId) {
+      List<Object[]> rows = new ArrayList<>();
+      for (Map.Entry<Integer, int[]> account : owners.entrySet()) {
+        if (account.getKey() > afterAccountId && account.getKey() <= lastAccountId) {
+          for (int userId : account.getValue()) {
+            rows.add(new Object[] {account.getKey(), userId});
+          }
+        }
+      }
+      return FakeCursor.of(new String[] {"ACCOUNTID", "USERID"},
+              rows.toArray(new Object[0][]));
+    }
+
+    @Override
+    public boolean[] updateRun(int runId, int lastAccountId, int[] accountIds, long[] interests,
+                               int[] messageAccounts, int[] messageUserIds,
+                               int messageTemplateId, String[] messageParameters) {
+      assertTrue("written outside a transaction", depth > 0);
+      assertEquals(MessageTemplate.ACCOUNT_INTEREST.getCode(), messageTemplateId);
+      if (++chunksWritten == failingChunk) {
+        throw new IllegalStateException("disk full");
+      }
+      boolean[] credited = new boolean[accountIds.length];
+      Run run = runs.get(runId - 1);
+      for (int i = 0; i < accountIds.length; i++) {
+        if (!refused.contains(accountIds[i])) {
+          credited[i] = true;
+          balances.put(accountIds[i], balances.get(accountIds[i]) + interests[i]);
+          run.accounts++;
+          run.totalInterest += interests[i];
+        }
+      }
+      for (int i = 0; i < messageParameters.length; i++) {
+        // each message is about the account it says it is
+        assertEquals(MessageTemplate.ACCOUNT_INTEREST.encode(interests[messageAccounts[i]],
+                accountIds[messageAccounts[i]]), messageParameters[i]);
+        if (credited[messageAccounts[i]]) {
+          messages.add(messageUserIds[i] + ":" + messageParameters[i]);
+        }
+      }
+      run.lastAccountId = lastAccountId;
+      checkpoints.add(lastAccountId);
+      chunkAccounts.add(accountIds.length);
+      return credited;
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.bank.generics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that constants and ID numbers map both ways, and that missing ones map to nothing.
+ */
+public class EnumRegistryTest {
+
+  @Test
+  public void namesMapToIdsBothWays() {
+    EnumRegistry<Roles> registry = EnumRegistry.of(Roles.class, Arrays.asList(1, 2, 3),
+            Arrays.asList("admin", "TELLER", "Customer"));
+    assertEquals(1, registry.getId(Roles.ADMIN));
+    assertEquals(2, registry.getId(Roles.TELLER));
+    assertEquals(3, registry.getId(Roles.CUSTOMER));
+    assertSame(Roles.ADMIN, registry.getConstant(1));
+    assertSame(Roles.CUSTOMER, registry.getConstant(3));
+  }
+
+  @Test
+  public void missingConstantsAndIdsMapToNothing() {
+    EnumRegistry<Roles> registry = EnumRegistry.of(Roles.class, Arrays.asList(4, 7),
+            Arrays.asList("TELLER", "NOT A ROLE"));
+    assertEquals(EnumRegistry.NO_ID, registry.getId(Roles.ADMIN));
+    assertFalse(registry.contains(Roles.ADMIN));
+    assertNull(registry.getConstant(7));
+    assertNull(registry.getConstant(-1));
+    assertNull(registry.getConstant(100));
+  }
+
+  @Test
+  public void nullConstantHasNoId() {
+    EnumRegistry<Roles> registry = EnumRegistry.of(Roles.class, Arrays.asList(1),
+            Arrays.asList("ADMIN"));
+    assertEquals(EnumRegistry.NO_ID, registry.getId(null));
+    assertFalse(registry.contains(null));
+    assertEquals(-2, RolesEnumMap.getRoleId(null));
+  }
+
+  @Test
+  public void remappingMovesTheId() {
+    EnumRegistry<Roles> registry = EnumRegistry.empty(Roles.class)
+            .with(Roles.ADMIN, 1)
+            .with(Roles.ADMIN, 5);
+    assertEquals(5, registry.getId(Roles.ADMIN));
+    assertNull(registry.getConstant(1));
+    // taking an ID from another constant leaves that constant unmapped
+    registry = registry.with(Roles.TELLER, 5);
+    assertEquals(EnumRegistry.NO_ID, registry.getId(Roles.ADMIN));
+    assertTrue(registry.contains(Roles.TELLER));
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.bank.messages;
+
+import com.bank.accounts.Money;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that a message stored as its template and parameters reads back as the same sentence the
+ * bank stored as text before templates, and that every template is found by its code.
+ */
+public class MessageTemplateTest {
+
+  @Test
+  public void interestRendersAsTheOldText() {
+    BigDecimal interest = new BigDecimal("12.34");
+    String stored = MessageTemplate.ACCOUNT_INTEREST.encode(Money.of(interest).getCents(), 7);
+    assertEquals(String.format(Locale.CANADA,
+            "SYSTEM: interest of $%s has been added to account with ID %d.", interest, 7),
+            MessageTemplate.ACCOUNT_INTEREST.render(stored));
+
+    BigDecimal total = new BigDecimal("1234567.05");
+    stored = MessageTemplate.TOTAL_INTEREST.encode(Money.of(total).getCents());
+    assertEquals(String.format("SYSTEM: interest totaling $%s has been added to all accounts.",
+            total), MessageTemplate.TOTAL_INTEREST.render(stored));
+  }
+
+  @Test
+  public void balanceChangeRendersAsTheOldText() {
+    Money minBalance = Money.ofCents(500000);
+    String stored = MessageTemplate.SAVINGS_ACCOUNT_CHANGE.encode(minBalance.getCents(), 42);
+    assertEquals(String.format(Locale.CANADA, "SYSTEM: TFSA balance was under $%s. "
+            + "Account with ID %d has now been transformed into a SAVINGS account.",
+            minBalance, 42), MessageTemplate.SAVINGS_ACCOUNT_CHANGE.render(stored));
+
+    stored = MessageTemplate.JOINT_ACCOUNT.encode(3);
+    assertEquals("SYSTEM: a joint account with ID 3 has been created.",
+            MessageTemplate.JOINT_ACCOUNT.render(stored));
+  }
+
+  @Test
+  public void negativeAmountsRender() {
+    String stored = MessageTemplate.ACCOUNT_INTEREST.encode(-5, 1);
+    assertEquals("SYSTEM: interest of $-0.05 has been added to account with ID 1.",
+            MessageTemplate.ACCOUNT_INTEREST.render(stored));
+  }
+
+  @Test
+  public void everyTemplateIsFoundByItsCode() {
+    for (MessageTemplate template : MessageTemplate.values()) {
+      assertSame(template, MessageTemplate.fromCode(template.getCode()));
+    }
+    assertNull(MessageTemplate.fromCode(0));
+    assertNull(MessageTemplate.fromCode(-1));
+    assertNull(MessageTemplate.fromCode(100));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongParameterCountIsAnError() {
+    MessageTemplate.ACCOUNT_INTEREST.encode(1234);
+  }
+
+}
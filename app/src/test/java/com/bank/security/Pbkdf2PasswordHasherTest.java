@@ -0,0 +1,67 @@
+package com.bank.security;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PBKDF2 derivation against published PBKDF2-HMAC-SHA256 vectors, and that stored
+ * hashes verify only their own password and are replaced when the cost is raised.
+ */
+public class Pbkdf2PasswordHasherTest {
+
+  private static final byte[] SALT = "salt".getBytes(Charset.forName("UTF-8"));
+
+  @Test
+  public void deriveMatchesKnownVectors() {
+    assertEquals("120fb6cffcf8b32c43e7225256c4f837a86548c92ccc35480805987cb70be17b",
+            Hex.encode(Pbkdf2PasswordHasher.derive("password", SALT, 1)));
+    assertEquals("ae4d0c95af6b46d32d0adff928f06dd02a303f8ef3c251dfd6e2d85a95474c43",
+            Hex.encode(Pbkdf2PasswordHasher.derive("password", SALT, 2)));
+    assertEquals("c5e478d59288c841aa530db6845c4c8d962893a001ce4e11a4963873aa98134a",
+            Hex.encode(Pbkdf2PasswordHasher.derive("password", SALT, 4096)));
+    assertEquals("55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc",
+            Hex.encode(Pbkdf2PasswordHasher.derive("passwd", SALT, 1)));
+  }
+
+  @Test
+  public void emptyPasswordIsDerived() {
+    assertEquals("5ddf839afa2d5fb4be56e1a0f48917617559bef61ec122bfca1c7f75ac8f401d",
+            Hex.encode(Pbkdf2PasswordHasher.derive("", SALT, 3)));
+  }
+
+  @Test
+  public void hashVerifiesOnlyItsPassword() {
+    PasswordHasher hasher = new Pbkdf2PasswordHasher(100);
+    String storedHash = hasher.hash("correct horse");
+    assertTrue(storedHash.startsWith(Pbkdf2PasswordHasher.SCHEME + "$100$"));
+    assertTrue(hasher.verify(storedHash, "correct horse"));
+    assertFalse(hasher.verify(storedHash, "correct horse "));
+    assertFalse(hasher.verify(storedHash.substring(0, storedHash.length() - 2), "correct horse"));
+  }
+
+  @Test
+  public void lowerCostHashNeedsRehash() {
+    String storedHash = new Pbkdf2PasswordHasher(100).hash("password");
+    assertTrue(new Pbkdf2PasswordHasher(200).needsRehash(storedHash));
+    assertFalse(new Pbkdf2PasswordHasher(100).needsRehash(storedHash));
+    // a hash keeps verifying with the cost it was made with
+    assertTrue(new Pbkdf2PasswordHasher(200).verify(storedHash, "password"));
+  }
+
+  @Test
+  public void hexRoundTrips() {
+    byte[] bytes = {0, 1, 0x7f, (byte) 0x80, (byte) 0xff};
+    assertEquals("00017f80ff", Hex.encode(bytes));
+    assertArrayEquals(bytes, Hex.decode("00017F80ff"));
+    assertNull(Hex.decode("abc"));
+    assertNull(Hex.decode("zz"));
+  }
+
+}
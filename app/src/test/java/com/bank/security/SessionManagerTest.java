@@ -0,0 +1,90 @@
+package com.bank.security;
+
+import com.bank.generics.Roles;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that sessions are found by their tokens only while open, for their own role.
+ */
+public class SessionManagerTest {
+
+  private static final long TIMEOUT_NANOS =
+          TimeUnit.MINUTES.toNanos(SessionManager.SESSION_TIMEOUT_MINUTES);
+
+  @Test
+  public void openSessionIsFoundByToken() {
+    String token = SessionManager.open(7, Roles.TELLER);
+    Session session = SessionManager.getSession(token, Roles.TELLER);
+    assertNotNull(session);
+    assertEquals(7, session.getUserId());
+    assertEquals(Roles.TELLER, session.getRole());
+  }
+
+  @Test
+  public void tokensAreUniqueAndOpaque() {
+    String first = SessionManager.open(1, Roles.CUSTOMER);
+    String second = SessionManager.open(1, Roles.CUSTOMER);
+    assertNotEquals(first, second);
+    // 32 random bytes in hex, nothing of the user in it
+    assertTrue(first.matches("[0-9a-f]{64}"));
+  }
+
+  @Test
+  public void sessionOfAnotherRoleIsNotFound() {
+    String token = SessionManager.open(3, Roles.CUSTOMER);
+    assertNull(SessionManager.getSession(token, Roles.ADMIN));
+    assertNotNull(SessionManager.getSession(token, Roles.CUSTOMER));
+  }
+
+  @Test
+  public void loggedOutSessionIsNotFound() {
+    String token = SessionManager.open(4, Roles.ADMIN);
+    SessionManager.logout(token);
+    assertNull(SessionManager.getSession(token, Roles.ADMIN));
+  }
+
+  @Test
+  public void unknownOrMissingTokenIsNotFound() {
+    assertNull(SessionManager.getSession(null, Roles.TELLER));
+    assertNull(SessionManager.getSession("not a token", Roles.TELLER));
+  }
+
+  @Test
+  public void idleSessionExpires() {
+    String token = SessionManager.open(5, Roles.TELLER);
+    long now = System.nanoTime();
+    assertNull(SessionManager.getSession(token, Roles.TELLER, now + TIMEOUT_NANOS + 1));
+    // an expired session is dropped, not just hidden
+    assertNull(SessionManager.getSession(token, Roles.TELLER, now));
+  }
+
+  @Test
+  public void usingSessionPutsOffExpiry() {
+    String token = SessionManager.open(6, Roles.TELLER);
+    long now = System.nanoTime();
+    assertNotNull(SessionManager.getSession(token, Roles.TELLER, now + TIMEOUT_NANOS / 2));
+    assertNotNull(SessionManager.getSession(token, Roles.TELLER, now + TIMEOUT_NANOS));
+    assertNotNull(SessionManager.getSession(token, Roles.TELLER,
+            now + TIMEOUT_NANOS + TIMEOUT_NANOS / 2));
+  }
+
+  @Test
+  public void sessionExpiresOnlyAfterTimeout() {
+    Session session = new Session("token", 1, Roles.CUSTOMER, 100);
+    long now = System.nanoTime();
+    session.touch(now);
+    assertFalse(session.isExpired(now + 100));
+    assertTrue(session.isExpired(now + 101));
+  }
+
+}
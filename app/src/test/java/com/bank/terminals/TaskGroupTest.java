@@ -0,0 +1,55 @@
+package com.bank.terminals;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a task group cancels only the reads still pending.
+ */
+public class TaskGroupTest {
+
+  private static FutureTask<Integer> task(final int value) {
+    return new FutureTask<>(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return value;
+      }
+    });
+  }
+
+  @Test
+  public void cancelAllCancelsPendingReads() {
+    TaskGroup group = new TaskGroup();
+    FutureTask<Integer> pending = task(1);
+    group.add(pending);
+    assertEquals(1, group.size());
+    group.cancelAll();
+    assertTrue(pending.isCancelled());
+    assertEquals(0, group.size());
+    // a cancelled read never runs
+    pending.run();
+    assertTrue(pending.isCancelled());
+  }
+
+  @Test
+  public void finishedReadsAreNotCancelled() throws Exception {
+    TaskGroup group = new TaskGroup();
+    FutureTask<Integer> finished = task(2);
+    group.add(finished);
+    finished.run();
+    FutureTask<Integer> pending = task(3);
+    group.add(pending);
+    assertEquals(1, group.size());
+    group.cancelAll();
+    assertFalse(finished.isCancelled());
+    assertEquals(Integer.valueOf(2), finished.get());
+    assertTrue(pending.isCancelled());
+  }
+
+}